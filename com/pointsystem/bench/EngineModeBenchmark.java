@@ -0,0 +1,101 @@
+package com.pointsystem.bench;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.EngineMode;
+import com.pointsystem.model.PointSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput comparison of {@link EngineMode#LOCKED} and {@link EngineMode#PARTITIONED}
+ * activity awards. Each measurement warms up first, then counts awards completed by a fixed
+ * number of producer threads over a timed window. PARTITIONED is measured both with
+ * callers waiting for each award and with fire-and-forget submission.
+ *
+ * <pre>
+ * java com.pointsystem.bench.EngineModeBenchmark [users] [threads] [partitions] [seconds]
+ * </pre>
+ */
+public class EngineModeBenchmark {
+    private static final ActivityType[] ACTIVITY_MIX = {
+        ActivityType.POST, ActivityType.LIKE, ActivityType.COMMENT, ActivityType.SHARE, ActivityType.VIDEO_WATCH
+    };
+    private static final int WARMUP_SECONDS = 2;
+
+    private enum Variant {
+        LOCKED, PARTITIONED_SYNC, PARTITIONED_ASYNC
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int partitions = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        System.out.printf("users=%d threads=%d partitions=%d seconds=%d%n", users, threads, partitions, seconds);
+        for (Variant variant : Variant.values()) {
+            double opsPerSecond = run(variant, users, threads, partitions, seconds);
+            System.out.printf("%-18s %,14.0f awards/s%n", variant, opsPerSecond);
+        }
+    }
+
+    private static double run(Variant variant, int users, int threads, int partitions, int seconds)
+            throws InterruptedException {
+        PointSystem pointSystem = new PointSystem();
+        String[] userIds = new String[users];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = "bench-" + i;
+            pointSystem.registerUser(userIds[i], "bench" + i);
+        }
+        pointSystem.setEngineMode(variant == Variant.LOCKED ? EngineMode.LOCKED : EngineMode.PARTITIONED, partitions);
+
+        measure(pointSystem, variant, userIds, threads, WARMUP_SECONDS);
+        double opsPerSecond = measure(pointSystem, variant, userIds, threads, seconds);
+        pointSystem.setEngineMode(EngineMode.LOCKED, 0);
+        return opsPerSecond;
+    }
+
+    private static double measure(PointSystem pointSystem, Variant variant, String[] userIds, int threads,
+                                  int seconds) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder completed = new LongAdder();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                long count = 0;
+                while (!stop.get()) {
+                    String userId = userIds[random.nextInt(userIds.length)];
+                    ActivityType type = ACTIVITY_MIX[random.nextInt(ACTIVITY_MIX.length)];
+                    if (variant == Variant.PARTITIONED_ASYNC) {
+                        pointSystem.submitActivity(userId, null, type, 1.0);
+                    } else {
+                        pointSystem.processActivity(userId, null, type, 1.0);
+                    }
+                    count++;
+                }
+                completed.add(count);
+            }, "bench-producer-" + t);
+            workers.add(worker);
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // Asynchronous submissions only count once the loops have applied them
+        pointSystem.drainEngine();
+        long elapsed = System.nanoTime() - start;
+        return completed.sum() * 1e9 / elapsed;
+    }
+}
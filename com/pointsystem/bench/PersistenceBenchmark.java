@@ -0,0 +1,174 @@
+package com.pointsystem.bench;
+
+import com.pointsystem.dao.ConnectionPool;
+import com.pointsystem.dao.JdbcPointDao;
+import com.pointsystem.dao.WriteWorkers;
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.PointSystem;
+import com.pointsystem.model.PointType;
+import com.pointsystem.model.User;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point-award write throughput against a real JDBC database, through the same
+ * {@code User.addPoints} path the application uses:
+ * <ul>
+ *   <li>SHARED_CONNECTION: every user writes through one connection, preparing each statement per write</li>
+ *   <li>POOLED: {@link JdbcPointDao} over a {@link ConnectionPool} with cached statements</li>
+ *   <li>POOLED_BATCHED: the same DAO queuing through {@link WriteWorkers}, timed until flushed</li>
+ * </ul>
+ * Point it at an in-process database for a self-contained run, e.g. with H2 on the classpath:
+ *
+ * <pre>
+ * java com.pointsystem.bench.PersistenceBenchmark jdbc:h2:mem:points;DB_CLOSE_DELAY=-1 [user] [password]
+ *      [writes] [threads] [users]
+ * </pre>
+ */
+public class PersistenceBenchmark {
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS users (user_id VARCHAR(64) PRIMARY KEY, username VARCHAR(64), "
+            + "total_points INT, tier_id INT, last_login_date TIMESTAMP, last_points_decay_date TIMESTAMP, "
+            + "current_login_streak INT, followers_count INT, following_count INT)",
+        "CREATE TABLE IF NOT EXISTS point_history (user_id VARCHAR(64), points INT, point_type VARCHAR(16), "
+            + "earned_at TIMESTAMP)",
+        "CREATE TABLE IF NOT EXISTS user_badges (user_id VARCHAR(64), badge_id INT, earned_at TIMESTAMP)",
+        "CREATE TABLE IF NOT EXISTS challenge_participants (user_id VARCHAR(64), challenge_id VARCHAR(64))",
+        "CREATE TABLE IF NOT EXISTS user_rewards (user_id VARCHAR(64), reward VARCHAR(255))"
+    };
+
+    private enum Variant {
+        SHARED_CONNECTION, POOLED, POOLED_BATCHED
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:points;DB_CLOSE_DELAY=-1";
+        String user = args.length > 1 ? args[1] : "";
+        String password = args.length > 2 ? args[2] : "";
+        int writes = args.length > 3 ? Integer.parseInt(args[3]) : 200_000;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int users = args.length > 5 ? Integer.parseInt(args[5]) : 1000;
+
+        try (Connection admin = DriverManager.getConnection(url, user, password)) {
+            createSchema(admin, users);
+            System.out.printf("url=%s writes=%d threads=%d users=%d%n", url, writes, threads, users);
+            for (Variant variant : Variant.values()) {
+                clearHistory(admin);
+                long start = System.nanoTime();
+                run(variant, url, user, password, admin, writes, threads, users);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("%-18s %,12.0f awards/s  (%,d history rows)%n",
+                    variant, writes * 1e9 / elapsed, countHistory(admin));
+            }
+        }
+    }
+
+    private static void run(Variant variant, String url, String user, String password, Connection admin,
+                            int writes, int threads, int userCount) throws Exception {
+        Connection shared = variant == Variant.SHARED_CONNECTION ? DriverManager.getConnection(url, user, password) : null;
+        ConnectionPool pool = variant == Variant.SHARED_CONNECTION ? null : new ConnectionPool(url, user, password, threads);
+        WriteWorkers workers = variant == Variant.POOLED_BATCHED ? new WriteWorkers(pool, threads) : null;
+        JdbcPointDao dao = pool != null ? new JdbcPointDao(pool, workers) : null;
+        try {
+            PointSystem pointSystem = new PointSystem(shared);
+            List<User> loaded = loadUsers(admin, shared, userCount);
+            for (User u : loaded) {
+                pointSystem.addExistingUser(u);
+            }
+            pointSystem.setPointStore(dao);
+
+            List<Thread> workerThreads = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int slice = t;
+                workerThreads.add(new Thread(() -> {
+                    // Each thread owns the users in its slice, as a partition or user lock would
+                    int perThread = writes / threads + (slice < writes % threads ? 1 : 0);
+                    int owned = Math.max(1, (loaded.size() - slice + threads - 1) / threads);
+                    for (int i = 0; i < perThread; i++) {
+                        int index = slice + (i % owned) * threads;
+                        if (index < loaded.size()) {
+                            loaded.get(index).addPoints(10, PointType.EXPIRING);
+                        }
+                    }
+                }, "persistence-bench-" + t));
+            }
+            for (Thread thread : workerThreads) {
+                thread.start();
+            }
+            for (Thread thread : workerThreads) {
+                thread.join();
+            }
+            if (dao != null) {
+                dao.flush();
+            }
+        } finally {
+            if (workers != null) {
+                workers.close();
+            }
+            if (pool != null) {
+                pool.close();
+            }
+            if (shared != null) {
+                shared.close();
+            }
+        }
+    }
+
+    private static void createSchema(Connection admin, int users) throws SQLException {
+        try (Statement stmt = admin.createStatement()) {
+            for (String ddl : SCHEMA) {
+                stmt.execute(ddl);
+            }
+            stmt.execute("DELETE FROM users");
+        }
+        String sql = "INSERT INTO users (user_id, username, total_points, tier_id, last_login_date, "
+            + "last_points_decay_date, current_login_streak, followers_count, following_count) "
+            + "VALUES (?, ?, 0, ?, ?, ?, 0, 0, 0)";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement stmt = admin.prepareStatement(sql)) {
+            for (int i = 0; i < users; i++) {
+                stmt.setString(1, "bench-" + i);
+                stmt.setString(2, "bench" + i);
+                stmt.setInt(3, MembershipTier.BRONZE.getTierId());
+                stmt.setTimestamp(4, now);
+                stmt.setTimestamp(5, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static List<User> loadUsers(Connection admin, Connection userConnection, int users) throws SQLException {
+        List<User> loaded = new ArrayList<>(users);
+        try (PreparedStatement stmt = admin.prepareStatement("SELECT user_id, username FROM users ORDER BY user_id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                loaded.add(new User(rs.getString(1), rs.getString(2), 0, MembershipTier.BRONZE,
+                    null, LocalDateTime.now(), 0, 0, 0, userConnection));
+            }
+        }
+        return loaded;
+    }
+
+    private static void clearHistory(Connection admin) throws SQLException {
+        try (Statement stmt = admin.createStatement()) {
+            stmt.execute("DELETE FROM point_history");
+        }
+    }
+
+    private static long countHistory(Connection admin) throws SQLException {
+        try (Statement stmt = admin.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM point_history")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
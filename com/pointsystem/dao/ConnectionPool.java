@@ -0,0 +1,155 @@
+package com.pointsystem.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size JDBC connection pool. Connections are opened lazily up to the maximum, and
+ * each one keeps its own prepared-statement cache for as long as it lives, so a steady
+ * workload prepares each statement once per connection. Acquire in try-with-resources:
+ *
+ * <pre>
+ * try (PooledConnection connection = pool.acquire()) {
+ *     PreparedStatement stmt = connection.prepare(sql);
+ *     ...
+ * }
+ * </pre>
+ */
+public class ConnectionPool implements AutoCloseable {
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5000;
+    private static final long OPEN_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final long acquireTimeoutMillis;
+    private final BlockingQueue<PooledConnection> idle;
+    private final AtomicInteger open;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this(() -> DriverManager.getConnection(url, user, password), maxSize,
+            DEFAULT_STATEMENT_CACHE_SIZE, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(ConnectionFactory factory, int maxSize, int statementCacheSize, long acquireTimeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idle = new LinkedBlockingQueue<>();
+        this.open = new AtomicInteger();
+    }
+
+    /**
+     * Takes an idle connection, opens a new one if under the maximum, or waits for one
+     * to be returned.
+     * @throws SQLException if the pool is closed, a connection cannot be opened, or none
+     *         is returned within the acquire timeout
+     */
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        PooledConnection connection = idle.poll();
+        if (connection != null) {
+            return connection.checkout();
+        }
+        connection = tryOpen();
+        if (connection != null) {
+            return connection;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a pooled connection");
+                }
+                // A discarded broken connection frees a slot without waking anyone, so wait in slices and retry opening
+                connection = idle.poll(Math.min(remaining, OPEN_RETRY_NANOS), TimeUnit.NANOSECONDS);
+                if (connection != null) {
+                    return connection.checkout();
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                connection = tryOpen();
+                if (connection != null) {
+                    return connection;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a pooled connection", e);
+        }
+    }
+
+    private PooledConnection tryOpen() throws SQLException {
+        while (true) {
+            int current = open.get();
+            if (current >= maxSize) {
+                return null;
+            }
+            if (open.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        try {
+            return new PooledConnection(this, factory.create(), statementCacheSize);
+        } catch (SQLException | RuntimeException e) {
+            open.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a connection; broken connections and returns after close are discarded.
+     */
+    void release(PooledConnection connection) {
+        if (closed || connection.isBroken()) {
+            connection.closePhysical();
+            open.decrementAndGet();
+            return;
+        }
+        idle.offer(connection);
+    }
+
+    public int getOpenCount() {
+        return open.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Closes idle connections now; connections in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.closePhysical();
+            open.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.pointsystem.dao;
+
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.PointStore;
+import com.pointsystem.model.PointType;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@link PointStore} over a {@link ConnectionPool}. Without write workers each call borrows a
+ * connection, runs its statements from the connection's statement cache and returns it; with
+ * {@link WriteWorkers} the writes are queued by user id and applied in batches.
+ */
+public class JdbcPointDao implements PointStore {
+    static final String INSERT_USER = "INSERT INTO users (user_id, username, total_points, tier_id, "
+        + "last_login_date, last_points_decay_date, current_login_streak, followers_count, following_count) "
+        + "VALUES (?, ?, 0, 1, ?, ?, 0, 0, 0)";
+    static final String UPDATE_TOTAL_POINTS = "UPDATE users SET total_points = ? WHERE user_id = ?";
+    static final String INSERT_POINT_HISTORY =
+        "INSERT INTO point_history (user_id, points, point_type, earned_at) VALUES (?, ?, ?, ?)";
+    static final String INSERT_CHALLENGE_PARTICIPANT =
+        "INSERT INTO challenge_participants (user_id, challenge_id) VALUES (?, ?)";
+    static final String INSERT_REWARD = "INSERT INTO user_rewards (user_id, reward) VALUES (?, ?)";
+    static final String UPDATE_TIER = "UPDATE users SET tier_id = ? WHERE user_id = ?";
+
+    private final ConnectionPool pool;
+    private final WriteWorkers workers;
+
+    public JdbcPointDao(ConnectionPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * @param workers Writers to queue through, or null to write synchronously
+     */
+    public JdbcPointDao(ConnectionPool pool, WriteWorkers workers) {
+        this.pool = pool;
+        this.workers = workers;
+    }
+
+    @Override
+    public void insertUser(String userId, String username, LocalDateTime createdAt) {
+        Timestamp created = Timestamp.valueOf(createdAt);
+        write(userId, INSERT_USER, stmt -> {
+            stmt.setString(1, userId);
+            stmt.setString(2, username);
+            stmt.setTimestamp(3, created);
+            stmt.setTimestamp(4, created);
+        }, "Error registering new user");
+    }
+
+    @Override
+    public void recordPoints(String userId, int totalPoints, int points, PointType type, LocalDateTime earnedAt) {
+        Timestamp earned = Timestamp.valueOf(earnedAt);
+        if (workers != null) {
+            workers.submit(userId, UPDATE_TOTAL_POINTS, stmt -> bindTotal(stmt, userId, totalPoints));
+            workers.submit(userId, INSERT_POINT_HISTORY, stmt -> bindHistory(stmt, userId, points, type, earned));
+            return;
+        }
+        try (PooledConnection connection = pool.acquire()) {
+            try {
+                PreparedStatement stmt = connection.prepare(UPDATE_TOTAL_POINTS);
+                bindTotal(stmt, userId, totalPoints);
+                stmt.executeUpdate();
+                stmt = connection.prepare(INSERT_POINT_HISTORY);
+                bindHistory(stmt, userId, points, type, earned);
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                connection.markBroken();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating points: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void addChallengeParticipant(String userId, String challengeId) {
+        write(userId, INSERT_CHALLENGE_PARTICIPANT, stmt -> {
+            stmt.setString(1, userId);
+            stmt.setString(2, challengeId);
+        }, "Error joining challenge");
+    }
+
+    @Override
+    public void addReward(String userId, String reward) {
+        write(userId, INSERT_REWARD, stmt -> {
+            stmt.setString(1, userId);
+            stmt.setString(2, reward);
+        }, "Error adding reward");
+    }
+
+    @Override
+    public void updateTiers(List<String> userIds, MembershipTier tier) {
+        if (workers != null) {
+            for (String userId : userIds) {
+                workers.submit(userId, UPDATE_TIER, stmt -> bindTier(stmt, userId, tier));
+            }
+            return;
+        }
+        try (PooledConnection connection = pool.acquire()) {
+            try {
+                PreparedStatement stmt = connection.prepare(UPDATE_TIER);
+                for (String userId : userIds) {
+                    bindTier(stmt, userId, tier);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            } catch (SQLException e) {
+                connection.markBroken();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating user tier: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for queued writes; returns immediately when writing synchronously.
+     */
+    @Override
+    public void flush() {
+        if (workers != null) {
+            workers.flush();
+        }
+    }
+
+    private void write(String userId, String sql, WriteWorkers.Binder binder, String errorMessage) {
+        if (workers != null) {
+            workers.submit(userId, sql, binder);
+            return;
+        }
+        try (PooledConnection connection = pool.acquire()) {
+            try {
+                PreparedStatement stmt = connection.prepare(sql);
+                binder.bind(stmt);
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                connection.markBroken();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println(errorMessage + ": " + e.getMessage());
+        }
+    }
+
+    private static void bindTotal(PreparedStatement stmt, String userId, int totalPoints) throws SQLException {
+        stmt.setInt(1, totalPoints);
+        stmt.setString(2, userId);
+    }
+
+    private static void bindHistory(PreparedStatement stmt, String userId, int points, PointType type,
+                                    Timestamp earnedAt) throws SQLException {
+        stmt.setString(1, userId);
+        stmt.setInt(2, points);
+        stmt.setString(3, type.name());
+        stmt.setTimestamp(4, earnedAt);
+    }
+
+    private static void bindTier(PreparedStatement stmt, String userId, MembershipTier tier) throws SQLException {
+        stmt.setInt(1, tier.getTierId());
+        stmt.setString(2, userId);
+    }
+}
@@ -0,0 +1,113 @@
+package com.pointsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A connection borrowed from a {@link ConnectionPool}, with an LRU cache of prepared
+ * statements keyed by SQL. Closing it returns it to the pool. Used by one thread at a time.
+ */
+public final class PooledConnection implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final int statementCacheSize;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private boolean broken;
+    private boolean released;
+    private long cacheHits;
+    private long cacheMisses;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached statement for sql with its parameters cleared, preparing it on
+     * first use. The statement belongs to the cache: do not close it.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null) {
+            cacheHits++;
+            stmt.clearParameters();
+            return stmt;
+        }
+        cacheMisses++;
+        stmt = connection.prepareStatement(sql);
+        statements.put(sql, stmt);
+        if (statements.size() > statementCacheSize) {
+            Iterator<PreparedStatement> eldest = statements.values().iterator();
+            closeQuietly(eldest.next());
+            eldest.remove();
+        }
+        return stmt;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Marks the connection as unusable after a failure, so the pool discards it on return
+     * instead of handing it out again.
+     */
+    public void markBroken() {
+        broken = true;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    // Called when the pool hands out an idle connection again
+    PooledConnection checkout() {
+        released = false;
+        return this;
+    }
+
+    /**
+     * Returns the connection to the pool. Closing it again before the next acquire does nothing.
+     */
+    @Override
+    public void close() {
+        if (released) {
+            return;
+        }
+        released = true;
+        pool.release(this);
+    }
+
+    void closePhysical() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+}
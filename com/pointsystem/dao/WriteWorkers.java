@@ -0,0 +1,200 @@
+package com.pointsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous writers over a {@link ConnectionPool}. Writes are routed to one of
+ * {@code parallelism} lanes by key, so all writes for a key apply in submission order,
+ * and each lane thread drains up to a batch of writes, groups consecutive writes with the
+ * same statement and executes the groups in order as JDBC batches in one transaction.
+ * A full lane blocks the submitter.
+ */
+public class WriteWorkers implements AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final long POLL_MILLIS = 50;
+
+    public interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private static final class Write {
+        final String sql;
+        final Binder binder;
+
+        Write(String sql, Binder binder) {
+            this.sql = sql;
+            this.binder = binder;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final List<BlockingQueue<Write>> lanes;
+    private final List<Thread> threads;
+    private final AtomicLong submitted;
+    private final AtomicLong completed;
+    private final AtomicLong failed;
+    private final AtomicLong batches;
+    private volatile boolean running;
+
+    public WriteWorkers(ConnectionPool pool, int parallelism) {
+        this(pool, parallelism, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public WriteWorkers(ConnectionPool pool, int parallelism, int batchSize, int queueCapacity) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.lanes = new ArrayList<>(parallelism);
+        this.threads = new ArrayList<>(parallelism);
+        this.submitted = new AtomicLong();
+        this.completed = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.batches = new AtomicLong();
+        this.running = true;
+        for (int i = 0; i < parallelism; i++) {
+            BlockingQueue<Write> lane = new ArrayBlockingQueue<>(queueCapacity);
+            lanes.add(lane);
+            Thread thread = new Thread(() -> drain(lane), "dao-writer-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues a write. Writes with the same key are applied in the order submitted.
+     */
+    public void submit(String key, String sql, Binder binder) {
+        if (!running) {
+            throw new IllegalStateException("Write workers are closed");
+        }
+        BlockingQueue<Write> lane = lanes.get(Math.floorMod(key.hashCode(), lanes.size()));
+        submitted.incrementAndGet();
+        try {
+            lane.put(new Write(sql, binder));
+        } catch (InterruptedException e) {
+            submitted.decrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every write submitted before this call has been executed or has failed.
+     */
+    public void flush() {
+        long target = submitted.get();
+        while (completed.get() + failed.get() < target) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private void drain(BlockingQueue<Write> lane) {
+        List<Write> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Write first;
+            try {
+                first = lane.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+            }
+            if (first == null) {
+                if (!running && lane.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            lane.drainTo(batch, batchSize - 1);
+            execute(batch);
+            batch.clear();
+        }
+    }
+
+    private void execute(List<Write> batch) {
+        try (PooledConnection pooled = pool.acquire()) {
+            Connection connection = pooled.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                // Runs of consecutive writes with the same statement form one JDBC batch; the
+                // batch is executed whenever the statement changes, so writes keep their order
+                PreparedStatement stmt = null;
+                String sql = null;
+                for (Write write : batch) {
+                    if (!write.sql.equals(sql)) {
+                        if (stmt != null) {
+                            stmt.executeBatch();
+                        }
+                        sql = write.sql;
+                        stmt = pooled.prepare(sql);
+                    }
+                    write.binder.bind(stmt);
+                    stmt.addBatch();
+                }
+                if (stmt != null) {
+                    stmt.executeBatch();
+                }
+                connection.commit();
+                connection.setAutoCommit(true);
+                completed.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (SQLException e) {
+                System.err.println("Error executing write batch: " + e.getMessage());
+                pooled.markBroken();
+                rollbackQuietly(connection);
+                failed.addAndGet(batch.size());
+            }
+        } catch (SQLException e) {
+            System.err.println("Error acquiring connection for write batch: " + e.getMessage());
+            failed.addAndGet(batch.size());
+        }
+    }
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back write batch: " + e.getMessage());
+        }
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public int getParallelism() {
+        return lanes.size();
+    }
+
+    /**
+     * Stops accepting writes, executes everything already queued and stops the lane threads.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pointsystem.event;
+
+import com.pointsystem.model.AchievementBadge;
+
+/**
+ * A user earned a badge for the first time.
+ */
+public final class BadgeEarned extends PointEvent {
+    private final String userId;
+    private final AchievementBadge badge;
+
+    public BadgeEarned(String userId, AchievementBadge badge, long timeMillis) {
+        super(timeMillis);
+        this.userId = userId;
+        this.badge = badge;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public AchievementBadge getBadge() {
+        return badge;
+    }
+}
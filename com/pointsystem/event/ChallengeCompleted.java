@@ -0,0 +1,37 @@
+package com.pointsystem.event;
+
+/**
+ * A collaborative challenge reached its target. Each participant's reward follows as a
+ * separate {@link RewardGranted}.
+ */
+public final class ChallengeCompleted extends PointEvent {
+    private final String challengeId;
+    private final String name;
+    private final int totalPoints;
+    private final int participantCount;
+
+    public ChallengeCompleted(String challengeId, String name, int totalPoints, int participantCount,
+                              long timeMillis) {
+        super(timeMillis);
+        this.challengeId = challengeId;
+        this.name = name;
+        this.totalPoints = totalPoints;
+        this.participantCount = participantCount;
+    }
+
+    public String getChallengeId() {
+        return challengeId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTotalPoints() {
+        return totalPoints;
+    }
+
+    public int getParticipantCount() {
+        return participantCount;
+    }
+}
@@ -0,0 +1,140 @@
+package com.pointsystem.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for point, tier, badge, challenge and reward events.
+ *
+ * Events go into one multi-producer ring: a publisher claims a sequence with one atomic
+ * increment and stores the event in its slot, and never waits. Each {@link Subscription}
+ * reads the ring from its own cursor on its own thread and receives runs of consecutive
+ * events as a batch. Nothing tracks the slowest subscriber, so a subscriber that falls more
+ * than the ring's capacity behind skips the events that were overwritten (counted by
+ * {@link Subscription#getMissedCount()}) instead of stalling publishers or other subscribers.
+ *
+ * Publishers should check {@link #hasSubscribers()} before creating an event, so a bus
+ * nobody listens to costs one volatile read per change.
+ */
+public class EventBus {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final AtomicReferenceArray<PointEvent> ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean subscribed;
+
+    public EventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EventBus(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public boolean hasSubscribers() {
+        return subscribed;
+    }
+
+    /**
+     * Publishes an event to every current subscriber without blocking. Dropped if there
+     * are no subscribers.
+     * @throws IllegalStateException if the event was already published
+     */
+    public void publish(PointEvent event) {
+        if (!subscribed) {
+            return;
+        }
+        if (event.sequence != -1) {
+            throw new IllegalStateException("Event already published: " + event.sequence);
+        }
+        long sequence = claimed.incrementAndGet();
+        event.sequence = sequence;
+        int slot = (int) sequence & mask;
+        while (true) {
+            PointEvent current = ring.get(slot);
+            // A publisher that lapped this one already stored a newer event here
+            if (current != null && current.sequence > sequence) {
+                return;
+            }
+            if (ring.compareAndSet(slot, current, event)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delivers every event published from now on to the subscriber, in batches of up to
+     * {@link #DEFAULT_BATCH_SIZE} events.
+     */
+    public Subscription subscribe(String name, EventSubscriber subscriber) {
+        return subscribe(name, DEFAULT_BATCH_SIZE, subscriber);
+    }
+
+    public synchronized Subscription subscribe(String name, int maxBatchSize, EventSubscriber subscriber) {
+        Subscription subscription = new Subscription(this, name, claimed.get() + 1, maxBatchSize, subscriber);
+        subscriptions.add(subscription);
+        subscribed = true;
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * Delivers events of one type, one at a time, skipping all others.
+     */
+    public <T extends PointEvent> Subscription subscribe(String name, Class<T> type, Consumer<? super T> handler) {
+        return subscribe(name, events -> {
+            for (PointEvent event : events) {
+                if (type.isInstance(event)) {
+                    handler.accept(type.cast(event));
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops every subscription after it has delivered the events published so far.
+     */
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    /**
+     * Number of events published while there were subscribers.
+     */
+    public long getPublishedCount() {
+        return claimed.get() + 1;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    synchronized void remove(Subscription subscription) {
+        subscriptions.remove(subscription);
+        subscribed = !subscriptions.isEmpty();
+    }
+
+    long lastClaimed() {
+        return claimed.get();
+    }
+
+    PointEvent slot(long sequence) {
+        return ring.get((int) sequence & mask);
+    }
+}
@@ -0,0 +1,14 @@
+package com.pointsystem.event;
+
+import java.util.List;
+
+/**
+ * Receives events from the {@link EventBus} on its subscription's own thread.
+ */
+public interface EventSubscriber {
+    /**
+     * @param events Consecutive events in publication order; the list is reused after the
+     *               call returns, so copy it to keep it
+     */
+    void onEvents(List<PointEvent> events);
+}
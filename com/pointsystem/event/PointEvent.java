@@ -0,0 +1,25 @@
+package com.pointsystem.event;
+
+/**
+ * A change published on the {@link EventBus}. Events are immutable once published.
+ */
+public abstract class PointEvent {
+    private final long timeMillis;
+    // Position in the bus ring, assigned when the event is published
+    long sequence = -1;
+
+    protected PointEvent(long timeMillis) {
+        this.timeMillis = timeMillis;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Position of the event in publication order, -1 before it is published.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,32 @@
+package com.pointsystem.event;
+
+/**
+ * A user's points grew, from an activity, a bonus, a reward or a draw.
+ */
+public final class PointsAwarded extends PointEvent {
+    private final String userId;
+    private final int points;
+    private final int totalPoints;
+
+    public PointsAwarded(String userId, int points, int totalPoints, long timeMillis) {
+        super(timeMillis);
+        this.userId = userId;
+        this.points = points;
+        this.totalPoints = totalPoints;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * The user's total right after the award.
+     */
+    public int getTotalPoints() {
+        return totalPoints;
+    }
+}
@@ -0,0 +1,23 @@
+package com.pointsystem.event;
+
+/**
+ * A reward was added to a user's rewards, e.g. a surprise reward or a challenge reward.
+ */
+public final class RewardGranted extends PointEvent {
+    private final String userId;
+    private final String reward;
+
+    public RewardGranted(String userId, String reward, long timeMillis) {
+        super(timeMillis);
+        this.userId = userId;
+        this.reward = reward;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getReward() {
+        return reward;
+    }
+}
@@ -0,0 +1,140 @@
+package com.pointsystem.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One subscriber's view of an {@link EventBus}: a cursor into the ring and a daemon thread
+ * that delivers the events behind it. A subscriber that throws keeps its subscription;
+ * the error is logged and delivery continues with the next batch.
+ */
+public final class Subscription implements Runnable {
+    private static final int SPIN_TRIES = 1000;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final EventBus bus;
+    private final String name;
+    private final int maxBatchSize;
+    private final EventSubscriber subscriber;
+    private volatile long consumed;
+    private volatile long missed;
+    private volatile long delivered;
+    private volatile boolean running;
+    private Thread thread;
+
+    Subscription(EventBus bus, String name, long firstSequence, int maxBatchSize, EventSubscriber subscriber) {
+        this.bus = bus;
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.subscriber = subscriber;
+        this.consumed = firstSequence - 1;
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this, "event-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops after delivering the events published so far.
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        bus.remove(this);
+    }
+
+    /**
+     * Waits until every event published before this call has been delivered or skipped.
+     */
+    public void drain() {
+        long target = bus.lastClaimed();
+        while (consumed < target && running) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Events published but not yet delivered to this subscriber.
+     */
+    public long getLag() {
+        return Math.max(0, bus.lastClaimed() - consumed);
+    }
+
+    /**
+     * Events this subscriber never received because it fell a full ring behind.
+     */
+    public long getMissedCount() {
+        return missed;
+    }
+
+    public long getDeliveredCount() {
+        return delivered;
+    }
+
+    @Override
+    public void run() {
+        List<PointEvent> batch = new ArrayList<>(maxBatchSize);
+        long next = consumed + 1;
+        int idle = 0;
+        while (true) {
+            PointEvent event = bus.slot(next);
+            long sequence = event != null ? event.sequence : -1;
+            if (sequence == next) {
+                batch.add(event);
+                next++;
+                if (batch.size() < maxBatchSize) {
+                    continue;
+                }
+            } else if (sequence > next) {
+                // Lapped: everything up to the oldest event still in the ring is gone
+                long oldest = Math.max(next + 1, bus.lastClaimed() - bus.getCapacity() + 1);
+                missed += oldest - next;
+                next = oldest;
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+                consumed = next - 1;
+                idle = 0;
+                continue;
+            }
+            consumed = next - 1;
+            if (!running && bus.lastClaimed() < next) {
+                return;
+            }
+            if (++idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (running) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void deliver(List<PointEvent> batch) {
+        try {
+            subscriber.onEvents(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Error in event subscriber " + name + ": " + e.getMessage());
+        }
+        delivered += batch.size();
+        batch.clear();
+    }
+}
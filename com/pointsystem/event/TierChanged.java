@@ -0,0 +1,35 @@
+package com.pointsystem.event;
+
+import com.pointsystem.model.MembershipTier;
+
+/**
+ * A user was promoted or demoted.
+ */
+public final class TierChanged extends PointEvent {
+    private final String userId;
+    private final MembershipTier previousTier;
+    private final MembershipTier newTier;
+
+    public TierChanged(String userId, MembershipTier previousTier, MembershipTier newTier, long timeMillis) {
+        super(timeMillis);
+        this.userId = userId;
+        this.previousTier = previousTier;
+        this.newTier = newTier;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public MembershipTier getPreviousTier() {
+        return previousTier;
+    }
+
+    public MembershipTier getNewTier() {
+        return newTier;
+    }
+
+    public boolean isPromotion() {
+        return newTier.ordinal() > previousTier.ordinal();
+    }
+}
@@ -0,0 +1,80 @@
+package com.pointsystem.ingest;
+
+import com.pointsystem.model.ActivityType;
+
+/**
+ * One activity from the event stream. On the wire an event is a line of comma-separated
+ * fields: {@code userId,itemId,TYPE,amount,timestampMillis[,eventId]}, where itemId may be
+ * empty. Events with an id are applied at most once per dedup window (see
+ * {@link com.pointsystem.model.EventDeduplicator}).
+ */
+public final class ActivityEvent {
+    private final String userId;
+    private final String itemId;
+    private final ActivityType type;
+    private final double amount;
+    private final long timestampMillis;
+    private final String eventId;
+
+    public ActivityEvent(String userId, String itemId, ActivityType type, double amount, long timestampMillis) {
+        this(userId, itemId, type, amount, timestampMillis, null);
+    }
+
+    /**
+     * @param eventId Producer-assigned id that is the same on every delivery, or null
+     */
+    public ActivityEvent(String userId, String itemId, ActivityType type, double amount, long timestampMillis,
+                         String eventId) {
+        this.userId = userId;
+        this.itemId = itemId;
+        this.type = type;
+        this.amount = amount;
+        this.timestampMillis = timestampMillis;
+        this.eventId = eventId;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the line is not a valid event
+     */
+    public static ActivityEvent decode(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 5 && fields.length != 6) {
+            throw new IllegalArgumentException("Expected 5 or 6 fields but got " + fields.length);
+        }
+        if (fields[0].isEmpty()) {
+            throw new IllegalArgumentException("Missing user id");
+        }
+        return new ActivityEvent(fields[0], fields[1].isEmpty() ? null : fields[1],
+            ActivityType.valueOf(fields[2]), Double.parseDouble(fields[3]), Long.parseLong(fields[4]),
+            fields.length == 6 && !fields[5].isEmpty() ? fields[5] : null);
+    }
+
+    public String encode() {
+        String line = userId + "," + (itemId != null ? itemId : "") + "," + type.name() + "," + amount + "," + timestampMillis;
+        return eventId != null ? line + "," + eventId : line;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public ActivityType getType() {
+        return type;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+}
@@ -0,0 +1,258 @@
+package com.pointsystem.ingest;
+
+import com.pointsystem.model.PointSystem;
+import com.pointsystem.model.PointsWriter;
+import com.pointsystem.model.User;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming activity ingestion built on {@link Flow}.
+ *
+ * Subscribe the pipeline to a publisher of encoded {@link ActivityEvent} lines. Each line is
+ * decoded and routed by user id to one of several lanes; a lane runs
+ * validate/dedup/rate-limit, base points, multiplier, apply and persist stages connected by
+ * bounded buffers. All events for a user go through the same lane, so they are applied in
+ * arrival order, while different lanes run in parallel. Every stage pulls with
+ * {@link Flow.Subscription#request}, and a full buffer blocks the stage feeding it, so a
+ * slow database slows the source instead of growing a queue.
+ */
+public class ActivityPipeline implements Flow.Subscriber<String> {
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final PointSystem pointSystem;
+    private final PointsWriter pointsWriter;
+    private final int bufferSize;
+    private final ExecutorService executor;
+    private final List<SubmissionPublisher<ActivityEvent>> lanes;
+    private final AtomicInteger openLanes;
+    private final CompletableFuture<Void> completion;
+    private Flow.Subscription subscription;
+    private int consumed;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder unknownUsers = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder pointsAwarded = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ActivityPipeline(PointSystem pointSystem, Connection dbConnection, int laneCount, int bufferSize) {
+        this.pointSystem = pointSystem;
+        this.pointsWriter = new PointsWriter(dbConnection, PointsWriter.DEFAULT_BATCH_SIZE);
+        this.bufferSize = bufferSize;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.openLanes = new AtomicInteger(laneCount);
+        this.completion = new CompletableFuture<>();
+
+        this.lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            SubmissionPublisher<ActivityEvent> lane = new SubmissionPublisher<>(executor, bufferSize);
+            buildLane(lane);
+            lanes.add(lane);
+        }
+    }
+
+    private void buildLane(SubmissionPublisher<ActivityEvent> lane) {
+        PipelineStage<ActivityEvent, ScoredActivity> validate =
+            new PipelineStage<>("validate", executor, bufferSize, this::validate, failures);
+        PipelineStage<ScoredActivity, ScoredActivity> calculate =
+            new PipelineStage<>("calculate", executor, bufferSize, this::calculate, failures);
+        PipelineStage<ScoredActivity, ScoredActivity> multiply =
+            new PipelineStage<>("multiplier", executor, bufferSize, this::multiply, failures);
+        PipelineStage<ScoredActivity, ScoredActivity> apply =
+            new PipelineStage<>("apply", executor, bufferSize, this::apply, failures);
+        lane.subscribe(validate);
+        validate.subscribe(calculate);
+        calculate.subscribe(multiply);
+        multiply.subscribe(apply);
+        apply.subscribe(new PersistSink());
+    }
+
+    private ScoredActivity validate(ActivityEvent event) {
+        User user = pointSystem.getUser(event.getUserId());
+        if (user == null) {
+            unknownUsers.increment();
+            return null;
+        }
+        if (event.getEventId() != null && !pointSystem.acceptEvent(event.getEventId())) {
+            duplicates.increment();
+            return null;
+        }
+        if (!pointSystem.getRateLimiter().tryAcquire(user.getDenseId(), event.getType(), event.getTimestampMillis())) {
+            throttled.increment();
+            return null;
+        }
+        pointSystem.recordEngagement(event.getItemId(), event.getType(), event.getTimestampMillis());
+        pointSystem.recordItemActivity(user, event.getItemId(), event.getType());
+        return new ScoredActivity(event, user);
+    }
+
+    private ScoredActivity calculate(ScoredActivity activity) {
+        ActivityEvent event = activity.event;
+        activity.basePoints = pointSystem.calculateBasePoints(activity.user, event.getItemId(), event.getType(),
+            event.getAmount(), event.getTimestampMillis());
+        return activity;
+    }
+
+    private ScoredActivity multiply(ScoredActivity activity) {
+        if (activity.basePoints > 0) {
+            double multiplier = pointSystem.getPointMultiplier(activity.user, activity.event.getItemId(),
+                activity.event.getTimestampMillis());
+            activity.points = (int) (activity.basePoints * multiplier);
+        }
+        return activity;
+    }
+
+    private ScoredActivity apply(ScoredActivity activity) {
+        // Lanes only order a user's events within the pipeline; the user's owner applies them
+        activity.totalPoints = pointSystem.creditActivity(activity.user, activity.event.getType(), activity.points);
+        applied.increment();
+        pointsAwarded.add(activity.points);
+        return activity.points > 0 ? activity : null;
+    }
+
+    // Last stage of a lane: hands awarded points to the batched writer
+    private final class PersistSink implements Flow.Subscriber<ScoredActivity> {
+        private Flow.Subscription subscription;
+        private int consumed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(bufferSize);
+        }
+
+        @Override
+        public void onNext(ScoredActivity activity) {
+            try {
+                pointsWriter.record(activity.user.getUserId(), activity.totalPoints, activity.points,
+                    activity.event.getType().getPointType(), activity.event.getTimestampMillis());
+            } catch (RuntimeException e) {
+                failures.increment();
+                System.err.println("Error in persist stage: " + e.getMessage());
+            }
+            if (++consumed == Math.max(1, bufferSize / 2)) {
+                subscription.request(consumed);
+                consumed = 0;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (openLanes.decrementAndGet() == 0) {
+                pointsWriter.flush();
+                executor.shutdown();
+                completion.complete(null);
+            }
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(String line) {
+        received.increment();
+        ActivityEvent event;
+        try {
+            event = ActivityEvent.decode(line);
+        } catch (IllegalArgumentException e) {
+            malformed.increment();
+            event = null;
+        }
+        if (event != null) {
+            // Blocks while the lane is full, which stops demand to the source
+            lanes.get(laneOf(event.getUserId())).submit(event);
+        }
+        if (++consumed == Math.max(1, bufferSize / 2)) {
+            subscription.request(consumed);
+            consumed = 0;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        for (SubmissionPublisher<ActivityEvent> lane : lanes) {
+            lane.closeExceptionally(throwable);
+        }
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        for (SubmissionPublisher<ActivityEvent> lane : lanes) {
+            lane.close();
+        }
+    }
+
+    private int laneOf(String userId) {
+        int h = userId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), lanes.size());
+    }
+
+    /**
+     * Completes once the source has completed and every lane has drained and flushed.
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Writes buffered points now; useful on long-running streams between batch flushes.
+     */
+    public void flush() {
+        pointsWriter.flush();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    public long getUnknownUserCount() {
+        return unknownUsers.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    public long getPointsAwarded() {
+        return pointsAwarded.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+}
@@ -0,0 +1,44 @@
+package com.pointsystem.ingest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publisher of encoded activity lines standing in for a message bus consumer. A producer
+ * thread submits lines as subscribers demand them; submit blocks while the subscriber's
+ * buffer is full.
+ */
+public abstract class ActivitySource extends SubmissionPublisher<String> {
+    private static final ExecutorService DELIVERY = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final String name;
+
+    protected ActivitySource(String name, int bufferSize) {
+        super(DELIVERY, bufferSize);
+        this.name = name;
+    }
+
+    /**
+     * Submits every line, returning when the input is exhausted.
+     */
+    protected abstract void produce() throws Exception;
+
+    /**
+     * Starts producing on a background thread and completes subscribers at the end.
+     */
+    public Thread start() {
+        Thread producer = new Thread(() -> {
+            try {
+                produce();
+                close();
+            } catch (Exception e) {
+                System.err.println("Error reading activity source " + name + ": " + e.getMessage());
+                closeExceptionally(e);
+            }
+        }, "activity-source-" + name);
+        producer.setDaemon(true);
+        producer.start();
+        return producer;
+    }
+}
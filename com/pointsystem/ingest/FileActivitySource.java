@@ -0,0 +1,31 @@
+package com.pointsystem.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Replays a file with one encoded {@link ActivityEvent} per line. Blank lines are skipped.
+ */
+public class FileActivitySource extends ActivitySource {
+    private final Path file;
+
+    public FileActivitySource(Path file, int bufferSize) {
+        super(file.getFileName().toString(), bufferSize);
+        this.file = file;
+    }
+
+    @Override
+    protected void produce() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    submit(line);
+                }
+            }
+        }
+    }
+}
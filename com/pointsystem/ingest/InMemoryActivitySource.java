@@ -0,0 +1,19 @@
+package com.pointsystem.ingest;
+
+import java.util.List;
+
+public class InMemoryActivitySource extends ActivitySource {
+    private final List<String> lines;
+
+    public InMemoryActivitySource(List<String> lines, int bufferSize) {
+        super("memory", bufferSize);
+        this.lines = lines;
+    }
+
+    @Override
+    protected void produce() {
+        for (String line : lines) {
+            submit(line);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.pointsystem.ingest;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One processing step between two bounded buffers. Demand is requested in half-buffer
+ * increments, and submit blocks while the downstream buffer is full, so a slow stage
+ * throttles everything upstream of it.
+ */
+final class PipelineStage<I, O> extends SubmissionPublisher<O> implements Flow.Processor<I, O> {
+    interface Step<I, O> {
+        /**
+         * @return The output item, or null to drop the input
+         */
+        O apply(I item);
+    }
+
+    private final String name;
+    private final Step<I, O> step;
+    private final int bufferSize;
+    private final LongAdder failures;
+    private Flow.Subscription subscription;
+    private int consumed;
+
+    PipelineStage(String name, Executor executor, int bufferSize, Step<I, O> step, LongAdder failures) {
+        super(executor, bufferSize);
+        this.name = name;
+        this.step = step;
+        this.bufferSize = bufferSize;
+        this.failures = failures;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(I item) {
+        try {
+            O output = step.apply(item);
+            if (output != null) {
+                submit(output);
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            System.err.println("Error in " + name + " stage: " + e.getMessage());
+        }
+        if (++consumed == Math.max(1, bufferSize / 2)) {
+            subscription.request(consumed);
+            consumed = 0;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+}
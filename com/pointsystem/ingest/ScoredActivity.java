@@ -0,0 +1,20 @@
+package com.pointsystem.ingest;
+
+import com.pointsystem.model.User;
+
+/**
+ * An event moving through a lane, accumulating its resolved user and points.
+ * Only touched by one stage at a time.
+ */
+final class ScoredActivity {
+    final ActivityEvent event;
+    final User user;
+    int basePoints;
+    int points;
+    int totalPoints;
+
+    ScoredActivity(ActivityEvent event, User user) {
+        this.event = event;
+        this.user = user;
+    }
+}
@@ -0,0 +1,165 @@
+package com.pointsystem.io;
+
+import com.pointsystem.model.AchievementBadge;
+import com.pointsystem.model.Activity;
+import com.pointsystem.model.CollaborativeChallenge;
+import com.pointsystem.model.LeaderboardEntry;
+import com.pointsystem.model.PointSystem;
+import com.pointsystem.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Exports a {@link PointSystem} in the {@code data/} fixture format, one file per section,
+ * readable by {@link FixtureImporter}. Fields the model does not keep (activity ids, badge
+ * and join timestamps) are written as generated ids or nulls.
+ */
+public class FixtureExporter {
+    private final PointSystem pointSystem;
+
+    public FixtureExporter(PointSystem pointSystem) {
+        this.pointSystem = pointSystem;
+    }
+
+    public void exportDirectory(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        exportUsers(directory.resolve(FixtureImporter.USERS + ".json"));
+        exportChallenges(directory.resolve(FixtureImporter.CHALLENGES + ".json"));
+        exportChallengeParticipants(directory.resolve(FixtureImporter.CHALLENGE_PARTICIPANTS + ".json"));
+        exportUserBadges(directory.resolve(FixtureImporter.USER_BADGES + ".json"));
+        exportActivities(directory.resolve(FixtureImporter.ACTIVITIES + ".json"));
+    }
+
+    public void exportUsers(Path file) throws IOException {
+        try (FixtureWriter writer = new FixtureWriter(Files.newOutputStream(file), FixtureImporter.USERS)) {
+            for (User user : pointSystem.getAllUsers()) {
+                writer.beginRecord();
+                writer.field("user_id", user.getUserId());
+                writer.field("username", user.getUsername());
+                writer.field("total_points", user.getTotalPoints());
+                writer.field("tier", user.getTier().name());
+                writer.field("last_login_date", user.getLastLoginDate());
+                writer.field("last_points_decay_date", user.getLastPointsDecayDate());
+                writer.field("current_login_streak", user.getCurrentLoginStreak());
+                writer.field("followers_count", user.getFollowersCount());
+                writer.field("following_count", user.getFollowingCount());
+                writer.field("last_surprise_drop_check", user.getLastSurpriseDropCheck());
+                writer.endRecord();
+            }
+        }
+    }
+
+    public void exportActivities(Path file) throws IOException {
+        try (FixtureWriter writer = new FixtureWriter(Files.newOutputStream(file), FixtureImporter.ACTIVITIES)) {
+            for (User user : pointSystem.getAllUsers()) {
+                List<Activity> history = user.getActivityHistory();
+                for (int i = 0; i < history.size(); i++) {
+                    Activity activity = history.get(i);
+                    writer.beginRecord();
+                    writer.field("activity_id", user.getUserId() + "-" + i);
+                    writer.field("user_id", user.getUserId());
+                    writer.field("type", activity.getType().name());
+                    writer.field("points_earned", activity.getPointsEarned());
+                    writer.field("details", activity.getDetails());
+                    writer.field("timestamp", activity.getTimestamp());
+                    writer.endRecord();
+                }
+            }
+        }
+    }
+
+    public void exportChallenges(Path file) throws IOException {
+        try (FixtureWriter writer = new FixtureWriter(Files.newOutputStream(file), FixtureImporter.CHALLENGES)) {
+            for (CollaborativeChallenge challenge : pointSystem.getCollaborativeChallenges()) {
+                writer.beginRecord();
+                writer.field("challenge_id", challenge.getChallengeId());
+                writer.field("name", challenge.getName());
+                writer.field("description", challenge.getDescription());
+                writer.field("target_points", challenge.getTargetPoints());
+                writer.field("start_time", challenge.getStartTime());
+                writer.field("end_time", challenge.getEndTime());
+                writer.field("reward", challenge.getReward());
+                writer.field("status", challengeStatus(challenge));
+                writer.endRecord();
+            }
+        }
+    }
+
+    /**
+     * Writes participants ordered by contribution. The points each contributed are its
+     * current_progress towards the challenge's target_progress; current_points and the rank
+     * among the challenge's participants (equal contributions share a rank) follow them.
+     */
+    public void exportChallengeParticipants(Path file) throws IOException {
+        try (FixtureWriter writer = new FixtureWriter(Files.newOutputStream(file), FixtureImporter.CHALLENGE_PARTICIPANTS)) {
+            for (CollaborativeChallenge challenge : pointSystem.getCollaborativeChallenges()) {
+                String status = challenge.isCompleted() ? "COMPLETED" : "IN_PROGRESS";
+                List<LeaderboardEntry> standings = pointSystem.getChallengeStandings(challenge.getChallengeId());
+                Set<String> written = new HashSet<>();
+                int rank = 0;
+                for (int i = 0; i < standings.size(); i++) {
+                    LeaderboardEntry entry = standings.get(i);
+                    if (i == 0 || entry.getPoints() != standings.get(i - 1).getPoints()) {
+                        rank = i + 1;
+                    }
+                    writeParticipant(writer, entry.getUserId(), challenge, status, entry.getPoints(), rank);
+                    written.add(entry.getUserId());
+                }
+                // Participants added without contribution tracking
+                for (String userId : challenge.getParticipants()) {
+                    if (!written.contains(userId)) {
+                        writeParticipant(writer, userId, challenge, status, 0, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    // A rank of 0 is written as null
+    private static void writeParticipant(FixtureWriter writer, String userId, CollaborativeChallenge challenge,
+                                         String status, int currentPoints, int rank) throws IOException {
+        writer.beginRecord();
+        writer.field("user_id", userId);
+        writer.field("challenge_id", challenge.getChallengeId());
+        writer.nullField("joined_at");
+        writer.field("current_progress", currentPoints);
+        writer.field("target_progress", challenge.getTargetPoints());
+        writer.field("status", status);
+        writer.field("current_points", currentPoints);
+        if (rank > 0) {
+            writer.field("rank", rank);
+        } else {
+            writer.nullField("rank");
+        }
+        writer.endRecord();
+    }
+
+    public void exportUserBadges(Path file) throws IOException {
+        try (FixtureWriter writer = new FixtureWriter(Files.newOutputStream(file), FixtureImporter.USER_BADGES)) {
+            for (User user : pointSystem.getAllUsers()) {
+                for (AchievementBadge badge : AchievementBadge.values()) {
+                    if (user.hasBadge(badge)) {
+                        writer.beginRecord();
+                        writer.field("user_id", user.getUserId());
+                        writer.field("badge_id", badge.getBadgeId());
+                        writer.field("badge_name", badge.name());
+                        writer.nullField("earned_at");
+                        writer.endRecord();
+                    }
+                }
+            }
+        }
+    }
+
+    private static String challengeStatus(CollaborativeChallenge challenge) {
+        if (challenge.isCompleted()) {
+            return "COMPLETED";
+        }
+        return challenge.isActive() ? "ACTIVE" : "EXPIRED";
+    }
+}
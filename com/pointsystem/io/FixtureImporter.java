@@ -0,0 +1,508 @@
+package com.pointsystem.io;
+
+import com.pointsystem.model.AchievementBadge;
+import com.pointsystem.model.Activity;
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.CollaborativeChallenge;
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.PointSystem;
+import com.pointsystem.model.User;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports dumps in the {@code data/} fixture format into a {@link PointSystem}.
+ *
+ * Each file is memory-mapped and split into chunks of whole records by a
+ * {@link StructuralIndex} pass. Chunks are parsed in parallel with a {@link JsonPullParser}
+ * straight into model objects, and the results are applied to the point system on the
+ * calling thread in file order, so imports are deterministic and the point system needs
+ * no extra locking. Records that reference unknown users, challenges, activity types or
+ * badges are skipped and counted.
+ */
+public class FixtureImporter {
+    public static final long DEFAULT_CHUNK_BYTES = 8L * 1024 * 1024;
+
+    public static final String USERS = "users";
+    public static final String ACTIVITIES = "activities";
+    public static final String CHALLENGES = "challenges";
+    public static final String CHALLENGE_PARTICIPANTS = "challenge_participants";
+    public static final String USER_BADGES = "user_badges";
+
+    private static final byte[] USER_ID = ascii("user_id");
+    private static final byte[] ACTIVITY_ID = ascii("activity_id");
+    private static final byte[] USERNAME = ascii("username");
+    private static final byte[] TOTAL_POINTS = ascii("total_points");
+    private static final byte[] TIER = ascii("tier");
+    private static final byte[] LAST_LOGIN_DATE = ascii("last_login_date");
+    private static final byte[] LAST_POINTS_DECAY_DATE = ascii("last_points_decay_date");
+    private static final byte[] CURRENT_LOGIN_STREAK = ascii("current_login_streak");
+    private static final byte[] FOLLOWERS_COUNT = ascii("followers_count");
+    private static final byte[] FOLLOWING_COUNT = ascii("following_count");
+    private static final byte[] TYPE = ascii("type");
+    private static final byte[] POINTS_EARNED = ascii("points_earned");
+    private static final byte[] DETAILS = ascii("details");
+    private static final byte[] TIMESTAMP = ascii("timestamp");
+    private static final byte[] CHALLENGE_ID = ascii("challenge_id");
+    private static final byte[] NAME = ascii("name");
+    private static final byte[] DESCRIPTION = ascii("description");
+    private static final byte[] TARGET_POINTS = ascii("target_points");
+    private static final byte[] START_TIME = ascii("start_time");
+    private static final byte[] END_TIME = ascii("end_time");
+    private static final byte[] REWARD = ascii("reward");
+    private static final byte[] STATUS = ascii("status");
+    private static final byte[] CURRENT_PROGRESS = ascii("current_progress");
+    private static final byte[] CURRENT_POINTS = ascii("current_points");
+    private static final byte[] BADGE_ID = ascii("badge_id");
+    private static final byte[] BADGE_NAME = ascii("badge_name");
+    private static final byte[] ACTIVE = ascii("ACTIVE");
+
+    private static final byte[][] TIER_NAMES = enumNames(MembershipTier.values());
+    private static final byte[][] ACTIVITY_NAMES = enumNames(ActivityType.values());
+    private static final byte[][] BADGE_NAMES = enumNames(AchievementBadge.values());
+
+    private final PointSystem pointSystem;
+    private final int threads;
+    private final long chunkBytes;
+
+    private interface RecordMapper<T> {
+        /**
+         * Maps the record whose START_OBJECT was just read, consuming it through END_OBJECT.
+         * @return The record, or null to skip it
+         */
+        T map(JsonPullParser parser) throws IOException;
+    }
+
+    private interface RecordSink<T> {
+        /**
+         * @return false if the record was skipped
+         */
+        boolean apply(T record);
+    }
+
+    /**
+     * Outcome of importing one file.
+     */
+    public static final class ImportResult {
+        private final String section;
+        private final long imported;
+        private final long skipped;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        ImportResult(String section, long imported, long skipped, long bytes, long elapsedNanos) {
+            this.section = section;
+            this.imported = imported;
+            this.skipped = skipped;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getSection() {
+            return section;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d imported, %d skipped, %.1f MB at %.0f MB/s",
+                section, imported, skipped, bytes / 1e6, getMegabytesPerSecond());
+        }
+    }
+
+    public FixtureImporter(PointSystem pointSystem) {
+        this(pointSystem, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES);
+    }
+
+    public FixtureImporter(PointSystem pointSystem, int threads, long chunkBytes) {
+        this.pointSystem = pointSystem;
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Imports every fixture file present in the directory, in dependency order.
+     */
+    public List<ImportResult> importDirectory(Path directory) throws IOException {
+        List<ImportResult> results = new ArrayList<>();
+        if (Files.exists(directory.resolve(USERS + ".json"))) {
+            results.add(importUsers(directory.resolve(USERS + ".json")));
+        }
+        if (Files.exists(directory.resolve(CHALLENGES + ".json"))) {
+            results.add(importChallenges(directory.resolve(CHALLENGES + ".json")));
+        }
+        if (Files.exists(directory.resolve(CHALLENGE_PARTICIPANTS + ".json"))) {
+            results.add(importChallengeParticipants(directory.resolve(CHALLENGE_PARTICIPANTS + ".json")));
+        }
+        if (Files.exists(directory.resolve(USER_BADGES + ".json"))) {
+            results.add(importUserBadges(directory.resolve(USER_BADGES + ".json")));
+        }
+        if (Files.exists(directory.resolve(ACTIVITIES + ".json"))) {
+            results.add(importActivities(directory.resolve(ACTIVITIES + ".json")));
+        }
+        return results;
+    }
+
+    public ImportResult importUsers(Path file) throws IOException {
+        return importFile(file, USERS, FixtureImporter::mapUser, user -> {
+            if (pointSystem.getUser(user.getUserId()) != null) {
+                return false;
+            }
+            pointSystem.addExistingUser(user);
+            return true;
+        });
+    }
+
+    public ImportResult importActivities(Path file) throws IOException {
+        // Records repeating an activity_id seen within the dedup window are skipped
+        return importFile(file, ACTIVITIES, FixtureImporter::mapActivity, imported ->
+            (imported.activityId == null || pointSystem.acceptEvent(imported.activityId))
+                && pointSystem.restoreActivity(imported.userId, imported.activity));
+    }
+
+    public ImportResult importChallenges(Path file) throws IOException {
+        return importFile(file, CHALLENGES, FixtureImporter::mapChallenge, challenge -> {
+            pointSystem.addExistingChallenge(challenge);
+            return true;
+        });
+    }
+
+    public ImportResult importChallengeParticipants(Path file) throws IOException {
+        return importFile(file, CHALLENGE_PARTICIPANTS, FixtureImporter::mapParticipant,
+            participant -> pointSystem.restoreChallengeParticipant(participant.userId, participant.challengeId,
+                participant.currentPoints));
+    }
+
+    public ImportResult importUserBadges(Path file) throws IOException {
+        return importFile(file, USER_BADGES, FixtureImporter::mapBadge,
+            entry -> pointSystem.restoreBadge(entry.getKey(), entry.getValue()));
+    }
+
+    private <T> ImportResult importFile(Path file, String section, RecordMapper<T> mapper,
+                                        RecordSink<T> sink) throws IOException {
+        long start = System.nanoTime();
+        long imported = 0;
+        long skipped = 0;
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "fixture-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = StructuralIndex.split(channel, section, chunkBytes);
+            Deque<Future<List<T>>> inFlight = new ArrayDeque<>();
+            int nextChunk = 0;
+            int chunks = boundaries.length - 1;
+            while (nextChunk < chunks || !inFlight.isEmpty()) {
+                // Keep a bounded number of parsed chunks ahead of the in-order apply
+                while (nextChunk < chunks && inFlight.size() < threads * 2) {
+                    long chunkStart = boundaries[nextChunk];
+                    long chunkLength = boundaries[nextChunk + 1] - chunkStart;
+                    inFlight.add(workers.submit(() -> parseChunk(channel, chunkStart, chunkLength, mapper)));
+                    nextChunk++;
+                }
+                List<T> records = await(inFlight.poll(), file);
+                for (T record : records) {
+                    if (record != null && sink.apply(record)) {
+                        imported++;
+                    } else {
+                        skipped++;
+                    }
+                }
+            }
+            return new ImportResult(section, imported, skipped, channel.size(), System.nanoTime() - start);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static <T> List<T> parseChunk(FileChannel channel, long start, long length,
+                                          RecordMapper<T> mapper) throws IOException {
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        JsonPullParser parser = new JsonPullParser(chunk);
+        List<T> records = new ArrayList<>();
+        int token;
+        while ((token = parser.next()) == JsonPullParser.START_OBJECT) {
+            records.add(mapper.map(parser));
+        }
+        if (token != JsonPullParser.END) {
+            throw new IOException("Expected a record object at offset " + (start + parser.position()));
+        }
+        return records;
+    }
+
+    private static <T> List<T> await(Future<List<T>> future, Path file) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted importing " + file, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException("Error importing " + file + ": " + cause.getMessage(), cause);
+            }
+            throw new IOException("Error importing " + file, cause);
+        }
+    }
+
+    private static User mapUser(JsonPullParser parser) throws IOException {
+        String userId = null;
+        String username = null;
+        int totalPoints = 0;
+        MembershipTier tier = null;
+        LocalDateTime lastLoginDate = null;
+        LocalDateTime lastPointsDecayDate = null;
+        int loginStreak = 0;
+        int followersCount = 0;
+        int followingCount = 0;
+        while (parser.next() == JsonPullParser.FIELD_NAME) {
+            if (parser.nameEquals(USER_ID)) {
+                parser.next();
+                userId = parser.getString();
+            } else if (parser.nameEquals(USERNAME)) {
+                parser.next();
+                username = parser.getString();
+            } else if (parser.nameEquals(TOTAL_POINTS)) {
+                parser.next();
+                totalPoints = parser.getInt();
+            } else if (parser.nameEquals(TIER)) {
+                parser.next();
+                int index = parser.match(TIER_NAMES);
+                tier = index >= 0 ? MembershipTier.values()[index] : null;
+            } else if (parser.nameEquals(LAST_LOGIN_DATE)) {
+                parser.next();
+                lastLoginDate = parser.getDateTime();
+            } else if (parser.nameEquals(LAST_POINTS_DECAY_DATE)) {
+                parser.next();
+                lastPointsDecayDate = parser.getDateTime();
+            } else if (parser.nameEquals(CURRENT_LOGIN_STREAK)) {
+                parser.next();
+                loginStreak = parser.getInt();
+            } else if (parser.nameEquals(FOLLOWERS_COUNT)) {
+                parser.next();
+                followersCount = parser.getInt();
+            } else if (parser.nameEquals(FOLLOWING_COUNT)) {
+                parser.next();
+                followingCount = parser.getInt();
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        if (userId == null) {
+            return null;
+        }
+        if (tier == null) {
+            tier = MembershipTier.getTierByPoints(totalPoints);
+        }
+        return new User(userId, username, totalPoints, tier, lastLoginDate, lastPointsDecayDate,
+            loginStreak, followersCount, followingCount, null);
+    }
+
+    private static final class ImportedActivity {
+        final String activityId;
+        final String userId;
+        final Activity activity;
+
+        ImportedActivity(String activityId, String userId, Activity activity) {
+            this.activityId = activityId;
+            this.userId = userId;
+            this.activity = activity;
+        }
+    }
+
+    private static ImportedActivity mapActivity(JsonPullParser parser) throws IOException {
+        String activityId = null;
+        String userId = null;
+        ActivityType type = null;
+        int pointsEarned = 0;
+        String details = null;
+        LocalDateTime timestamp = null;
+        while (parser.next() == JsonPullParser.FIELD_NAME) {
+            if (parser.nameEquals(ACTIVITY_ID)) {
+                parser.next();
+                activityId = parser.getString();
+            } else if (parser.nameEquals(USER_ID)) {
+                parser.next();
+                userId = parser.getCachedString();
+            } else if (parser.nameEquals(TYPE)) {
+                parser.next();
+                int index = parser.match(ACTIVITY_NAMES);
+                type = index >= 0 ? ActivityType.values()[index] : null;
+            } else if (parser.nameEquals(POINTS_EARNED)) {
+                parser.next();
+                pointsEarned = parser.getInt();
+            } else if (parser.nameEquals(DETAILS)) {
+                parser.next();
+                details = parser.getString();
+            } else if (parser.nameEquals(TIMESTAMP)) {
+                parser.next();
+                timestamp = parser.getDateTime();
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        if (userId == null || type == null) {
+            return null;
+        }
+        Activity activity = timestamp != null
+            ? new Activity(type, timestamp, pointsEarned, details)
+            : new Activity(type, pointsEarned, details);
+        return new ImportedActivity(activityId, userId, activity);
+    }
+
+    private static CollaborativeChallenge mapChallenge(JsonPullParser parser) throws IOException {
+        String challengeId = null;
+        String name = null;
+        String description = null;
+        int targetPoints = 0;
+        LocalDateTime startTime = null;
+        LocalDateTime endTime = null;
+        String reward = null;
+        boolean active = true;
+        while (parser.next() == JsonPullParser.FIELD_NAME) {
+            if (parser.nameEquals(CHALLENGE_ID)) {
+                parser.next();
+                challengeId = parser.getString();
+            } else if (parser.nameEquals(NAME)) {
+                parser.next();
+                name = parser.getString();
+            } else if (parser.nameEquals(DESCRIPTION)) {
+                parser.next();
+                description = parser.getString();
+            } else if (parser.nameEquals(TARGET_POINTS)) {
+                parser.next();
+                targetPoints = parser.getInt();
+            } else if (parser.nameEquals(START_TIME)) {
+                parser.next();
+                startTime = parser.getDateTime();
+            } else if (parser.nameEquals(END_TIME)) {
+                parser.next();
+                endTime = parser.getDateTime();
+            } else if (parser.nameEquals(REWARD)) {
+                parser.next();
+                reward = parser.getString();
+            } else if (parser.nameEquals(STATUS)) {
+                parser.next();
+                active = parser.nameEquals(ACTIVE);
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        if (challengeId == null) {
+            return null;
+        }
+        CollaborativeChallenge challenge = new CollaborativeChallenge(challengeId, name, description,
+            targetPoints, startTime, endTime, reward);
+        challenge.setActive(active);
+        return challenge;
+    }
+
+    private static final class ImportedParticipant {
+        final String userId;
+        final String challengeId;
+        final int currentPoints;
+
+        ImportedParticipant(String userId, String challengeId, int currentPoints) {
+            this.userId = userId;
+            this.challengeId = challengeId;
+            this.currentPoints = currentPoints;
+        }
+    }
+
+    private static ImportedParticipant mapParticipant(JsonPullParser parser) throws IOException {
+        String userId = null;
+        String challengeId = null;
+        int currentPoints = 0;
+        while (parser.next() == JsonPullParser.FIELD_NAME) {
+            if (parser.nameEquals(USER_ID)) {
+                parser.next();
+                userId = parser.getCachedString();
+            } else if (parser.nameEquals(CHALLENGE_ID)) {
+                parser.next();
+                challengeId = parser.getCachedString();
+            } else if (parser.nameEquals(CURRENT_PROGRESS) || parser.nameEquals(CURRENT_POINTS)) {
+                if (parser.next() == JsonPullParser.NUMBER) {
+                    currentPoints = parser.getInt();
+                }
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        return userId != null && challengeId != null ? new ImportedParticipant(userId, challengeId, currentPoints) : null;
+    }
+
+    private static Map.Entry<String, AchievementBadge> mapBadge(JsonPullParser parser) throws IOException {
+        String userId = null;
+        boolean named = false;
+        AchievementBadge byName = null;
+        AchievementBadge byId = null;
+        while (parser.next() == JsonPullParser.FIELD_NAME) {
+            if (parser.nameEquals(USER_ID)) {
+                parser.next();
+                userId = parser.getCachedString();
+            } else if (parser.nameEquals(BADGE_NAME)) {
+                parser.next();
+                named = parser.currentToken() == JsonPullParser.STRING;
+                int index = parser.match(BADGE_NAMES);
+                byName = index >= 0 ? AchievementBadge.values()[index] : null;
+            } else if (parser.nameEquals(BADGE_ID)) {
+                parser.next();
+                byId = AchievementBadge.getBadgeById(parser.getInt());
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        // The name is authoritative when present; ids in older dumps do not always match the enum
+        AchievementBadge badge = named ? byName : byId;
+        return userId != null && badge != null ? Map.entry(userId, badge) : null;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] enumNames(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = ascii(values[i].name());
+        }
+        return names;
+    }
+}
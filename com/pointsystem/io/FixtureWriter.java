@@ -0,0 +1,199 @@
+package com.pointsystem.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Streaming writer for the fixture layout: one top-level object holding a single array of
+ * flat records, indented like the files in {@code data/}. Values are encoded straight into
+ * a reusable byte buffer, so writing a record allocates nothing.
+ */
+public final class FixtureWriter implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    private boolean firstRecord;
+    private boolean firstField;
+
+    public FixtureWriter(OutputStream out, String section) throws IOException {
+        this.out = out;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.firstRecord = true;
+        writeAscii("{\n  \"");
+        writeAscii(section);
+        writeAscii("\": [");
+    }
+
+    public void beginRecord() throws IOException {
+        writeAscii(firstRecord ? "\n    {" : ",\n    {");
+        firstRecord = false;
+        firstField = true;
+    }
+
+    public void endRecord() throws IOException {
+        writeAscii("\n    }");
+    }
+
+    public void field(String name, String value) throws IOException {
+        name(name);
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+        writeByte('"');
+        writeEscaped(value);
+        writeByte('"');
+    }
+
+    public void field(String name, long value) throws IOException {
+        name(name);
+        writeLong(value);
+    }
+
+    public void field(String name, LocalDateTime value) throws IOException {
+        name(name);
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+        writeByte('"');
+        writeDigits(value.getYear(), 4);
+        writeByte('-');
+        writeDigits(value.getMonthValue(), 2);
+        writeByte('-');
+        writeDigits(value.getDayOfMonth(), 2);
+        writeByte('T');
+        writeDigits(value.getHour(), 2);
+        writeByte(':');
+        writeDigits(value.getMinute(), 2);
+        writeByte(':');
+        writeDigits(value.getSecond(), 2);
+        if (value.getNano() != 0) {
+            writeByte('.');
+            writeDigits(value.getNano(), 9);
+        }
+        writeByte('"');
+    }
+
+    public void nullField(String name) throws IOException {
+        name(name);
+        writeAscii("null");
+    }
+
+    /**
+     * Closes the array and document and flushes, without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        writeAscii(firstRecord ? "]\n}\n" : "\n  ]\n}\n");
+        flush();
+    }
+
+    public void flush() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    private void name(String name) throws IOException {
+        writeAscii(firstField ? "\n      \"" : ",\n      \"");
+        firstField = false;
+        writeAscii(name);
+        writeAscii("\": ");
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                writeByte(c);
+            } else if (c == '"' || c == '\\') {
+                writeByte('\\');
+                writeByte(c);
+            } else if (c == '\n') {
+                writeAscii("\\n");
+            } else if (c == '\r') {
+                writeAscii("\\r");
+            } else if (c == '\t') {
+                writeAscii("\\t");
+            } else if (c < 0x20) {
+                writeAscii("\\u00");
+                writeByte(HEX[c >> 4]);
+                writeByte(HEX[c & 0xF]);
+            } else if (c < 0x800) {
+                writeByte(0xC0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xF0 | (code >> 18));
+                writeByte(0x80 | ((code >> 12) & 0x3F));
+                writeByte(0x80 | ((code >> 6) & 0x3F));
+                writeByte(0x80 | (code & 0x3F));
+            } else {
+                writeByte(0xE0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3F));
+                writeByte(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        ensure(20);
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+    }
+
+    private void writeDigits(int value, int width) throws IOException {
+        ensure(width);
+        for (int i = count + width - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += width;
+    }
+
+    private void writeAscii(String value) throws IOException {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[count++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        ensure(1);
+        buffer[count++] = (byte) b;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (count + bytes > buffer.length) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.pointsystem.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Pull parser over a byte buffer, typically a memory-mapped file region. Tokens are
+ * returned as int constants and their values stay in the buffer until asked for, so field
+ * names and enum values can be matched in place and skipped fields cost nothing.
+ *
+ * The parser is built for bulk import of trusted dumps: separators are not validated
+ * (commas and colons are skipped like whitespace) and strings and numbers are only
+ * checked as far as decoding them requires.
+ */
+public final class JsonPullParser {
+    public static final int END = 0;
+    public static final int START_OBJECT = 1;
+    public static final int END_OBJECT = 2;
+    public static final int START_ARRAY = 3;
+    public static final int END_ARRAY = 4;
+    public static final int FIELD_NAME = 5;
+    public static final int STRING = 6;
+    public static final int NUMBER = 7;
+    public static final int TRUE = 8;
+    public static final int FALSE = 9;
+    public static final int NULL = 10;
+
+    private static final int STRING_CACHE_SIZE = 1024;
+
+    private final ByteBuffer buf;
+    private final int limit;
+    private int pos;
+    private int token;
+    private int valueStart;
+    private int valueEnd;
+    private boolean valueEscaped;
+
+    // Container stack: true for objects, and whether an object expects a field name next
+    private boolean[] inObject = new boolean[16];
+    private int depth;
+    private boolean expectName;
+
+    private byte[] scratch = new byte[256];
+    private final byte[][] cachedKeys = new byte[STRING_CACHE_SIZE][];
+    private final String[] cachedStrings = new String[STRING_CACHE_SIZE];
+
+    /**
+     * Parses the buffer from its position to its limit.
+     */
+    public JsonPullParser(ByteBuffer buf) {
+        this.buf = buf;
+        this.pos = buf.position();
+        this.limit = buf.limit();
+    }
+
+    public int next() throws IOException {
+        byte c = skipSeparators();
+        if (pos >= limit) {
+            return token = END;
+        }
+        switch (c) {
+            case '{':
+                pos++;
+                push(true);
+                return token = START_OBJECT;
+            case '}':
+                pos++;
+                pop();
+                return token = END_OBJECT;
+            case '[':
+                pos++;
+                push(false);
+                return token = START_ARRAY;
+            case ']':
+                pos++;
+                pop();
+                return token = END_ARRAY;
+            case '"':
+                scanString();
+                if (depth > 0 && inObject[depth - 1] && expectName) {
+                    expectName = false;
+                    return token = FIELD_NAME;
+                }
+                afterValue();
+                return token = STRING;
+            case 't':
+                expectLiteral("true");
+                afterValue();
+                return token = TRUE;
+            case 'f':
+                expectLiteral("false");
+                afterValue();
+                return token = FALSE;
+            case 'n':
+                expectLiteral("null");
+                afterValue();
+                return token = NULL;
+            default:
+                scanNumber();
+                afterValue();
+                return token = NUMBER;
+        }
+    }
+
+    public int currentToken() {
+        return token;
+    }
+
+    /**
+     * Offset of the next unread byte in the buffer.
+     */
+    public int position() {
+        return pos;
+    }
+
+    /**
+     * Skips the value of the current field, or the whole container if the current token
+     * starts one.
+     */
+    public void skipValue() throws IOException {
+        if (token == FIELD_NAME) {
+            next();
+        }
+        if (token == START_OBJECT || token == START_ARRAY) {
+            int target = depth - 1;
+            while (depth > target) {
+                if (next() == END) {
+                    throw new IOException("Unterminated container");
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the current string or field name with an ASCII name without decoding it.
+     */
+    public boolean nameEquals(byte[] name) {
+        if (valueEscaped || valueEnd - valueStart != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buf.get(valueStart + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches the current string against a table of ASCII names.
+     * @return The index of the matching name, or -1
+     */
+    public int match(byte[][] names) {
+        for (int i = 0; i < names.length; i++) {
+            if (nameEquals(names[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The current string value, or null for a JSON null
+     */
+    public String getString() throws IOException {
+        if (token == NULL) {
+            return null;
+        }
+        if (valueEscaped) {
+            return decodeEscaped();
+        }
+        int length = valueEnd - valueStart;
+        byte[] bytes = copyValue(length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Like {@link #getString()}, but returns a shared instance for strings seen recently,
+     * which keeps repeated ids (a user id on every activity) from allocating per record.
+     */
+    public String getCachedString() throws IOException {
+        if (token == NULL) {
+            return null;
+        }
+        int length = valueEnd - valueStart;
+        if (valueEscaped || length > 64) {
+            return getString();
+        }
+        int hash = 0;
+        for (int i = valueStart; i < valueEnd; i++) {
+            hash = 31 * hash + buf.get(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (STRING_CACHE_SIZE - 1);
+        byte[] key = cachedKeys[slot];
+        if (key != null && nameEquals(key)) {
+            return cachedStrings[slot];
+        }
+        key = new byte[length];
+        buf.get(valueStart, key, 0, length);
+        String value = new String(key, StandardCharsets.UTF_8);
+        cachedKeys[slot] = key;
+        cachedStrings[slot] = value;
+        return value;
+    }
+
+    public long getLong() throws IOException {
+        if (token != NUMBER) {
+            throw new IOException("Expected a number at offset " + valueStart);
+        }
+        int i = valueStart;
+        boolean negative = buf.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long value = 0;
+        for (; i < valueEnd; i++) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9') {
+                // Fractions and exponents take the slow path
+                return (long) getDouble();
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    public int getInt() throws IOException {
+        return (int) getLong();
+    }
+
+    public double getDouble() throws IOException {
+        if (token != NUMBER) {
+            throw new IOException("Expected a number at offset " + valueStart);
+        }
+        int length = valueEnd - valueStart;
+        try {
+            return Double.parseDouble(new String(copyValue(length), 0, length, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number at offset " + valueStart);
+        }
+    }
+
+    /**
+     * Parses an ISO local date-time ({@code 2024-03-20T15:30:00}, optionally with a
+     * fraction) directly from the buffer.
+     * @return The value, or null for a JSON null
+     */
+    public LocalDateTime getDateTime() throws IOException {
+        if (token == NULL) {
+            return null;
+        }
+        int length = valueEnd - valueStart;
+        if (!valueEscaped && length >= 19 && buf.get(valueStart + 10) == 'T') {
+            int s = valueStart;
+            int year = digits(s, 4);
+            int month = digits(s + 5, 2);
+            int day = digits(s + 8, 2);
+            int hour = digits(s + 11, 2);
+            int minute = digits(s + 14, 2);
+            int second = digits(s + 17, 2);
+            int nanos = 0;
+            if (length > 20 && buf.get(s + 19) == '.' && length <= 29) {
+                int fractionDigits = length - 20;
+                nanos = digits(s + 20, fractionDigits);
+                for (int i = fractionDigits; i < 9; i++) {
+                    nanos *= 10;
+                }
+            } else if (length != 19) {
+                nanos = -1;
+            }
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0 && nanos >= 0) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+                } catch (RuntimeException e) {
+                    throw new IOException("Invalid date-time at offset " + valueStart);
+                }
+            }
+        }
+        try {
+            return LocalDateTime.parse(getString());
+        } catch (DateTimeParseException e) {
+            throw new IOException("Invalid date-time at offset " + valueStart);
+        }
+    }
+
+    // Parses count ASCII digits, or returns -1 if any byte is not a digit
+    private int digits(int offset, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            byte b = buf.get(offset + i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private byte skipSeparators() {
+        while (pos < limit) {
+            byte c = buf.get(pos);
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',' || c == ':') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private void scanString() throws IOException {
+        int i = pos + 1;
+        boolean escaped = false;
+        while (i < limit) {
+            byte b = buf.get(i);
+            if (b == '"') {
+                valueStart = pos + 1;
+                valueEnd = i;
+                valueEscaped = escaped;
+                pos = i + 1;
+                return;
+            }
+            if (b == '\\') {
+                escaped = true;
+                i++;
+            }
+            i++;
+        }
+        throw new IOException("Unterminated string at offset " + pos);
+    }
+
+    private void scanNumber() throws IOException {
+        int i = pos;
+        while (i < limit) {
+            byte b = buf.get(i);
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                i++;
+            } else {
+                break;
+            }
+        }
+        if (i == pos) {
+            throw new IOException("Unexpected character '" + (char) buf.get(pos) + "' at offset " + pos);
+        }
+        valueStart = pos;
+        valueEnd = i;
+        valueEscaped = false;
+        pos = i;
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        if (pos + literal.length() > limit) {
+            throw new IOException("Truncated literal at offset " + pos);
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buf.get(pos + i) != literal.charAt(i)) {
+                throw new IOException("Invalid literal at offset " + pos);
+            }
+        }
+        pos += literal.length();
+    }
+
+    private void push(boolean object) {
+        if (depth == inObject.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(inObject, 0, grown, 0, depth);
+            inObject = grown;
+        }
+        inObject[depth++] = object;
+        expectName = object;
+    }
+
+    private void pop() throws IOException {
+        if (depth == 0) {
+            throw new IOException("Unbalanced container end at offset " + (pos - 1));
+        }
+        depth--;
+        afterValue();
+    }
+
+    private void afterValue() {
+        expectName = depth > 0 && inObject[depth - 1];
+    }
+
+    private byte[] copyValue(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buf.get(valueStart, scratch, 0, length);
+        return scratch;
+    }
+
+    private String decodeEscaped() throws IOException {
+        int length = valueEnd - valueStart;
+        byte[] bytes = copyValue(length);
+        // Unescape into the same array; the result is never longer than the input
+        int out = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b != '\\') {
+                bytes[out++] = b;
+                continue;
+            }
+            if (++i >= length) {
+                throw new IOException("Dangling escape at offset " + valueStart);
+            }
+            byte e = bytes[i];
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    bytes[out++] = e;
+                    break;
+                case 'b':
+                    bytes[out++] = '\b';
+                    break;
+                case 'f':
+                    bytes[out++] = '\f';
+                    break;
+                case 'n':
+                    bytes[out++] = '\n';
+                    break;
+                case 'r':
+                    bytes[out++] = '\r';
+                    break;
+                case 't':
+                    bytes[out++] = '\t';
+                    break;
+                case 'u':
+                    if (i + 4 >= length) {
+                        throw new IOException("Truncated unicode escape at offset " + valueStart);
+                    }
+                    int code = Integer.parseInt(new String(bytes, i + 1, 4, StandardCharsets.US_ASCII), 16);
+                    i += 4;
+                    if (Character.isHighSurrogate((char) code) && i + 6 < length
+                            && bytes[i + 1] == '\\' && bytes[i + 2] == 'u') {
+                        int low = Integer.parseInt(new String(bytes, i + 3, 4, StandardCharsets.US_ASCII), 16);
+                        code = Character.toCodePoint((char) code, (char) low);
+                        i += 6;
+                    }
+                    out = encodeUtf8(bytes, out, code);
+                    break;
+                default:
+                    throw new IOException("Invalid escape at offset " + valueStart);
+            }
+        }
+        return new String(bytes, 0, out, StandardCharsets.UTF_8);
+    }
+
+    private static int encodeUtf8(byte[] bytes, int out, int code) {
+        if (code < 0x80) {
+            bytes[out++] = (byte) code;
+        } else if (code < 0x800) {
+            bytes[out++] = (byte) (0xC0 | (code >> 6));
+            bytes[out++] = (byte) (0x80 | (code & 0x3F));
+        } else if (code < 0x10000) {
+            bytes[out++] = (byte) (0xE0 | (code >> 12));
+            bytes[out++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+            bytes[out++] = (byte) (0x80 | (code & 0x3F));
+        } else {
+            bytes[out++] = (byte) (0xF0 | (code >> 18));
+            bytes[out++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+            bytes[out++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+            bytes[out++] = (byte) (0x80 | (code & 0x3F));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,119 @@
+package com.pointsystem.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits the record array of a fixture file into chunks that can be parsed independently.
+ *
+ * A single pass tracks only string, escape and nesting state, which is much cheaper than
+ * parsing, and records the offset of a record start roughly every {@code chunkBytes}.
+ * Every boundary is therefore the first byte of a top-level record, so each chunk is a
+ * run of complete records. Files are mapped in windows, so dumps larger than 2 GB work.
+ */
+final class StructuralIndex {
+    private static final long MAP_WINDOW = 1L << 30;
+    private static final int HEADER_WINDOW = 64 * 1024;
+
+    private StructuralIndex() {
+    }
+
+    /**
+     * @return Chunk boundaries: chunk i spans [boundaries[i], boundaries[i + 1]), and the
+     *         last entry is the offset of the array's closing bracket
+     */
+    static long[] split(FileChannel channel, String section, long chunkBytes) throws IOException {
+        long arrayStart = findArray(channel, section);
+        long size = channel.size();
+
+        long[] boundaries = new long[16];
+        int count = 0;
+        boundaries[count++] = arrayStart;
+        long lastBoundary = arrayStart;
+
+        boolean inString = false;
+        boolean escaped = false;
+        int depth = 1; // Inside the record array
+        byte[] block = new byte[64 * 1024];
+
+        for (long windowStart = arrayStart; windowStart < size; windowStart += MAP_WINDOW) {
+            long windowLength = Math.min(MAP_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            for (int blockStart = 0; blockStart < windowLength; blockStart += block.length) {
+                int blockLength = (int) Math.min(block.length, windowLength - blockStart);
+                window.get(blockStart, block, 0, blockLength);
+                for (int i = 0; i < blockLength; i++) {
+                    byte b = block[i];
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                        }
+                        continue;
+                    }
+                    switch (b) {
+                        case '"':
+                            inString = true;
+                            break;
+                        case '{':
+                        case '[':
+                            if (depth == 1) {
+                                long offset = windowStart + blockStart + i;
+                                if (offset - lastBoundary >= chunkBytes) {
+                                    if (count == boundaries.length) {
+                                        boundaries = Arrays.copyOf(boundaries, count * 2);
+                                    }
+                                    boundaries[count++] = offset;
+                                    lastBoundary = offset;
+                                }
+                            }
+                            depth++;
+                            break;
+                        case '}':
+                        case ']':
+                            if (--depth == 0) {
+                                if (count == boundaries.length) {
+                                    boundaries = Arrays.copyOf(boundaries, count + 1);
+                                }
+                                boundaries[count++] = windowStart + blockStart + i;
+                                return Arrays.copyOf(boundaries, count);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+        throw new IOException("Unterminated \"" + section + "\" array");
+    }
+
+    // Returns the offset just past the '[' of the section's array
+    private static long findArray(FileChannel channel, String section) throws IOException {
+        long headerLength = Math.min(channel.size(), HEADER_WINDOW);
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerLength);
+        JsonPullParser parser = new JsonPullParser(header);
+        byte[] name = section.getBytes(StandardCharsets.US_ASCII);
+        if (parser.next() != JsonPullParser.START_OBJECT) {
+            throw new IOException("Expected a JSON object at the start of the file");
+        }
+        while (parser.next() == JsonPullParser.FIELD_NAME) {
+            if (parser.nameEquals(name)) {
+                if (parser.next() != JsonPullParser.START_ARRAY) {
+                    throw new IOException("Field \"" + section + "\" is not an array");
+                }
+                return parser.position();
+            }
+            parser.next();
+            parser.skipValue();
+        }
+        throw new IOException("No \"" + section + "\" array in the first " + headerLength + " bytes");
+    }
+}
@@ -1,25 +1,27 @@
 package com.pointsystem.model;
 
 public enum AchievementBadge {
-    FIRST_POST(1, "First Post", "Created your first post", 50),
-    CONTENT_CREATOR(2, "Content Creator", "Created 50 posts", 100),
-    VIDEO_STAR(3, "Video Star", "Created 20 video posts", 150),
-    SOCIAL_BUTTERFLY(4, "Social Butterfly", "Reached 100 followers", 200),
-    ENGAGEMENT_KING(5, "Engagement King", "Received 500 likes", 250),
-    LOYAL_USER(6, "Loyal User", "Logged in for 30 consecutive days", 300),
-    TRENDING_MAKER(7, "Trending Maker", "Had 5 posts trending", 400),
-    SUPER_COMMENTER(8, "Super Commenter", "Left 200 comments", 150);
+    FIRST_POST(1, "First Post", "Created your first post", 50, 1),
+    CONTENT_CREATOR(2, "Content Creator", "Created 50 posts", 100, 50),
+    VIDEO_STAR(3, "Video Star", "Created 20 video posts", 150, 20),
+    SOCIAL_BUTTERFLY(4, "Social Butterfly", "Reached 100 followers", 200, 100),
+    ENGAGEMENT_KING(5, "Engagement King", "Received 500 likes", 250, 500),
+    LOYAL_USER(6, "Loyal User", "Logged in for 30 consecutive days", 300, 30),
+    TRENDING_MAKER(7, "Trending Maker", "Had 5 posts trending", 400, 5),
+    SUPER_COMMENTER(8, "Super Commenter", "Left 200 comments", 150, 200);
 
     private final int badgeId;
     private final String name;
     private final String description;
     private final int bonusPoints;
+    private final int threshold;
 
-    AchievementBadge(int badgeId, String name, String description, int bonusPoints) {
+    AchievementBadge(int badgeId, String name, String description, int bonusPoints, int threshold) {
         this.badgeId = badgeId;
         this.name = name;
         this.description = description;
         this.bonusPoints = bonusPoints;
+        this.threshold = threshold;
     }
 
     public int getBadgeId() {
@@ -37,6 +39,10 @@ public enum AchievementBadge {
     public int getBonusPoints() {
         return bonusPoints;
     }
+
+    public int getThreshold() {
+        return threshold;
+    }
     
     public static AchievementBadge getBadgeById(int badgeId) {
         for (AchievementBadge badge : AchievementBadge.values()) {
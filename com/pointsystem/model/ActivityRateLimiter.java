@@ -0,0 +1,162 @@
+package com.pointsystem.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user, per-ActivityType sliding window rate limiter for point-earning activities.
+ *
+ * Each (user, type) cell is a single long packing the window index (32 bits), the count in
+ * the current window (16 bits) and the count in the previous window (16 bits). The sliding
+ * count is estimated as previous * (1 - elapsed fraction) + current, and cells are updated
+ * with a CAS so the check is lock-free and allocation-free. Each type's limit and window are
+ * published together as one immutable {@link Limit}, so a check never sees a half-set pair.
+ */
+public class ActivityRateLimiter {
+    public static final int MAX_EVENTS_PER_WINDOW = 0xFFFF;
+
+    private static final int TYPES = ActivityType.values().length;
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    // Null for an unlimited type
+    private final AtomicReferenceArray<Limit> limits;
+    private final LongAdder[] throttledByType;
+    private volatile AtomicLongArray[] segments;
+
+    public ActivityRateLimiter() {
+        this.limits = new AtomicReferenceArray<>(TYPES);
+        this.throttledByType = new LongAdder[TYPES];
+        for (int i = 0; i < TYPES; i++) {
+            throttledByType[i] = new LongAdder();
+        }
+        this.segments = new AtomicLongArray[16];
+    }
+
+    /**
+     * Creates a limiter with default hourly limits for every activity that earns points
+     * per event. Per-item capped and purchase activities are left unlimited.
+     */
+    public static ActivityRateLimiter withDefaultLimits() {
+        ActivityRateLimiter limiter = new ActivityRateLimiter();
+        long hour = 60 * 60 * 1000L;
+        limiter.setLimit(ActivityType.POST, 30, hour);
+        limiter.setLimit(ActivityType.VIDEO_POST, 10, hour);
+        limiter.setLimit(ActivityType.LIVE_STREAM, 5, hour);
+        limiter.setLimit(ActivityType.COMMENT, 120, hour);
+        limiter.setLimit(ActivityType.SHARE, 60, hour);
+        limiter.setLimit(ActivityType.VIDEO_WATCH, 600, hour);
+        limiter.setLimit(ActivityType.TAG_USER, 60, hour);
+        limiter.setLimit(ActivityType.COMMENT_REPLY, 120, hour);
+        limiter.setLimit(ActivityType.JOIN_GROUP, 20, hour);
+        limiter.setLimit(ActivityType.POLL_PARTICIPATION, 60, hour);
+        limiter.setLimit(ActivityType.CHALLENGE_PARTICIPATION, 20, hour);
+        limiter.setLimit(ActivityType.EVENT_RSVP, 20, hour);
+        return limiter;
+    }
+
+    /**
+     * Limits an activity type to maxEvents per sliding window. Changing a window length
+     * takes effect at each cell's next window rollover.
+     */
+    public void setLimit(ActivityType type, int maxEvents, long windowMillis) {
+        if (maxEvents <= 0 || maxEvents > MAX_EVENTS_PER_WINDOW || windowMillis <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit for " + type + ": "
+                + maxEvents + " per " + windowMillis + "ms");
+        }
+        limits.set(type.ordinal(), new Limit(maxEvents, windowMillis));
+    }
+
+    public void removeLimit(ActivityType type) {
+        limits.set(type.ordinal(), null);
+    }
+
+    /**
+     * Records an event if the user is under the limit for its type.
+     * @return true if the event is allowed, false if it was throttled
+     */
+    public boolean tryAcquire(int denseId, ActivityType type, long nowMillis) {
+        int ordinal = type.ordinal();
+        Limit limit = limits.get(ordinal);
+        if (limit == null) {
+            return true;
+        }
+        long window = limit.windowMillis;
+        long windowIndex = nowMillis / window;
+        int currentWindow = (int) windowIndex;
+        double elapsedFraction = (double) (nowMillis - windowIndex * window) / window;
+
+        AtomicLongArray segment = segmentFor(denseId);
+        int index = (denseId & SEGMENT_MASK) * TYPES + ordinal;
+        while (true) {
+            long cell = segment.get(index);
+            int cellWindow = (int) (cell >>> 32);
+            int current = (int) (cell >>> 16) & 0xFFFF;
+            int previous = (int) cell & 0xFFFF;
+
+            if (cellWindow != currentWindow) {
+                // Roll forward: the old current window becomes previous only if it was adjacent
+                previous = cellWindow == currentWindow - 1 ? current : 0;
+                current = 0;
+            }
+            if (previous * (1.0 - elapsedFraction) + current >= limit.maxEvents) {
+                throttledByType[ordinal].increment();
+                return false;
+            }
+            long updated = ((long) currentWindow << 32) | ((long) (current + 1) << 16) | previous;
+            if (segment.compareAndSet(index, cell, updated)) {
+                return true;
+            }
+        }
+    }
+
+    public long getThrottledCount(ActivityType type) {
+        return throttledByType[type.ordinal()].sum();
+    }
+
+    public long getTotalThrottled() {
+        long total = 0;
+        for (LongAdder adder : throttledByType) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public void resetThrottledCounts() {
+        for (LongAdder adder : throttledByType) {
+            adder.reset();
+        }
+    }
+
+    private static final class Limit {
+        final int maxEvents;
+        final long windowMillis;
+
+        Limit(int maxEvents, long windowMillis) {
+            this.maxEvents = maxEvents;
+            this.windowMillis = windowMillis;
+        }
+    }
+
+    private AtomicLongArray segmentFor(int denseId) {
+        int index = denseId >>> SEGMENT_SHIFT;
+        AtomicLongArray[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            }
+            if (current[index] == null) {
+                current[index] = new AtomicLongArray(SEGMENT_SIZE * TYPES);
+            }
+            segments = current;
+            return current[index];
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.pointsystem.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental achievement badge evaluation.
+ *
+ * Per-user counters live in primitive arrays indexed by dense user id and counter slot.
+ * Slots 0..N-1 are {@link ActivityType} ordinals; the slots after them hold metrics that
+ * are not activities (followers, login streak, trending posts, likes received).
+ * Each slot has a precomputed list of the badges it can trigger, so an event only checks
+ * those thresholds, and a per-user earned bitmask makes every award happen exactly once.
+ */
+public class BadgeEngine {
+    private static final int ACTIVITY_SLOTS = ActivityType.values().length;
+    public static final int SLOT_FOLLOWERS = ACTIVITY_SLOTS;
+    public static final int SLOT_LOGIN_STREAK = ACTIVITY_SLOTS + 1;
+    public static final int SLOT_TRENDING_POSTS = ACTIVITY_SLOTS + 2;
+    public static final int SLOT_LIKES_RECEIVED = ACTIVITY_SLOTS + 3;
+    private static final int SLOTS = ACTIVITY_SLOTS + 4;
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private static final AchievementBadge[][] TRIGGERS_BY_SLOT = buildTriggers();
+
+    private final BadgeAwardHandler awardHandler;
+    private volatile Segment[] segments;
+
+    public interface BadgeAwardHandler {
+        void onBadgeEarned(int denseId, AchievementBadge badge);
+    }
+
+    private static final class Segment {
+        final int[] counters = new int[SEGMENT_SIZE * SLOTS];
+        final int[] earnedMasks = new int[SEGMENT_SIZE];
+    }
+
+    public BadgeEngine(BadgeAwardHandler awardHandler) {
+        this.awardHandler = awardHandler;
+        this.segments = new Segment[16];
+    }
+
+    public static int getSlot(AchievementBadge badge) {
+        switch (badge) {
+            case FIRST_POST:
+            case CONTENT_CREATOR:
+                return ActivityType.POST.ordinal();
+            case VIDEO_STAR:
+                return ActivityType.VIDEO_POST.ordinal();
+            case SUPER_COMMENTER:
+                return ActivityType.COMMENT.ordinal();
+            case SOCIAL_BUTTERFLY:
+                return SLOT_FOLLOWERS;
+            case LOYAL_USER:
+                return SLOT_LOGIN_STREAK;
+            case TRENDING_MAKER:
+                return SLOT_TRENDING_POSTS;
+            case ENGAGEMENT_KING:
+                return SLOT_LIKES_RECEIVED;
+            default:
+                throw new IllegalArgumentException("No counter for badge " + badge);
+        }
+    }
+
+    /**
+     * Seeds the earned bitmask from badges the user already holds (e.g. loaded from user_badges).
+     */
+    public void registerUser(User user) {
+        int mask = 0;
+        for (AchievementBadge badge : AchievementBadge.values()) {
+            if (user.hasBadge(badge)) {
+                mask |= 1 << badge.ordinal();
+            }
+        }
+        Segment segment = segmentFor(user.getDenseId());
+        synchronized (segment) {
+            segment.earnedMasks[user.getDenseId() & SEGMENT_MASK] |= mask;
+        }
+    }
+
+    public void recordActivity(int denseId, ActivityType type) {
+        increment(denseId, type.ordinal(), 1);
+    }
+
+    public void increment(int denseId, int slot, int delta) {
+        Segment segment = segmentFor(denseId);
+        int base = (denseId & SEGMENT_MASK) * SLOTS;
+        AchievementBadge[] triggers = TRIGGERS_BY_SLOT[slot];
+        int earned;
+        synchronized (segment) {
+            int value = segment.counters[base + slot] + delta;
+            segment.counters[base + slot] = value;
+            if (triggers.length == 0) {
+                return;
+            }
+            earned = checkTriggers(segment, denseId, triggers, value);
+        }
+        dispatch(denseId, earned);
+    }
+
+    /**
+     * Sets a gauge-style counter such as follower count or login streak.
+     */
+    public void setValue(int denseId, int slot, int value) {
+        Segment segment = segmentFor(denseId);
+        AchievementBadge[] triggers = TRIGGERS_BY_SLOT[slot];
+        int earned;
+        synchronized (segment) {
+            segment.counters[(denseId & SEGMENT_MASK) * SLOTS + slot] = value;
+            if (triggers.length == 0) {
+                return;
+            }
+            earned = checkTriggers(segment, denseId, triggers, value);
+        }
+        dispatch(denseId, earned);
+    }
+
+    public int getValue(int denseId, int slot) {
+        Segment segment = segmentFor(denseId);
+        synchronized (segment) {
+            return segment.counters[(denseId & SEGMENT_MASK) * SLOTS + slot];
+        }
+    }
+
+    /**
+     * Re-evaluates every badge for the given users, e.g. after a bulk import or a threshold change.
+     * Counters are raised to at least the lifetime counts recorded on the User, which survive
+     * eviction and are rebuilt from imported activities, then all slots are checked.
+     * @return Number of badges awarded
+     */
+    public int reevaluateAll(Collection<User> users) {
+        int awarded = 0;
+        for (User user : users) {
+            int denseId = user.getDenseId();
+            if (denseId == UserIdRegistry.UNKNOWN) {
+                continue;
+            }
+            registerUser(user);
+            Map<String, Integer> activityCounts = user.getActivityCounts();
+            Segment segment = segmentFor(denseId);
+            int base = (denseId & SEGMENT_MASK) * SLOTS;
+            int earned = 0;
+            synchronized (segment) {
+                raise(segment, base + ActivityType.POST.ordinal(), activityCounts.getOrDefault("posts", 0));
+                raise(segment, base + ActivityType.VIDEO_POST.ordinal(), activityCounts.getOrDefault("videoPosts", 0));
+                raise(segment, base + ActivityType.COMMENT.ordinal(), activityCounts.getOrDefault("comments", 0));
+                raise(segment, base + ActivityType.LIKE.ordinal(), activityCounts.getOrDefault("likes", 0));
+                raise(segment, base + SLOT_LIKES_RECEIVED, activityCounts.getOrDefault("likesReceived", 0));
+                raise(segment, base + SLOT_TRENDING_POSTS, activityCounts.getOrDefault("trendingPosts", 0));
+                segment.counters[base + SLOT_FOLLOWERS] = user.getFollowersCount();
+                segment.counters[base + SLOT_LOGIN_STREAK] = user.getCurrentLoginStreak();
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    if (TRIGGERS_BY_SLOT[slot].length > 0) {
+                        earned |= checkTriggers(segment, denseId, TRIGGERS_BY_SLOT[slot], segment.counters[base + slot]);
+                    }
+                }
+            }
+            awarded += Integer.bitCount(earned);
+            dispatch(denseId, earned);
+        }
+        return awarded;
+    }
+
+    private static void raise(Segment segment, int index, int value) {
+        segment.counters[index] = Math.max(segment.counters[index], value);
+    }
+
+    private static int checkTriggers(Segment segment, int denseId, AchievementBadge[] triggers, int value) {
+        int index = denseId & SEGMENT_MASK;
+        int mask = segment.earnedMasks[index];
+        int earned = 0;
+        for (AchievementBadge badge : triggers) {
+            if (value < badge.getThreshold()) {
+                break; // Triggers are sorted by threshold
+            }
+            int bit = 1 << badge.ordinal();
+            if ((mask & bit) == 0) {
+                mask |= bit;
+                earned |= bit;
+            }
+        }
+        segment.earnedMasks[index] = mask;
+        return earned;
+    }
+
+    private void dispatch(int denseId, int earned) {
+        if (earned == 0 || awardHandler == null) {
+            return;
+        }
+        AchievementBadge[] badges = AchievementBadge.values();
+        while (earned != 0) {
+            int ordinal = Integer.numberOfTrailingZeros(earned);
+            earned &= earned - 1;
+            awardHandler.onBadgeEarned(denseId, badges[ordinal]);
+        }
+    }
+
+    private Segment segmentFor(int denseId) {
+        int index = denseId >>> SEGMENT_SHIFT;
+        Segment[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            }
+            if (current[index] == null) {
+                current[index] = new Segment();
+            }
+            segments = current;
+            return current[index];
+        }
+    }
+
+    private static AchievementBadge[][] buildTriggers() {
+        List<List<AchievementBadge>> bySlot = new ArrayList<>();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            bySlot.add(new ArrayList<>());
+        }
+        for (AchievementBadge badge : AchievementBadge.values()) {
+            bySlot.get(getSlot(badge)).add(badge);
+        }
+        AchievementBadge[][] triggers = new AchievementBadge[SLOTS][];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            List<AchievementBadge> badges = bySlot.get(slot);
+            badges.sort((a, b) -> Integer.compare(a.getThreshold(), b.getThreshold()));
+            triggers[slot] = badges.toArray(new AchievementBadge[0]);
+        }
+        return triggers;
+    }
+}
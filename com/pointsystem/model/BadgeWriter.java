@@ -0,0 +1,96 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers earned badges and writes them to user_badges in JDBC batches. A batch that fails
+ * stays buffered for the next write.
+ */
+public class BadgeWriter {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final Connection dbConnection;
+    private final int batchSize;
+    private List<PendingBadge> pending;
+
+    private static final class PendingBadge {
+        final String userId;
+        final int badgeId;
+        final LocalDateTime earnedAt;
+
+        PendingBadge(String userId, int badgeId, LocalDateTime earnedAt) {
+            this.userId = userId;
+            this.badgeId = badgeId;
+            this.earnedAt = earnedAt;
+        }
+    }
+
+    public BadgeWriter(Connection dbConnection, int batchSize) {
+        this.dbConnection = dbConnection;
+        this.batchSize = batchSize;
+        this.pending = new ArrayList<>();
+    }
+
+    public void enqueue(String userId, AchievementBadge badge, LocalDateTime earnedAt) {
+        if (dbConnection == null) {
+            return;
+        }
+        List<PendingBadge> toWrite = null;
+        synchronized (this) {
+            pending.add(new PendingBadge(userId, badge.getBadgeId(), earnedAt));
+            if (pending.size() >= batchSize) {
+                toWrite = pending;
+                pending = new ArrayList<>();
+            }
+        }
+        if (toWrite != null) {
+            write(toWrite);
+        }
+    }
+
+    public void flush() {
+        List<PendingBadge> toWrite;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            toWrite = pending;
+            pending = new ArrayList<>();
+        }
+        write(toWrite);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private void write(List<PendingBadge> badges) {
+        String sql = "INSERT INTO user_badges (user_id, badge_id, earned_at) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            for (PendingBadge badge : badges) {
+                stmt.setString(1, badge.userId);
+                stmt.setInt(2, badge.badgeId);
+                stmt.setTimestamp(3, Timestamp.valueOf(badge.earnedAt));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("Error persisting earned badges: " + e.getMessage());
+            requeue(badges);
+        }
+    }
+
+    // Failed badges go back ahead of newer ones and are retried with the next write
+    private synchronized void requeue(List<PendingBadge> badges) {
+        List<PendingBadge> merged = new ArrayList<>(badges.size() + pending.size());
+        merged.addAll(badges);
+        merged.addAll(pending);
+        pending = merged;
+    }
+}
@@ -0,0 +1,191 @@
+package com.pointsystem.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Points each participant of a challenge has contributed, keyed by dense user id.
+ *
+ * Participants get a slot in join order through an {@link IntIntHashMap}, and slot weights
+ * are their contributions, mirrored in a Fenwick tree so a contribution-weighted draw is one
+ * O(log n) descent over prefix sums. The top contributors are kept in a {@link TopKBoard}
+ * that each contribution updates in place; contributions only grow, which is what the board
+ * expects.
+ */
+final class ChallengeContributions {
+    static final int DEFAULT_TOP_CAPACITY = 100;
+
+    // Contributions never expire, so the top board stays in one period
+    private static final int PERIOD = 0;
+
+    private final IntIntHashMap slots;
+    private final TopKBoard top;
+    private int[] ids;
+    private int[] weights;
+    private long[] tree;
+    private int size;
+
+    ChallengeContributions() {
+        this(DEFAULT_TOP_CAPACITY);
+    }
+
+    ChallengeContributions(int topCapacity) {
+        this.slots = new IntIntHashMap(16, -1);
+        this.top = new TopKBoard(topCapacity);
+        this.ids = new int[16];
+        this.weights = new int[16];
+        this.tree = new long[17];
+    }
+
+    /**
+     * Registers a participant with no contribution yet; does nothing if already registered.
+     */
+    synchronized void join(int denseId) {
+        slotOf(denseId);
+    }
+
+    /**
+     * Adds points to a participant's contribution, registering it if needed.
+     * @return The participant's total contribution
+     */
+    synchronized int add(int denseId, int points) {
+        int slot = slotOf(denseId);
+        if (points <= 0) {
+            return weights[slot];
+        }
+        weights[slot] += points;
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += points;
+        }
+        top.update(denseId, weights[slot], PERIOD);
+        return weights[slot];
+    }
+
+    /**
+     * @return The participant's contribution, or -1 if it is not a participant
+     */
+    synchronized int get(int denseId) {
+        int slot = slots.get(denseId);
+        return slot >= 0 ? weights[slot] : -1;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long total() {
+        return prefix(size);
+    }
+
+    /**
+     * Up to k top contributors, highest first, as parallel arrays of dense ids and points.
+     * @param k At most the board capacity
+     */
+    synchronized int top(int k, int[] denseIds, int[] points) {
+        int count = Math.min(k, top.size(PERIOD));
+        for (int rank = 0; rank < count; rank++) {
+            denseIds[rank] = top.idAt(rank);
+            points[rank] = top.scoreAt(rank);
+        }
+        return count;
+    }
+
+    /**
+     * Copies every participant and its contribution into the arrays, in join order.
+     * @return Number of participants copied
+     */
+    synchronized int copyTo(int[] denseIds, int[] points) {
+        int count = Math.min(size, denseIds.length);
+        System.arraycopy(ids, 0, denseIds, 0, count);
+        System.arraycopy(weights, 0, points, 0, count);
+        return count;
+    }
+
+    /**
+     * Draws up to count distinct participants, each draw with probability proportional to
+     * contribution among those not yet drawn. Once only non-contributors remain, they are
+     * drawn uniformly.
+     * @return Dense ids of the winners in draw order
+     */
+    synchronized int[] draw(int count, Random random) {
+        int[] winners = new int[Math.min(count, size)];
+        int[] drawnSlots = new int[winners.length];
+        IntIntHashMap drawn = new IntIntHashMap(winners.length, -1);
+        for (int i = 0; i < winners.length; i++) {
+            long remaining = prefix(size);
+            int slot;
+            if (remaining > 0) {
+                slot = find(random.nextLong(remaining));
+            } else {
+                do {
+                    slot = random.nextInt(size);
+                } while (drawn.containsKey(slot));
+            }
+            winners[i] = ids[slot];
+            drawnSlots[i] = slot;
+            drawn.put(slot, i);
+            // Take the winner out of the weights until the draw is over
+            for (int j = slot + 1; j < tree.length; j += j & -j) {
+                tree[j] -= weights[slot];
+            }
+        }
+        for (int slot : drawnSlots) {
+            for (int j = slot + 1; j < tree.length; j += j & -j) {
+                tree[j] += weights[slot];
+            }
+        }
+        return winners;
+    }
+
+    private int slotOf(int denseId) {
+        int slot = slots.get(denseId);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (size == ids.length) {
+            grow();
+        }
+        slot = size++;
+        ids[slot] = denseId;
+        weights[slot] = 0;
+        slots.put(denseId, slot);
+        return slot;
+    }
+
+    // Doubles the slots and rebuilds the tree in O(n)
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        tree = new long[capacity + 1];
+        for (int i = 1; i <= size; i++) {
+            tree[i] += weights[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    // Sum of the weights of the first count slots
+    private long prefix(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Slot whose weight range contains target, for 0 <= target < total
+    private int find(long target) {
+        int pos = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] <= target) {
+                pos = next;
+                target -= tree[next];
+            }
+        }
+        return pos;
+    }
+}
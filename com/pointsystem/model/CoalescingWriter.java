@@ -0,0 +1,133 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer that keeps only the latest value per key and flushes pending
+ * values with one batched statement. Repeated updates to the same row between flushes
+ * cost a single write. Values of a batch that fails stay pending for the next flush.
+ */
+public class CoalescingWriter<V> {
+    private final Connection dbConnection;
+    private final String sql;
+    private final StatementBinder<V> binder;
+    private final int batchSize;
+    private final Map<String, V> pending;
+    private final AtomicLong rowsWritten;
+    private final AtomicLong updatesCoalesced;
+    private ScheduledExecutorService flusher;
+
+    public interface StatementBinder<V> {
+        void bind(PreparedStatement stmt, String key, V value) throws SQLException;
+    }
+
+    public CoalescingWriter(Connection dbConnection, String sql, StatementBinder<V> binder, int batchSize) {
+        this.dbConnection = dbConnection;
+        this.sql = sql;
+        this.binder = binder;
+        this.batchSize = batchSize;
+        this.pending = new ConcurrentHashMap<>();
+        this.rowsWritten = new AtomicLong();
+        this.updatesCoalesced = new AtomicLong();
+    }
+
+    public void submit(String key, V value) {
+        if (dbConnection == null) {
+            return;
+        }
+        if (pending.put(key, value) != null) {
+            updatesCoalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes all pending values.
+     * @return Number of rows written
+     */
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        int written = 0;
+        Map<String, V> batch = new LinkedHashMap<>();
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            Iterator<Map.Entry<String, V>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, V> entry = it.next();
+                String key = entry.getKey();
+                V value = entry.getValue();
+                // Only drop the entry if no newer value replaced it in the meantime
+                if (!pending.remove(key, value)) {
+                    continue;
+                }
+                batch.put(key, value);
+                binder.bind(stmt, key, value);
+                stmt.addBatch();
+                if (batch.size() == batchSize) {
+                    stmt.executeBatch();
+                    written += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                stmt.executeBatch();
+                written += batch.size();
+                batch.clear();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error flushing pending writes: " + e.getMessage());
+            // Retried with the next flush unless a newer value was submitted meanwhile
+            for (Map.Entry<String, V> entry : batch.entrySet()) {
+                pending.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        rowsWritten.addAndGet(written);
+        return written;
+    }
+
+    public synchronized void start(long periodMillis, String threadName) {
+        if (flusher != null || dbConnection == null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        ScheduledExecutorService toStop;
+        synchronized (this) {
+            toStop = flusher;
+            flusher = null;
+        }
+        if (toStop != null) {
+            toStop.shutdown();
+        }
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getUpdatesCoalesced() {
+        return updatesCoalesced.get();
+    }
+}
@@ -1,5 +1,6 @@
 package com.pointsystem.model;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -14,11 +15,22 @@ public class CollaborativeChallenge {
     private String reward;
     private int currentPoints;
     private Set<String> participants;
+    private final ChallengeContributions contributions;
     private boolean active;
+    private Clock clock;
 
     public CollaborativeChallenge(String challengeId, String name, String description, 
                                  int targetPoints, LocalDateTime startTime, 
                                  LocalDateTime endTime, String reward) {
+        this(challengeId, name, description, targetPoints, startTime, endTime, reward, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock Clock that decides whether the challenge is within its time window
+     */
+    public CollaborativeChallenge(String challengeId, String name, String description, 
+                                 int targetPoints, LocalDateTime startTime, 
+                                 LocalDateTime endTime, String reward, Clock clock) {
         this.challengeId = challengeId;
         this.name = name;
         this.description = description;
@@ -28,7 +40,9 @@ public class CollaborativeChallenge {
         this.reward = reward;
         this.currentPoints = 0;
         this.participants = new HashSet<>();
+        this.contributions = new ChallengeContributions();
         this.active = true;
+        this.clock = clock;
     }
 
     public String getChallengeId() {
@@ -67,12 +81,25 @@ public class CollaborativeChallenge {
         this.currentPoints += points;
     }
 
+    /**
+     * Adds points to the challenge total and to the participant's own contribution.
+     * @return The participant's total contribution
+     */
+    public int addContribution(int denseId, int points) {
+        addPoints(points);
+        return contributions.add(denseId, points);
+    }
+
+    ChallengeContributions getContributions() {
+        return contributions;
+    }
+
     public boolean isCompleted() {
         return currentPoints >= targetPoints;
     }
 
     public boolean isActive() {
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now(clock);
         return active && now.isAfter(startTime) && now.isBefore(endTime);
     }
 
@@ -80,6 +107,15 @@ public class CollaborativeChallenge {
         participants.add(userId);
     }
 
+    /**
+     * Adds a participant whose contributions are tracked under its dense id, which must be
+     * unique among the challenge's participants.
+     */
+    public void addParticipant(String userId, int denseId) {
+        participants.add(userId);
+        contributions.join(denseId);
+    }
+
     public Set<String> getParticipants() {
         return participants;
     }
@@ -91,4 +127,8 @@ public class CollaborativeChallenge {
     public void setActive(boolean active) {
         this.active = active;
     }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
 } 
\ No newline at end of file
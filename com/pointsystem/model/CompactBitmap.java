@@ -0,0 +1,408 @@
+package com.pointsystem.model;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of ints in the style of a Roaring bitmap, used for sets of dense user ids.
+ *
+ * Values are split on their high 16 bits into containers. A container holding at most
+ * 4096 values is a sorted char array; a fuller one is a 65536-bit bitmap, so every
+ * container costs at most 8 KB. Intersections and rank/select work container by container
+ * and skip containers present on only one side. Values are ordered as unsigned ints.
+ * Not thread-safe.
+ */
+public final class CompactBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys;
+    private Object[] containers; // char[] (sorted, length >= cardinality) or long[BITMAP_WORDS]
+    private int[] cardinalities;
+    private int size;
+
+    public CompactBitmap() {
+        this.keys = new char[4];
+        this.containers = new Object[4];
+        this.cardinalities = new int[4];
+    }
+
+    /**
+     * @return true if the value was not already present
+     */
+    public boolean add(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = findContainer(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new char[4]);
+        }
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= mask;
+        } else {
+            char[] values = (char[]) container;
+            int pos = Arrays.binarySearch(values, 0, cardinality, low);
+            if (pos >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                long[] bits = toBitmap(values, cardinality);
+                bits[low >>> 6] |= 1L << low;
+                containers[index] = bits;
+            } else {
+                pos = -pos - 1;
+                if (cardinality == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+                    containers[index] = values;
+                }
+                System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+                values[pos] = low;
+            }
+        }
+        cardinalities[index] = cardinality + 1;
+        return true;
+    }
+
+    /**
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        int index = findContainer((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~mask;
+            if (cardinality - 1 <= ARRAY_MAX) {
+                containers[index] = toArray(bits, cardinality - 1);
+            }
+        } else {
+            char[] values = (char[]) container;
+            int pos = Arrays.binarySearch(values, 0, cardinality, low);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+        }
+        if (cardinality == 1) {
+            removeContainer(index);
+        } else {
+            cardinalities[index] = cardinality - 1;
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int index = findContainer((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of values less than or equal to value.
+     */
+    public long rank(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        long rank = 0;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] < high) {
+                rank += cardinalities[i];
+                continue;
+            }
+            if (keys[i] == high) {
+                Object container = containers[i];
+                if (container instanceof long[] bits) {
+                    int word = low >>> 6;
+                    for (int w = 0; w < word; w++) {
+                        rank += Long.bitCount(bits[w]);
+                    }
+                    rank += Long.bitCount(bits[word] & (-1L >>> (63 - (low & 63))));
+                } else {
+                    int pos = Arrays.binarySearch((char[]) container, 0, cardinalities[i], low);
+                    rank += pos >= 0 ? pos + 1 : -pos - 1;
+                }
+            }
+            break;
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the value at a 0-based position in ascending order.
+     */
+    public int select(long rank) {
+        for (int i = 0; i < size; i++) {
+            if (rank < cardinalities[i]) {
+                int low;
+                Object container = containers[i];
+                if (container instanceof long[] bits) {
+                    low = selectInBitmap(bits, (int) rank);
+                } else {
+                    low = ((char[]) container)[(int) rank];
+                }
+                return (keys[i] << 16) | low;
+            }
+            rank -= cardinalities[i];
+        }
+        throw new IndexOutOfBoundsException("Rank " + rank + " beyond cardinality " + cardinality());
+    }
+
+    /**
+     * Returns the size of the intersection with other without materializing it.
+     */
+    public long andCardinality(CompactBitmap other) {
+        long total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += intersectionCount(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the value at a 0-based position in the ascending intersection with other,
+     * skipping whole containers by their intersection counts.
+     */
+    public int selectAnd(CompactBitmap other, long rank) {
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object a = containers[i];
+                Object b = other.containers[j];
+                int count = intersectionCount(a, cardinalities[i], b, other.cardinalities[j]);
+                if (rank < count) {
+                    return (keys[i] << 16) | selectInIntersection(a, cardinalities[i], b, other.cardinalities[j], (int) rank);
+                }
+                rank -= count;
+                i++;
+                j++;
+            }
+        }
+        throw new IndexOutOfBoundsException("Rank beyond intersection size");
+    }
+
+    /**
+     * Approximate heap footprint of the containers, in bytes.
+     */
+    public long getSizeInBytes() {
+        long bytes = keys.length * 2L + cardinalities.length * 4L + containers.length * 8L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i] instanceof long[] ? BITMAP_WORDS * 8L : ((char[]) containers[i]).length * 2L;
+        }
+        return bytes;
+    }
+
+    private static int intersectionCount(Object a, int aCardinality, Object b, int bCardinality) {
+        if (a instanceof long[] aBits) {
+            if (b instanceof long[] bBits) {
+                int count = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    count += Long.bitCount(aBits[w] & bBits[w]);
+                }
+                return count;
+            }
+            return countInBitmap((char[]) b, bCardinality, aBits);
+        }
+        if (b instanceof long[] bBits) {
+            return countInBitmap((char[]) a, aCardinality, bBits);
+        }
+        char[] aValues = (char[]) a;
+        char[] bValues = (char[]) b;
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aCardinality && j < bCardinality) {
+            if (aValues[i] < bValues[j]) {
+                i++;
+            } else if (aValues[i] > bValues[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int selectInIntersection(Object a, int aCardinality, Object b, int bCardinality, int rank) {
+        if (a instanceof long[] aBits && b instanceof long[] bBits) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = aBits[w] & bBits[w];
+                int count = Long.bitCount(word);
+                if (rank < count) {
+                    return (w << 6) | selectInWord(word, rank);
+                }
+                rank -= count;
+            }
+        } else if (a instanceof long[] || b instanceof long[]) {
+            char[] values = (char[]) (a instanceof long[] ? b : a);
+            int cardinality = a instanceof long[] ? bCardinality : aCardinality;
+            long[] bits = (long[]) (a instanceof long[] ? a : b);
+            for (int i = 0; i < cardinality; i++) {
+                char value = values[i];
+                if ((bits[value >>> 6] & (1L << value)) != 0 && rank-- == 0) {
+                    return value;
+                }
+            }
+        } else {
+            char[] aValues = (char[]) a;
+            char[] bValues = (char[]) b;
+            int i = 0;
+            int j = 0;
+            while (i < aCardinality && j < bCardinality) {
+                if (aValues[i] < bValues[j]) {
+                    i++;
+                } else if (aValues[i] > bValues[j]) {
+                    j++;
+                } else {
+                    if (rank-- == 0) {
+                        return aValues[i];
+                    }
+                    i++;
+                    j++;
+                }
+            }
+        }
+        throw new IllegalStateException("Rank beyond container intersection");
+    }
+
+    private static int countInBitmap(char[] values, int cardinality, long[] bits) {
+        int count = 0;
+        for (int i = 0; i < cardinality; i++) {
+            char value = values[i];
+            if ((bits[value >>> 6] & (1L << value)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int selectInBitmap(long[] bits, int rank) {
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            int count = Long.bitCount(bits[w]);
+            if (rank < count) {
+                return (w << 6) | selectInWord(bits[w], rank);
+            }
+            rank -= count;
+        }
+        throw new IllegalStateException("Rank beyond container cardinality");
+    }
+
+    // Position of the rank-th set bit of word
+    private static int selectInWord(long word, int rank) {
+        for (int k = 0; k < rank; k++) {
+            word &= word - 1;
+        }
+        return Long.numberOfTrailingZeros(word);
+    }
+
+    private static long[] toBitmap(char[] values, int cardinality) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            bits[values[i] >>> 6] |= 1L << values[i];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int cardinality) {
+        char[] values = new char[cardinality];
+        int pos = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                values[pos++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    private int findContainer(char high) {
+        // Unsigned char keys compare as the high 16 bits of an unsigned int
+        int low = 0;
+        int highIndex = size - 1;
+        while (low <= highIndex) {
+            int mid = (low + highIndex) >>> 1;
+            if (keys[mid] < high) {
+                low = mid + 1;
+            } else if (keys[mid] > high) {
+                highIndex = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertContainer(int index, char high, Object container) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        cardinalities[index] = 0;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pointsystem.model;
+
+/**
+ * How {@link PointSystem} executes point mutations.
+ */
+public enum EngineMode {
+    /**
+     * Mutations run on the calling thread while holding the user's monitor.
+     */
+    LOCKED,
+
+    /**
+     * Users are hash-partitioned onto single-threaded event loops that own all mutations
+     * for their users; index and challenge updates are passed to a separate global loop.
+     * Population-wide operations pause the loops and run on the calling thread.
+     */
+    PARTITIONED
+}
@@ -0,0 +1,43 @@
+package com.pointsystem.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Day arithmetic on epoch-day integers, used instead of comparing LocalDateTime values
+ * truncated with atStartOfDay.
+ */
+public final class EpochDays {
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private EpochDays() {
+    }
+
+    /**
+     * Returns the epoch day of an instant in the given zone. Fixed-offset zones are
+     * resolved with arithmetic only.
+     */
+    public static int of(ZoneId zone, long epochMillis) {
+        int offsetSeconds;
+        if (zone instanceof ZoneOffset) {
+            offsetSeconds = ((ZoneOffset) zone).getTotalSeconds();
+        } else if (zone.getRules().isFixedOffset()) {
+            offsetSeconds = zone.getRules().getOffset(Instant.EPOCH).getTotalSeconds();
+        } else {
+            offsetSeconds = zone.getRules().getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds();
+        }
+        return (int) Math.floorDiv(epochMillis + offsetSeconds * 1000L, MILLIS_PER_DAY);
+    }
+
+    public static int of(LocalDateTime dateTime) {
+        return dateTime != null ? (int) dateTime.toLocalDate().toEpochDay() : NONE;
+    }
+
+    public static LocalDate toLocalDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+}
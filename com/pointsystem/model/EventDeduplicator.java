@@ -0,0 +1,334 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the ids of processed events for a time window so that redelivered events are
+ * not applied twice.
+ *
+ * Ids are kept as 64-bit fingerprints in two fixed open-addressing tables: the current
+ * generation and the previous one. Every {@code windowMillis} (or earlier, if the current
+ * table fills up) the previous table is cleared and becomes the current one, so an id is
+ * remembered for between one and two windows in fixed memory.
+ *
+ * A fingerprint hit is only a suspected duplicate. With a database, accepted ids are also
+ * written to processed_events in batches, and a suspect is confirmed against the unwritten
+ * batches and then the table, so distinct ids with equal fingerprints are never dropped.
+ * A batch that fails to write stays buffered, and is still checked, until a later write succeeds.
+ * Without a database a suspect is treated as a duplicate; with 64-bit fingerprints a false
+ * match is vanishingly rare.
+ */
+public class EventDeduplicator {
+    public static final long DEFAULT_WINDOW_MILLIS = 60 * 60 * 1000L;
+    public static final int DEFAULT_CAPACITY = 1 << 21;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final long EMPTY = 0;
+
+    private final Connection dbConnection;
+    private final long windowMillis;
+    private final int batchSize;
+    private final int maxEntries;
+    private long[] current;
+    private long[] previous;
+    private int currentSize;
+    private long generationStart;
+    private long previousStart;
+    private List<PendingEvent> pending;
+    private final List<List<PendingEvent>> inFlight;
+
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder falseMatches = new LongAdder();
+    private final LongAdder earlyRotations = new LongAdder();
+
+    private static final class PendingEvent {
+        final String eventId;
+        final long processedAt;
+
+        PendingEvent(String eventId, long processedAt) {
+            this.eventId = eventId;
+            this.processedAt = processedAt;
+        }
+    }
+
+    public EventDeduplicator(Connection dbConnection) {
+        this(dbConnection, DEFAULT_WINDOW_MILLIS, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param capacity Slots per generation, rounded up to a power of two; each generation
+     *                 holds up to three quarters of it before rotating early
+     */
+    public EventDeduplicator(Connection dbConnection, long windowMillis, int capacity, int batchSize) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.dbConnection = dbConnection;
+        this.windowMillis = windowMillis;
+        this.batchSize = batchSize;
+        this.maxEntries = size / 4 * 3;
+        this.current = new long[size];
+        this.previous = new long[size];
+        this.generationStart = Long.MIN_VALUE;
+        this.previousStart = Long.MIN_VALUE;
+        this.pending = new ArrayList<>();
+        this.inFlight = new ArrayList<>();
+    }
+
+    /**
+     * Records an event id as processed.
+     * @return true on the first delivery of the id within the window, false for a redelivery
+     */
+    public boolean firstDelivery(String eventId, long nowMillis) {
+        long fingerprint = fingerprint(eventId);
+        List<PendingEvent> toWrite = null;
+        long purgeBefore = Long.MIN_VALUE;
+        boolean first;
+        synchronized (this) {
+            if (generationStart == Long.MIN_VALUE) {
+                generationStart = nowMillis;
+            } else if (nowMillis - generationStart >= windowMillis) {
+                purgeBefore = rotate(nowMillis);
+            }
+            first = !contains(current, fingerprint) && !contains(previous, fingerprint)
+                || isFalseMatch(eventId);
+            if (first) {
+                if (currentSize >= maxEntries) {
+                    earlyRotations.increment();
+                    purgeBefore = rotate(nowMillis);
+                }
+                if (insert(current, fingerprint)) {
+                    currentSize++;
+                }
+                if (dbConnection != null) {
+                    pending.add(new PendingEvent(eventId, nowMillis));
+                    if (pending.size() >= batchSize) {
+                        toWrite = pending;
+                        inFlight.add(toWrite);
+                        pending = new ArrayList<>();
+                    }
+                }
+            } else {
+                duplicates.increment();
+            }
+        }
+        if (toWrite != null) {
+            write(toWrite);
+        }
+        if (purgeBefore != Long.MIN_VALUE && dbConnection != null) {
+            purge(purgeBefore);
+        }
+        return first;
+    }
+
+    /**
+     * Writes accepted ids that are still buffered.
+     */
+    public void flush() {
+        List<PendingEvent> toWrite;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            toWrite = pending;
+            inFlight.add(toWrite);
+            pending = new ArrayList<>();
+        }
+        write(toWrite);
+    }
+
+    /**
+     * Reloads the ids processed within the last window from processed_events, so redeliveries
+     * are still caught after a restart.
+     * @return Number of ids loaded
+     */
+    public int loadRecent(long nowMillis) {
+        if (dbConnection == null) {
+            return 0;
+        }
+        String sql = "SELECT event_id FROM processed_events WHERE processed_at >= ?";
+        int loaded = 0;
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(nowMillis - windowMillis));
+            try (ResultSet rs = stmt.executeQuery()) {
+                synchronized (this) {
+                    if (generationStart == Long.MIN_VALUE) {
+                        generationStart = nowMillis;
+                    }
+                    while (rs.next() && currentSize < maxEntries) {
+                        if (insert(current, fingerprint(rs.getString(1)))) {
+                            currentSize++;
+                            loaded++;
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading processed events: " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Suspected duplicates that turned out to be new events with a matching fingerprint.
+     */
+    public long getFalseMatchCount() {
+        return falseMatches.sum();
+    }
+
+    /**
+     * Rotations forced by a full generation, each of which shortens the effective window.
+     */
+    public long getEarlyRotationCount() {
+        return earlyRotations.sum();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    // Starts a new generation and returns the start of the oldest one still remembered
+    private long rotate(long nowMillis) {
+        long[] cleared = previous;
+        Arrays.fill(cleared, EMPTY);
+        previous = current;
+        current = cleared;
+        currentSize = 0;
+        previousStart = generationStart;
+        generationStart = nowMillis;
+        return previousStart;
+    }
+
+    /**
+     * Confirms a fingerprint hit against the accepted ids that are not yet written and then
+     * against processed_events. Called with the monitor held, so concurrent redeliveries of
+     * one id are decided one at a time.
+     */
+    private boolean isFalseMatch(String eventId) {
+        if (dbConnection == null) {
+            return false;
+        }
+        if (containsId(pending, eventId)) {
+            return false;
+        }
+        for (List<PendingEvent> batch : inFlight) {
+            if (containsId(batch, eventId)) {
+                return false;
+            }
+        }
+        String sql = "SELECT 1 FROM processed_events WHERE event_id = ?";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            stmt.setString(1, eventId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return false;
+                }
+            }
+        } catch (SQLException e) {
+            // Dropping a new event is safer than applying a redelivered one twice
+            System.err.println("Error checking processed event: " + e.getMessage());
+            return false;
+        }
+        falseMatches.increment();
+        return true;
+    }
+
+    private static boolean containsId(List<PendingEvent> events, String eventId) {
+        for (PendingEvent event : events) {
+            if (event.eventId.equals(eventId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(List<PendingEvent> events) {
+        String sql = "INSERT INTO processed_events (event_id, processed_at) VALUES (?, ?)";
+        boolean written = false;
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            for (PendingEvent event : events) {
+                stmt.setString(1, event.eventId);
+                stmt.setTimestamp(2, new Timestamp(event.processedAt));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            written = true;
+        } catch (SQLException e) {
+            System.err.println("Error persisting processed events: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                inFlight.removeIf(batch -> batch == events);
+                if (!written) {
+                    // Kept in pending, so isFalseMatch still sees the ids, and retried with the next write
+                    List<PendingEvent> retry = new ArrayList<>(events.size() + pending.size());
+                    retry.addAll(events);
+                    retry.addAll(pending);
+                    pending = retry;
+                }
+            }
+        }
+    }
+
+    private void purge(long before) {
+        String sql = "DELETE FROM processed_events WHERE processed_at < ?";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(before));
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error purging processed events: " + e.getMessage());
+        }
+    }
+
+    private static boolean contains(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+            long entry = table[slot];
+            if (entry == fingerprint) {
+                return true;
+            }
+            if (entry == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    // @return false if the fingerprint was already present
+    private static boolean insert(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+            long entry = table[slot];
+            if (entry == fingerprint) {
+                return false;
+            }
+            if (entry == EMPTY) {
+                table[slot] = fingerprint;
+                return true;
+            }
+        }
+    }
+
+    // FNV-1a over the chars followed by the SplitMix64 finalizer; 0 is reserved for empty slots
+    static long fingerprint(String eventId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < eventId.length(); i++) {
+            h ^= eventId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h != EMPTY ? h : 1;
+    }
+}
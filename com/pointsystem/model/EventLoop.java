@@ -0,0 +1,172 @@
+package com.pointsystem.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single consumer thread fed by a preallocated multi-producer ring of reusable slots.
+ *
+ * Producers claim a sequence with one atomic increment, fill the slot in place and publish
+ * it by writing the sequence into the slot; the consumer handles published slots in
+ * sequence order. Nothing is allocated per message unless the caller wants a result.
+ * When the ring is full, producers wait for the consumer, which is the backpressure.
+ */
+final class EventLoop implements Runnable {
+    private static final int SPIN_TRIES = 1000;
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    interface Handler {
+        void handle(Slot slot);
+    }
+
+    /**
+     * A reusable message. Fields are only meaningful for the opcode that was published.
+     */
+    static final class Slot {
+        volatile long sequence = -1;
+        int opcode;
+        User user;
+        String itemId;
+        ActivityType type;
+        double amount;
+        int intArg;
+        int intArg2;
+        long timeMillis;
+        Object objArg;
+        Object objArg2;
+        CompletableFuture<Integer> result;
+
+        void clear() {
+            user = null;
+            itemId = null;
+            type = null;
+            objArg = null;
+            objArg2 = null;
+            result = null;
+        }
+    }
+
+    private final String name;
+    private final Slot[] slots;
+    private final int mask;
+    private final Handler handler;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long consumed = -1;
+    private volatile boolean sleeping;
+    private volatile boolean running;
+    private Thread thread;
+
+    EventLoop(String name, int capacity, Handler handler) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.name = name;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.handler = handler;
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops after handling everything published so far.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    boolean isLoopThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring is full. The caller fills it and
+     * must then call {@link #publish(long)} with the returned sequence.
+     */
+    long claim() {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        int tries = 0;
+        while (wrapPoint > consumed) {
+            if (++tries < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        return sequence;
+    }
+
+    Slot slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        slots[(int) sequence & mask].sequence = sequence;
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Waits until every message published before this call has been handled.
+     */
+    void drain() {
+        long target = claimed.get();
+        while (consumed < target) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    @Override
+    public void run() {
+        long next = consumed + 1;
+        int idle = 0;
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.sequence == next) {
+                // Handle a run of published slots before moving the consumer cursor
+                int handled = 0;
+                do {
+                    try {
+                        handler.handle(slot);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error in " + name + ": " + e.getMessage());
+                        if (slot.result != null) {
+                            slot.result.completeExceptionally(e);
+                        }
+                    }
+                    slot.clear();
+                    next++;
+                    slot = slots[(int) next & mask];
+                } while (slot.sequence == next && ++handled < 256);
+                consumed = next - 1;
+                idle = 0;
+                continue;
+            }
+            if (!running && claimed.get() < next) {
+                return;
+            }
+            if (++idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                sleeping = true;
+                if (slots[(int) next & mask].sequence != next && running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.pointsystem.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Follower graph keyed by dense user ids (see {@link UserIdRegistry}).
+ * Each user's following and followers are kept as sorted int arrays, so membership
+ * checks are a binary search and an edge costs 4 bytes on each side.
+ */
+public class FollowerGraph {
+    public static final int SOCIAL_BUTTERFLY_FOLLOWERS = 100;
+
+    private static final int[] EMPTY = new int[0];
+    private static final int INITIAL_DEGREE = 4;
+
+    private final ReentrantReadWriteLock lock;
+    private final FollowerMilestoneListener milestoneListener;
+    private final int milestoneFollowers;
+    private int[][] following;
+    private int[] followingSize;
+    private int[][] followers;
+    private int[] followersSize;
+
+    public interface FollowerMilestoneListener {
+        void onFollowerMilestone(int userId, int followerCount);
+    }
+
+    public FollowerGraph() {
+        this(null, SOCIAL_BUTTERFLY_FOLLOWERS);
+    }
+
+    public FollowerGraph(FollowerMilestoneListener milestoneListener, int milestoneFollowers) {
+        this.lock = new ReentrantReadWriteLock();
+        this.milestoneListener = milestoneListener;
+        this.milestoneFollowers = milestoneFollowers;
+        this.following = new int[1024][];
+        this.followingSize = new int[1024];
+        this.followers = new int[1024][];
+        this.followersSize = new int[1024];
+    }
+
+    /**
+     * Adds the edge follower -> followee.
+     * @return true if the edge was added, false if it already existed
+     */
+    public boolean follow(int followerId, int followeeId) {
+        if (followerId == followeeId) {
+            return false;
+        }
+        int followerCount;
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(Math.max(followerId, followeeId));
+            if (!insert(following, followingSize, followerId, followeeId)) {
+                return false;
+            }
+            insert(followers, followersSize, followeeId, followerId);
+            followerCount = followersSize[followeeId];
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (followerCount == milestoneFollowers && milestoneListener != null) {
+            milestoneListener.onFollowerMilestone(followeeId, followerCount);
+        }
+        return true;
+    }
+
+    public boolean unfollow(int followerId, int followeeId) {
+        lock.writeLock().lock();
+        try {
+            if (Math.max(followerId, followeeId) >= followingSize.length) {
+                return false;
+            }
+            if (!remove(following, followingSize, followerId, followeeId)) {
+                return false;
+            }
+            remove(followers, followersSize, followeeId, followerId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFollowing(int followerId, int followeeId) {
+        lock.readLock().lock();
+        try {
+            if (followerId >= followingSize.length || following[followerId] == null) {
+                return false;
+            }
+            return Arrays.binarySearch(following[followerId], 0, followingSize[followerId], followeeId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFollowerCount(int userId) {
+        lock.readLock().lock();
+        try {
+            return userId < followersSize.length ? followersSize[userId] : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFollowingCount(int userId) {
+        lock.readLock().lock();
+        try {
+            return userId < followingSize.length ? followingSize[userId] : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the followers of a user in ascending id order without copying the adjacency array.
+     * The consumer runs under the read lock and must not mutate the graph.
+     */
+    public void forEachFollower(int userId, IntConsumer consumer) {
+        forEach(followers, followersSize, userId, consumer);
+    }
+
+    public void forEachFollowing(int userId, IntConsumer consumer) {
+        forEach(following, followingSize, userId, consumer);
+    }
+
+    public int[] getFollowers(int userId) {
+        return copy(followers, followersSize, userId);
+    }
+
+    public int[] getFollowing(int userId) {
+        return copy(following, followingSize, userId);
+    }
+
+    /**
+     * Imports follow edges in bulk. Edges are sorted once and merged into each adjacency
+     * array, which is O(E log E) overall instead of one binary-search insert per edge.
+     * @param followerIds follower of each edge
+     * @param followeeIds followee of each edge
+     * @param count number of edges to read from the arrays
+     * @return number of new edges added
+     */
+    public int importFollows(int[] followerIds, int[] followeeIds, int count) {
+        long[] byFollower = new long[count];
+        long[] byFollowee = new long[count];
+        int edges = 0;
+        int maxId = -1;
+        for (int i = 0; i < count; i++) {
+            int from = followerIds[i];
+            int to = followeeIds[i];
+            if (from == to) {
+                continue;
+            }
+            byFollower[edges] = pack(from, to);
+            byFollowee[edges] = pack(to, from);
+            edges++;
+            maxId = Math.max(maxId, Math.max(from, to));
+        }
+        if (edges == 0) {
+            return 0;
+        }
+        Arrays.sort(byFollower, 0, edges);
+        Arrays.sort(byFollowee, 0, edges);
+
+        List<int[]> milestones = new ArrayList<>();
+        int added;
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(maxId);
+            added = mergeSorted(following, followingSize, byFollower, edges, null);
+            mergeSorted(followers, followersSize, byFollowee, edges, milestones);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (milestoneListener != null) {
+            for (int[] milestone : milestones) {
+                milestoneListener.onFollowerMilestone(milestone[0], milestone[1]);
+            }
+        }
+        return added;
+    }
+
+    private int mergeSorted(int[][] adjacency, int[] sizes, long[] edges, int edgeCount, List<int[]> milestones) {
+        int added = 0;
+        int start = 0;
+        while (start < edgeCount) {
+            int owner = (int) (edges[start] >>> 32);
+            int end = start;
+            while (end < edgeCount && (int) (edges[end] >>> 32) == owner) {
+                end++;
+            }
+
+            int[] existing = adjacency[owner] != null ? adjacency[owner] : EMPTY;
+            int existingSize = sizes[owner];
+            int[] merged = new int[existingSize + (end - start)];
+            int i = 0;
+            int j = start;
+            int n = 0;
+            while (i < existingSize || j < end) {
+                int next;
+                if (j >= end || (i < existingSize && existing[i] <= (int) edges[j])) {
+                    next = existing[i++];
+                } else {
+                    next = (int) edges[j++];
+                }
+                if (n == 0 || merged[n - 1] != next) {
+                    merged[n++] = next;
+                }
+            }
+            adjacency[owner] = merged;
+            sizes[owner] = n;
+            added += n - existingSize;
+            if (milestones != null && existingSize < milestoneFollowers && n >= milestoneFollowers) {
+                milestones.add(new int[] {owner, n});
+            }
+            start = end;
+        }
+        return added;
+    }
+
+    private void forEach(int[][] adjacency, int[] sizes, int userId, IntConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            if (userId >= sizes.length || adjacency[userId] == null) {
+                return;
+            }
+            int[] ids = adjacency[userId];
+            for (int i = 0, n = sizes[userId]; i < n; i++) {
+                consumer.accept(ids[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] copy(int[][] adjacency, int[] sizes, int userId) {
+        lock.readLock().lock();
+        try {
+            if (userId >= sizes.length || adjacency[userId] == null) {
+                return EMPTY;
+            }
+            return Arrays.copyOf(adjacency[userId], sizes[userId]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean insert(int[][] adjacency, int[] sizes, int owner, int value) {
+        int[] ids = adjacency[owner];
+        int size = sizes[owner];
+        if (ids == null) {
+            ids = new int[INITIAL_DEGREE];
+            adjacency[owner] = ids;
+        }
+        int pos = Arrays.binarySearch(ids, 0, size, value);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            adjacency[owner] = ids;
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = value;
+        sizes[owner] = size + 1;
+        return true;
+    }
+
+    private static boolean remove(int[][] adjacency, int[] sizes, int owner, int value) {
+        int[] ids = adjacency[owner];
+        if (ids == null) {
+            return false;
+        }
+        int size = sizes[owner];
+        int pos = Arrays.binarySearch(ids, 0, size, value);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        sizes[owner] = size - 1;
+        return true;
+    }
+
+    private void ensureCapacity(int maxId) {
+        if (maxId < followingSize.length) {
+            return;
+        }
+        int capacity = Math.max(maxId + 1, followingSize.length + (followingSize.length >> 1));
+        following = Arrays.copyOf(following, capacity);
+        followingSize = Arrays.copyOf(followingSize, capacity);
+        followers = Arrays.copyOf(followers, capacity);
+        followersSize = Arrays.copyOf(followersSize, capacity);
+    }
+
+    private static long pack(int owner, int value) {
+        return ((long) owner << 32) | (value & 0xFFFFFFFFL);
+    }
+}
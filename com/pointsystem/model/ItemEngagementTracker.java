@@ -0,0 +1,269 @@
+package com.pointsystem.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate engagement counts per item (post, video) in memory that does not grow with the
+ * number of items.
+ *
+ * Lifetime totals live in a count-min sketch: {@code depth} rows of {@code width} counters,
+ * each item hashed to one counter per row and estimated by the smallest of them. Estimates
+ * never undercount and overcount by at most {@code e / width} of all engagement with
+ * probability {@code 1 - e^-depth}. Updates are lock-free.
+ *
+ * The most engaged items of the current window are found with Space-Saving over
+ * {@code capacity} slots kept in an indexed min-heap: a new item takes over the smallest
+ * slot and inherits its count as error. Any item with more than {@code 1/capacity} of the
+ * window's engagement is guaranteed a slot. An item whose guaranteed count (count minus
+ * error) reaches the trending threshold is handed to the listener once per window.
+ */
+public class ItemEngagementTracker {
+    public static final int DEFAULT_WIDTH = 1 << 13;
+    public static final int DEFAULT_DEPTH = 4;
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final long DEFAULT_WINDOW_MILLIS = 60 * 60 * 1000L;
+    public static final long DEFAULT_TRENDING_THRESHOLD = 1000;
+
+    private final AtomicLongArray sketch;
+    private final int widthMask;
+    private final int depth;
+
+    private final int capacity;
+    private final long windowMillis;
+    private volatile long trendingThreshold;
+    private final TrendingListener listener;
+
+    // Space-Saving slots as a min-heap on counts; heapIndex maps an item to its position
+    private final String[] items;
+    private final long[] counts;
+    private final long[] errors;
+    private final boolean[] promoted;
+    private final Map<String, Integer> heapIndex;
+    private int size;
+    private long window;
+
+    public interface TrendingListener {
+        void onTrending(String itemId, long windowCount);
+    }
+
+    public ItemEngagementTracker(TrendingListener listener) {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_CAPACITY, DEFAULT_WINDOW_MILLIS, DEFAULT_TRENDING_THRESHOLD, listener);
+    }
+
+    /**
+     * @param width Counters per sketch row, rounded up to a power of two
+     * @param capacity Items tracked per window by the heavy-hitters list
+     */
+    public ItemEngagementTracker(int width, int depth, int capacity, long windowMillis, long trendingThreshold,
+                                 TrendingListener listener) {
+        int roundedWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.sketch = new AtomicLongArray(roundedWidth * depth);
+        this.widthMask = roundedWidth - 1;
+        this.depth = depth;
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        this.trendingThreshold = trendingThreshold;
+        this.listener = listener;
+        this.items = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.promoted = new boolean[capacity];
+        this.heapIndex = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts weight units of engagement with an item at the given instant.
+     */
+    public void record(String itemId, long weight, long nowMillis) {
+        if (itemId == null || weight <= 0) {
+            return;
+        }
+        int h1 = mix(itemId.hashCode());
+        int h2 = mix(h1) | 1;
+        for (int row = 0; row < depth; row++) {
+            sketch.addAndGet(row * (widthMask + 1) + ((h1 + row * h2) & widthMask), weight);
+        }
+
+        long promotedCount = offer(itemId, weight, nowMillis);
+        if (promotedCount > 0 && listener != null) {
+            listener.onTrending(itemId, promotedCount);
+        }
+    }
+
+    /**
+     * Estimated lifetime engagement with an item; never less than the true count.
+     */
+    public long estimate(String itemId) {
+        int h1 = mix(itemId.hashCode());
+        int h2 = mix(h1) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, sketch.get(row * (widthMask + 1) + ((h1 + row * h2) & widthMask)));
+        }
+        return min;
+    }
+
+    /**
+     * Up to k items with the most engagement in the current window, most engaged first.
+     * Counts are upper bounds; the true count is at least count minus the item's error.
+     */
+    public synchronized List<ItemCount> topItems(int k) {
+        List<ItemCount> top = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            top.add(new ItemCount(items[i], counts[i], errors[i]));
+        }
+        top.sort((a, b) -> Long.compare(b.count, a.count));
+        return top.subList(0, Math.min(k, top.size()));
+    }
+
+    public void setTrendingThreshold(long trendingThreshold) {
+        this.trendingThreshold = trendingThreshold;
+    }
+
+    public long getTrendingThreshold() {
+        return trendingThreshold;
+    }
+
+    /**
+     * Approximate heap footprint of the sketch and the heavy-hitters slots, in bytes.
+     */
+    public long getSizeInBytes() {
+        // Slot arrays plus roughly 64 bytes per heap index entry
+        return sketch.length() * 8L + capacity * (8L + 8L + 8L + 1L + 8L + 64L);
+    }
+
+    public static final class ItemCount {
+        private final String itemId;
+        private final long count;
+        private final long error;
+
+        ItemCount(String itemId, long count, long error) {
+            this.itemId = itemId;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getItemId() {
+            return itemId;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Adds weight to the item's Space-Saving slot, taking over the smallest slot if it has none.
+     * @return The item's guaranteed window count if this update promoted it to trending, else 0
+     */
+    private synchronized long offer(String itemId, long weight, long nowMillis) {
+        long currentWindow = nowMillis / windowMillis;
+        if (currentWindow != window) {
+            window = currentWindow;
+            heapIndex.clear();
+            for (int i = 0; i < size; i++) {
+                items[i] = null;
+            }
+            size = 0;
+        }
+
+        Integer pos = heapIndex.get(itemId);
+        int slot;
+        if (pos != null) {
+            slot = pos;
+            counts[slot] += weight;
+        } else if (size < capacity) {
+            slot = size++;
+            items[slot] = itemId;
+            counts[slot] = weight;
+            errors[slot] = 0;
+            promoted[slot] = false;
+            heapIndex.put(itemId, slot);
+        } else {
+            slot = 0;
+            heapIndex.remove(items[0]);
+            items[0] = itemId;
+            errors[0] = counts[0];
+            counts[0] += weight;
+            promoted[0] = false;
+            heapIndex.put(itemId, 0);
+        }
+        if (pos == null && slot == size - 1) {
+            slot = siftUp(slot);
+        }
+        slot = siftDown(slot);
+
+        long guaranteed = counts[slot] - errors[slot];
+        if (!promoted[slot] && guaranteed >= trendingThreshold) {
+            promoted[slot] = true;
+            return guaranteed;
+        }
+        return 0;
+    }
+
+    private int siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (counts[parent] <= counts[pos]) {
+                break;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+        return pos;
+    }
+
+    private int siftDown(int pos) {
+        while (true) {
+            int smallest = pos;
+            int left = 2 * pos + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == pos) {
+                return pos;
+            }
+            swap(pos, smallest);
+            pos = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        boolean wasPromoted = promoted[a];
+        promoted[a] = promoted[b];
+        promoted[b] = wasPromoted;
+        heapIndex.put(items[a], a);
+        heapIndex.put(items[b], b);
+    }
+
+    // Murmur3 finalizer, so similar item ids spread across the sketch rows
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,564 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs periodic maintenance jobs (decay, surprise drops, bonus points, challenge rotation,
+ * cap compaction) on one dedicated low-priority thread, so they do not need an external cron.
+ *
+ * Each job has a time-based {@link Trigger} read from the point system's clock. A run is split
+ * into chunks: the job processes up to chunkSize items from a cursor (e.g. a dense user id)
+ * and returns the next cursor. Between chunks the scheduler
+ * <ul>
+ *   <li>backs off while foreground traffic is above a rate, for at most a bounded time per chunk,</li>
+ *   <li>sleeps as needed to keep the job under its items-per-second limit, and</li>
+ *   <li>checkpoints the cursor, in job_checkpoints when there is a database.</li>
+ * </ul>
+ * After a crash, {@link #start(long)} resumes unfinished runs from their last checkpoint. A
+ * job runs the interrupted chunk again, unless it is a {@link NonRepeatableJob} such as one
+ * whose chunks pay users: its checkpoint records each chunk before it starts, and the resumed
+ * run skips the interrupted chunk, so nobody is paid twice. Jobs run one at a time.
+ */
+public class JobScheduler {
+    public static final long DONE = -1;
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final long DEFAULT_BUSY_OPS_PER_SECOND = 5000;
+    public static final long DEFAULT_MAX_YIELD_MILLIS = 200;
+
+    private static final long YIELD_PAUSE_MILLIS = 10;
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final Connection dbConnection;
+    private final Clock clock;
+    private final LongSupplier foregroundOps;
+    private final Map<String, ScheduledJob> jobs;
+    private volatile long busyOpsPerSecond;
+    private volatile long maxYieldMillis;
+    private ScheduledExecutorService executor;
+
+    // Foreground rate sampling; only touched by the scheduler thread
+    private long sampledOps;
+    private long sampledAtNanos;
+    private boolean busy;
+
+    /**
+     * A job that processes its work in chunks.
+     */
+    public interface ChunkedJob {
+        /**
+         * Processes up to maxItems items starting at cursor, 0 for a new run.
+         * @return The cursor to continue from, or {@link #DONE}
+         */
+        long runChunk(long cursor, int maxItems);
+
+        /**
+         * Called once after the last chunk of a run.
+         */
+        default void finish() {
+        }
+    }
+
+    /**
+     * A job whose chunks are not idempotent, so a chunk interrupted by a crash is skipped
+     * rather than run again.
+     */
+    public interface NonRepeatableJob extends ChunkedJob {
+        /**
+         * The cursor after the chunk at cursor, without running it; a resumed run continues
+         * here after the chunk a crash interrupted.
+         */
+        long skipChunk(long cursor, int maxItems);
+    }
+
+    /**
+     * When a job runs.
+     */
+    public interface Trigger {
+        /**
+         * @return The first run time after afterMillis, in epoch millis
+         */
+        long nextRunAfter(long afterMillis, Clock clock);
+
+        static Trigger every(Duration period) {
+            long millis = period.toMillis();
+            return (afterMillis, _) -> Math.floorDiv(afterMillis, millis) * millis + millis;
+        }
+
+        static Trigger dailyAt(LocalTime time) {
+            return (afterMillis, clock) -> {
+                ZonedDateTime after = Instant.ofEpochMilli(afterMillis).atZone(clock.getZone());
+                ZonedDateTime next = after.with(time);
+                return (next.isAfter(after) ? next : next.plusDays(1)).toInstant().toEpochMilli();
+            };
+        }
+
+        static Trigger weeklyAt(DayOfWeek day, LocalTime time) {
+            return (afterMillis, clock) -> {
+                ZonedDateTime after = Instant.ofEpochMilli(afterMillis).atZone(clock.getZone());
+                ZonedDateTime next = after.with(TemporalAdjusters.nextOrSame(day)).with(time);
+                return (next.isAfter(after) ? next : next.plusWeeks(1)).toInstant().toEpochMilli();
+            };
+        }
+    }
+
+    private static final class ScheduledJob {
+        final String name;
+        final ChunkedJob job;
+        volatile Trigger trigger;
+        volatile int chunkSize;
+        volatile double maxItemsPerSecond;
+        volatile long nextRunAt;
+        // Scheduled time of the run in progress, IDLE between runs
+        volatile long runAt = IDLE;
+        volatile long cursor;
+
+        volatile long runs;
+        volatile long failures;
+        volatile long chunks;
+        volatile long items;
+        volatile long lastRunAt = IDLE;
+        volatile long lastDurationMillis;
+        volatile long maxDurationMillis;
+        volatile long maxChunkMillis;
+        volatile long yieldedMillis;
+        volatile long throttledMillis;
+        volatile String lastError;
+
+        ScheduledJob(String name, Trigger trigger, ChunkedJob job, int chunkSize, double maxItemsPerSecond) {
+            this.name = name;
+            this.trigger = trigger;
+            this.job = job;
+            this.chunkSize = chunkSize;
+            this.maxItemsPerSecond = maxItemsPerSecond;
+        }
+    }
+
+    /**
+     * @param dbConnection Connection for checkpoints, or null to keep them in memory only
+     * @param foregroundOps Running count of foreground operations, e.g. awarded activities
+     */
+    public JobScheduler(Connection dbConnection, Clock clock, LongSupplier foregroundOps) {
+        this.dbConnection = dbConnection;
+        this.clock = clock;
+        this.foregroundOps = foregroundOps;
+        this.jobs = new ConcurrentHashMap<>();
+        this.busyOpsPerSecond = DEFAULT_BUSY_OPS_PER_SECOND;
+        this.maxYieldMillis = DEFAULT_MAX_YIELD_MILLIS;
+        this.sampledOps = foregroundOps != null ? foregroundOps.getAsLong() : 0;
+        this.sampledAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Registers a chunked job, replacing any job of the same name.
+     * @param maxItemsPerSecond Throughput limit for the job, 0 for none
+     */
+    public void schedule(String name, Trigger trigger, ChunkedJob job, int chunkSize, double maxItemsPerSecond) {
+        ScheduledJob scheduled = new ScheduledJob(name, trigger, job, chunkSize, maxItemsPerSecond);
+        scheduled.nextRunAt = trigger.nextRunAfter(clock.millis(), clock);
+        jobs.put(name, scheduled);
+    }
+
+    /**
+     * Registers a job that runs in one piece.
+     */
+    public void schedule(String name, Trigger trigger, Runnable task) {
+        schedule(name, trigger, (_, _) -> {
+            task.run();
+            return DONE;
+        }, 1, 0);
+    }
+
+    public void unschedule(String name) {
+        jobs.remove(name);
+    }
+
+    public void setTrigger(String name, Trigger trigger) {
+        ScheduledJob job = require(name);
+        job.trigger = trigger;
+        job.nextRunAt = trigger.nextRunAfter(clock.millis(), clock);
+    }
+
+    public void setThroughputLimit(String name, int chunkSize, double maxItemsPerSecond) {
+        ScheduledJob job = require(name);
+        job.chunkSize = chunkSize;
+        job.maxItemsPerSecond = maxItemsPerSecond;
+    }
+
+    /**
+     * Foreground rate above which chunks wait, and the longest a chunk waits before running anyway.
+     */
+    public void setYieldPolicy(long busyOpsPerSecond, long maxYieldMillis) {
+        this.busyOpsPerSecond = busyOpsPerSecond;
+        this.maxYieldMillis = maxYieldMillis;
+    }
+
+    /**
+     * Makes a job due now; it runs on the next tick or {@link #runDueJobs()} call.
+     */
+    public void triggerNow(String name) {
+        require(name).nextRunAt = clock.millis();
+    }
+
+    /**
+     * Restores checkpoints and starts checking for due jobs every tickMillis.
+     */
+    public synchronized void start(long tickMillis) {
+        if (executor != null) {
+            return;
+        }
+        loadCheckpoints();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "job-scheduler");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runDueJobs, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops after the current chunk; an interrupted run resumes from its checkpoint on the next start.
+     */
+    public void stop() {
+        ScheduledExecutorService toStop;
+        synchronized (this) {
+            toStop = executor;
+            executor = null;
+        }
+        if (toStop != null) {
+            toStop.shutdownNow();
+            try {
+                toStop.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs every job that is due or has an unfinished run, each to completion.
+     * @return Number of runs completed
+     */
+    public synchronized int runDueJobs() {
+        int completed = 0;
+        for (ScheduledJob job : List.copyOf(jobs.values())) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            long now = clock.millis();
+            if (job.runAt == IDLE && now < job.nextRunAt) {
+                continue;
+            }
+            if (job.runAt == IDLE) {
+                job.runAt = job.nextRunAt;
+                job.cursor = 0;
+            }
+            if (run(job)) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Reloads the checkpoint of every registered job: unfinished runs continue from their
+     * cursor, and finished ones schedule their next run after the last one.
+     */
+    public void loadCheckpoints() {
+        if (dbConnection == null) {
+            return;
+        }
+        String sql = "SELECT job_name, run_at, next_cursor, chunk_size FROM job_checkpoints";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ScheduledJob job = jobs.get(rs.getString("job_name"));
+                if (job == null) {
+                    continue;
+                }
+                long runAt = rs.getTimestamp("run_at").getTime();
+                long cursor = rs.getLong("next_cursor");
+                int startedChunk = rs.getInt("chunk_size");
+                job.lastRunAt = runAt;
+                if (cursor == DONE) {
+                    job.nextRunAt = job.trigger.nextRunAfter(runAt, clock);
+                    continue;
+                }
+                if (startedChunk > 0 && job.job instanceof NonRepeatableJob nonRepeatable) {
+                    // The chunk may have been partly applied; its remaining items miss this run
+                    cursor = nonRepeatable.skipChunk(cursor, startedChunk);
+                }
+                job.runAt = runAt;
+                job.cursor = cursor;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading job checkpoints: " + e.getMessage());
+        }
+    }
+
+    public List<JobStats> getStats() {
+        List<JobStats> stats = new ArrayList<>();
+        for (ScheduledJob job : jobs.values()) {
+            stats.add(new JobStats(job));
+        }
+        return stats;
+    }
+
+    public JobStats getStats(String name) {
+        return new JobStats(require(name));
+    }
+
+    /**
+     * Runs a job's current run from its cursor to completion.
+     * @return false if the run was interrupted
+     */
+    private boolean run(ScheduledJob job) {
+        long startNanos = System.nanoTime();
+        long runItems = 0;
+        try {
+            while (job.cursor != DONE) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                yieldToForeground(job);
+                int chunkSize = job.chunkSize;
+                if (job.job instanceof NonRepeatableJob) {
+                    saveCheckpoint(job.name, job.runAt, job.cursor, chunkSize);
+                }
+                long chunkStart = System.nanoTime();
+                long next = job.job.runChunk(job.cursor, chunkSize);
+                long chunkMillis = (System.nanoTime() - chunkStart) / 1_000_000;
+                runItems += next == DONE ? chunkSize : next - job.cursor;
+                job.cursor = next;
+                job.chunks++;
+                job.maxChunkMillis = Math.max(job.maxChunkMillis, chunkMillis);
+                saveCheckpoint(job.name, job.runAt, next, 0);
+                throttle(job, runItems, startNanos);
+            }
+            job.job.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            // The run is abandoned; the next one starts over at its own time
+            System.err.println("Error running job " + job.name + ": " + e.getMessage());
+            job.failures++;
+            job.lastError = e.getMessage();
+            saveCheckpoint(job.name, job.runAt, DONE, 0);
+        }
+        long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        job.items += runItems;
+        job.runs++;
+        job.lastRunAt = job.runAt;
+        job.lastDurationMillis = durationMillis;
+        job.maxDurationMillis = Math.max(job.maxDurationMillis, durationMillis);
+        job.nextRunAt = job.trigger.nextRunAfter(Math.max(job.runAt, clock.millis()), clock);
+        job.runAt = IDLE;
+        return true;
+    }
+
+    private void yieldToForeground(ScheduledJob job) throws InterruptedException {
+        long waited = 0;
+        while (waited < maxYieldMillis && foregroundBusy()) {
+            Thread.sleep(YIELD_PAUSE_MILLIS);
+            waited += YIELD_PAUSE_MILLIS;
+        }
+        job.yieldedMillis += waited;
+    }
+
+    // Compares the foreground rate since the previous sample against the busy threshold
+    private boolean foregroundBusy() {
+        if (foregroundOps == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long elapsed = now - sampledAtNanos;
+        if (elapsed >= TimeUnit.MILLISECONDS.toNanos(YIELD_PAUSE_MILLIS)) {
+            long ops = foregroundOps.getAsLong();
+            busy = (ops - sampledOps) * 1_000_000_000L / elapsed > busyOpsPerSecond;
+            sampledOps = ops;
+            sampledAtNanos = now;
+        }
+        return busy;
+    }
+
+    // Sleeps until the run is back under the job's items-per-second limit
+    private void throttle(ScheduledJob job, long runItems, long startNanos) throws InterruptedException {
+        double limit = job.maxItemsPerSecond;
+        if (limit <= 0 || job.cursor == DONE) {
+            return;
+        }
+        long aheadMillis = (long) (runItems * 1000 / limit) - (System.nanoTime() - startNanos) / 1_000_000;
+        if (aheadMillis > 0) {
+            Thread.sleep(aheadMillis);
+            job.throttledMillis += aheadMillis;
+        }
+    }
+
+    /**
+     * @param startedChunk Size of the chunk starting at cursor that is about to run, 0 between chunks
+     */
+    private void saveCheckpoint(String name, long runAt, long cursor, int startedChunk) {
+        if (dbConnection == null) {
+            return;
+        }
+        String update = "UPDATE job_checkpoints SET run_at = ?, next_cursor = ?, chunk_size = ? WHERE job_name = ?";
+        String insert = "INSERT INTO job_checkpoints (job_name, run_at, next_cursor, chunk_size) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(update)) {
+            stmt.setTimestamp(1, new Timestamp(runAt));
+            stmt.setLong(2, cursor);
+            stmt.setInt(3, startedChunk);
+            stmt.setString(4, name);
+            if (stmt.executeUpdate() > 0) {
+                return;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error saving job checkpoint: " + e.getMessage());
+            return;
+        }
+        try (PreparedStatement stmt = dbConnection.prepareStatement(insert)) {
+            stmt.setString(1, name);
+            stmt.setTimestamp(2, new Timestamp(runAt));
+            stmt.setLong(3, cursor);
+            stmt.setInt(4, startedChunk);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error saving job checkpoint: " + e.getMessage());
+        }
+    }
+
+    private ScheduledJob require(String name) {
+        ScheduledJob job = jobs.get(name);
+        if (job == null) {
+            throw new IllegalArgumentException("No job named " + name);
+        }
+        return job;
+    }
+
+    /**
+     * Timing and progress of one job, as of the call that returned it.
+     */
+    public static final class JobStats {
+        private final String name;
+        private final long runs;
+        private final long failures;
+        private final long chunks;
+        private final long items;
+        private final long lastRunAt;
+        private final long nextRunAt;
+        private final boolean running;
+        private final long lastDurationMillis;
+        private final long maxDurationMillis;
+        private final long maxChunkMillis;
+        private final long yieldedMillis;
+        private final long throttledMillis;
+        private final String lastError;
+
+        JobStats(ScheduledJob job) {
+            this.name = job.name;
+            this.runs = job.runs;
+            this.failures = job.failures;
+            this.chunks = job.chunks;
+            this.items = job.items;
+            this.lastRunAt = job.lastRunAt;
+            this.nextRunAt = job.nextRunAt;
+            this.running = job.runAt != IDLE;
+            this.lastDurationMillis = job.lastDurationMillis;
+            this.maxDurationMillis = job.maxDurationMillis;
+            this.maxChunkMillis = job.maxChunkMillis;
+            this.yieldedMillis = job.yieldedMillis;
+            this.throttledMillis = job.throttledMillis;
+            this.lastError = job.lastError;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRuns() {
+            return runs;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        /**
+         * Items covered by completed runs; a run's last chunk counts as a full chunk.
+         */
+        public long getItems() {
+            return items;
+        }
+
+        /**
+         * Scheduled time of the last completed run in epoch millis, Long.MIN_VALUE if none.
+         */
+        public long getLastRunAt() {
+            return lastRunAt;
+        }
+
+        public long getNextRunAt() {
+            return nextRunAt;
+        }
+
+        /**
+         * Whether a run is in progress or waiting to resume from a checkpoint.
+         */
+        public boolean isRunning() {
+            return running;
+        }
+
+        public long getLastDurationMillis() {
+            return lastDurationMillis;
+        }
+
+        public long getMaxDurationMillis() {
+            return maxDurationMillis;
+        }
+
+        public long getMaxChunkMillis() {
+            return maxChunkMillis;
+        }
+
+        /**
+         * Total time chunks waited for foreground traffic to calm down.
+         */
+        public long getYieldedMillis() {
+            return yieldedMillis;
+        }
+
+        /**
+         * Total time spent sleeping to stay under the throughput limit.
+         */
+        public long getThrottledMillis() {
+            return throttledMillis;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+    }
+}
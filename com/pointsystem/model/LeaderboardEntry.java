@@ -0,0 +1,19 @@
+package com.pointsystem.model;
+
+public class LeaderboardEntry {
+    private final String userId;
+    private final int points;
+
+    public LeaderboardEntry(String userId, int points) {
+        this.userId = userId;
+        this.points = points;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+}
@@ -0,0 +1,158 @@
+package com.pointsystem.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Daily, weekly and all-time leaderboards, globally and per membership tier.
+ *
+ * Each user's points earned in the current day and week are kept as time-bucketed deltas
+ * in arrays indexed by dense user id, and a bounded {@link TopKBoard} is maintained for every
+ * (tier, window) combination. Boards are updated incrementally on each point change, so
+ * any combination is answered in O(K) without ranking the whole population.
+ */
+public class LeaderboardService {
+    public static final int DEFAULT_CAPACITY = 100;
+
+    private static final int GLOBAL = 0;
+    private static final int WINDOWS = LeaderboardWindow.values().length;
+
+    private final int capacity;
+    private final UserIdRegistry userIds;
+    private final TopKBoard[][] boards; // [GLOBAL or tier ordinal + 1][window]
+    private int[] dayPeriod;
+    private int[] dayPoints;
+    private int[] weekPeriod;
+    private int[] weekPoints;
+    private byte[] boardTier;
+
+    public LeaderboardService(UserIdRegistry userIds, int capacity) {
+        this.capacity = capacity;
+        this.userIds = userIds;
+        this.boards = new TopKBoard[MembershipTier.values().length + 1][WINDOWS];
+        for (TopKBoard[] tierBoards : boards) {
+            for (int w = 0; w < WINDOWS; w++) {
+                tierBoards[w] = new TopKBoard(capacity);
+            }
+        }
+        allocate(1024);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Records a point change for a user.
+     * @param delta Points added (negative for decay); only positive deltas count towards windows
+     * @param epochDay Current epoch day, defining the daily and weekly periods
+     */
+    public void recordPointsChange(User user, int delta, int epochDay) {
+        recordPointsChange(user.getDenseId(), delta, user.getTier(), user.getTotalPoints(), epochDay);
+    }
+
+    /**
+     * Records a point change by dense id with the tier and total as of the change, for callers
+     * that apply changes after the fact or for users that are not resident in memory.
+     */
+    public synchronized void recordPointsChange(int id, int delta, MembershipTier tier, int totalPoints, int epochDay) {
+        if (id < 0) {
+            return;
+        }
+        ensureCapacity(id);
+
+        int today = LeaderboardWindow.DAILY.periodOf(epochDay);
+        int week = LeaderboardWindow.WEEKLY.periodOf(epochDay);
+        if (dayPeriod[id] != today) {
+            dayPeriod[id] = today;
+            dayPoints[id] = 0;
+        }
+        if (weekPeriod[id] != week) {
+            weekPeriod[id] = week;
+            weekPoints[id] = 0;
+        }
+        if (delta > 0) {
+            dayPoints[id] += delta;
+            weekPoints[id] += delta;
+        }
+
+        int tierBoard = tier.ordinal() + 1;
+        if (boardTier[id] != tierBoard) {
+            if (boardTier[id] > 0) {
+                for (TopKBoard board : boards[boardTier[id]]) {
+                    board.remove(id);
+                }
+            }
+            boardTier[id] = (byte) tierBoard;
+        }
+
+        offer(id, tierBoard, LeaderboardWindow.DAILY, dayPoints[id], today);
+        offer(id, tierBoard, LeaderboardWindow.WEEKLY, weekPoints[id], week);
+        offer(id, tierBoard, LeaderboardWindow.ALL_TIME, totalPoints, 0);
+    }
+
+    /**
+     * Returns the top users for a window, globally or within one tier.
+     * @param tier Tier to rank within, or null for all users
+     * @param limit Maximum entries, at most the board capacity
+     */
+    public synchronized List<LeaderboardEntry> getTop(MembershipTier tier, LeaderboardWindow window,
+                                                      int limit, int epochDay) {
+        TopKBoard board = boards[tier == null ? GLOBAL : tier.ordinal() + 1][window.ordinal()];
+        int size = Math.min(limit, board.size(window.periodOf(epochDay)));
+        List<LeaderboardEntry> top = new ArrayList<>(size);
+        for (int rank = 0; rank < size; rank++) {
+            top.add(new LeaderboardEntry(userIds.getUserId(board.idAt(rank)), board.scoreAt(rank)));
+        }
+        return top;
+    }
+
+    /**
+     * Rebuilds the all-time boards from scratch, e.g. after a population-wide decay
+     * lowered many scores at once.
+     */
+    public synchronized void rebuildAllTime(Collection<User> users) {
+        int window = LeaderboardWindow.ALL_TIME.ordinal();
+        for (TopKBoard[] tierBoards : boards) {
+            tierBoards[window].clear();
+        }
+        for (User user : users) {
+            int id = user.getDenseId();
+            if (id < 0) {
+                continue;
+            }
+            ensureCapacity(id);
+            int tierBoard = user.getTier().ordinal() + 1;
+            boardTier[id] = (byte) tierBoard;
+            boards[GLOBAL][window].update(id, user.getTotalPoints(), 0);
+            boards[tierBoard][window].update(id, user.getTotalPoints(), 0);
+        }
+    }
+
+    private void offer(int id, int tierBoard, LeaderboardWindow window, int score, int period) {
+        if (score <= 0 && window != LeaderboardWindow.ALL_TIME) {
+            return;
+        }
+        boards[GLOBAL][window.ordinal()].update(id, score, period);
+        boards[tierBoard][window.ordinal()].update(id, score, period);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= dayPoints.length) {
+            allocate(Math.max(id + 1, dayPoints.length + (dayPoints.length >> 1)));
+        }
+    }
+
+    private void allocate(int length) {
+        int oldLength = dayPoints == null ? 0 : dayPoints.length;
+        dayPeriod = dayPeriod == null ? new int[length] : Arrays.copyOf(dayPeriod, length);
+        dayPoints = dayPoints == null ? new int[length] : Arrays.copyOf(dayPoints, length);
+        weekPeriod = weekPeriod == null ? new int[length] : Arrays.copyOf(weekPeriod, length);
+        weekPoints = weekPoints == null ? new int[length] : Arrays.copyOf(weekPoints, length);
+        boardTier = boardTier == null ? new byte[length] : Arrays.copyOf(boardTier, length);
+        Arrays.fill(dayPeriod, oldLength, length, Integer.MIN_VALUE);
+        Arrays.fill(weekPeriod, oldLength, length, Integer.MIN_VALUE);
+    }
+}
@@ -0,0 +1,21 @@
+package com.pointsystem.model;
+
+public enum LeaderboardWindow {
+    DAILY,    // Points earned since local midnight
+    WEEKLY,   // Points earned since Monday
+    ALL_TIME; // Total points
+
+    /**
+     * Identifies the current period of this window; scores from another period are stale.
+     */
+    public int periodOf(int epochDay) {
+        switch (this) {
+            case DAILY:
+                return epochDay;
+            case WEEKLY:
+                return Math.floorDiv(epochDay + 3, 7); // Epoch day 0 was a Thursday
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Login path for the morning login storm. Works on epoch-day integers, updates the
+ * streak with a CAS on the user, runs any due weekly decay inline and hands the new
+ * streak and login time to a coalescing writer instead of writing the row per login.
+ */
+public class LoginProcessor {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final BadgeEngine badgeEngine;
+    private final CoalescingWriter<LoginState> loginWriter;
+    private volatile boolean inlineDecay = true;
+
+    private static final class LoginState {
+        final int streak;
+        final long loginMillis;
+
+        LoginState(int streak, long loginMillis) {
+            this.streak = streak;
+            this.loginMillis = loginMillis;
+        }
+    }
+
+    public LoginProcessor(Connection dbConnection, BadgeEngine badgeEngine) {
+        this.badgeEngine = badgeEngine;
+        this.loginWriter = new CoalescingWriter<>(dbConnection,
+            "UPDATE users SET current_login_streak = ?, last_login_date = ? WHERE user_id = ?",
+            (stmt, userId, state) -> {
+                stmt.setInt(1, state.streak);
+                stmt.setTimestamp(2, new Timestamp(state.loginMillis));
+                stmt.setString(3, userId);
+            },
+            DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Processes a login at the given instant.
+     * @return The user's login streak after this login
+     */
+    public int processLogin(User user, long nowMillis) {
+        int today = EpochDays.of(user.getZoneId(), nowMillis);
+        LocalDateTime loginTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis), user.getZoneId());
+
+        int previousStreak = user.getCurrentLoginStreak();
+        int streak = user.recordLogin(today, loginTime);
+        if (inlineDecay) {
+            user.applyDecayIfDue(today, loginTime);
+        }
+
+        if (streak != previousStreak) {
+            badgeEngine.setValue(user.getDenseId(), BadgeEngine.SLOT_LOGIN_STREAK, streak);
+        }
+        loginWriter.submit(user.getUserId(), new LoginState(streak, nowMillis));
+        return streak;
+    }
+
+    /**
+     * Turns the due-decay check on login on or off, for when decay is applied only by the
+     * population-wide job.
+     */
+    public void setInlineDecay(boolean inlineDecay) {
+        this.inlineDecay = inlineDecay;
+    }
+
+    public void startWriter(long flushPeriodMillis) {
+        loginWriter.start(flushPeriodMillis, "login-state-writer");
+    }
+
+    public void stopWriter() {
+        loginWriter.stop();
+    }
+
+    public int flush() {
+        return loginWriter.flush();
+    }
+
+    public CoalescingWriter<?> getWriter() {
+        return loginWriter;
+    }
+}
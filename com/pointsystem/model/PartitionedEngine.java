@@ -0,0 +1,299 @@
+package com.pointsystem.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Execution engine for {@link EngineMode#PARTITIONED}. Each user belongs to exactly one
+ * partition loop by dense id, and awards and logins for the user run on that loop's thread,
+ * so they need no locks. Badges earned through another user's activity (likes received,
+ * trending posts, followers) are sent to the earner's loop. Work that spans partitions (tier and point indices, leaderboards,
+ * challenge progress) is sent as messages to a single global loop.
+ *
+ * Population-wide operations (decay, lucky draws, promotions, scheduled jobs) do not go
+ * through the loops; they {@link #pause()} every loop and mutate users on the calling thread
+ * until the pause is closed.
+ */
+final class PartitionedEngine {
+    static final int DEFAULT_RING_SIZE = 8192;
+
+    private static final int ACTIVITY = 1;
+    private static final int LOGIN = 2;
+    private static final int POINTS_CHANGED = 3;
+    private static final int CONTRIBUTE = 4;
+    private static final int PAUSE = 5;
+    private static final int CREDIT = 6;
+    private static final int BADGE = 7;
+
+    private final PointSystem pointSystem;
+    private final EventLoop[] partitions;
+    private final EventLoop global;
+    private final ReentrantLock pauseLock = new ReentrantLock();
+    private boolean stopped;
+
+    /**
+     * Keeps the partition loops parked until closed.
+     */
+    interface Pause extends AutoCloseable {
+        Pause NONE = () -> {
+        };
+
+        @Override
+        void close();
+    }
+
+    PartitionedEngine(PointSystem pointSystem, int partitionCount, int ringSize) {
+        this.pointSystem = pointSystem;
+        this.partitions = new EventLoop[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new EventLoop("point-partition-" + i, ringSize, this::handlePartition);
+        }
+        this.global = new EventLoop("point-global", ringSize, this::handleGlobal);
+    }
+
+    void start() {
+        global.start();
+        for (EventLoop partition : partitions) {
+            partition.start();
+        }
+    }
+
+    /**
+     * Stops the loops after everything already submitted has been handled.
+     */
+    void stop() throws InterruptedException {
+        pauseLock.lock();
+        try {
+            stopped = true;
+            for (EventLoop partition : partitions) {
+                partition.stop();
+            }
+            global.stop();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    /**
+     * Parks every partition loop once it has handled the work already submitted to it, and
+     * waits for the global loop to apply the index updates that work caused. Until the
+     * returned pause is closed the caller may mutate any user directly; work submitted
+     * meanwhile waits in the rings. Pauses are taken one at a time, and a nested pause on
+     * the same thread costs nothing.
+     * @throws IllegalStateException on a partition thread, which would wait for itself
+     */
+    Pause pause() {
+        if (isPartitionThread()) {
+            throw new IllegalStateException("Partitions cannot be paused from a partition thread");
+        }
+        pauseLock.lock();
+        if (stopped || pauseLock.getHoldCount() > 1) {
+            return pauseLock::unlock;
+        }
+        CountDownLatch parked = new CountDownLatch(partitions.length);
+        CountDownLatch released = new CountDownLatch(1);
+        for (EventLoop partition : partitions) {
+            long sequence = partition.claim();
+            EventLoop.Slot slot = partition.slot(sequence);
+            slot.opcode = PAUSE;
+            slot.objArg = parked;
+            slot.objArg2 = released;
+            partition.publish(sequence);
+        }
+        awaitUninterruptibly(parked);
+        global.drain();
+        return () -> {
+            released.countDown();
+            pauseLock.unlock();
+        };
+    }
+
+    /**
+     * Waits until all submitted work, including the global updates it caused, is done.
+     */
+    void drain() {
+        for (EventLoop partition : partitions) {
+            partition.drain();
+        }
+        global.drain();
+    }
+
+    boolean isPartitionThread() {
+        for (EventLoop partition : partitions) {
+            if (partition.isLoopThread()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param wantResult false for fire-and-forget submissions, which allocate nothing
+     * @return The points awarded, or null if no result was requested
+     */
+    CompletableFuture<Integer> submitActivity(User user, String itemId, ActivityType type, double amount,
+                                              long nowMillis, boolean wantResult) {
+        EventLoop loop = partitionOf(user);
+        long sequence = loop.claim();
+        EventLoop.Slot slot = loop.slot(sequence);
+        slot.opcode = ACTIVITY;
+        slot.user = user;
+        slot.itemId = itemId;
+        slot.type = type;
+        slot.amount = amount;
+        slot.timeMillis = nowMillis;
+        CompletableFuture<Integer> result = wantResult ? new CompletableFuture<>() : null;
+        slot.result = result;
+        loop.publish(sequence);
+        return result;
+    }
+
+    /**
+     * Credits points that were calculated elsewhere, leaving the points write to the caller.
+     * @return The user's total points after the credit
+     */
+    CompletableFuture<Integer> submitCredit(User user, ActivityType type, int points) {
+        EventLoop loop = partitionOf(user);
+        long sequence = loop.claim();
+        EventLoop.Slot slot = loop.slot(sequence);
+        slot.opcode = CREDIT;
+        slot.user = user;
+        slot.type = type;
+        slot.intArg = points;
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        slot.result = result;
+        loop.publish(sequence);
+        return result;
+    }
+
+    /**
+     * Awards a badge earned through another user's activity on the earner's own loop.
+     */
+    void submitBadge(User user, AchievementBadge badge) {
+        EventLoop loop = partitionOf(user);
+        long sequence = loop.claim();
+        EventLoop.Slot slot = loop.slot(sequence);
+        slot.opcode = BADGE;
+        slot.user = user;
+        slot.objArg = badge;
+        loop.publish(sequence);
+    }
+
+    /**
+     * True on the user's partition thread, and on a thread holding a pause, which may
+     * mutate any user.
+     */
+    boolean ownsUser(User user) {
+        return partitionOf(user).isLoopThread() || pauseLock.isHeldByCurrentThread();
+    }
+
+    CompletableFuture<Integer> submitLogin(User user, long nowMillis) {
+        EventLoop loop = partitionOf(user);
+        long sequence = loop.claim();
+        EventLoop.Slot slot = loop.slot(sequence);
+        slot.opcode = LOGIN;
+        slot.user = user;
+        slot.timeMillis = nowMillis;
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        slot.result = result;
+        loop.publish(sequence);
+        return result;
+    }
+
+    /**
+     * Called on a partition thread; carries the values as of the change so the global loop
+     * does not read user state that the partition may have changed since.
+     */
+    void publishPointsChanged(User user, int delta, MembershipTier previousTier, MembershipTier newTier, int newTotal) {
+        long sequence = global.claim();
+        EventLoop.Slot slot = global.slot(sequence);
+        slot.opcode = POINTS_CHANGED;
+        slot.user = user;
+        slot.intArg = delta;
+        slot.intArg2 = newTotal;
+        slot.objArg = previousTier;
+        slot.objArg2 = newTier;
+        global.publish(sequence);
+    }
+
+    /**
+     * @return 1 if the contribution was accepted, 0 otherwise
+     */
+    CompletableFuture<Integer> submitContribution(String userId, String challengeId, int points) {
+        long sequence = global.claim();
+        EventLoop.Slot slot = global.slot(sequence);
+        slot.opcode = CONTRIBUTE;
+        slot.objArg = userId;
+        slot.objArg2 = challengeId;
+        slot.intArg = points;
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        slot.result = result;
+        global.publish(sequence);
+        return result;
+    }
+
+    private EventLoop partitionOf(User user) {
+        return partitions[Math.floorMod(user.getDenseId(), partitions.length)];
+    }
+
+    private void handlePartition(EventLoop.Slot slot) {
+        int value;
+        switch (slot.opcode) {
+            case ACTIVITY:
+                value = pointSystem.awardActivity(slot.user, slot.itemId, slot.type, slot.amount, slot.timeMillis);
+                break;
+            case LOGIN:
+                value = pointSystem.loginUser(slot.user, slot.timeMillis);
+                break;
+            case CREDIT:
+                pointSystem.applyActivity(slot.user, slot.type, slot.intArg, false);
+                value = slot.user.getTotalPoints();
+                break;
+            case BADGE:
+                pointSystem.awardBadge(slot.user, (AchievementBadge) slot.objArg);
+                value = 0;
+                break;
+            case PAUSE:
+                ((CountDownLatch) slot.objArg).countDown();
+                awaitUninterruptibly((CountDownLatch) slot.objArg2);
+                value = 0;
+                break;
+            default:
+                throw new IllegalStateException("Unknown partition opcode " + slot.opcode);
+        }
+        if (slot.result != null) {
+            slot.result.complete(value);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleGlobal(EventLoop.Slot slot) {
+        switch (slot.opcode) {
+            case POINTS_CHANGED:
+                pointSystem.applyPointsChange(slot.user, slot.intArg, (MembershipTier) slot.objArg,
+                    (MembershipTier) slot.objArg2, slot.intArg2);
+                break;
+            case CONTRIBUTE:
+                boolean accepted = pointSystem.applyContribution((String) slot.objArg, (String) slot.objArg2, slot.intArg);
+                slot.result.complete(accepted ? 1 : 0);
+                break;
+            default:
+                throw new IllegalStateException("Unknown global opcode " + slot.opcode);
+        }
+    }
+}
@@ -1,26 +1,96 @@
 package com.pointsystem.model;
 
+import java.time.Clock;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.HashMap;
-import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Calculates base points per activity and enforces the per-item daily caps.
+ *
+ * Cap entries are stamped with the epoch day (in the user's zone) and a reset generation.
+ * An entry whose stamp does not match the current one reads as zero, so a new day or a
+ * call to {@link #resetDailyCounts()} never has to clear anything. Stale entries are
+ * removed incrementally by {@link #compactStaleEntries(int)}, optionally on a background thread.
+ */
 public class PointCalculator {
-    private Map<String, Map<ActivityType, Integer>> activityCountsByUser;
-    private Map<String, Map<String, Integer>> commentCountsByPost;
-    private Map<String, Map<String, Integer>> tagCountsByPost;
-    private Map<String, Map<String, Integer>> watchTimeByVideo;
+    private static final int DAY_BITS = 20;
+    private static final int DAY_MASK = (1 << DAY_BITS) - 1;
+    // Marks an entry the compactor has detached; no real stamp reaches it
+    private static final long REMOVED = -1L;
+
+    public static final long DEFAULT_COMPACTION_PERIOD_MILLIS = 60_000;
+    public static final int DEFAULT_COMPACTION_BATCH = 10_000;
+
+    private final Map<CapKey, AtomicLong> commentCountsByPost;
+    private final Map<CapKey, AtomicLong> tagCountsByPost;
+    private final Map<CapKey, AtomicLong> watchTimeByVideo;
+    private final AtomicInteger resetGeneration;
+    private final Clock clock;
+    private Iterator<Map.Entry<CapKey, AtomicLong>> compactionCursor;
+    private int compactionMapIndex;
+    private ScheduledExecutorService compactionExecutor;
+    private ScheduledFuture<?> compactionTask;
+
+    private static final class CapKey {
+        final String itemId;
+        final String userId;
+        final int hash;
+
+        CapKey(String itemId, String userId) {
+            this.itemId = itemId;
+            this.userId = userId;
+            this.hash = 31 * Objects.hashCode(itemId) + userId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CapKey)) {
+                return false;
+            }
+            CapKey other = (CapKey) o;
+            return userId.equals(other.userId) && Objects.equals(itemId, other.itemId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 
     public PointCalculator() {
-        this.activityCountsByUser = new HashMap<>();
-        this.commentCountsByPost = new HashMap<>();
-        this.tagCountsByPost = new HashMap<>();
-        this.watchTimeByVideo = new HashMap<>();
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock Clock used for the current day when callers do not pass one
+     */
+    public PointCalculator(Clock clock) {
+        this.clock = clock;
+        this.commentCountsByPost = new ConcurrentHashMap<>();
+        this.tagCountsByPost = new ConcurrentHashMap<>();
+        this.watchTimeByVideo = new ConcurrentHashMap<>();
+        this.resetGeneration = new AtomicInteger();
     }
 
     public int calculatePoints(String userId, String itemId, ActivityType activityType, double amount) {
-        // Initialize user activity counts if not exists
-        activityCountsByUser.putIfAbsent(userId, new HashMap<>());
-        Map<String, Integer> userCounts = activityCountsByUser.get(userId);
+        int epochDay = EpochDays.of(clock.getZone(), clock.millis());
+        return calculatePoints(userId, itemId, activityType, amount, epochDay);
+    }
+
+    /**
+     * Calculates base points, applying per-item caps for the given day.
+     * @param epochDay Current epoch day in the user's time zone
+     */
+    public int calculatePoints(String userId, String itemId, ActivityType activityType, double amount, int epochDay) {
+        int stamp = currentStamp(epochDay);
 
         switch (activityType) {
             case POST:
@@ -37,11 +107,7 @@ public class PointCalculator {
                 
             case COMMENT:
                 // Max 5 comments per post
-                commentCountsByPost.putIfAbsent(itemId, new HashMap<>());
-                Map<String, Integer> commentCounts = commentCountsByPost.get(itemId);
-                int currentComments = commentCounts.getOrDefault(userId, 0);
-                if (currentComments < 5) {
-                    commentCounts.put(userId, currentComments + 1);
+                if (incrementIfBelow(commentCountsByPost, itemId, userId, 5, stamp)) {
                     return 10; // Expiring points
                 }
                 return 0;
@@ -54,11 +120,8 @@ public class PointCalculator {
                 
             case VIDEO_WATCH:
                 // 5 points per minute, max 50 points per video
-                watchTimeByVideo.putIfAbsent(itemId, new HashMap<>());
-                Map<String, Integer> watchTime = watchTimeByVideo.get(itemId);
-                int currentPoints = watchTime.getOrDefault(userId, 0);
                 int newPoints = Math.min(50, (int)(amount * 5)); // amount is minutes watched
-                watchTime.put(userId, newPoints);
+                int currentPoints = replace(watchTimeByVideo, itemId, userId, newPoints, stamp);
                 return Math.max(0, newPoints - currentPoints);
                 
             case FOLLOW:
@@ -69,11 +132,7 @@ public class PointCalculator {
                 
             case TAG_USER:
                 // Max 3 tags per post
-                tagCountsByPost.putIfAbsent(itemId, new HashMap<>());
-                Map<String, Integer> tagCounts = tagCountsByPost.get(itemId);
-                int currentTags = tagCounts.getOrDefault(userId, 0);
-                if (currentTags < 3) {
-                    tagCounts.put(userId, currentTags + 1);
+                if (incrementIfBelow(tagCountsByPost, itemId, userId, 3, stamp)) {
                     return 10; // Expiring points
                 }
                 return 0;
@@ -111,10 +170,169 @@ public class PointCalculator {
         }
     }
 
+    /**
+     * Starts a new cap period for every user. O(1): existing entries become stale and
+     * are reclaimed later by the compactor.
+     */
     public void resetDailyCounts() {
-        activityCountsByUser.clear();
-        commentCountsByPost.clear();
-        tagCountsByPost.clear();
-        watchTimeByVideo.clear();
+        resetGeneration.incrementAndGet();
+    }
+
+    /**
+     * Removes up to maxEntries stale cap entries, resuming where the previous call stopped.
+     * An entry is stale when it belongs to an earlier reset generation, or to a day that
+     * has ended in every time zone.
+     * @return Number of entries removed
+     */
+    public synchronized int compactStaleEntries(int maxEntries) {
+        int generation = resetGeneration.get() & ((1 << (32 - DAY_BITS)) - 1);
+        int oldestLiveDay = EpochDays.of(java.time.ZoneOffset.UTC, clock.millis()) - 1;
+        int removed = 0;
+        int visited = 0;
+        int emptyMaps = 0;
+        while (visited < maxEntries && emptyMaps < 3) {
+            if (compactionCursor == null || !compactionCursor.hasNext()) {
+                compactionMapIndex = (compactionMapIndex + 1) % 3;
+                compactionCursor = capMap(compactionMapIndex).entrySet().iterator();
+                if (!compactionCursor.hasNext()) {
+                    emptyMaps++;
+                    continue;
+                }
+            }
+            emptyMaps = 0;
+            Map.Entry<CapKey, AtomicLong> entry = compactionCursor.next();
+            visited++;
+            AtomicLong value = entry.getValue();
+            long packed = value.get();
+            int stamp = (int) (packed >>> 32);
+            int entryGeneration = stamp >>> DAY_BITS;
+            int entryDay = stamp & DAY_MASK;
+            if (packed == REMOVED || (entryGeneration == generation && entryDay >= (oldestLiveDay & DAY_MASK))) {
+                continue;
+            }
+            // Fails if a writer updated the entry since it was read; writers that still hold
+            // it after this see REMOVED and look the key up again
+            if (value.compareAndSet(packed, REMOVED)) {
+                capMap(compactionMapIndex).remove(entry.getKey(), value);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void startBackgroundCompaction(long periodMillis, int entriesPerRun) {
+        if (compactionTask != null) {
+            return;
+        }
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "point-cap-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactionTask = compactionExecutor.scheduleWithFixedDelay(
+            () -> compactStaleEntries(entriesPerRun), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopBackgroundCompaction() {
+        if (compactionTask != null) {
+            compactionTask.cancel(false);
+            compactionTask = null;
+        }
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
+            compactionExecutor = null;
+        }
+    }
+
+    /**
+     * Exact usage of a per-item cap by one user on the given day: comments or tags made,
+     * or video watch points earned. Zero for activities without a per-item cap.
+     */
+    public int getCapUsage(String userId, String itemId, ActivityType activityType, int epochDay) {
+        Map<CapKey, AtomicLong> values;
+        switch (activityType) {
+            case COMMENT:
+                values = commentCountsByPost;
+                break;
+            case TAG_USER:
+                values = tagCountsByPost;
+                break;
+            case VIDEO_WATCH:
+                values = watchTimeByVideo;
+                break;
+            default:
+                return 0;
+        }
+        AtomicLong entry = values.get(new CapKey(itemId, userId));
+        if (entry == null) {
+            return 0;
+        }
+        long packed = entry.get();
+        return (int) (packed >>> 32) == currentStamp(epochDay) ? (int) packed : 0;
+    }
+
+    public int getCapEntryCount() {
+        return commentCountsByPost.size() + tagCountsByPost.size() + watchTimeByVideo.size();
+    }
+
+    private Map<CapKey, AtomicLong> capMap(int index) {
+        switch (index) {
+            case 0:
+                return commentCountsByPost;
+            case 1:
+                return tagCountsByPost;
+            default:
+                return watchTimeByVideo;
+        }
+    }
+
+    private int currentStamp(int epochDay) {
+        return (resetGeneration.get() << DAY_BITS) | (epochDay & DAY_MASK);
+    }
+
+    private static boolean incrementIfBelow(Map<CapKey, AtomicLong> counts, String itemId, String userId,
+                                            int max, int stamp) {
+        CapKey key = new CapKey(itemId, userId);
+        AtomicLong entry = counts.computeIfAbsent(key, k -> new AtomicLong());
+        while (true) {
+            long packed = entry.get();
+            if (packed == REMOVED) {
+                entry = relookup(counts, key, entry);
+                continue;
+            }
+            int current = (int) (packed >>> 32) == stamp ? (int) packed : 0;
+            if (current >= max) {
+                return false;
+            }
+            if (entry.compareAndSet(packed, pack(stamp, current + 1))) {
+                return true;
+            }
+        }
+    }
+
+    // Stores a new value and returns the previous one for the same stamp (0 if stale)
+    private static int replace(Map<CapKey, AtomicLong> values, String itemId, String userId, int value, int stamp) {
+        CapKey key = new CapKey(itemId, userId);
+        AtomicLong entry = values.computeIfAbsent(key, k -> new AtomicLong());
+        while (true) {
+            long packed = entry.get();
+            if (packed == REMOVED) {
+                entry = relookup(values, key, entry);
+            } else if (entry.compareAndSet(packed, pack(stamp, value))) {
+                return (int) (packed >>> 32) == stamp ? (int) packed : 0;
+            }
+        }
+    }
+
+    // Replaces an entry the compactor detached, in case it has not been unmapped yet
+    private static AtomicLong relookup(Map<CapKey, AtomicLong> values, CapKey key, AtomicLong removed) {
+        values.remove(key, removed);
+        return values.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    private static long pack(int stamp, int value) {
+        return ((long) stamp << 32) | (value & 0xFFFFFFFFL);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,8 @@
+package com.pointsystem.model;
+
+/**
+ * Notified after a user's total points change, whether by an award or by decay.
+ */
+public interface PointChangeListener {
+    void onPointsChanged(User user, int delta, MembershipTier previousTier);
+}
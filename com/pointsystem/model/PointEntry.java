@@ -1,5 +1,6 @@
 package com.pointsystem.model;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
@@ -27,20 +28,28 @@ public class PointEntry {
     }
     
     public boolean isExpired() {
+        return isExpired(Clock.systemDefaultZone());
+    }
+    
+    public boolean isExpired(Clock clock) {
         if (type == PointType.PERMANENT) {
             return false;
         }
         
         LocalDateTime expirationDate = earnedAt.plusDays(type.getExpirationDays());
-        return LocalDateTime.now().isAfter(expirationDate);
+        return LocalDateTime.now(clock).isAfter(expirationDate);
     }
     
     public int getDaysUntilExpiration() {
+        return getDaysUntilExpiration(Clock.systemDefaultZone());
+    }
+    
+    public int getDaysUntilExpiration(Clock clock) {
         if (type == PointType.PERMANENT) {
             return Integer.MAX_VALUE;
         }
         
         LocalDateTime expirationDate = earnedAt.plusDays(type.getExpirationDays());
-        return (int) ChronoUnit.DAYS.between(LocalDateTime.now(), expirationDate);
+        return (int) ChronoUnit.DAYS.between(LocalDateTime.now(clock), expirationDate);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,270 @@
+package com.pointsystem.model;
+
+import java.util.Arrays;
+
+/**
+ * Rank and percentile queries over total points for the whole population.
+ *
+ * Users are counted in a Fenwick tree over a log-linear histogram of point values: values
+ * below 512 get their own bucket and larger values share buckets 1/256 of their magnitude
+ * wide, so the tree has a fixed number of buckets however many users there are. A rank is
+ * the count above the user's bucket plus a linear interpolation inside it, and the error is
+ * bounded by that bucket's population.
+ *
+ * The highest scores are additionally kept exactly (up to {@code exactCapacity} users) in a
+ * sorted array, and ranks above the exact cutoff are answered from it without error.
+ */
+public class PointRankIndex {
+    public static final int DEFAULT_EXACT_CAPACITY = 10_000;
+
+    private static final int LINEAR_BITS = 9;
+    private static final int LINEAR_LIMIT = 1 << LINEAR_BITS;
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int BUCKETS = LINEAR_LIMIT + (31 - LINEAR_BITS) * (1 << SUB_BUCKET_BITS);
+
+    private final long[] tree;
+    private final long[] counts;
+    private long population;
+
+    private final int exactCapacity;
+    private final long[] topEntries; // (score << 32 | dense id), ascending
+    private final IntIntHashMap topMembers; // dense id -> score
+    private int topSize;
+    private int cutoff; // Every user outside the exact set has at most this many points
+
+    public PointRankIndex() {
+        this(DEFAULT_EXACT_CAPACITY);
+    }
+
+    public PointRankIndex(int exactCapacity) {
+        this.tree = new long[BUCKETS + 1];
+        this.counts = new long[BUCKETS];
+        this.exactCapacity = exactCapacity;
+        this.topEntries = new long[exactCapacity];
+        this.topMembers = new IntIntHashMap(exactCapacity, -1);
+        this.cutoff = -1;
+    }
+
+    public synchronized void add(int denseId, int points) {
+        points = Math.max(0, points);
+        addToBucket(bucketOf(points), 1);
+        population++;
+        offerExact(denseId, points);
+    }
+
+    public synchronized void update(int denseId, int oldPoints, int newPoints) {
+        oldPoints = Math.max(0, oldPoints);
+        newPoints = Math.max(0, newPoints);
+        int oldBucket = bucketOf(oldPoints);
+        int newBucket = bucketOf(newPoints);
+        if (oldBucket != newBucket) {
+            addToBucket(oldBucket, -1);
+            addToBucket(newBucket, 1);
+        }
+
+        int memberScore = topMembers.get(denseId);
+        if (memberScore >= 0) {
+            removeEntry(memberScore, denseId);
+            topMembers.remove(denseId);
+            if (newPoints <= cutoff) {
+                // Dropped to where non-members may outrank it, so it can no longer be tracked exactly
+                return;
+            }
+            insertEntry(newPoints, denseId);
+            topMembers.put(denseId, newPoints);
+        } else {
+            offerExact(denseId, newPoints);
+        }
+    }
+
+    /**
+     * Applies the first count point changes of the arrays under one lock, for population-wide jobs.
+     * Members stay in the exact set whatever their new score, and the cutoff then falls to the
+     * highest score a non-member can still have, so a decay does not shrink the exact range.
+     */
+    public synchronized void updateAll(int[] denseIds, int[] oldPoints, int[] newPoints, int count) {
+        for (int i = 0; i < count; i++) {
+            int oldValue = Math.max(0, oldPoints[i]);
+            int newValue = Math.max(0, newPoints[i]);
+            int oldBucket = bucketOf(oldValue);
+            int newBucket = bucketOf(newValue);
+            if (oldBucket != newBucket) {
+                addToBucket(oldBucket, -1);
+                addToBucket(newBucket, 1);
+            }
+            int memberScore = topMembers.get(denseIds[i]);
+            if (memberScore >= 0) {
+                removeEntry(memberScore, denseIds[i]);
+                insertEntry(newValue, denseIds[i]);
+                topMembers.put(denseIds[i], newValue);
+            } else {
+                offerExact(denseIds[i], newValue);
+            }
+        }
+        lowerCutoff();
+    }
+
+    // Non-members per bucket are its count minus the members in it; the highest such bucket bounds them
+    private void lowerCutoff() {
+        for (int bucket = bucketOf(Math.max(0, cutoff)); bucket >= 0 && cutoff >= 0; bucket--) {
+            int low = bucketLowerBound(bucket);
+            int high = bucketUpperBound(bucket);
+            long members = upperBound(high) - (low == 0 ? 0 : upperBound(low - 1));
+            if (counts[bucket] > members) {
+                cutoff = Math.min(cutoff, high);
+                return;
+            }
+        }
+        cutoff = -1;
+    }
+
+    /**
+     * Returns the 1-based rank of a point total: one more than the number of users with
+     * strictly more points. Exact above {@link #getExactCutoff()}, approximate below it.
+     */
+    public synchronized long rankOf(int points) {
+        points = Math.max(0, points);
+        if (points > cutoff) {
+            return topSize - upperBound(points) + 1;
+        }
+        int bucket = bucketOf(points);
+        long above = population - prefixSum(bucket);
+        // Interpolate within the bucket assuming its users are spread evenly
+        int low = bucketLowerBound(bucket);
+        int width = bucketUpperBound(bucket) - low + 1;
+        long inBucketAbove = counts[bucket] * (low + width - 1 - points) / width;
+        return above + inBucketAbove + 1;
+    }
+
+    /**
+     * Returns the percentage of users with at most the given points.
+     */
+    public synchronized double percentileOf(int points) {
+        if (population == 0) {
+            return 100.0;
+        }
+        long above = rankOf(points) - 1;
+        return 100.0 * (population - above) / population;
+    }
+
+    public synchronized boolean isExact(int points) {
+        return points > cutoff;
+    }
+
+    /**
+     * Upper bound on the difference between {@link #rankOf(int)} and the true rank.
+     */
+    public synchronized long maxRankError(int points) {
+        return points > cutoff ? 0 : counts[bucketOf(Math.max(0, points))];
+    }
+
+    public synchronized int getExactCutoff() {
+        return cutoff;
+    }
+
+    public synchronized long getPopulation() {
+        return population;
+    }
+
+    private void offerExact(int denseId, int points) {
+        if (topSize < exactCapacity) {
+            if (points > cutoff) {
+                insertEntry(points, denseId);
+                topMembers.put(denseId, points);
+            }
+            return;
+        }
+        int lowestScore = (int) (topEntries[0] >> 32);
+        if (points <= lowestScore) {
+            cutoff = Math.max(cutoff, points);
+            return;
+        }
+        // Evict the lowest member; its score becomes the new cutoff
+        int evictedId = (int) topEntries[0];
+        topMembers.remove(evictedId);
+        removeEntry(lowestScore, evictedId);
+        cutoff = Math.max(cutoff, lowestScore);
+        insertEntry(points, denseId);
+        topMembers.put(denseId, points);
+    }
+
+    private void insertEntry(int points, int denseId) {
+        long entry = pack(points, denseId);
+        int pos = Arrays.binarySearch(topEntries, 0, topSize, entry);
+        pos = pos < 0 ? -pos - 1 : pos;
+        System.arraycopy(topEntries, pos, topEntries, pos + 1, topSize - pos);
+        topEntries[pos] = entry;
+        topSize++;
+    }
+
+    private void removeEntry(int points, int denseId) {
+        int pos = Arrays.binarySearch(topEntries, 0, topSize, pack(points, denseId));
+        if (pos < 0) {
+            return;
+        }
+        System.arraycopy(topEntries, pos + 1, topEntries, pos, topSize - pos - 1);
+        topSize--;
+    }
+
+    private static long pack(int points, int denseId) {
+        return ((long) points << 32) | (denseId & 0xFFFFFFFFL);
+    }
+
+    // Index of the first entry with a score strictly greater than points
+    private int upperBound(int points) {
+        int low = 0;
+        int high = topSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((int) (topEntries[mid] >> 32) <= points) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static int bucketOf(int points) {
+        if (points < LINEAR_LIMIT) {
+            return points;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(points);
+        int subBucket = (points >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_BITS) * (1 << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static int bucketLowerBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_LIMIT;
+        int exponent = LINEAR_BITS + (offset >>> SUB_BUCKET_BITS);
+        int subBucket = offset & ((1 << SUB_BUCKET_BITS) - 1);
+        return (1 << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+    }
+
+    private static int bucketUpperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = LINEAR_BITS + ((bucket - LINEAR_LIMIT) >>> SUB_BUCKET_BITS);
+        return (int) Math.min(Integer.MAX_VALUE, (long) bucketLowerBound(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) - 1);
+    }
+
+    private void addToBucket(int bucket, long delta) {
+        counts[bucket] += delta;
+        for (int i = bucket + 1; i <= BUCKETS; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Number of users in buckets 0..bucket inclusive
+    private long prefixSum(int bucket) {
+        long sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,33 @@
+package com.pointsystem.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Destination for the per-user writes that are not already batched by a writer (registration,
+ * points, challenge membership, rewards, tier changes). Set one with
+ * {@link PointSystem#setPointStore(PointStore)} to take these writes off the shared connection.
+ * Implementations report failures themselves and may apply writes asynchronously, but must
+ * keep each user's writes in order.
+ */
+public interface PointStore {
+    void insertUser(String userId, String username, LocalDateTime createdAt);
+
+    /**
+     * Records points awarded to a user whose total is now totalPoints.
+     */
+    void recordPoints(String userId, int totalPoints, int points, PointType type, LocalDateTime earnedAt);
+
+    void addChallengeParticipant(String userId, String challengeId);
+
+    void addReward(String userId, String reward);
+
+    void updateTiers(List<String> userIds, MembershipTier tier);
+
+    /**
+     * Waits until every write accepted so far has been applied. Stores that write
+     * synchronously have nothing to do.
+     */
+    default void flush() {
+    }
+}
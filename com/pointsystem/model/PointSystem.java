@@ -1,37 +1,118 @@
 package com.pointsystem.model;
 
+import com.pointsystem.event.ChallengeCompleted;
+import com.pointsystem.event.EventBus;
+import com.pointsystem.event.PointsAwarded;
+import com.pointsystem.event.RewardGranted;
+import com.pointsystem.event.TierChanged;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.sql.Connection;
 
-public class PointSystem {
+public final class PointSystem {
     private Map<String, User> users;
-    private PriorityQueue<User> leaderboard;
+    private final PriorityQueue<User> leaderboard; // guarded by itself
     private Map<String, LocalDateTime> trendingPosts;
     private List<CollaborativeChallenge> activeCollaborativeChallenges;
     private Random random;
-    private Map<String, List<String>> productPurchases; // productId -> list of buyer userIds
+    private Clock clock;
+    private volatile PointStore pointStore;
+    private PurchaseIndex purchaseIndex;
     private Connection dbConnection;
     private PointCalculator pointCalculator;
+    private ItemEngagementTracker engagement;
+    private TrendingDetector trendingDetector;
+    private EventDeduplicator deduplicator;
+    private TierTransitions tierTransitions;
+    private final EventBus eventBus;
+    private UserIdRegistry userIds;
+    private FollowerGraph followerGraph;
+    private BadgeEngine badgeEngine;
+    private BadgeWriter badgeWriter;
+    private ActivityRateLimiter rateLimiter;
+    private LoginProcessor loginProcessor;
+    private LeaderboardService leaderboards;
+    private PointRankIndex rankIndex;
+    private UserStatsCache statsCache;
+    private volatile EngineMode engineMode = EngineMode.LOCKED;
+    private volatile PartitionedEngine engine;
+    private volatile UserResidencyManager residency;
+    private volatile SqlPushdown pushdown;
+    private volatile JobScheduler jobScheduler;
+    private final LongAdder foregroundOps = new LongAdder();
+    private final Map<String, String> itemAuthors = new ConcurrentHashMap<>();
     
     // Fast access data structures
     private Map<MembershipTier, Set<String>> usersByTier; // tier -> set of userIds
     private TreeMap<Integer, Set<String>> usersByPoints; // points -> set of userIds
     private static final int POINT_RANGE_SIZE = 1000; // Size of each point range bucket
+    private static final int MAX_ITEM_AUTHORS = 1 << 20;
+    private static final int MAX_MISSED_PROMOTION_DRAWS = 100;
+    private static final UserResidencyManager.ColdAward LUCKY_DRAW_BONUS =
+        (totalPoints, tier) -> (int) (totalPoints * tier.getPointMultiplier()) - totalPoints;
+    // Users per second for the chunked default jobs, so a full pass stays a background trickle
+    private static final double JOB_USERS_PER_SECOND = 20_000;
 
     public PointSystem() {
-        this.users = new HashMap<>();
+        this(Clock.systemDefaultZone(), new Random());
+    }
+
+    /**
+     * Creates a point system whose time-dependent rules all read the given clock and whose
+     * random rewards and draws come from a generator seeded with seed, so a run driven
+     * through the same calls in the same order is reproducible.
+     */
+    public PointSystem(Clock clock, long seed) {
+        this(clock, new Random(seed));
+    }
+
+    public PointSystem(Connection dbConnection) {
+        this();
+        attachDatabase(dbConnection);
+    }
+
+    public PointSystem(Connection dbConnection, Clock clock, long seed) {
+        this(clock, seed);
+        attachDatabase(dbConnection);
+    }
+
+    private PointSystem(Clock clock, Random random) {
+        this.clock = clock;
+        this.users = new ConcurrentHashMap<>();
         this.leaderboard = new PriorityQueue<>();
-        this.trendingPosts = new HashMap<>();
-        this.activeCollaborativeChallenges = new ArrayList<>();
-        this.random = new Random();
-        this.productPurchases = new HashMap<>();
+        this.trendingPosts = new ConcurrentHashMap<>();
+        // Challenges are few and rotated by the job scheduler while activities iterate them
+        this.activeCollaborativeChallenges = new CopyOnWriteArrayList<>();
+        this.random = random;
+        this.purchaseIndex = new PurchaseIndex();
         this.usersByTier = new HashMap<>();
         this.usersByPoints = new TreeMap<>();
-        this.pointCalculator = new PointCalculator();
+        this.pointCalculator = new PointCalculator(clock);
+        this.engagement = new ItemEngagementTracker(null);
+        this.trendingDetector = new TrendingDetector(this::onItemTrending);
+        this.deduplicator = new EventDeduplicator(null);
+        this.eventBus = new EventBus();
+        this.tierTransitions = newTierTransitions(null);
+        this.userIds = new UserIdRegistry();
+        this.followerGraph = new FollowerGraph(this::onFollowerMilestone, FollowerGraph.SOCIAL_BUTTERFLY_FOLLOWERS);
+        this.badgeEngine = new BadgeEngine(this::onBadgeEarned);
+        this.badgeWriter = new BadgeWriter(null, BadgeWriter.DEFAULT_BATCH_SIZE);
+        this.rateLimiter = ActivityRateLimiter.withDefaultLimits();
+        this.loginProcessor = new LoginProcessor(null, badgeEngine);
+        this.leaderboards = new LeaderboardService(userIds, LeaderboardService.DEFAULT_CAPACITY);
+        this.rankIndex = new PointRankIndex();
+        this.statsCache = new UserStatsCache(UserStatsCache.DEFAULT_MAX_ENTRIES);
         
         // Initialize tier sets
         for (MembershipTier tier : MembershipTier.values()) {
@@ -39,89 +120,1037 @@ public class PointSystem {
         }
     }
 
-    public PointSystem(Connection dbConnection) {
-        this();
+    private void attachDatabase(Connection dbConnection) {
         this.dbConnection = dbConnection;
+        this.badgeWriter = new BadgeWriter(dbConnection, BadgeWriter.DEFAULT_BATCH_SIZE);
+        this.loginProcessor = new LoginProcessor(dbConnection, badgeEngine);
+        this.deduplicator = new EventDeduplicator(dbConnection);
+        this.tierTransitions = newTierTransitions(dbConnection);
+    }
+
+    private TierTransitions newTierTransitions(Connection dbConnection) {
+        TierTransitions transitions = new TierTransitions(dbConnection, TierTransitions.DEFAULT_BATCH_SIZE);
+        transitions.addListener((userId, previousTier, newTier) -> {
+            if (eventBus.hasSubscribers()) {
+                eventBus.publish(new TierChanged(userId, previousTier, newTier, clock.millis()));
+            }
+        });
+        return transitions;
     }
 
     public User registerUser(String userId, String username) {
-        User newUser = new User(userId, username);
+        User newUser = new User(userId, username, clock);
+        newUser.setRandom(random);
+        newUser.setPointStore(pointStore);
+        newUser.setDenseId(userIds.register(userId));
+        newUser.setPointChangeListener(this::onPointsChanged);
+        newUser.setEventBus(eventBus);
         users.put(userId, newUser);
-        leaderboard.add(newUser);
-        updateUserIndices(newUser);
+        synchronized (leaderboard) {
+            leaderboard.add(newUser);
+        }
+        synchronized (usersByTier) {
+            updateUserIndices(newUser);
+        }
+        purchaseIndex.setTier(newUser.getDenseId(), null, newUser.getTier());
+        badgeEngine.registerUser(newUser);
+        leaderboards.recordPointsChange(newUser, 0, currentEpochDay());
+        rankIndex.add(newUser.getDenseId(), newUser.getTotalPoints());
         return newUser;
     }
 
     public void addExistingUser(User user) {
+        user.setClock(clock);
+        user.setRandom(random);
+        user.setPointStore(pointStore);
+        user.setDenseId(userIds.register(user.getUserId()));
+        user.setPointChangeListener(this::onPointsChanged);
+        user.setEventBus(eventBus);
+        users.put(user.getUserId(), user);
+        synchronized (leaderboard) {
+            leaderboard.add(user);
+        }
+        synchronized (usersByTier) {
+            updateUserIndices(user);
+        }
+        purchaseIndex.setTier(user.getDenseId(), null, user.getTier());
+        badgeEngine.registerUser(user);
+        leaderboards.recordPointsChange(user, 0, currentEpochDay());
+        rankIndex.add(user.getDenseId(), user.getTotalPoints());
+    }
+
+    /**
+     * Returns the user, first loading it back in if it was evicted (see {@link #enableResidency}).
+     * @return The user, or null if it does not exist
+     */
+    public User getUser(String userId) {
+        return resolveUser(userId);
+    }
+
+    /**
+     * Like {@link #getUser} but does not block while an evicted user is loaded.
+     */
+    public CompletableFuture<User> getUserAsync(String userId) {
+        UserResidencyManager manager = residency;
+        if (manager == null) {
+            return CompletableFuture.completedFuture(users.get(userId));
+        }
+        return manager.faultIn(userId);
+    }
+
+    /**
+     * Returns the resident users; users evicted by the residency manager are not included.
+     */
+    public Collection<User> getAllUsers() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    private User resolveUser(String userId) {
+        User user = users.get(userId);
+        UserResidencyManager manager = residency;
+        if (manager == null) {
+            return user;
+        }
+        if (user != null) {
+            manager.recordAccess(user);
+            return user;
+        }
+        return manager.faultIn(userId).join();
+    }
+
+    /**
+     * Lets idle users be evicted from memory and loaded back on demand.
+     * @param loader Storage to reload evicted users from, or null to keep a serialized
+     *               snapshot of each evicted user in memory instead
+     * @param maxResidentUsers Resident users above which eviction starts, or 0 to evict on heap pressure only
+     * @param minIdleMillis Time since a user's last access before it may be evicted
+     */
+    public synchronized UserResidencyManager enableResidency(UserLoader loader, int maxResidentUsers, long minIdleMillis) {
+        if (residency != null) {
+            throw new IllegalStateException("Residency is already enabled");
+        }
+        UserResidencyManager manager = new UserResidencyManager(this, loader, maxResidentUsers,
+            minIdleMillis, UserResidencyManager.DEFAULT_HEAP_HIGH_WATERMARK);
+        for (User user : users.values()) {
+            manager.recordAccess(user);
+        }
+        residency = manager;
+        return manager;
+    }
+
+    public UserResidencyManager getResidency() {
+        return residency;
+    }
+
+    /**
+     * Registers a user known only by its summary, e.g. read from storage at startup, without
+     * creating it in memory. It is indexed like any other user and loaded on first access.
+     * @throws IllegalStateException if residency is not enabled
+     */
+    public void addColdUser(String userId, int totalPoints, MembershipTier tier, int lastDecayDay) {
+        UserResidencyManager manager = residency;
+        if (manager == null) {
+            throw new IllegalStateException("Residency is not enabled");
+        }
+        int denseId = userIds.register(userId);
+        manager.addCold(denseId, totalPoints, tier, lastDecayDay);
+        synchronized (usersByTier) {
+            updateUserIndices(userId, tier, totalPoints);
+        }
+        purchaseIndex.setTier(denseId, null, tier);
+        leaderboards.recordPointsChange(denseId, 0, tier, totalPoints, currentEpochDay());
+        rankIndex.add(denseId, totalPoints);
+    }
+
+    User residentUser(String userId) {
+        return users.get(userId);
+    }
+
+    int getResidentCount() {
+        return users.size();
+    }
+
+    Connection getConnection() {
+        return dbConnection;
+    }
+
+    // Removes an evicted user from memory; it stays in the id-based indices
+    boolean detachUser(User user) {
+        if (!users.remove(user.getUserId(), user)) {
+            return false;
+        }
+        statsCache.invalidate(user.getUserId());
+        return true;
+    }
+
+    // Makes a loaded user resident again; its index entries were kept while it was cold
+    void readmitUser(User user) {
+        user.setClock(clock);
+        user.setRandom(random);
+        user.setPointStore(pointStore);
+        user.setDenseId(userIds.register(user.getUserId()));
+        user.setPointChangeListener(this::onPointsChanged);
+        user.setEventBus(eventBus);
         users.put(user.getUserId(), user);
-        leaderboard.add(user);
-        updateUserIndices(user);
+        synchronized (leaderboard) {
+            leaderboard.add(user);
+        }
+        badgeEngine.registerUser(user);
+    }
+
+    void persistColdPoints(String userId, int totalPoints, int points, PointType type) {
+        User.persistPoints(dbConnection, pointStore, userId, totalPoints, points, type, LocalDateTime.now(clock));
+    }
+
+    // Total points of a resident or cold user without loading it, or -1 if it does not exist
+    private int totalPointsOf(String userId) {
+        User user = users.get(userId);
+        if (user != null) {
+            return user.getTotalPoints();
+        }
+        UserResidencyManager manager = residency;
+        return manager != null ? manager.getColdPoints(userIds.getId(userId)) : -1;
+    }
+
+    /**
+     * Returns the user's stats from the snapshot cache, re-rendering only if the user
+     * changed since the cached snapshot was taken.
+     * @return The snapshot, or null if the user does not exist
+     */
+    public UserStatsSnapshot getUserStats(String userId) {
+        User user = resolveUser(userId);
+        return user != null ? statsCache.get(user) : null;
+    }
+
+    public UserStatsCache getStatsCache() {
+        return statsCache;
+    }
+
+    /**
+     * Routes per-user writes (points, challenge membership, rewards, tier upgrades) through
+     * the given store instead of the shared connection, for existing and future users.
+     * @param pointStore The store, or null to write through the connection again
+     */
+    public void setPointStore(PointStore pointStore) {
+        this.pointStore = pointStore;
+        tierTransitions.setPointStore(pointStore);
+        for (User user : users.values()) {
+            user.setPointStore(pointStore);
+        }
+    }
+
+    public PointStore getPointStore() {
+        return pointStore;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public UserIdRegistry getUserIds() {
+        return userIds;
+    }
+
+    public FollowerGraph getFollowerGraph() {
+        return followerGraph;
+    }
+
+    public boolean followUser(String followerId, String followeeId) {
+        User follower = resolveUser(followerId);
+        User followee = resolveUser(followeeId);
+        if (follower == null || followee == null) {
+            return false;
+        }
+        if (!followerGraph.follow(follower.getDenseId(), followee.getDenseId())) {
+            return false;
+        }
+        syncFollowCounts(follower);
+        syncFollowCounts(followee);
+        return true;
+    }
+
+    public boolean unfollowUser(String followerId, String followeeId) {
+        User follower = resolveUser(followerId);
+        User followee = resolveUser(followeeId);
+        if (follower == null || followee == null) {
+            return false;
+        }
+        if (!followerGraph.unfollow(follower.getDenseId(), followee.getDenseId())) {
+            return false;
+        }
+        syncFollowCounts(follower);
+        syncFollowCounts(followee);
+        return true;
+    }
+
+    public boolean isFollowing(String followerId, String followeeId) {
+        int follower = userIds.getId(followerId);
+        int followee = userIds.getId(followeeId);
+        return follower != UserIdRegistry.UNKNOWN && followee != UserIdRegistry.UNKNOWN
+            && followerGraph.isFollowing(follower, followee);
+    }
+
+    /**
+     * Imports follow edges in bulk, e.g. when migrating an existing social graph.
+     * Edges referencing unregistered users are skipped.
+     * @param followerIds follower of each edge
+     * @param followeeIds followee of each edge, same length as followerIds
+     * @return Number of new edges added
+     */
+    public int importFollows(List<String> followerIds, List<String> followeeIds) {
+        int count = Math.min(followerIds.size(), followeeIds.size());
+        int[] from = new int[count];
+        int[] to = new int[count];
+        int edges = 0;
+        for (int i = 0; i < count; i++) {
+            int follower = userIds.getId(followerIds.get(i));
+            int followee = userIds.getId(followeeIds.get(i));
+            if (follower != UserIdRegistry.UNKNOWN && followee != UserIdRegistry.UNKNOWN) {
+                from[edges] = follower;
+                to[edges] = followee;
+                edges++;
+            }
+        }
+        int added = followerGraph.importFollows(from, to, edges);
+        for (User user : users.values()) {
+            syncFollowCounts(user);
+        }
+        return added;
+    }
+
+    private void syncFollowCounts(User user) {
+        int denseId = user.getDenseId();
+        user.syncFollowCounts(followerGraph.getFollowerCount(denseId), followerGraph.getFollowingCount(denseId));
+    }
+
+    private void onFollowerMilestone(int denseId, int followerCount) {
+        badgeEngine.setValue(denseId, BadgeEngine.SLOT_FOLLOWERS, followerCount);
+    }
+
+    public BadgeEngine getBadgeEngine() {
+        return badgeEngine;
+    }
+
+    /**
+     * Re-evaluates all badges for the whole population and persists any newly earned ones.
+     * @return Number of badges awarded
+     */
+    public int reevaluateBadges() {
+        int awarded = badgeEngine.reevaluateAll(new ArrayList<>(users.values()));
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            // Awards were handed to the partition loops
+            partitioned.drain();
+        }
+        badgeWriter.flush();
+        return awarded;
+    }
+
+    public void flushBadges() {
+        badgeWriter.flush();
+    }
+
+    // Credits to an item's author or a followee arrive on another user's thread, so the award
+    // runs on the earner's owner: under its monitor, or on its partition loop
+    private void onBadgeEarned(int denseId, AchievementBadge badge) {
+        User user = resolveUser(userIds.getUserId(denseId));
+        if (user == null) {
+            return;
+        }
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            if (partitioned.ownsUser(user)) {
+                awardBadge(user, badge);
+            } else {
+                partitioned.submitBadge(user, badge);
+            }
+            return;
+        }
+        synchronized (user) {
+            awardBadge(user, badge);
+        }
+    }
+
+    // Runs on the thread that owns the user
+    void awardBadge(User user, AchievementBadge badge) {
+        if (user.awardBadge(badge)) {
+            badgeWriter.enqueue(user.getUserId(), badge, LocalDateTime.now(clock));
+        }
+    }
+
+    /**
+     * Processes a user login: updates the streak, applies any due decay and queues
+     * the streak and login time for persistence.
+     * @return The login streak, or 0 if the user does not exist
+     */
+    public int processLogin(String userId) {
+        User user = resolveUser(userId);
+        if (user == null) {
+            return 0;
+        }
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            return partitioned.submitLogin(user, clock.millis()).join();
+        }
+        synchronized (user) {
+            return loginProcessor.processLogin(user, clock.millis());
+        }
+    }
+
+    int loginUser(User user, long nowMillis) {
+        return loginProcessor.processLogin(user, nowMillis);
+    }
+
+    /**
+     * Switches how point mutations are executed. Switch while no requests are in flight;
+     * leaving PARTITIONED mode first finishes everything already submitted to the loops.
+     * @param partitions Number of partition loops for PARTITIONED mode, ignored otherwise
+     */
+    public synchronized void setEngineMode(EngineMode mode, int partitions) {
+        PartitionedEngine previous = engine;
+        if (previous != null) {
+            engine = null;
+            try {
+                previous.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (mode == EngineMode.PARTITIONED) {
+            PartitionedEngine next = new PartitionedEngine(this, partitions, PartitionedEngine.DEFAULT_RING_SIZE);
+            next.start();
+            engine = next;
+        }
+        engineMode = mode;
+    }
+
+    public EngineMode getEngineMode() {
+        return engineMode;
+    }
+
+    /**
+     * Waits until every mutation submitted so far, including the index updates it causes,
+     * has been applied. Returns immediately in LOCKED mode.
+     */
+    public void drainEngine() {
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            partitioned.drain();
+        }
+    }
+
+    /**
+     * Runs weekly decay, lucky draws and surprise rewards as set-based SQL on the users
+     * table, a few statements per tier in one transaction, and then applies the same changes
+     * to the in-memory users without writing them again. The database selects the affected
+     * users, so in this mode decay runs only as the weekly job and not on login, keeping
+     * last_points_decay_date authoritative. Run the jobs while no awards are in flight.
+     * The jobs run their transactions on the given connection, which must not be the shared
+     * one, so that live writes never join or roll back with them.
+     * @param pushdownConnection A connection dedicated to pushdown, or null to disable it
+     * @throws IllegalArgumentException if given the shared connection
+     */
+    public void setPushdownConnection(Connection pushdownConnection) {
+        if (pushdownConnection != null && pushdownConnection == dbConnection) {
+            throw new IllegalArgumentException("Pushdown needs its own connection");
+        }
+        pushdown = pushdownConnection != null ? new SqlPushdown(pushdownConnection) : null;
+        loginProcessor.setInlineDecay(pushdown == null);
+    }
+
+    public boolean isPushdownEnabled() {
+        return pushdown != null;
+    }
+
+    private void flushForPushdown() {
+        // The statements read totals from the users table, so buffered writes must land first
+        flushPendingWrites();
+        PointStore store = pointStore;
+        if (store != null) {
+            store.flush();
+        }
+    }
+
+    // Applies an in-memory change to a resident or cold user without letting it be evicted meanwhile
+    private void forUser(String userId, Consumer<User> residentAction,
+                         IntConsumer coldAction) {
+        UserResidencyManager manager = residency;
+        if (manager != null) {
+            manager.visit(userId, residentAction, coldAction);
+            return;
+        }
+        User user = users.get(userId);
+        if (user != null) {
+            residentAction.accept(user);
+        }
+    }
+
+    // In PARTITIONED mode, parks the partition loops so the caller can mutate users directly
+    private PartitionedEngine.Pause pausePartitions() {
+        PartitionedEngine partitioned = engine;
+        return partitioned != null ? partitioned.pause() : PartitionedEngine.Pause.NONE;
+    }
+
+    public void startBackgroundWriters(long flushPeriodMillis) {
+        loginProcessor.startWriter(flushPeriodMillis);
+        tierTransitions.start(flushPeriodMillis);
+        // Cap entries of past days are never cleared in bulk, so they are reclaimed here
+        pointCalculator.startBackgroundCompaction(PointCalculator.DEFAULT_COMPACTION_PERIOD_MILLIS,
+            PointCalculator.DEFAULT_COMPACTION_BATCH);
+    }
+
+    /**
+     * Starts running the periodic jobs in-process: weekly decay (checked daily, since it is
+     * due per user), surprise rewards, hourly bonus points, challenge rotation and a daily
+     * sweep of stale cap entries. User passes run in chunks that yield to awarded activities
+     * and are checkpointed in job_checkpoints when there is a database. Daily caps are not
+     * reset here, since they roll over at midnight in each user's own zone.
+     * @param tickMillis How often the scheduler checks for due jobs
+     */
+    public synchronized JobScheduler startJobScheduler(long tickMillis) {
+        if (jobScheduler != null) {
+            return jobScheduler;
+        }
+        JobScheduler scheduler = new JobScheduler(dbConnection, clock, foregroundOps::sum);
+        scheduler.schedule("weekly-decay", JobScheduler.Trigger.dailyAt(LocalTime.of(3, 0)),
+            new JobScheduler.ChunkedJob() {
+                @Override
+                public long runChunk(long cursor, int maxItems) {
+                    return decayUsers(cursor, maxItems);
+                }
+
+                @Override
+                public void finish() {
+                    finishWeeklyDecay();
+                }
+            }, JobScheduler.DEFAULT_CHUNK_SIZE, JOB_USERS_PER_SECOND);
+        scheduler.schedule("surprise-rewards", JobScheduler.Trigger.dailyAt(LocalTime.of(12, 0)),
+            payoutJob(this::grantSurpriseRewards), JobScheduler.DEFAULT_CHUNK_SIZE, JOB_USERS_PER_SECOND);
+        scheduler.schedule("bonus-points", JobScheduler.Trigger.every(Duration.ofHours(1)),
+            payoutJob(this::grantRandomBonusPoints), JobScheduler.DEFAULT_CHUNK_SIZE, JOB_USERS_PER_SECOND);
+        scheduler.schedule("challenge-rotation", JobScheduler.Trigger.every(Duration.ofHours(1)),
+            this::rotateChallenges);
+        // About one pass over the cap entries; the compactor keeps its own position between calls
+        scheduler.schedule("cap-compaction", JobScheduler.Trigger.dailyAt(LocalTime.of(4, 0)), (cursor, maxItems) -> {
+            pointCalculator.compactStaleEntries(maxItems);
+            long visited = cursor + maxItems;
+            return visited < pointCalculator.getCapEntryCount() ? visited : JobScheduler.DONE;
+        }, PointCalculator.DEFAULT_COMPACTION_BATCH, 0);
+        scheduler.start(tickMillis);
+        jobScheduler = scheduler;
+        return scheduler;
+    }
+
+    /**
+     * Stops the job scheduler after its current chunk; unfinished runs resume on the next start.
+     */
+    public synchronized void stopJobScheduler() {
+        if (jobScheduler != null) {
+            jobScheduler.stop();
+            jobScheduler = null;
+        }
+    }
+
+    /**
+     * @return The running job scheduler, or null if it was not started
+     */
+    public JobScheduler getJobScheduler() {
+        return jobScheduler;
+    }
+
+    // A pass over users that pays them must not repeat a chunk, so a resumed run skips it
+    private JobScheduler.ChunkedJob payoutJob(JobScheduler.ChunkedJob pass) {
+        return new JobScheduler.NonRepeatableJob() {
+            @Override
+            public long runChunk(long cursor, int maxItems) {
+                return pass.runChunk(cursor, maxItems);
+            }
+
+            @Override
+            public long skipChunk(long cursor, int maxItems) {
+                // With SQL pushdown the first chunk is the whole run
+                return pushdown != null ? JobScheduler.DONE : nextCursor(endOfChunk(cursor, maxItems));
+            }
+        };
+    }
+
+    // Starts a new random challenge once none is running
+    private void rotateChallenges() {
+        for (CollaborativeChallenge challenge : activeCollaborativeChallenges) {
+            if (challenge.isActive()) {
+                return;
+            }
+        }
+        createRandomChallenge();
+    }
+
+    public void flushPendingWrites() {
+        loginProcessor.flush();
+        badgeWriter.flush();
+        deduplicator.flush();
+        tierTransitions.flush();
+    }
+
+    /**
+     * Promotions and demotions of all users, with their listeners and buffered tier_id writes.
+     */
+    public TierTransitions getTierTransitions() {
+        return tierTransitions;
+    }
+
+    public void addTierChangeListener(TierTransitions.TierChangeListener listener) {
+        tierTransitions.addListener(listener);
+    }
+
+    /**
+     * Bus on which point awards, tier changes, badges, completed challenges and rewards are
+     * published as they happen.
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    // Reward of a user that was written without going through a User object
+    private void publishReward(String userId, String reward) {
+        if (eventBus.hasSubscribers()) {
+            eventBus.publish(new RewardGranted(userId, reward, clock.millis()));
+        }
+    }
+
+    public void updateLeaderboard() {
+        // Jobs rebuild the heap while registrations add to it
+        synchronized (leaderboard) {
+            leaderboard.clear();
+            leaderboard.addAll(users.values());
+        }
+    }
+    
+    public void applyWeeklyPointsDecay() {
+        decayUsers(0, Integer.MAX_VALUE);
+        finishWeeklyDecay();
+    }
+
+    /**
+     * Decays the users whose decay is due among up to maxUsers dense ids from cursor on.
+     * With SQL pushdown one statement decays everyone, so the first call does the whole run.
+     * @return The dense id to continue from, or {@link JobScheduler#DONE}
+     */
+    long decayUsers(long cursor, int maxUsers) {
+        try (PartitionedEngine.Pause _ = pausePartitions()) {
+            UserResidencyManager manager = residency;
+            int today = currentEpochDay();
+            LocalDateTime now = LocalDateTime.now(clock);
+            List<DecayedUser> decayed = new ArrayList<>();
+            SqlPushdown sql = pushdown;
+            if (sql != null) {
+                flushForPushdown();
+                // Due when the last decay was at least 7 days ago, as in User.applyDecayIfDue
+                LocalDateTime dueBefore = EpochDays.toLocalDate(today - 6).atStartOfDay();
+                for (String userId : sql.decay(dueBefore, now)) {
+                    forUser(userId, user -> decayUser(user, today, now, true, decayed),
+                        denseId -> manager.decayColdUser(denseId, today));
+                }
+                applyDecayed(decayed, today);
+                return JobScheduler.DONE;
+            }
+            int end = endOfChunk(cursor, maxUsers);
+            for (int denseId = (int) cursor; denseId < end; denseId++) {
+                User user = users.get(userIds.getUserId(denseId));
+                if (user != null) {
+                    decayUser(user, today, now, false, decayed);
+                } else if (manager != null) {
+                    manager.decayColdIfDue(denseId, today);
+                }
+            }
+            applyDecayed(decayed, today);
+            return nextCursor(end);
+        }
+    }
+
+    // Rebuilds the leaderboards a decay run has changed
+    void finishWeeklyDecay() {
+        UserResidencyManager manager = residency;
+        int today = currentEpochDay();
+        updateLeaderboard();
+        leaderboards.rebuildAllTime(users.values());
+        if (manager != null) {
+            manager.forEachCold((denseId, tier, totalPoints) ->
+                leaderboards.recordPointsChange(denseId, 0, tier, totalPoints, today));
+        }
+    }
+
+    // End of the dense id chunk [cursor, cursor + maxUsers)
+    private int endOfChunk(long cursor, int maxUsers) {
+        return (int) Math.min(userIds.size(), cursor + maxUsers);
+    }
+
+    private long nextCursor(int end) {
+        return end < userIds.size() ? end : JobScheduler.DONE;
+    }
+    
+    public List<User> getTopUsers(int n) {
+        if (n <= leaderboards.getCapacity()) {
+            List<User> topUsers = new ArrayList<>();
+            for (LeaderboardEntry entry : getLeaderboard(null, LeaderboardWindow.ALL_TIME, n)) {
+                User user = resolveUser(entry.getUserId());
+                if (user != null) {
+                    topUsers.add(user);
+                }
+            }
+            return topUsers;
+        }
+
+        // The heap is not reordered when points change, so rebuild it before reading past the capacity
+        List<User> topUsers = new ArrayList<>();
+        PriorityQueue<User> tempQueue;
+        synchronized (leaderboard) {
+            updateLeaderboard();
+            tempQueue = new PriorityQueue<>(leaderboard);
+        }
+        
+        for (int i = 0; i < n && !tempQueue.isEmpty(); i++) {
+            topUsers.add(tempQueue.poll());
+        }
+        
+        return topUsers;
+    }
+    
+    /**
+     * Returns the top users for a time window, globally or within one tier.
+     * @param tier Tier to rank within, or null for all users
+     * @param window Daily, weekly or all-time points
+     * @param limit Maximum number of entries (bounded by the leaderboard capacity)
+     */
+    public List<LeaderboardEntry> getLeaderboard(MembershipTier tier, LeaderboardWindow window, int limit) {
+        return leaderboards.getTop(tier, window, limit, currentEpochDay());
+    }
+
+    public List<User> getUsersByTier(MembershipTier tier) {
+        List<User> tierUsers = new ArrayList<>();
+        List<String> tierUserIds;
+        // Award paths move users between the index sets under this lock, so iterate a copy
+        synchronized (usersByTier) {
+            tierUserIds = new ArrayList<>(usersByTier.get(tier));
+        }
+        
+        for (String userId : tierUserIds) {
+            User user = resolveUser(userId);
+            if (user != null) {
+                tierUsers.add(user);
+            }
+        }
+        
+        return tierUsers;
+    }
+
+    private static final class DecayedUser {
+        final User user;
+        final int previousTotal;
+        final MembershipTier previousTier;
+        final int newTotal;
+        final MembershipTier newTier;
+
+        DecayedUser(User user, int previousTotal, MembershipTier previousTier, int newTotal, MembershipTier newTier) {
+            this.user = user;
+            this.previousTotal = previousTotal;
+            this.previousTier = previousTier;
+            this.newTotal = newTotal;
+            this.newTier = newTier;
+        }
+    }
+
+    /**
+     * Decays a user without reporting the change, collecting it for {@link #applyDecayed}.
+     * @param due true if the decay was already decided to be due
+     */
+    private static void decayUser(User user, int today, LocalDateTime now, boolean due, List<DecayedUser> decayed) {
+        synchronized (user) {
+            int previousTotal = user.getTotalPoints();
+            MembershipTier previousTier = user.getTier();
+            if (due) {
+                user.applyDecay(today, now, false);
+            } else if (!user.applyDecayIfDue(today, now, false)) {
+                return;
+            }
+            decayed.add(new DecayedUser(user, previousTotal, previousTier, user.getTotalPoints(), user.getTier()));
+        }
+    }
+
+    /**
+     * Applies the point changes of a decay run to the shared indices in one pass, then
+     * reports the demotions it caused.
+     */
+    private void applyDecayed(List<DecayedUser> decayed, int today) {
+        int count = decayed.size();
+        int[] denseIds = new int[count];
+        int[] previousTotals = new int[count];
+        int[] newTotals = new int[count];
+        List<DecayedUser> demoted = new ArrayList<>();
+        synchronized (usersByTier) {
+            for (int i = 0; i < count; i++) {
+                DecayedUser change = decayed.get(i);
+                denseIds[i] = change.user.getDenseId();
+                previousTotals[i] = change.previousTotal;
+                newTotals[i] = change.newTotal;
+                moveInIndices(change.user.getUserId(), denseIds[i], change.previousTier, change.previousTotal,
+                    change.newTier, change.newTotal);
+                if (change.newTier != change.previousTier) {
+                    demoted.add(change);
+                }
+            }
+        }
+        rankIndex.updateAll(denseIds, previousTotals, newTotals, count);
+        for (DecayedUser change : demoted) {
+            // Moves the user's daily and weekly entries to the boards of the new tier
+            leaderboards.recordPointsChange(change.user.getDenseId(), 0, change.newTier, change.newTotal, today);
+            tierTransitions.record(change.user.getUserId(), change.previousTier, change.newTier);
+        }
+    }
+
+    private void onPointsChanged(User user, int delta, MembershipTier previousTier) {
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null && partitioned.isPartitionThread()) {
+            // Shared indices belong to the global loop; hand it the state as of this change
+            partitioned.publishPointsChanged(user, delta, previousTier, user.getTier(), user.getTotalPoints());
+            return;
+        }
+        applyPointsChange(user, delta, previousTier, user.getTier(), user.getTotalPoints());
+    }
+
+    void applyPointsChange(User user, int delta, MembershipTier previousTier, MembershipTier newTier, int newTotal) {
+        applyPointsChange(user.getUserId(), user.getDenseId(), delta, previousTier, newTier, newTotal);
+    }
+
+    // Also used for cold users, which have index entries but no User object
+    void applyPointsChange(String userId, int denseId, int delta, MembershipTier previousTier,
+                           MembershipTier newTier, int newTotal) {
+        synchronized (usersByTier) {
+            moveInIndices(userId, denseId, previousTier, newTotal - delta, newTier, newTotal);
+        }
+        leaderboards.recordPointsChange(denseId, delta, newTier, newTotal, currentEpochDay());
+        rankIndex.update(denseId, newTotal - delta, newTotal);
+        if (delta > 0 && eventBus.hasSubscribers()) {
+            eventBus.publish(new PointsAwarded(userId, delta, newTotal, clock.millis()));
+        }
+        tierTransitions.record(userId, previousTier, newTier);
+    }
+
+    // Keeps the tier, points and purchase indices in step with a change; call holding usersByTier
+    private void moveInIndices(String userId, int denseId, MembershipTier previousTier, int previousTotal,
+                               MembershipTier newTier, int newTotal) {
+        int previousRange = (previousTotal / POINT_RANGE_SIZE) * POINT_RANGE_SIZE;
+        int newRange = (newTotal / POINT_RANGE_SIZE) * POINT_RANGE_SIZE;
+        if (previousTier == newTier && previousRange == newRange) {
+            return;
+        }
+        usersByTier.get(previousTier).remove(userId);
+        Set<String> usersInRange = usersByPoints.get(previousRange);
+        if (usersInRange != null) {
+            usersInRange.remove(userId);
+            if (usersInRange.isEmpty()) {
+                usersByPoints.remove(previousRange);
+            }
+        }
+        updateUserIndices(userId, newTier, newTotal);
+        purchaseIndex.setTier(denseId, previousTier, newTier);
+    }
+
+    /**
+     * Returns the user's 1-based rank by total points; exact for the top users and
+     * approximate with bounded error below them (see {@link PointRankIndex}).
+     * @return The rank, or -1 if the user does not exist
+     */
+    public long getRank(String userId) {
+        int totalPoints = totalPointsOf(userId);
+        return totalPoints >= 0 ? rankIndex.rankOf(totalPoints) : -1;
+    }
+
+    /**
+     * Returns the percentage of users with at most this user's points.
+     * @return The percentile, or -1 if the user does not exist
+     */
+    public double getPercentile(String userId) {
+        int totalPoints = totalPointsOf(userId);
+        return totalPoints >= 0 ? rankIndex.percentileOf(totalPoints) : -1;
+    }
+
+    public PointRankIndex getRankIndex() {
+        return rankIndex;
+    }
+
+    private int currentEpochDay() {
+        return EpochDays.of(clock.getZone(), clock.millis());
+    }
+    
+    public void markPostAsTrending(String postId) {
+        trendingPosts.put(postId, LocalDateTime.now(clock));
+    }
+
+    public void markPostAsTrending(String postId, String authorId) {
+        boolean alreadyTrending = isPostTrending(postId);
+        markPostAsTrending(postId);
+        if (!alreadyTrending) {
+            creditAuthor(authorId, "trendingPosts", BadgeEngine.SLOT_TRENDING_POSTS, 1);
+        }
+    }
+
+    public void recordLikesReceived(String authorId, int likes) {
+        if (likes > 0) {
+            creditAuthor(authorId, "likesReceived", BadgeEngine.SLOT_LIKES_RECEIVED, likes);
+        }
+    }
+
+    // Evicted authors only get the badge counter; their stored count catches up on the next credit
+    private void creditAuthor(String authorId, String countKey, int slot, int delta) {
+        int author = authorId != null ? userIds.getId(authorId) : UserIdRegistry.UNKNOWN;
+        if (author == UserIdRegistry.UNKNOWN) {
+            return;
+        }
+        User user = users.get(authorId);
+        if (user != null) {
+            user.addCount(countKey, delta);
+        }
+        badgeEngine.increment(author, slot, delta);
+    }
+
+    /**
+     * Records who created an item, so likes on it and its trending count towards the
+     * author's badges. Posts and videos awarded with an item id register their author.
+     */
+    public void registerItemAuthor(String itemId, String authorId) {
+        if (itemAuthors.size() >= MAX_ITEM_AUTHORS && !itemAuthors.containsKey(itemId)) {
+            // Bounded: an arbitrary item is forgotten, which only costs its author later credit
+            Iterator<String> it = itemAuthors.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        itemAuthors.putIfAbsent(itemId, authorId);
     }
 
-    public User getUser(String userId) {
-        return users.get(userId);
+    public String getItemAuthor(String itemId) {
+        return itemId != null ? itemAuthors.get(itemId) : null;
     }
 
-    public void updateLeaderboard() {
-        leaderboard.clear();
-        leaderboard.addAll(users.values());
-    }
-    
-    public void applyWeeklyPointsDecay() {
-        for (User user : users.values()) {
-            user.applyPointsDecay();
+    /**
+     * Credits the item's author for an accepted activity on it: posting registers the
+     * author, and a like from someone else counts as a like received.
+     */
+    public void recordItemActivity(User user, String itemId, ActivityType activityType) {
+        if (itemId == null) {
+            return;
+        }
+        switch (activityType) {
+            case POST:
+            case VIDEO_POST:
+                registerItemAuthor(itemId, user.getUserId());
+                break;
+            case LIKE:
+                String authorId = itemAuthors.get(itemId);
+                if (authorId != null && !authorId.equals(user.getUserId())) {
+                    recordLikesReceived(authorId, 1);
+                }
+                break;
+            default:
+                break;
         }
-        updateLeaderboard();
     }
     
-    public List<User> getTopUsers(int n) {
-        List<User> topUsers = new ArrayList<>();
-        PriorityQueue<User> tempQueue = new PriorityQueue<>(leaderboard);
-        
-        for (int i = 0; i < n && !tempQueue.isEmpty(); i++) {
-            topUsers.add(tempQueue.poll());
+    /**
+     * Counts engagement with an item (likes, comments, shares, saves, tags and video watches)
+     * towards its approximate totals, and likes, comments, shares and video watches towards
+     * its velocity for automatic trending detection.
+     */
+    public void recordEngagement(String itemId, ActivityType activityType, long nowMillis) {
+        if (itemId == null) {
+            return;
+        }
+        switch (activityType) {
+            case LIKE:
+            case COMMENT:
+            case COMMENT_REPLY:
+            case SHARE:
+            case SAVE_BOOKMARK:
+            case TAG_USER:
+            case VIDEO_WATCH:
+                engagement.record(itemId, 1, nowMillis);
+                trendingDetector.record(itemId, activityType, nowMillis);
+                break;
+            default:
+                break;
         }
-        
-        return topUsers;
     }
-    
-    public List<User> getUsersByTier(MembershipTier tier) {
-        List<User> tierUsers = new ArrayList<>();
-        
-        for (User user : users.values()) {
-            if (user.getTier() == tier) {
-                tierUsers.add(user);
-            }
+
+    /**
+     * Approximate lifetime engagement with an item; never less than the true count.
+     */
+    public long getEngagementEstimate(String itemId) {
+        return engagement.estimate(itemId);
+    }
+
+    public ItemEngagementTracker getEngagementTracker() {
+        return engagement;
+    }
+
+    public TrendingDetector getTrendingDetector() {
+        return trendingDetector;
+    }
+
+    // Items without a registered author are marked trending without a badge credit
+    private void onItemTrending(String itemId, double velocityPerMinute) {
+        if (!isPostTrending(itemId)) {
+            markPostAsTrending(itemId, itemAuthors.get(itemId));
         }
-        
-        return tierUsers;
+        expireTrendingPosts();
     }
-    
-    public void markPostAsTrending(String postId) {
-        trendingPosts.put(postId, LocalDateTime.now());
+
+    /**
+     * Drops posts whose 24 hours of trending have ended, so the registry only holds live ones.
+     */
+    public void expireTrendingPosts() {
+        LocalDateTime expiredBefore = LocalDateTime.now(clock).minusHours(24);
+        trendingPosts.values().removeIf(start -> !start.isAfter(expiredBefore));
     }
-    
+
     public boolean isPostTrending(String postId) {
-        if (trendingPosts.containsKey(postId)) {
-            LocalDateTime trendingStartTime = trendingPosts.get(postId);
-            LocalDateTime now = LocalDateTime.now();
+        LocalDateTime trendingStartTime = trendingPosts.get(postId);
+        if (trendingStartTime != null) {
+            LocalDateTime now = LocalDateTime.now(clock);
             
             if (now.isBefore(trendingStartTime.plusHours(24))) {
                 return true;
             } else {
-                trendingPosts.remove(postId);
+                trendingPosts.remove(postId, trendingStartTime);
             }
         }
         return false;
     }
     
     public int calculatePoints(String userId, String itemId, ActivityType activityType, double amount) {
-        User user = users.get(userId);
+        User user = resolveUser(userId);
         if (user == null) return 0;
 
-        int basePoints = pointCalculator.calculatePoints(userId, itemId, activityType, amount);
+        long nowMillis = clock.millis();
+        int basePoints = calculateBasePoints(user, itemId, activityType, amount, nowMillis);
         if (basePoints == 0) return 0;
 
+        return (int)(basePoints * getPointMultiplier(user, itemId, nowMillis));
+    }
+
+    /**
+     * Base points for an activity before multipliers, with per-item daily caps applied
+     * for the day of nowMillis in the user's time zone.
+     */
+    public int calculateBasePoints(User user, String itemId, ActivityType activityType, double amount, long nowMillis) {
+        int epochDay = EpochDays.of(user.getZoneId(), nowMillis);
+        return pointCalculator.calculatePoints(user.getUserId(), itemId, activityType, amount, epochDay);
+    }
+
+    /**
+     * Combined tier, trending and power hour multiplier at the given instant.
+     */
+    public double getPointMultiplier(User user, String itemId, long nowMillis) {
         double multiplier = 1.0;
         
         // Apply tier multiplier
@@ -133,44 +1162,250 @@ public class PointSystem {
         }
         
         // Apply power hour multiplier
-        LocalTime currentTime = LocalTime.now();
+        LocalTime currentTime = LocalTime.ofInstant(Instant.ofEpochMilli(nowMillis), user.getZoneId());
         LocalTime startPowerHour = LocalTime.of(18, 0);
         LocalTime endPowerHour = LocalTime.of(21, 0);
         if (currentTime.isAfter(startPowerHour) && currentTime.isBefore(endPowerHour)) {
             multiplier *= 2.0;
         }
 
-        return (int)(basePoints * multiplier);
+        return multiplier;
+    }
+
+    public ActivityRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Awards points for an activity and feeds the badge engine.
+     * Activities over the user's rate limit for their type are dropped without points.
+     * @return Points awarded
+     */
+    public int processActivity(String userId, String itemId, ActivityType activityType, double amount) {
+        User user = resolveUser(userId);
+        if (user == null) {
+            return 0;
+        }
+        long nowMillis = clock.millis();
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            return partitioned.submitActivity(user, itemId, activityType, amount, nowMillis, true).join();
+        }
+        if (!acceptActivity(user, itemId, activityType, nowMillis)) {
+            return 0;
+        }
+        synchronized (user) {
+            return scoreActivity(user, itemId, activityType, amount, nowMillis);
+        }
+    }
+
+    /**
+     * Like {@link #processActivity(String, String, ActivityType, double)}, but an event whose
+     * id was already processed within the dedup window is dropped, so producers can retry.
+     * @param eventId Producer-assigned id of the event, or null to skip the check
+     * @return Points awarded, 0 for a redelivered event
+     */
+    public int processActivity(String userId, String itemId, ActivityType activityType, double amount, String eventId) {
+        if (eventId != null && resolveUser(userId) != null && !acceptEvent(eventId)) {
+            return 0;
+        }
+        return processActivity(userId, itemId, activityType, amount);
+    }
+
+    /**
+     * Records an event id as processed.
+     * @return false if the event was already processed within the dedup window
+     */
+    public boolean acceptEvent(String eventId) {
+        return deduplicator.firstDelivery(eventId, clock.millis());
+    }
+
+    public EventDeduplicator getEventDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * Like {@link #processActivity} but does not wait for the award in PARTITIONED mode,
+     * which lets callers keep the partition loops busy without a round trip per activity.
+     * @return false if the user does not exist
+     */
+    public boolean submitActivity(String userId, String itemId, ActivityType activityType, double amount) {
+        User user = resolveUser(userId);
+        if (user == null) {
+            return false;
+        }
+        long nowMillis = clock.millis();
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            partitioned.submitActivity(user, itemId, activityType, amount, nowMillis, false);
+            return true;
+        }
+        if (acceptActivity(user, itemId, activityType, nowMillis)) {
+            synchronized (user) {
+                scoreActivity(user, itemId, activityType, amount, nowMillis);
+            }
+        }
+        return true;
+    }
+
+    // Runs on the user's partition loop
+    int awardActivity(User user, String itemId, ActivityType activityType, double amount, long nowMillis) {
+        if (!acceptActivity(user, itemId, activityType, nowMillis)) {
+            return 0;
+        }
+        return scoreActivity(user, itemId, activityType, amount, nowMillis);
+    }
+
+    // Safe on any thread. LOCKED mode calls it before taking the user's monitor, so crediting
+    // the item's author never waits for the author's monitor while holding the actor's
+    private boolean acceptActivity(User user, String itemId, ActivityType activityType, long nowMillis) {
+        if (!rateLimiter.tryAcquire(user.getDenseId(), activityType, nowMillis)) {
+            return false;
+        }
+        recordEngagement(itemId, activityType, nowMillis);
+        recordItemActivity(user, itemId, activityType);
+        return true;
+    }
+
+    // Runs on the thread that owns the user: under its monitor or on its partition loop
+    private int scoreActivity(User user, String itemId, ActivityType activityType, double amount, long nowMillis) {
+        int basePoints = calculateBasePoints(user, itemId, activityType, amount, nowMillis);
+        int points = basePoints == 0 ? 0 : (int) (basePoints * getPointMultiplier(user, itemId, nowMillis));
+        applyActivity(user, activityType, points, true);
+        return points;
+    }
+
+    /**
+     * Credits already calculated points for an activity and feeds the badge engine.
+     * @param persist false when the caller batches the points write itself
+     */
+    public void applyActivity(User user, ActivityType activityType, int points, boolean persist) {
+        foregroundOps.increment();
+        if (points > 0) {
+            user.addPoints(points, activityType.getPointType(), persist);
+            user.recordActivity(activityType,
+                String.format("Earned %d points for %s", points, activityType.getDescription()));
+        }
+        user.countActivity(activityType);
+        badgeEngine.recordActivity(user.getDenseId(), activityType);
+    }
+
+    /**
+     * Credits points calculated outside the award path, such as by the ingestion pipeline,
+     * on the thread that owns the user: under its monitor, or on its partition loop in
+     * PARTITIONED mode. The points write is left to the caller.
+     * @return The user's total points after the credit
+     */
+    public int creditActivity(User user, ActivityType activityType, int points) {
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            return partitioned.submitCredit(user, activityType, points).join();
+        }
+        synchronized (user) {
+            applyActivity(user, activityType, points, false);
+            return user.getTotalPoints();
+        }
     }
 
+    // Daily caps roll over per user time zone; this forces an immediate reset for everyone
     public void resetDailyCounts() {
         pointCalculator.resetDailyCounts();
     }
 
+    public PointCalculator getPointCalculator() {
+        return pointCalculator;
+    }
+
     public CollaborativeChallenge createCollaborativeChallenge(String name, String description, 
                                                               int targetPoints, int durationHours, 
                                                               String reward) {
-        String challengeId = "challenge-" + UUID.randomUUID().toString().substring(0, 8);
-        LocalDateTime startTime = LocalDateTime.now();
+        String challengeId = String.format("challenge-%08x", random.nextInt());
+        LocalDateTime startTime = LocalDateTime.now(clock);
         LocalDateTime endTime = startTime.plusHours(durationHours);
         
         CollaborativeChallenge challenge = new CollaborativeChallenge(
-            challengeId, name, description, targetPoints, startTime, endTime, reward
+            challengeId, name, description, targetPoints, startTime, endTime, reward, clock
         );
         
         activeCollaborativeChallenges.add(challenge);
         return challenge;
     }
     
+    /**
+     * Adds a challenge loaded from storage or an import, keeping its id and state.
+     */
+    public void addExistingChallenge(CollaborativeChallenge challenge) {
+        challenge.setClock(clock);
+        activeCollaborativeChallenges.add(challenge);
+    }
+
+    public List<CollaborativeChallenge> getCollaborativeChallenges() {
+        return Collections.unmodifiableList(activeCollaborativeChallenges);
+    }
+
+    /**
+     * Restores a challenge membership from an import without writing challenge_participants.
+     * @return false if the user or challenge does not exist
+     */
+    public boolean restoreChallengeParticipant(String userId, String challengeId) {
+        return restoreChallengeParticipant(userId, challengeId, 0);
+    }
+
+    /**
+     * Restores a challenge membership together with the points the participant contributed,
+     * which are added back to the challenge total.
+     * @return false if the user or challenge does not exist
+     */
+    public boolean restoreChallengeParticipant(String userId, String challengeId, int contributedPoints) {
+        User user = resolveUser(userId);
+        CollaborativeChallenge challenge = findChallenge(challengeId);
+        if (user == null || challenge == null) {
+            return false;
+        }
+        challenge.addParticipant(userId, user.getDenseId());
+        if (contributedPoints > 0) {
+            challenge.addContribution(user.getDenseId(), contributedPoints);
+        }
+        user.restoreChallenge(challengeId);
+        return true;
+    }
+
+    /**
+     * Restores an earned badge from an import without awarding its bonus points again.
+     * @return false if the user does not exist
+     */
+    public boolean restoreBadge(String userId, AchievementBadge badge) {
+        User user = resolveUser(userId);
+        if (user == null) {
+            return false;
+        }
+        user.restoreBadge(badge);
+        badgeEngine.registerUser(user);
+        return true;
+    }
+
+    /**
+     * Appends an imported activity to the user's history without awarding points.
+     * @return false if the user does not exist
+     */
+    public boolean restoreActivity(String userId, Activity activity) {
+        User user = resolveUser(userId);
+        if (user == null) {
+            return false;
+        }
+        user.restoreActivity(activity);
+        return true;
+    }
+    
     public boolean joinCollaborativeChallenge(String userId, String challengeId) {
-        User user = users.get(userId);
+        User user = resolveUser(userId);
         if (user == null) {
             return false;
         }
         
         for (CollaborativeChallenge challenge : activeCollaborativeChallenges) {
             if (challenge.getChallengeId().equals(challengeId) && challenge.isActive()) {
-                challenge.addParticipant(userId);
+                challenge.addParticipant(userId, user.getDenseId());
                 user.joinChallenge(challengeId);
                 return true;
             }
@@ -180,21 +1415,37 @@ public class PointSystem {
     }
     
     public boolean contributeToChallenge(String userId, String challengeId, int points) {
-        User user = users.get(userId);
+        PartitionedEngine partitioned = engine;
+        if (partitioned != null) {
+            return partitioned.submitContribution(userId, challengeId, points).join() == 1;
+        }
+        return applyContribution(userId, challengeId, points);
+    }
+
+    boolean applyContribution(String userId, String challengeId, int points) {
+        User user = resolveUser(userId);
         if (user == null || !user.getParticipatingChallenges().contains(challengeId)) {
             return false;
         }
         
         for (CollaborativeChallenge challenge : activeCollaborativeChallenges) {
             if (challenge.getChallengeId().equals(challengeId) && challenge.isActive()) {
-                challenge.addPoints(points);
+                challenge.addContribution(user.getDenseId(), points);
                 
                 if (challenge.isCompleted()) {
                     challenge.setActive(false);
+                    if (eventBus.hasSubscribers()) {
+                        eventBus.publish(new ChallengeCompleted(challenge.getChallengeId(), challenge.getName(),
+                            challenge.getCurrentPoints(), challenge.getParticipants().size(), clock.millis()));
+                    }
                     for (String participantId : challenge.getParticipants()) {
                         User participant = users.get(participantId);
                         if (participant != null) {
                             participant.addReward(challenge.getReward());
+                        } else if (residency != null) {
+                            // The reward is only written, so cold participants need not be loaded
+                            User.persistReward(dbConnection, pointStore, participantId, challenge.getReward());
+                            publishReward(participantId, challenge.getReward());
                         }
                     }
                 }
@@ -204,12 +1455,67 @@ public class PointSystem {
     }
 
     public void generateSurpriseRewards() {
-        for (User user : users.values()) {
-            if (random.nextInt(100) < 5) {
+        grantSurpriseRewards(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Draws surprise rewards among up to maxUsers dense ids from cursor on. With SQL pushdown
+     * the database credits all winners at once, so the first call does the whole run.
+     * @return The dense id to continue from, or {@link JobScheduler#DONE}
+     */
+    long grantSurpriseRewards(long cursor, int maxUsers) {
+        try (PartitionedEngine.Pause _ = pausePartitions()) {
+            UserResidencyManager manager = residency;
+            SqlPushdown sql = pushdown;
+            if (sql != null) {
+                flushForPushdown();
+                // Winners are drawn here, so the draw stays reproducible; the database applies them per reward size
+                Map<Integer, List<String>> winnersByPoints = new TreeMap<>();
+                for (int denseId = 0; denseId < userIds.size(); denseId++) {
+                    if (random.nextInt(100) < 5) {
+                        winnersByPoints.computeIfAbsent(random.nextInt(50) + 50, _ -> new ArrayList<>())
+                            .add(userIds.getUserId(denseId));
+                    }
+                }
+                if (!sql.creditRewards(winnersByPoints, LocalDateTime.now(clock))) {
+                    return JobScheduler.DONE;
+                }
+                for (Map.Entry<Integer, List<String>> winners : winnersByPoints.entrySet()) {
+                    int rewardPoints = winners.getKey();
+                    for (String userId : winners.getValue()) {
+                        forUser(userId, user -> {
+                            synchronized (user) {
+                                user.addPoints(rewardPoints, PointType.EXPIRING, false);
+                            }
+                        }, denseId -> manager.applyColdAward(denseId, (_, _) -> rewardPoints, PointType.EXPIRING, false));
+                        // The database already holds the reward, so it is only published
+                        publishReward(userId, "Surprise Reward: " + rewardPoints + " points!");
+                    }
+                }
+                return JobScheduler.DONE;
+            }
+            int end = endOfChunk(cursor, maxUsers);
+            for (int denseId = (int) cursor; denseId < end; denseId++) {
+                if (random.nextInt(100) >= 5) {
+                    continue;
+                }
                 int rewardPoints = random.nextInt(50) + 50;
-                user.addReward("Surprise Reward: " + rewardPoints + " points!");
-                user.addPoints(rewardPoints, PointType.EXPIRING);
+                String reward = "Surprise Reward: " + rewardPoints + " points!";
+                String userId = userIds.getUserId(denseId);
+                User user = users.get(userId);
+                if (user != null) {
+                    synchronized (user) {
+                        user.addReward(reward);
+                        user.addPoints(rewardPoints, PointType.EXPIRING);
+                    }
+                } else if (manager != null
+                        && manager.applyColdAward(denseId, (_, _) -> rewardPoints, PointType.EXPIRING, true) > 0) {
+                    // Cold users are credited through their summaries instead of being loaded
+                    User.persistReward(dbConnection, pointStore, userId, reward);
+                    publishReward(userId, reward);
+                }
             }
+            return nextCursor(end);
         }
     }
 
@@ -230,45 +1536,116 @@ public class PointSystem {
         return createCollaborativeChallenge(name, description, targetPoints, durationHours, reward);
     }
 
+    /**
+     * Draws distinct winners among a challenge's participants, each with a chance proportional
+     * to the points it contributed. Participants who contributed nothing are only drawn once
+     * every contributor has won.
+     * @return IDs of the winners in draw order
+     */
     public List<String> selectRandomWinners(String challengeId, int numberOfWinners) {
         List<String> winners = new ArrayList<>();
-        CollaborativeChallenge challenge = null;
-        
-        for (CollaborativeChallenge c : activeCollaborativeChallenges) {
-            if (c.getChallengeId().equals(challengeId)) {
-                challenge = c;
-                break;
-            }
-        }
-        
+        CollaborativeChallenge challenge = findChallenge(challengeId);
         if (challenge != null) {
-            List<String> participants = new ArrayList<>(challenge.getParticipants());
-            int numWinners = Math.min(numberOfWinners, participants.size());
-            
-            for (int i = 0; i < numWinners; i++) {
-                if (participants.isEmpty()) break;
-                int winnerIndex = random.nextInt(participants.size());
-                winners.add(participants.remove(winnerIndex));
+            for (int denseId : challenge.getContributions().draw(numberOfWinners, random)) {
+                winners.add(userIds.getUserId(denseId));
             }
         }
-        
         return winners;
     }
 
+    /**
+     * Up to k participants who contributed the most to a challenge, highest first.
+     * @param k At most {@value ChallengeContributions#DEFAULT_TOP_CAPACITY}
+     */
+    public List<LeaderboardEntry> getTopContributors(String challengeId, int k) {
+        CollaborativeChallenge challenge = findChallenge(challengeId);
+        if (challenge == null) {
+            return Collections.emptyList();
+        }
+        int limit = Math.min(k, ChallengeContributions.DEFAULT_TOP_CAPACITY);
+        int[] denseIds = new int[limit];
+        int[] points = new int[limit];
+        int count = challenge.getContributions().top(limit, denseIds, points);
+        List<LeaderboardEntry> top = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            top.add(new LeaderboardEntry(userIds.getUserId(denseIds[i]), points[i]));
+        }
+        return top;
+    }
+
+    /**
+     * Points a user contributed to a challenge, 0 if it did not participate.
+     */
+    public int getChallengeContribution(String userId, String challengeId) {
+        CollaborativeChallenge challenge = findChallenge(challengeId);
+        int denseId = userIds.getId(userId);
+        if (challenge == null || denseId == UserIdRegistry.UNKNOWN) {
+            return 0;
+        }
+        return Math.max(0, challenge.getContributions().get(denseId));
+    }
+
+    /**
+     * Every tracked participant of a challenge with its contribution, highest first and in
+     * join order among equal contributions.
+     */
+    public List<LeaderboardEntry> getChallengeStandings(String challengeId) {
+        CollaborativeChallenge challenge = findChallenge(challengeId);
+        if (challenge == null) {
+            return Collections.emptyList();
+        }
+        ChallengeContributions contributions = challenge.getContributions();
+        int size = contributions.size();
+        int[] denseIds = new int[size];
+        int[] points = new int[size];
+        int count = contributions.copyTo(denseIds, points);
+        List<LeaderboardEntry> standings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            standings.add(new LeaderboardEntry(userIds.getUserId(denseIds[i]), points[i]));
+        }
+        // Stable, so equal contributions keep join order
+        standings.sort((a, b) -> Integer.compare(b.getPoints(), a.getPoints()));
+        return standings;
+    }
+
+    private CollaborativeChallenge findChallenge(String challengeId) {
+        for (CollaborativeChallenge challenge : activeCollaborativeChallenges) {
+            if (challenge.getChallengeId().equals(challengeId)) {
+                return challenge;
+            }
+        }
+        return null;
+    }
+
     public void generateRandomBonusPoints() {
-        LocalTime currentTime = LocalTime.now();
-        LocalTime startOffPeak = LocalTime.of(23, 0);
-        LocalTime endOffPeak = LocalTime.of(6, 0);
+        grantRandomBonusPoints(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Grants random bonus points to resident users among up to maxUsers dense ids from cursor on.
+     * @return The dense id to continue from, or {@link JobScheduler#DONE}
+     */
+    long grantRandomBonusPoints(long cursor, int maxUsers) {
+        try (PartitionedEngine.Pause _ = pausePartitions()) {
+            LocalTime currentTime = LocalTime.now(clock);
+            LocalTime startOffPeak = LocalTime.of(23, 0);
+            LocalTime endOffPeak = LocalTime.of(6, 0);
         
-        int bonusChance = (currentTime.isAfter(startOffPeak) || currentTime.isBefore(endOffPeak)) ? 15 : 5;
+            int bonusChance = (currentTime.isAfter(startOffPeak) || currentTime.isBefore(endOffPeak)) ? 15 : 5;
         
-        for (User user : users.values()) {
-            if (random.nextInt(100) < bonusChance) {
-                int bonusPoints = random.nextInt(20) + 10;
-                user.addPoints(bonusPoints, PointType.EXPIRING);
-                user.recordActivity(ActivityType.SURPRISE_DROP, 
-                    "Random Bonus: " + bonusPoints + " points for being active!");
+            int end = endOfChunk(cursor, maxUsers);
+            for (int denseId = (int) cursor; denseId < end; denseId++) {
+                User user = users.get(userIds.getUserId(denseId));
+                if (user != null && random.nextInt(100) < bonusChance) {
+                    int bonusPoints = random.nextInt(20) + 10;
+                    synchronized (user) {
+                        user.addPoints(bonusPoints, PointType.EXPIRING);
+                        user.recordActivity(ActivityType.SURPRISE_DROP, 
+                            "Random Bonus: " + bonusPoints + " points for being active!");
+                    }
+                }
             }
+            return nextCursor(end);
         }
     }
 
@@ -280,42 +1657,76 @@ public class PointSystem {
      * @return Number of users affected by the lucky draw
      */
     public int conductLuckyDraw(int minPoints, int maxPoints, MembershipTier selectedTier) {
-        int affectedUsers = 0;
-        Set<String> eligibleUsers = new HashSet<>();
-
-        // Get eligible users based on points range
-        for (Map.Entry<Integer, Set<String>> entry : usersByPoints.entrySet()) {
-            int rangeStart = entry.getKey();
-            if (rangeStart >= minPoints && rangeStart <= maxPoints) {
-                eligibleUsers.addAll(entry.getValue());
+        try (PartitionedEngine.Pause _ = pausePartitions()) {
+            UserResidencyManager manager = residency;
+            SqlPushdown sql = pushdown;
+            if (sql != null) {
+                flushForPushdown();
+                // Point ranges start at multiples of POINT_RANGE_SIZE within [minPoints, maxPoints]
+                int lowPoints = Math.ceilDiv(minPoints, POINT_RANGE_SIZE) * POINT_RANGE_SIZE;
+                int highPoints = Math.floorDiv(maxPoints, POINT_RANGE_SIZE) * POINT_RANGE_SIZE + POINT_RANGE_SIZE;
+                MembershipTier[] tiers = selectedTier != null ? new MembershipTier[] {selectedTier} : MembershipTier.values();
+                List<String> eligible = lowPoints < highPoints
+                    ? sql.luckyDraw(lowPoints, highPoints, tiers, LocalDateTime.now(clock))
+                    : Collections.emptyList();
+                for (String userId : eligible) {
+                    forUser(userId, user -> applyLuckyDraw(user, false),
+                        denseId -> manager.applyColdAward(denseId, LUCKY_DRAW_BONUS, PointType.EXPIRING, false));
+                }
+                updateLeaderboard();
+                return eligible.size();
             }
-        }
 
-        // Filter by tier if specified
-        if (selectedTier != null) {
-            eligibleUsers.retainAll(usersByTier.get(selectedTier));
-        }
+            int affectedUsers = 0;
+            Set<String> eligibleUsers = new HashSet<>();
 
-        // Apply lucky draw to eligible users
-        for (String userId : eligibleUsers) {
-            User user = users.get(userId);
-            if (user != null) {
-                double tierMultiplier = user.getTier().getPointMultiplier();
-                int originalPoints = user.getTotalPoints();
-                int newPoints = (int) (originalPoints * tierMultiplier);
-                int bonusPoints = newPoints - originalPoints;
-                
-                user.addPoints(bonusPoints, PointType.EXPIRING);
-                user.recordActivity(ActivityType.SURPRISE_DROP, 
-                    String.format("Lucky Draw: Points multiplied by %.2fx! (+%d points)", 
-                        tierMultiplier, bonusPoints));
-                
-                affectedUsers++;
+            // Copy the eligible ids under the index lock; award paths move users between the sets
+            synchronized (usersByTier) {
+                // Get eligible users based on points range
+                for (Map.Entry<Integer, Set<String>> entry : usersByPoints.entrySet()) {
+                    int rangeStart = entry.getKey();
+                    if (rangeStart >= minPoints && rangeStart <= maxPoints) {
+                        eligibleUsers.addAll(entry.getValue());
+                    }
+                }
+
+                // Filter by tier if specified
+                if (selectedTier != null) {
+                    eligibleUsers.retainAll(usersByTier.get(selectedTier));
+                }
+            }
+
+            // Apply lucky draw to eligible users
+            for (String userId : eligibleUsers) {
+                User user = users.get(userId);
+                if (user == null && manager != null) {
+                    // Cold users are credited through their summaries instead of being loaded
+                    if (manager.applyColdAward(userIds.getId(userId), LUCKY_DRAW_BONUS, PointType.EXPIRING, true) >= 0) {
+                        affectedUsers++;
+                    }
+                } else if (user != null) {
+                    applyLuckyDraw(user, true);
+                    affectedUsers++;
+                }
             }
+
+            updateLeaderboard();
+            return affectedUsers;
         }
+    }
 
-        updateLeaderboard();
-        return affectedUsers;
+    private void applyLuckyDraw(User user, boolean persist) {
+        synchronized (user) {
+            double tierMultiplier = user.getTier().getPointMultiplier();
+            int originalPoints = user.getTotalPoints();
+            int newPoints = (int) (originalPoints * tierMultiplier);
+            int bonusPoints = newPoints - originalPoints;
+
+            user.addPoints(bonusPoints, PointType.EXPIRING, persist);
+            user.recordActivity(ActivityType.SURPRISE_DROP, 
+                String.format("Lucky Draw: Points multiplied by %.2fx! (+%d points)", 
+                    tierMultiplier, bonusPoints));
+        }
     }
 
     /**
@@ -338,12 +1749,19 @@ public class PointSystem {
     }
 
     /**
-     * Records a product purchase by a user
+     * Records a product purchase by a user. Repeat purchases of the same product are kept once.
      * @param userId The ID of the user who made the purchase
      * @param productId The ID of the purchased product
      */
     public void recordProductPurchase(String userId, String productId) {
-        productPurchases.computeIfAbsent(productId, _ -> new ArrayList<>()).add(userId);
+        int denseId = userIds.getId(userId);
+        if (denseId != UserIdRegistry.UNKNOWN) {
+            purchaseIndex.recordPurchase(productId, denseId);
+        }
+    }
+
+    public PurchaseIndex getPurchaseIndex() {
+        return purchaseIndex;
     }
 
     /**
@@ -352,59 +1770,80 @@ public class PointSystem {
      * @return The selected user's ID if a winner was chosen, null otherwise
      */
     public String conductProductPromotion(String productId) {
-        List<String> buyers = productPurchases.get(productId);
-        if (buyers == null || buyers.isEmpty()) {
-            return null;
-        }
-
-        // Get eligible buyers (non-platinum tiers) using the tier index
-        Set<String> eligibleBuyers = new HashSet<>();
-        for (MembershipTier tier : Arrays.asList(MembershipTier.BRONZE, MembershipTier.SILVER, MembershipTier.GOLD)) {
-            eligibleBuyers.addAll(usersByTier.get(tier));
-        }
-        eligibleBuyers.retainAll(buyers);
+        List<String> winners = conductProductPromotion(productId, 1);
+        return winners.isEmpty() ? null : winners.get(0);
+    }
 
-        if (eligibleBuyers.isEmpty()) {
-            return null;
-        }
+    /**
+     * Upgrades up to winnerCount distinct random non-platinum buyers of a product to Platinum.
+     * Each draw is uniform over the buyers still eligible, and the upgrades are written together
+     * with any other buffered tier changes. Buyers that cannot be loaded are skipped, and the
+     * draw gives up after {@code MAX_MISSED_PROMOTION_DRAWS} such misses.
+     * @return IDs of the winners in draw order
+     */
+    public List<String> conductProductPromotion(String productId, int winnerCount) {
+        try (PartitionedEngine.Pause _ = pausePartitions()) {
+            MembershipTier[] eligibleTiers = {MembershipTier.BRONZE, MembershipTier.SILVER, MembershipTier.GOLD};
+            List<String> winners = new ArrayList<>();
+            Set<Integer> unavailable = new HashSet<>();
+            int missedDraws = 0;
+            while (winners.size() < winnerCount) {
+                int winnerId = purchaseIndex.drawBuyer(productId, eligibleTiers, random);
+                if (winnerId == UserIdRegistry.UNKNOWN) {
+                    break;
+                }
+                // Buyers that fail to load stay eligible in the index, so redraws are bounded
+                if (unavailable.contains(winnerId)) {
+                    if (++missedDraws > MAX_MISSED_PROMOTION_DRAWS) {
+                        break;
+                    }
+                    continue;
+                }
+                User winner = resolveUser(userIds.getUserId(winnerId));
+                if (winner == null) {
+                    System.err.println("Error loading promotion winner " + userIds.getUserId(winnerId) + ": skipped");
+                    unavailable.add(winnerId);
+                    if (++missedDraws > MAX_MISSED_PROMOTION_DRAWS) {
+                        break;
+                    }
+                    continue;
+                }
+                MembershipTier previousTier;
+                synchronized (winner) {
+                    previousTier = winner.getTier();
 
-        // Select random winner
-        String winnerId = new ArrayList<>(eligibleBuyers).get(random.nextInt(eligibleBuyers.size()));
-        User winner = users.get(winnerId);
-        
-        // Remove user from old indices
-        removeUserFromIndices(winner);
-        
-        // Upgrade winner to Platinum
-        winner.setTier(MembershipTier.PLATINUM);
-        winner.recordActivity(ActivityType.REWARD_EARNED, 
-            "Congratulations! You've been upgraded to Platinum tier through the product promotion!");
-        
-        // Update indices with new tier
-        updateUserIndices(winner);
-        
-        // Update database
-        try {
-            String sql = "UPDATE users SET tier_id = ? WHERE user_id = ?";
-            PreparedStatement stmt = dbConnection.prepareStatement(sql);
-            stmt.setInt(1, MembershipTier.PLATINUM.getTierId());
-            stmt.setString(2, winnerId);
-            stmt.executeUpdate();
-            stmt.close();
-        } catch (SQLException e) {
-            System.err.println("Error updating user tier: " + e.getMessage());
+                    // Upgrade winner to Platinum, keeping the indices in step
+                    synchronized (usersByTier) {
+                        removeUserFromIndices(winner);
+                        winner.setTier(MembershipTier.PLATINUM);
+                        updateUserIndices(winner);
+                    }
+                    // Winners leave the eligible tiers, so later draws cannot pick them again
+                    purchaseIndex.setTier(winnerId, previousTier, MembershipTier.PLATINUM);
+                    leaderboards.recordPointsChange(winner, 0, currentEpochDay());
+                    winner.recordActivity(ActivityType.REWARD_EARNED, 
+                        "Congratulations! You've been upgraded to Platinum tier through the product promotion!");
+                }
+                tierTransitions.record(winner.getUserId(), previousTier, MembershipTier.PLATINUM);
+                winners.add(winner.getUserId());
+            }
+            // Written right away rather than with the next background flush
+            tierTransitions.flush();
+            return winners;
         }
-
-        return winnerId;
     }
 
     private void updateUserIndices(User user) {
+        updateUserIndices(user.getUserId(), user.getTier(), user.getTotalPoints());
+    }
+
+    private void updateUserIndices(String userId, MembershipTier tier, int totalPoints) {
         // Update tier index
-        usersByTier.get(user.getTier()).add(user.getUserId());
+        usersByTier.get(tier).add(userId);
         
         // Update points index
-        int pointsRange = (user.getTotalPoints() / POINT_RANGE_SIZE) * POINT_RANGE_SIZE;
-        usersByPoints.computeIfAbsent(pointsRange, _ -> new HashSet<>()).add(user.getUserId());
+        int pointsRange = (totalPoints / POINT_RANGE_SIZE) * POINT_RANGE_SIZE;
+        usersByPoints.computeIfAbsent(pointsRange, _ -> new HashSet<>()).add(userId);
     }
 
     private void removeUserFromIndices(User user) {
@@ -41,64 +41,101 @@ import java.util.*;
 public class PointSystemAlgorithm {
     private PointSystem pointSystem;
     private Connection dbConnection;
+    private static final long LOGIN_FLUSH_PERIOD_MILLIS = 1000;
+    private static final long RESIDENCY_SWEEP_PERIOD_MILLIS = 5000;
 
     public PointSystemAlgorithm(Connection dbConnection) {
-        this.pointSystem = new PointSystem();
+        this.pointSystem = new PointSystem(dbConnection);
         this.dbConnection = dbConnection;
+        this.pointSystem.startBackgroundWriters(LOGIN_FLUSH_PERIOD_MILLIS);
     }
 
-    // Initialize the system with existing users from database
+    // Initialize the system with existing users from database. With residency enabled the
+    // users are registered from their rows alone and loaded on first access.
     public void initializeFromDatabase() {
-        try {
-            String sql = "SELECT * FROM users";
-            PreparedStatement stmt = dbConnection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-            
+        String sql = "SELECT * FROM users";
+        boolean cold = pointSystem.getResidency() != null;
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                String userId = rs.getString("user_id");
-                String username = rs.getString("username");
-                int totalPoints = rs.getInt("total_points");
-                int tierId = rs.getInt("tier_id");
-                Timestamp lastLogin = rs.getTimestamp("last_login_date");
-                Timestamp lastDecay = rs.getTimestamp("last_points_decay_date");
-                int loginStreak = rs.getInt("current_login_streak");
-                int followersCount = rs.getInt("followers_count");
-                int followingCount = rs.getInt("following_count");
-                
-                User user = new User(
-                    userId, username, totalPoints, 
-                    MembershipTier.getTierById(tierId),
-                    lastLogin != null ? lastLogin.toLocalDateTime() : null,
-                    lastDecay != null ? lastDecay.toLocalDateTime() : null,
-                    loginStreak, followersCount, followingCount,
-                    dbConnection
-                );
-                
-                pointSystem.addExistingUser(user);
+                if (cold) {
+                    Timestamp lastDecay = rs.getTimestamp("last_points_decay_date");
+                    pointSystem.addColdUser(rs.getString("user_id"), rs.getInt("total_points"),
+                        MembershipTier.getTierById(rs.getInt("tier_id")),
+                        EpochDays.of(lastDecay != null ? lastDecay.toLocalDateTime() : null));
+                } else {
+                    pointSystem.addExistingUser(readUser(rs));
+                }
             }
-            
-            rs.close();
-            stmt.close();
         } catch (SQLException e) {
             System.err.println("Error initializing from database: " + e.getMessage());
         }
+        pointSystem.getEventDeduplicator().loadRecent(pointSystem.getClock().millis());
+    }
+
+    // Load one user with its badges and challenges, e.g. to fault an evicted user back in
+    public User loadUser(String userId) {
+        String sql = "SELECT * FROM users WHERE user_id = ?";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            stmt.setString(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readUser(rs) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading user: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private User readUser(ResultSet rs) throws SQLException {
+        String userId = rs.getString("user_id");
+        String username = rs.getString("username");
+        int totalPoints = rs.getInt("total_points");
+        int tierId = rs.getInt("tier_id");
+        Timestamp lastLogin = rs.getTimestamp("last_login_date");
+        Timestamp lastDecay = rs.getTimestamp("last_points_decay_date");
+        int loginStreak = rs.getInt("current_login_streak");
+        int followersCount = rs.getInt("followers_count");
+        int followingCount = rs.getInt("following_count");
+        
+        return new User(
+            userId, username, totalPoints, 
+            MembershipTier.getTierById(tierId),
+            lastLogin != null ? lastLogin.toLocalDateTime() : null,
+            lastDecay != null ? lastDecay.toLocalDateTime() : null,
+            loginStreak, followersCount, followingCount,
+            dbConnection
+        );
+    }
+
+    // Keep only recently active users in memory, reloading evicted ones from the database.
+    // Call before initializeFromDatabase so that users start out cold.
+    public UserResidencyManager enableResidency(int maxResidentUsers, long minIdleMillis) {
+        UserResidencyManager residency = pointSystem.enableResidency(this::loadUser, maxResidentUsers, minIdleMillis);
+        residency.startBackgroundEviction(RESIDENCY_SWEEP_PERIOD_MILLIS);
+        return residency;
     }
 
     // Process a new user registration
     public User registerNewUser(String userId, String username) {
-        try {
-            // Insert into database
-            String sql = "INSERT INTO users (user_id, username, total_points, tier_id, " +
-                        "last_login_date, last_points_decay_date, current_login_streak, " +
-                        "followers_count, following_count) VALUES (?, ?, 0, 1, ?, ?, 0, 0, 0)";
-            
-            PreparedStatement stmt = dbConnection.prepareStatement(sql);
+        PointStore store = pointSystem.getPointStore();
+        if (store != null) {
+            store.insertUser(userId, username, LocalDateTime.now(pointSystem.getClock()));
+            return pointSystem.registerUser(userId, username);
+        }
+        if (dbConnection == null) {
+            return pointSystem.registerUser(userId, username);
+        }
+        // Insert into database
+        String sql = "INSERT INTO users (user_id, username, total_points, tier_id, " +
+                    "last_login_date, last_points_decay_date, current_login_streak, " +
+                    "followers_count, following_count) VALUES (?, ?, 0, 1, ?, ?, 0, 0, 0)";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
             stmt.setString(1, userId);
             stmt.setString(2, username);
-            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now(pointSystem.getClock())));
+            stmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now(pointSystem.getClock())));
             stmt.executeUpdate();
-            stmt.close();
             
             // Create and register user in memory
             return pointSystem.registerUser(userId, username);
@@ -109,11 +146,23 @@ public class PointSystemAlgorithm {
     }
 
     // Process user login
-    public void processUserLogin(String userId) {
-        User user = pointSystem.getUser(userId);
-        if (user != null) {
-            user.login();
-        }
+    public int processUserLogin(String userId) {
+        return pointSystem.processLogin(userId);
+    }
+
+    // Flush buffered login and badge writes, e.g. before shutdown
+    public void flushPendingWrites() {
+        pointSystem.flushPendingWrites();
+    }
+
+    // Route per-user writes through a pooled store instead of the shared connection
+    public void setPointStore(PointStore pointStore) {
+        pointSystem.setPointStore(pointStore);
+    }
+
+    // Run decay, lucky draws and surprise rewards as set-based SQL on a dedicated connection
+    public void setPushdownConnection(Connection pushdownConnection) {
+        pointSystem.setPushdownConnection(pushdownConnection);
     }
 
     // Process user activity
@@ -124,10 +173,30 @@ public class PointSystemAlgorithm {
         }
     }
 
+    // Process user activity and award points
+    public int processActivity(String userId, String itemId, ActivityType type, double amount) {
+        return pointSystem.processActivity(userId, itemId, type, amount);
+    }
+
+    // Process an activity at most once per event id within the dedup window
+    public int processActivity(String userId, String itemId, ActivityType type, double amount, String eventId) {
+        return pointSystem.processActivity(userId, itemId, type, amount, eventId);
+    }
+
+    // Re-evaluate achievement badges for all users
+    public int reevaluateBadges() {
+        return pointSystem.reevaluateBadges();
+    }
+
     // Get user statistics
     public String getUserStats(String userId) {
-        User user = pointSystem.getUser(userId);
-        return user != null ? user.getUserStatsAsString() : "User not found";
+        UserStatsSnapshot stats = pointSystem.getUserStats(userId);
+        return stats != null ? stats.asString() : "User not found";
+    }
+
+    // Get user statistics as a cached snapshot
+    public UserStatsSnapshot getUserStatsSnapshot(String userId) {
+        return pointSystem.getUserStats(userId);
     }
 
     // Get leaderboard
@@ -135,6 +204,16 @@ public class PointSystemAlgorithm {
         return pointSystem.getTopUsers(limit);
     }
 
+    // Get daily, weekly or all-time leaderboard, optionally within a tier
+    public List<LeaderboardEntry> getLeaderboard(MembershipTier tier, LeaderboardWindow window, int limit) {
+        return pointSystem.getLeaderboard(tier, window, limit);
+    }
+
+    // Get a user's percentile by total points
+    public double getPercentile(String userId) {
+        return pointSystem.getPercentile(userId);
+    }
+
     // Get users by tier
     public List<User> getUsersByTier(MembershipTier tier) {
         return pointSystem.getUsersByTier(tier);
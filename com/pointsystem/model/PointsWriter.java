@@ -0,0 +1,101 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batched write-behind for awarded points: point_history rows are inserted in JDBC
+ * batches and each user's total_points is coalesced to its latest value.
+ */
+public class PointsWriter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Connection dbConnection;
+    private final int batchSize;
+    private final CoalescingWriter<Integer> totals;
+    private List<PendingPoints> pending;
+
+    private static final class PendingPoints {
+        final String userId;
+        final int points;
+        final PointType pointType;
+        final long earnedAtMillis;
+
+        PendingPoints(String userId, int points, PointType pointType, long earnedAtMillis) {
+            this.userId = userId;
+            this.points = points;
+            this.pointType = pointType;
+            this.earnedAtMillis = earnedAtMillis;
+        }
+    }
+
+    public PointsWriter(Connection dbConnection, int batchSize) {
+        this.dbConnection = dbConnection;
+        this.batchSize = batchSize;
+        this.totals = new CoalescingWriter<>(dbConnection,
+            "UPDATE users SET total_points = ? WHERE user_id = ?",
+            (stmt, userId, total) -> {
+                stmt.setInt(1, total);
+                stmt.setString(2, userId);
+            },
+            batchSize);
+        this.pending = new ArrayList<>();
+    }
+
+    /**
+     * Records points awarded to a user whose total is now totalPoints.
+     */
+    public void record(String userId, int totalPoints, int points, PointType pointType, long earnedAtMillis) {
+        if (dbConnection == null) {
+            return;
+        }
+        totals.submit(userId, totalPoints);
+        boolean full;
+        synchronized (this) {
+            pending.add(new PendingPoints(userId, points, pointType, earnedAtMillis));
+            full = pending.size() >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes buffered history rows, then the latest totals.
+     */
+    public void flush() {
+        List<PendingPoints> toWrite;
+        synchronized (this) {
+            toWrite = pending;
+            pending = new ArrayList<>();
+        }
+        if (!toWrite.isEmpty()) {
+            write(toWrite);
+        }
+        totals.flush();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private void write(List<PendingPoints> rows) {
+        String sql = "INSERT INTO point_history (user_id, points, point_type, earned_at) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            for (PendingPoints row : rows) {
+                stmt.setString(1, row.userId);
+                stmt.setInt(2, row.points);
+                stmt.setString(3, row.pointType.name());
+                stmt.setTimestamp(4, new Timestamp(row.earnedAtMillis));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("Error persisting point history: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.pointsystem.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buyers per product and members per tier, both as {@link CompactBitmap}s over dense user ids.
+ * Repeat purchases cost nothing, and a promotion draw intersects the buyers with the eligible
+ * tiers container by container, picking a uniform winner by rank/select without copying
+ * either set.
+ */
+public class PurchaseIndex {
+    private final Map<String, CompactBitmap> buyersByProduct;
+    private final Map<MembershipTier, CompactBitmap> membersByTier;
+
+    public PurchaseIndex() {
+        this.buyersByProduct = new ConcurrentHashMap<>();
+        this.membersByTier = new EnumMap<>(MembershipTier.class);
+        for (MembershipTier tier : MembershipTier.values()) {
+            membersByTier.put(tier, new CompactBitmap());
+        }
+    }
+
+    public void recordPurchase(String productId, int denseId) {
+        CompactBitmap buyers = buyersByProduct.computeIfAbsent(productId, _ -> new CompactBitmap());
+        synchronized (buyers) {
+            buyers.add(denseId);
+        }
+    }
+
+    /**
+     * Moves a user between tier bitmaps.
+     * @param previousTier The user's tier before the change, or null for a new user
+     */
+    public synchronized void setTier(int denseId, MembershipTier previousTier, MembershipTier newTier) {
+        if (previousTier == newTier) {
+            return;
+        }
+        if (previousTier != null) {
+            membersByTier.get(previousTier).remove(denseId);
+        }
+        membersByTier.get(newTier).add(denseId);
+    }
+
+    public long getBuyerCount(String productId) {
+        CompactBitmap buyers = buyersByProduct.get(productId);
+        if (buyers == null) {
+            return 0;
+        }
+        synchronized (buyers) {
+            return buyers.cardinality();
+        }
+    }
+
+    public boolean hasPurchased(String productId, int denseId) {
+        CompactBitmap buyers = buyersByProduct.get(productId);
+        if (buyers == null) {
+            return false;
+        }
+        synchronized (buyers) {
+            return buyers.contains(denseId);
+        }
+    }
+
+    /**
+     * Draws a buyer of the product uniformly at random from the given tiers.
+     * @return The winner's dense id, or {@link UserIdRegistry#UNKNOWN} if no buyer is eligible
+     */
+    public synchronized int drawBuyer(String productId, MembershipTier[] eligibleTiers, Random random) {
+        CompactBitmap buyers = buyersByProduct.get(productId);
+        if (buyers == null) {
+            return UserIdRegistry.UNKNOWN;
+        }
+        synchronized (buyers) {
+            long[] counts = new long[eligibleTiers.length];
+            long total = 0;
+            for (int i = 0; i < eligibleTiers.length; i++) {
+                counts[i] = buyers.andCardinality(membersByTier.get(eligibleTiers[i]));
+                total += counts[i];
+            }
+            if (total == 0) {
+                return UserIdRegistry.UNKNOWN;
+            }
+            // Tier bitmaps are disjoint, so a rank in their union falls into exactly one of them
+            long rank = random.nextLong(total);
+            for (int i = 0; i < eligibleTiers.length; i++) {
+                if (rank < counts[i]) {
+                    return buyers.selectAnd(membersByTier.get(eligibleTiers[i]), rank);
+                }
+                rank -= counts[i];
+            }
+            throw new IllegalStateException("Rank beyond eligible buyers");
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Population-wide jobs compiled into set-based SQL on the users table, used by
+ * {@link PointSystem} in pushdown mode. Each job is one transaction of a few statements per
+ * tier instead of a round trip per user, and returns the ids the database selected so the
+ * caller can apply the same change to its in-memory state without writing again.
+ *
+ * Multipliers are bound as doubles so the database rounds exactly as the Java code does.
+ * Tier changes are not written here: the in-memory pass reports them to
+ * {@link TierTransitions}, which writes tier_id with its other buffered changes.
+ * The connection is used by nothing else, so toggling its autocommit cannot pull live
+ * writes into a job's transaction.
+ */
+final class SqlPushdown {
+    private static final int IN_LIST_SIZE = 500;
+
+    private final Connection dbConnection;
+
+    SqlPushdown(Connection dbConnection) {
+        this.dbConnection = dbConnection;
+    }
+
+    /**
+     * Decays every user whose last decay was before dueBefore by its tier's weekly rate.
+     * @return Ids of the decayed users, empty if the job failed and was rolled back
+     */
+    List<String> decay(LocalDateTime dueBefore, LocalDateTime now) {
+        String select = "SELECT user_id FROM users WHERE tier_id = ? AND last_points_decay_date < ?";
+        String update = "UPDATE users SET total_points = FLOOR(total_points * ?), last_points_decay_date = ? "
+            + "WHERE tier_id = ? AND last_points_decay_date < ?";
+        Timestamp due = Timestamp.valueOf(dueBefore);
+        Timestamp decayedAt = Timestamp.valueOf(now);
+        List<String> decayed = new ArrayList<>();
+        List<String> done = inTransaction("Error applying points decay", () -> {
+            for (MembershipTier tier : MembershipTier.values()) {
+                selectIds(select, decayed, tier.getTierId(), due);
+                execute(update, 1 - tier.getWeeklyDecayRate(), decayedAt, tier.getTierId(), due);
+            }
+            return decayed;
+        });
+        return done != null ? done : Collections.emptyList();
+    }
+
+    /**
+     * Multiplies the points of users in the given tiers with lowPoints <= points < highPoints
+     * by their tier multiplier, recording the bonus in point_history.
+     * @return Ids of all eligible users, including those whose multiplier added nothing,
+     *         empty if the job failed and was rolled back
+     */
+    List<String> luckyDraw(int lowPoints, int highPoints, MembershipTier[] tiers, LocalDateTime now) {
+        String filter = " WHERE tier_id = ? AND total_points >= ? AND total_points < ?";
+        String gains = " AND FLOOR(total_points * ?) > total_points";
+        String select = "SELECT user_id FROM users" + filter;
+        String insertHistory = "INSERT INTO point_history (user_id, points, point_type, earned_at) "
+            + "SELECT user_id, FLOOR(total_points * ?) - total_points, ?, ? FROM users" + filter + gains;
+        String update = "UPDATE users SET total_points = FLOOR(total_points * ?)" + filter + gains;
+        Timestamp earnedAt = Timestamp.valueOf(now);
+        String pointType = PointType.EXPIRING.name();
+        List<String> eligible = new ArrayList<>();
+        List<String> done = inTransaction("Error conducting lucky draw", () -> {
+            for (MembershipTier tier : tiers) {
+                int tierId = tier.getTierId();
+                double multiplier = tier.getPointMultiplier();
+                selectIds(select, eligible, tierId, lowPoints, highPoints);
+                execute(insertHistory, multiplier, pointType, earnedAt, tierId, lowPoints, highPoints, multiplier);
+                execute(update, multiplier, tierId, lowPoints, highPoints, multiplier);
+            }
+            return eligible;
+        });
+        return done != null ? done : Collections.emptyList();
+    }
+
+    /**
+     * Credits each group of users with the points it is keyed by, recording the points in
+     * point_history and the reward text in user_rewards.
+     * @return false if the job failed and was rolled back
+     */
+    boolean creditRewards(Map<Integer, List<String>> usersByPoints, LocalDateTime now) {
+        String update = "UPDATE users SET total_points = total_points + ? WHERE user_id IN ";
+        String insertHistory = "INSERT INTO point_history (user_id, points, point_type, earned_at) "
+            + "SELECT user_id, ?, ?, ? FROM users WHERE user_id IN ";
+        String insertReward = "INSERT INTO user_rewards (user_id, reward) SELECT user_id, ? FROM users WHERE user_id IN ";
+        Timestamp earnedAt = Timestamp.valueOf(now);
+        String pointType = PointType.EXPIRING.name();
+        List<String> done = inTransaction("Error generating surprise rewards", () -> {
+            for (Map.Entry<Integer, List<String>> group : usersByPoints.entrySet()) {
+                int points = group.getKey();
+                String reward = "Surprise Reward: " + points + " points!";
+                List<String> ids = group.getValue();
+                for (int from = 0; from < ids.size(); from += IN_LIST_SIZE) {
+                    List<String> chunk = ids.subList(from, Math.min(ids.size(), from + IN_LIST_SIZE));
+                    String in = inList(chunk.size());
+                    executeIn(insertReward + in, chunk, reward);
+                    executeIn(update + in, chunk, points);
+                    executeIn(insertHistory + in, chunk, points, pointType, earnedAt);
+                }
+            }
+            return Collections.emptyList();
+        });
+        return done != null;
+    }
+
+    private static String inList(int size) {
+        StringBuilder sql = new StringBuilder(size * 3).append('(');
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private interface Job {
+        List<String> run() throws SQLException;
+    }
+
+    /**
+     * Runs the job in one transaction on the pushdown connection, one job at a time.
+     * @return The job's result, or null if it failed and was rolled back
+     */
+    private List<String> inTransaction(String errorMessage, Job job) {
+        synchronized (dbConnection) {
+            try {
+                boolean autoCommit = dbConnection.getAutoCommit();
+                dbConnection.setAutoCommit(false);
+                try {
+                    List<String> result = job.run();
+                    dbConnection.commit();
+                    return result;
+                } catch (SQLException e) {
+                    dbConnection.rollback();
+                    throw e;
+                } finally {
+                    dbConnection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                System.err.println(errorMessage + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private void selectIds(String sql, List<String> ids, Object... params) throws SQLException {
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            bind(stmt, 1, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString(1));
+                }
+            }
+        }
+    }
+
+    private void execute(String sql, Object... params) throws SQLException {
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            bind(stmt, 1, params);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Binds params, then the ids of the trailing IN list
+    private void executeIn(String sql, List<String> ids, Object... params) throws SQLException {
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            int index = bind(stmt, 1, params);
+            for (String id : ids) {
+                stmt.setString(index++, id);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int bind(PreparedStatement stmt, int index, Object... params) throws SQLException {
+        for (Object param : params) {
+            stmt.setObject(index++, param);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,176 @@
+package com.pointsystem.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tier changes of users, reported by {@link PointSystem} after its indices reflect them.
+ *
+ * Each change is handed to the registered listeners and its tier_id write is buffered,
+ * keeping only the latest tier per user. {@link #flush()} writes the buffer grouped by tier,
+ * through the {@link PointStore} if one is set and otherwise as JDBC batches. A group whose
+ * batch fails goes back into the buffer unless a newer tier was recorded in the meantime.
+ */
+public class TierTransitions {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final Connection dbConnection;
+    private final int batchSize;
+    private final List<TierChangeListener> listeners;
+    private final Map<String, MembershipTier> pending;
+    private volatile PointStore pointStore;
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+
+    public interface TierChangeListener {
+        void onTierChanged(String userId, MembershipTier previousTier, MembershipTier newTier);
+    }
+
+    public TierTransitions(Connection dbConnection, int batchSize) {
+        this.dbConnection = dbConnection;
+        this.batchSize = batchSize;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    public void addListener(TierChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TierChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    void setPointStore(PointStore pointStore) {
+        this.pointStore = pointStore;
+    }
+
+    /**
+     * Reports a tier change and buffers its tier_id write.
+     */
+    void record(String userId, MembershipTier previousTier, MembershipTier newTier) {
+        if (previousTier == newTier) {
+            return;
+        }
+        (newTier.ordinal() > previousTier.ordinal() ? promotions : demotions).increment();
+        if (dbConnection != null || pointStore != null) {
+            pending.put(userId, newTier);
+        }
+        for (TierChangeListener listener : listeners) {
+            listener.onTierChanged(userId, previousTier, newTier);
+        }
+    }
+
+    /**
+     * Writes all buffered tier changes.
+     * @return Number of users written
+     */
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<MembershipTier, List<String>> byTier = new EnumMap<>(MembershipTier.class);
+        Iterator<Map.Entry<String, MembershipTier>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, MembershipTier> entry = it.next();
+            // Only drop the entry if no newer tier replaced it in the meantime
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                byTier.computeIfAbsent(entry.getValue(), _ -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        int written = 0;
+        PointStore store = pointStore;
+        for (Map.Entry<MembershipTier, List<String>> group : byTier.entrySet()) {
+            if (store != null) {
+                store.updateTiers(group.getValue(), group.getKey());
+            } else {
+                try {
+                    write(group.getValue(), group.getKey());
+                } catch (SQLException e) {
+                    System.err.println("Error updating user tier: " + e.getMessage());
+                    // Retried with the next flush unless a newer tier was recorded meanwhile
+                    for (String userId : group.getValue()) {
+                        pending.putIfAbsent(userId, group.getKey());
+                    }
+                    continue;
+                }
+            }
+            written += group.getValue().size();
+        }
+        rowsWritten.add(written);
+        return written;
+    }
+
+    public synchronized void start(long periodMillis) {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tier-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        ScheduledExecutorService toStop;
+        synchronized (this) {
+            toStop = flusher;
+            flusher = null;
+        }
+        if (toStop != null) {
+            toStop.shutdown();
+        }
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+
+    public long getDemotionCount() {
+        return demotions.sum();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    private void write(List<String> userIds, MembershipTier tier) throws SQLException {
+        try (PreparedStatement stmt = dbConnection.prepareStatement("UPDATE users SET tier_id = ? WHERE user_id = ?")) {
+            int batched = 0;
+            for (String userId : userIds) {
+                stmt.setInt(1, tier.getTierId());
+                stmt.setString(2, userId);
+                stmt.addBatch();
+                if (++batched == batchSize) {
+                    stmt.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+}
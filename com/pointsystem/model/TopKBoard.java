@@ -0,0 +1,110 @@
+package com.pointsystem.model;
+
+/**
+ * Bounded top-K ranking of dense user ids by score, kept sorted (highest first) in
+ * parallel arrays with a position index. An update only moves the entries the user
+ * passes, and reading the board is O(K).
+ *
+ * Scores are expected to only grow within a period. A member whose score drops keeps
+ * its place relative to the other members, but a non-member that now outranks it is
+ * only admitted on its next update; callers rebuild the board after bulk decreases.
+ */
+class TopKBoard {
+    private final int capacity;
+    private final int[] ids;
+    private final int[] scores;
+    private final IntIntHashMap positions;
+    private int size;
+    private int period;
+
+    TopKBoard(int capacity) {
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.scores = new int[capacity];
+        this.positions = new IntIntHashMap(capacity, -1);
+        this.period = Integer.MIN_VALUE;
+    }
+
+    void update(int id, int score, int currentPeriod) {
+        rollTo(currentPeriod);
+        int pos = positions.get(id);
+        if (pos < 0) {
+            if (size < capacity) {
+                pos = size++;
+            } else if (score > scores[size - 1]) {
+                pos = size - 1;
+                positions.remove(ids[pos]);
+            } else {
+                return;
+            }
+            ids[pos] = id;
+        }
+        scores[pos] = score;
+        positions.put(id, pos);
+        siftUp(pos);
+        siftDown(positions.get(id));
+    }
+
+    void remove(int id) {
+        int pos = positions.remove(id);
+        if (pos < 0) {
+            return;
+        }
+        for (int i = pos; i < size - 1; i++) {
+            ids[i] = ids[i + 1];
+            scores[i] = scores[i + 1];
+            positions.put(ids[i], i);
+        }
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+        positions.clear();
+    }
+
+    int size(int currentPeriod) {
+        rollTo(currentPeriod);
+        return size;
+    }
+
+    int idAt(int rank) {
+        return ids[rank];
+    }
+
+    int scoreAt(int rank) {
+        return scores[rank];
+    }
+
+    private void rollTo(int currentPeriod) {
+        if (period != currentPeriod) {
+            clear();
+            period = currentPeriod;
+        }
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0 && scores[pos] > scores[pos - 1]) {
+            swap(pos, pos - 1);
+            pos--;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (pos < size - 1 && scores[pos] < scores[pos + 1]) {
+            swap(pos, pos + 1);
+            pos++;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        int score = scores[a];
+        ids[a] = ids[b];
+        scores[a] = scores[b];
+        ids[b] = id;
+        scores[b] = score;
+        positions.put(ids[a], a);
+        positions.put(ids[b], b);
+    }
+}
@@ -0,0 +1,197 @@
+package com.pointsystem.model;
+
+import java.util.Arrays;
+
+/**
+ * Streaming trending detection from engagement velocity.
+ *
+ * Each item has an exponentially decayed engagement score: every event first decays the score
+ * by the time since the item's previous event and then adds the event's weight, so a steady
+ * rate r settles at a score of r times the mean lifetime. When the velocity the score implies
+ * reaches the threshold, the item is handed to the listener, and again once every
+ * {@code TRENDING_MILLIS} while it stays that fast.
+ *
+ * Scores live in a fixed open-addressing table split into lock stripes. An item probes a
+ * short run of slots within its stripe; when the run is full, the item with the lowest
+ * decayed score is replaced, so memory is bounded and only cold items are forgotten.
+ * Recording an event allocates nothing.
+ */
+public final class TrendingDetector {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final long DEFAULT_HALF_LIFE_MILLIS = 10 * 60 * 1000L;
+    public static final double DEFAULT_THRESHOLD_PER_MINUTE = 100.0;
+    public static final long TRENDING_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final int STRIPES = 64;
+    private static final int PROBE_LIMIT = 8;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final String[] keys;
+    private final double[] scores;
+    private final long[] updatedAt;
+    private final long[] promotedAt;
+    private final Object[] locks;
+    private final int stripeBits;
+    private final int stripeMask;
+    private final double decayPerMilli;
+    private volatile double scoreThreshold;
+    private final TrendingListener listener;
+
+    public interface TrendingListener {
+        void onTrending(String itemId, double velocityPerMinute);
+    }
+
+    public TrendingDetector(TrendingListener listener) {
+        this(DEFAULT_CAPACITY, DEFAULT_HALF_LIFE_MILLIS, DEFAULT_THRESHOLD_PER_MINUTE, listener);
+    }
+
+    /**
+     * @param capacity Items tracked at once, rounded up to a power of two of at least 64 * 8
+     * @param halfLifeMillis Time for an item's score to halve without new engagement
+     * @param thresholdPerMinute Weighted events per minute at which an item starts trending
+     */
+    public TrendingDetector(int capacity, long halfLifeMillis, double thresholdPerMinute, TrendingListener listener) {
+        int size = Integer.highestOneBit(Math.max(STRIPES * PROBE_LIMIT, capacity - 1)) << 1;
+        this.keys = new String[size];
+        this.scores = new double[size];
+        this.updatedAt = new long[size];
+        this.promotedAt = new long[size];
+        Arrays.fill(promotedAt, NEVER);
+        this.locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.stripeBits = Integer.numberOfTrailingZeros(size / STRIPES);
+        this.stripeMask = size / STRIPES - 1;
+        this.decayPerMilli = Math.log(2) / halfLifeMillis;
+        this.listener = listener;
+        setThresholdPerMinute(thresholdPerMinute);
+    }
+
+    /**
+     * Weight of an activity towards engagement velocity; 0 for activities that do not count.
+     */
+    public static int weightOf(ActivityType activityType) {
+        switch (activityType) {
+            case LIKE:
+            case VIDEO_WATCH:
+                return 1;
+            case COMMENT:
+                return 2;
+            case SHARE:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    public void record(String itemId, ActivityType activityType, long nowMillis) {
+        int weight = weightOf(activityType);
+        if (itemId != null && weight > 0) {
+            record(itemId, weight, nowMillis);
+        }
+    }
+
+    public void record(String itemId, int weight, long nowMillis) {
+        int hash = mix(itemId.hashCode());
+        int stripe = hash >>> (32 - Integer.numberOfTrailingZeros(STRIPES));
+        int base = stripe << stripeBits;
+        double promotedScore = -1;
+        synchronized (locks[stripe]) {
+            int slot = findSlot(itemId, hash, base, nowMillis);
+            double score;
+            if (keys[slot] == itemId || itemId.equals(keys[slot])) {
+                score = decayed(slot, nowMillis) + weight;
+            } else {
+                keys[slot] = itemId;
+                promotedAt[slot] = NEVER;
+                score = weight;
+            }
+            scores[slot] = score;
+            updatedAt[slot] = nowMillis;
+            if (score >= scoreThreshold
+                && (promotedAt[slot] == NEVER || nowMillis - promotedAt[slot] >= TRENDING_MILLIS)) {
+                promotedAt[slot] = nowMillis;
+                promotedScore = score;
+            }
+        }
+        if (promotedScore >= 0 && listener != null) {
+            listener.onTrending(itemId, toPerMinute(promotedScore));
+        }
+    }
+
+    /**
+     * Current decayed engagement velocity of an item in weighted events per minute,
+     * 0 if the item is not tracked.
+     */
+    public double velocityOf(String itemId, long nowMillis) {
+        int hash = mix(itemId.hashCode());
+        int stripe = hash >>> (32 - Integer.numberOfTrailingZeros(STRIPES));
+        int base = stripe << stripeBits;
+        synchronized (locks[stripe]) {
+            for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+                int slot = base + ((hash + probe) & stripeMask);
+                if (keys[slot] == null) {
+                    return 0;
+                }
+                if (itemId.equals(keys[slot])) {
+                    return toPerMinute(decayed(slot, nowMillis));
+                }
+            }
+        }
+        return 0;
+    }
+
+    public void setThresholdPerMinute(double thresholdPerMinute) {
+        this.scoreThreshold = thresholdPerMinute / (decayPerMilli * 60_000);
+    }
+
+    public double getThresholdPerMinute() {
+        return toPerMinute(scoreThreshold);
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * The item's slot, an empty slot in its probe run, or the run's slot with the lowest score.
+     * Slots are never emptied, so an empty slot ends the run.
+     */
+    private int findSlot(String itemId, int hash, int base, long nowMillis) {
+        int weakest = -1;
+        double weakestScore = Double.MAX_VALUE;
+        for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+            int slot = base + ((hash + probe) & stripeMask);
+            String key = keys[slot];
+            if (key == null || key == itemId || key.equals(itemId)) {
+                return slot;
+            }
+            double score = decayed(slot, nowMillis);
+            if (score < weakestScore) {
+                weakestScore = score;
+                weakest = slot;
+            }
+        }
+        return weakest;
+    }
+
+    private double decayed(int slot, long nowMillis) {
+        long elapsed = nowMillis - updatedAt[slot];
+        return elapsed <= 0 ? scores[slot] : scores[slot] * Math.exp(-decayPerMilli * elapsed);
+    }
+
+    private double toPerMinute(double score) {
+        return score * decayPerMilli * 60_000;
+    }
+
+    // Murmur3 finalizer; the high bits pick the stripe and the low bits the slot within it
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -1,21 +1,38 @@
 package com.pointsystem.model;
 
+import com.pointsystem.event.BadgeEarned;
+import com.pointsystem.event.EventBus;
+import com.pointsystem.event.RewardGranted;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class User implements Comparable<User> {
     private String userId;
     private String username;
     private int totalPoints;
     private MembershipTier tier;
-    private LocalDateTime lastLoginDate;
-    private LocalDateTime lastPointsDecayDate;
-    private int currentLoginStreak;
+    private volatile LocalDateTime lastLoginDate;
+    private volatile LocalDateTime lastPointsDecayDate;
+    private final AtomicLong loginState; // last login epoch day (high 32 bits), streak (low 32 bits)
+    private final AtomicInteger lastDecayDay;
     private List<Activity> activityHistory;
     private int followersCount;
     private int followingCount;
@@ -24,11 +41,16 @@ public class User implements Comparable<User> {
     private Set<String> participatingChallenges;
     private LocalDateTime lastSurpriseDropCheck;
     private Connection dbConnection;
-    private List<String> following;
-    private List<String> followers;
-    private Map<String, Integer> commentCountByPost;
-    private Map<String, Integer> tagCountByPost;
-    private Map<String, Integer> watchTimeByVideo;
+    private Set<String> following;
+    private Set<String> followers;
+    private int denseId = UserIdRegistry.UNKNOWN;
+    private ZoneId zoneId = ZoneId.systemDefault();
+    private PointChangeListener pointChangeListener;
+    private EventBus eventBus;
+    private final AtomicLong version = new AtomicLong();
+    private Clock clock = Clock.systemDefaultZone();
+    private Random random; // null draws from Math.random
+    private PointStore pointStore; // null writes through dbConnection
 
     public User(String userId, String username, int totalPoints, MembershipTier tier, 
                 LocalDateTime lastLoginDate, LocalDateTime lastPointsDecayDate, 
@@ -39,20 +61,18 @@ public class User implements Comparable<User> {
         this.tier = tier;
         this.lastLoginDate = lastLoginDate;
         this.lastPointsDecayDate = lastPointsDecayDate;
-        this.currentLoginStreak = currentLoginStreak;
+        this.loginState = new AtomicLong(packLoginState(EpochDays.of(lastLoginDate), currentLoginStreak));
+        this.lastDecayDay = new AtomicInteger(EpochDays.of(lastPointsDecayDate));
         this.followersCount = followersCount;
         this.followingCount = followingCount;
         this.activityHistory = new ArrayList<>();
         this.earnedBadges = new HashMap<>();
-        this.activityCounts = new HashMap<>();
+        this.activityCounts = new ConcurrentHashMap<>();
         this.participatingChallenges = new HashSet<>();
-        this.lastSurpriseDropCheck = LocalDateTime.now();
+        this.lastSurpriseDropCheck = LocalDateTime.now(clock);
         this.dbConnection = dbConnection;
-        this.following = new ArrayList<>();
-        this.followers = new ArrayList<>();
-        this.commentCountByPost = new HashMap<>();
-        this.tagCountByPost = new HashMap<>();
-        this.watchTimeByVideo = new HashMap<>();
+        this.following = new LinkedHashSet<>();
+        this.followers = new LinkedHashSet<>();
         
         // Initialize activity counts
         activityCounts.put("posts", 0);
@@ -60,6 +80,7 @@ public class User implements Comparable<User> {
         activityCounts.put("comments", 0);
         activityCounts.put("likes", 0);
         activityCounts.put("trendingPosts", 0);
+        activityCounts.put("likesReceived", 0);
         
         // Load earned badges from database
         loadEarnedBadges();
@@ -69,25 +90,32 @@ public class User implements Comparable<User> {
     }
 
     public User(String userId, String username) {
+        this(userId, username, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a new user whose time-dependent rules (decay, surprise drops, activity
+     * timestamps) read the given clock.
+     */
+    public User(String userId, String username, Clock clock) {
         this.userId = userId;
         this.username = username;
+        this.clock = clock;
         this.totalPoints = 0;
         this.tier = MembershipTier.BRONZE;
         this.lastLoginDate = null;
-        this.lastPointsDecayDate = LocalDateTime.now();
-        this.currentLoginStreak = 0;
+        this.lastPointsDecayDate = LocalDateTime.now(clock);
+        this.loginState = new AtomicLong(packLoginState(EpochDays.NONE, 0));
+        this.lastDecayDay = new AtomicInteger(EpochDays.of(lastPointsDecayDate));
         this.followersCount = 0;
         this.followingCount = 0;
         this.activityHistory = new ArrayList<>();
         this.earnedBadges = new HashMap<>();
-        this.activityCounts = new HashMap<>();
+        this.activityCounts = new ConcurrentHashMap<>();
         this.participatingChallenges = new HashSet<>();
-        this.lastSurpriseDropCheck = LocalDateTime.now();
-        this.following = new ArrayList<>();
-        this.followers = new ArrayList<>();
-        this.commentCountByPost = new HashMap<>();
-        this.tagCountByPost = new HashMap<>();
-        this.watchTimeByVideo = new HashMap<>();
+        this.lastSurpriseDropCheck = LocalDateTime.now(clock);
+        this.following = new LinkedHashSet<>();
+        this.followers = new LinkedHashSet<>();
         
         // Initialize activity counts
         activityCounts.put("posts", 0);
@@ -95,6 +123,7 @@ public class User implements Comparable<User> {
         activityCounts.put("comments", 0);
         activityCounts.put("likes", 0);
         activityCounts.put("trendingPosts", 0);
+        activityCounts.put("likesReceived", 0);
         
         // Initialize all badges as not earned
         for (AchievementBadge badge : AchievementBadge.values()) {
@@ -103,46 +132,46 @@ public class User implements Comparable<User> {
     }
 
     private void loadEarnedBadges() {
-        try {
-            String sql = "SELECT badge_id FROM user_badges WHERE user_id = ?";
-            PreparedStatement stmt = dbConnection.prepareStatement(sql);
-            stmt.setString(1, userId);
-            ResultSet rs = stmt.executeQuery();
-            
-            // Initialize all badges as not earned
+        if (dbConnection == null) {
             for (AchievementBadge badge : AchievementBadge.values()) {
                 earnedBadges.put(badge, false);
             }
-            
-            // Mark earned badges
-            while (rs.next()) {
-                int badgeId = rs.getInt("badge_id");
-                AchievementBadge badge = AchievementBadge.getBadgeById(badgeId);
-                if (badge != null) {
-                    earnedBadges.put(badge, true);
+            return;
+        }
+        // Initialize all badges as not earned
+        for (AchievementBadge badge : AchievementBadge.values()) {
+            earnedBadges.put(badge, false);
+        }
+        String sql = "SELECT badge_id FROM user_badges WHERE user_id = ?";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
+            stmt.setString(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                // Mark earned badges
+                while (rs.next()) {
+                    int badgeId = rs.getInt("badge_id");
+                    AchievementBadge badge = AchievementBadge.getBadgeById(badgeId);
+                    if (badge != null) {
+                        earnedBadges.put(badge, true);
+                    }
                 }
             }
-            
-            rs.close();
-            stmt.close();
         } catch (SQLException e) {
             System.err.println("Error loading earned badges: " + e.getMessage());
         }
     }
     
     private void loadParticipatingChallenges() {
-        try {
-            String sql = "SELECT challenge_id FROM challenge_participants WHERE user_id = ?";
-            PreparedStatement stmt = dbConnection.prepareStatement(sql);
+        if (dbConnection == null) {
+            return;
+        }
+        String sql = "SELECT challenge_id FROM challenge_participants WHERE user_id = ?";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
             stmt.setString(1, userId);
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                participatingChallenges.add(rs.getString("challenge_id"));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    participatingChallenges.add(rs.getString("challenge_id"));
+                }
             }
-            
-            rs.close();
-            stmt.close();
         } catch (SQLException e) {
             System.err.println("Error loading participating challenges: " + e.getMessage());
         }
@@ -155,14 +184,63 @@ public class User implements Comparable<User> {
     }
 
     public void checkAndApplyPointsDecay() {
-        if (lastPointsDecayDate != null) {
-            long daysSinceLastDecay = ChronoUnit.DAYS.between(lastPointsDecayDate, LocalDateTime.now());
-            if (daysSinceLastDecay >= 7) { // Apply decay every week
-                double decayRate = tier.getWeeklyDecayRate();
-                totalPoints = (int) (totalPoints * (1 - decayRate));
-                lastPointsDecayDate = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now(clock);
+        applyDecayIfDue(EpochDays.of(now), now);
+    }
+
+    /**
+     * Applies the weekly decay if at least 7 days have passed since the last one.
+     * The decay day is claimed with a CAS so concurrent callers decay at most once.
+     * @return true if decay was applied
+     */
+    public boolean applyDecayIfDue(int today, LocalDateTime now) {
+        return applyDecayIfDue(today, now, true);
+    }
+
+    /**
+     * @param notify false when the caller applies the point changes of a whole decay run
+     *               to the shared indices itself instead of through the listener
+     */
+    boolean applyDecayIfDue(int today, LocalDateTime now, boolean notify) {
+        int lastDecay = lastDecayDay.get();
+        if (lastDecay == EpochDays.NONE || today - lastDecay < 7) { // Apply decay every week
+            return false;
+        }
+        if (!lastDecayDay.compareAndSet(lastDecay, today)) {
+            return false;
+        }
+        decay(now, notify);
+        return true;
+    }
+
+    /**
+     * Applies the weekly decay without checking whether it is due, for decay that was
+     * already decided elsewhere (e.g. by a set-based update of the users table).
+     */
+    void applyDecay(int today, LocalDateTime now, boolean notify) {
+        lastDecayDay.set(today);
+        decay(now, notify);
+    }
+
+    // Decay is the only way to lose points, so it is where a user drops below their tier
+    private void decay(LocalDateTime now, boolean notify) {
+        int delta;
+        MembershipTier previousTier;
+        synchronized (this) {
+            previousTier = tier;
+            double decayRate = tier.getWeeklyDecayRate();
+            int decayed = (int) (totalPoints * (1 - decayRate));
+            delta = decayed - totalPoints;
+            totalPoints = decayed;
+            lastPointsDecayDate = now;
+            if (decayed < tier.getMinPoints()) {
+                tier = MembershipTier.getTierByPoints(decayed);
             }
         }
+        touch();
+        if (notify) {
+            notifyPointsChanged(delta, previousTier);
+        }
     }
 
     public void applyPointsDecay() {
@@ -175,16 +253,92 @@ public class User implements Comparable<User> {
 
     public void setTier(MembershipTier tier) {
         this.tier = tier;
+        touch();
     }
 
     public String getUserId() {
         return userId;
     }
 
+    public String getUsername() {
+        return username;
+    }
+
     public int getTotalPoints() {
         return totalPoints;
     }
 
+    public int getCurrentLoginStreak() {
+        return (int) loginState.get();
+    }
+
+    public LocalDateTime getLastLoginDate() {
+        return lastLoginDate;
+    }
+
+    public LocalDateTime getLastPointsDecayDate() {
+        return lastPointsDecayDate;
+    }
+
+    int getLastDecayDay() {
+        return lastDecayDay.get();
+    }
+
+    public Map<String, Integer> getActivityCounts() {
+        return Collections.unmodifiableMap(activityCounts);
+    }
+
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+
+    public void setZoneId(ZoneId zoneId) {
+        this.zoneId = zoneId;
+    }
+
+    public int getDenseId() {
+        return denseId;
+    }
+
+    void setDenseId(int denseId) {
+        this.denseId = denseId;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    void setRandom(Random random) {
+        this.random = random;
+    }
+
+    void setPointStore(PointStore pointStore) {
+        this.pointStore = pointStore;
+    }
+
+    public boolean hasBadge(AchievementBadge badge) {
+        return Boolean.TRUE.equals(earnedBadges.get(badge));
+    }
+
+    /**
+     * Marks a badge as earned and grants its bonus points.
+     * @return true if the badge was newly earned, false if the user already had it
+     */
+    public boolean awardBadge(AchievementBadge badge) {
+        if (hasBadge(badge)) {
+            return false;
+        }
+        earnedBadges.put(badge, true);
+        touch();
+        addPoints(badge.getBonusPoints(), PointType.PERMANENT);
+        recordActivity(ActivityType.REWARD_EARNED, "Earned badge: " + badge.getName());
+        EventBus bus = eventBus;
+        if (bus != null && bus.hasSubscribers()) {
+            bus.publish(new BadgeEarned(userId, badge, clock.millis()));
+        }
+        return true;
+    }
+
     public void processActivity(ActivityType type, String itemId, double amount) {
         int points = pointSystem.calculatePoints(userId, itemId, type, amount);
         if (points > 0) {
@@ -194,54 +348,158 @@ public class User implements Comparable<User> {
     }
 
     public void addPoints(int points, PointType type) {
+        addPoints(points, type, true);
+    }
+
+    /**
+     * @param persist false when the caller batches the database write itself
+     */
+    void addPoints(int points, PointType type, boolean persist) {
         if (points <= 0) return;
         
         this.totalPoints += points;
-        activityHistory.add(new Activity(ActivityType.valueOf(type.name()), points, "Points added"));
+        touch();
+        activityHistory.add(new Activity(ActivityType.REWARD_EARNED, LocalDateTime.now(clock), points,
+            "Points added (" + type.name() + ")"));
         
         // Update database
-        try {
-            String sql = "UPDATE users SET total_points = ? WHERE user_id = ?";
-            PreparedStatement stmt = dbConnection.prepareStatement(sql);
+        if (persist) {
+            persistPoints(points, type);
+        }
+        
+        // Points only grow here, so only the top of the current tier can be crossed
+        MembershipTier previousTier = tier;
+        if (totalPoints > tier.getMaxPoints()) {
+            setTier(MembershipTier.getTierByPoints(totalPoints));
+        }
+        notifyPointsChanged(points, previousTier);
+    }
+
+    void setPointChangeListener(PointChangeListener pointChangeListener) {
+        this.pointChangeListener = pointChangeListener;
+    }
+
+    void setEventBus(EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    private void notifyPointsChanged(int delta, MembershipTier previousTier) {
+        PointChangeListener listener = pointChangeListener;
+        if (listener != null && (delta != 0 || previousTier != tier)) {
+            listener.onPointsChanged(this, delta, previousTier);
+        }
+    }
+
+    private void persistPoints(int points, PointType type) {
+        persistPoints(dbConnection, pointStore, userId, totalPoints, points, type, LocalDateTime.now(clock));
+    }
+
+    // Shared with the point system, which credits evicted users without loading them
+    static void persistPoints(Connection dbConnection, PointStore store, String userId, int totalPoints,
+                              int points, PointType type, LocalDateTime earnedAt) {
+        if (store != null) {
+            store.recordPoints(userId, totalPoints, points, type, earnedAt);
+            return;
+        }
+        if (dbConnection == null) {
+            return; // In-memory user, e.g. registered without a database
+        }
+        try (PreparedStatement stmt = dbConnection.prepareStatement("UPDATE users SET total_points = ? WHERE user_id = ?")) {
             stmt.setInt(1, totalPoints);
             stmt.setString(2, userId);
             stmt.executeUpdate();
-            stmt.close();
-            
-            // Record point history
-            sql = "INSERT INTO point_history (user_id, points, point_type, earned_at) VALUES (?, ?, ?, ?)";
-            stmt = dbConnection.prepareStatement(sql);
+        } catch (SQLException e) {
+            System.err.println("Error updating points: " + e.getMessage());
+            return;
+        }
+        // Record point history
+        String sql = "INSERT INTO point_history (user_id, points, point_type, earned_at) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
             stmt.setString(1, userId);
             stmt.setInt(2, points);
             stmt.setString(3, type.name());
-            stmt.setTimestamp(4, java.sql.Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setTimestamp(4, java.sql.Timestamp.valueOf(earnedAt));
             stmt.executeUpdate();
-            stmt.close();
         } catch (SQLException e) {
             System.err.println("Error updating points: " + e.getMessage());
         }
-        
-        // Check if tier needs to be updated
-        MembershipTier newTier = MembershipTier.getTierByPoints(totalPoints);
-        if (newTier != tier) {
-            setTier(newTier);
-        }
     }
 
     public void recordActivity(ActivityType type, String details) {
-        activityHistory.add(new Activity(type, 0, details));
+        activityHistory.add(new Activity(type, LocalDateTime.now(clock), 0, details));
+    }
+
+    /**
+     * Counts an activity towards the lifetime totals behind the activity badges. The counts
+     * travel with the user's snapshot, so badges can be re-evaluated after eviction or import.
+     */
+    void countActivity(ActivityType type) {
+        String key = countKey(type);
+        if (key != null) {
+            addCount(key, 1);
+        }
+    }
+
+    // Also called for other users' activities (likes received, trending posts), hence the concurrent map
+    void addCount(String key, int delta) {
+        activityCounts.merge(key, delta, Integer::sum);
+        touch();
+    }
+
+    private static String countKey(ActivityType type) {
+        switch (type) {
+            case POST:
+                return "posts";
+            case VIDEO_POST:
+                return "videoPosts";
+            case COMMENT:
+                return "comments";
+            case LIKE:
+                return "likes";
+            default:
+                return null;
+        }
+    }
+
+    public List<Activity> getActivityHistory() {
+        return Collections.unmodifiableList(activityHistory);
+    }
+
+    // Restore methods below rebuild state from an import without awarding points or writing to the database
+
+    void restoreActivity(Activity activity) {
+        activityHistory.add(activity);
+        countActivity(activity.getType());
+    }
+
+    void restoreBadge(AchievementBadge badge) {
+        earnedBadges.put(badge, true);
+        touch();
+    }
+
+    void restoreChallenge(String challengeId) {
+        if (participatingChallenges.add(challengeId)) {
+            touch();
+        }
     }
 
     public void joinChallenge(String challengeId) {
         if (!participatingChallenges.contains(challengeId)) {
             participatingChallenges.add(challengeId);
-            try {
-                String sql = "INSERT INTO challenge_participants (user_id, challenge_id) VALUES (?, ?)";
-                PreparedStatement stmt = dbConnection.prepareStatement(sql);
+            touch();
+            PointStore store = pointStore;
+            if (store != null) {
+                store.addChallengeParticipant(userId, challengeId);
+                return;
+            }
+            if (dbConnection == null) {
+                return;
+            }
+            String sql = "INSERT INTO challenge_participants (user_id, challenge_id) VALUES (?, ?)";
+            try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
                 stmt.setString(1, userId);
                 stmt.setString(2, challengeId);
                 stmt.executeUpdate();
-                stmt.close();
             } catch (SQLException e) {
                 System.err.println("Error joining challenge: " + e.getMessage());
             }
@@ -253,36 +511,65 @@ public class User implements Comparable<User> {
     }
 
     public void addReward(String reward) {
+        persistReward(dbConnection, pointStore, userId, reward);
+        EventBus bus = eventBus;
+        if (bus != null && bus.hasSubscribers()) {
+            bus.publish(new RewardGranted(userId, reward, clock.millis()));
+        }
+    }
+
+    static void persistReward(Connection dbConnection, PointStore store, String userId, String reward) {
+        if (store != null) {
+            store.addReward(userId, reward);
+            return;
+        }
+        if (dbConnection == null) {
+            return;
+        }
         // Store reward in database
-        try {
-            String sql = "INSERT INTO user_rewards (user_id, reward) VALUES (?, ?)";
-            PreparedStatement stmt = dbConnection.prepareStatement(sql);
+        String sql = "INSERT INTO user_rewards (user_id, reward) VALUES (?, ?)";
+        try (PreparedStatement stmt = dbConnection.prepareStatement(sql)) {
             stmt.setString(1, userId);
             stmt.setString(2, reward);
             stmt.executeUpdate();
-            stmt.close();
         } catch (SQLException e) {
             System.err.println("Error adding reward: " + e.getMessage());
         }
     }
 
     public void login() {
-        LocalDateTime now = LocalDateTime.now();
-        if (lastLoginDate != null) {
-            LocalDateTime lastLogin = lastLoginDate.toLocalDate().atStartOfDay();
-            LocalDateTime today = now.toLocalDate().atStartOfDay();
-            
-            if (lastLogin.equals(today.minusDays(1))) {
-                currentLoginStreak++;
-            } else if (!lastLogin.equals(today)) {
-                currentLoginStreak = 1;
+        LocalDateTime now = LocalDateTime.now(clock);
+        int today = EpochDays.of(now);
+        recordLogin(today, now);
+        applyDecayIfDue(today, now);
+    }
+
+    /**
+     * Updates the login streak for a login on the given epoch day: consecutive days extend
+     * the streak, a gap restarts it at 1 and repeated logins on the same day leave it unchanged.
+     * @return The streak after this login
+     */
+    public int recordLogin(int today, LocalDateTime loginTime) {
+        int streak;
+        while (true) {
+            long state = loginState.get();
+            int lastLogin = (int) (state >>> 32);
+            streak = (int) state;
+            if (lastLogin == today && streak > 0) {
+                break;
+            }
+            streak = (lastLogin == today - 1 && streak > 0) ? streak + 1 : 1;
+            if (loginState.compareAndSet(state, packLoginState(today, streak))) {
+                break;
             }
-        } else {
-            currentLoginStreak = 1;
         }
-        
-        lastLoginDate = now;
-        checkAndApplyPointsDecay();
+        lastLoginDate = loginTime;
+        touch();
+        return streak;
+    }
+
+    private static long packLoginState(int epochDay, int streak) {
+        return ((long) epochDay << 32) | (streak & 0xFFFFFFFFL);
     }
 
     public Map<String, Object> getUserStats() {
@@ -291,7 +578,7 @@ public class User implements Comparable<User> {
         stats.put("username", username);
         stats.put("totalPoints", totalPoints);
         stats.put("tier", tier);
-        stats.put("loginStreak", currentLoginStreak);
+        stats.put("loginStreak", getCurrentLoginStreak());
         stats.put("followersCount", followersCount);
         stats.put("followingCount", followingCount);
         stats.put("activityCounts", activityCounts);
@@ -301,25 +588,43 @@ public class User implements Comparable<User> {
     }
 
     public String getUserStatsAsString() {
-        Map<String, Object> stats = getUserStats();
-        StringBuilder sb = new StringBuilder();
-        sb.append("User Stats:\n");
-        sb.append("ID: ").append(stats.get("userId")).append("\n");
-        sb.append("Username: ").append(stats.get("username")).append("\n");
-        sb.append("Points: ").append(stats.get("totalPoints")).append("\n");
-        sb.append("Tier: ").append(stats.get("tier")).append("\n");
-        sb.append("Login Streak: ").append(stats.get("loginStreak")).append("\n");
-        sb.append("Followers: ").append(stats.get("followersCount")).append("\n");
-        sb.append("Following: ").append(stats.get("followingCount")).append("\n");
-        return sb.toString();
+        return snapshotStats().asString();
+    }
+
+    /**
+     * Captures the current stats as an immutable snapshot tagged with the version it was
+     * read at. The version is read first, so a concurrent change leaves the snapshot stale
+     * rather than mislabelled.
+     */
+    public UserStatsSnapshot snapshotStats() {
+        long snapshotVersion = version.get();
+        return new UserStatsSnapshot(snapshotVersion, userId, username, totalPoints, tier,
+            getCurrentLoginStreak(), followersCount, followingCount,
+            activityCounts, earnedBadges, participatingChallenges);
+    }
+
+    /**
+     * Version stamp bumped by every mutation that is visible in the user's stats.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    private void touch() {
+        version.incrementAndGet();
     }
 
     // Surprise drop methods
+    public LocalDateTime getLastSurpriseDropCheck() {
+        return lastSurpriseDropCheck;
+    }
+
     public boolean checkSurpriseDrop() {
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now(clock);
         if (ChronoUnit.HOURS.between(lastSurpriseDropCheck, now) >= 24) {
             lastSurpriseDropCheck = now;
-            return Math.random() < 0.1; // 10% chance of surprise drop
+            double draw = random != null ? random.nextDouble() : Math.random();
+            return draw < 0.1; // 10% chance of surprise drop
         }
         return false;
     }
@@ -329,12 +634,14 @@ public class User implements Comparable<User> {
         if (!following.contains(userId)) {
             following.add(userId);
             followingCount++;
+            touch();
         }
     }
 
     public void unfollowUser(String userId) {
         if (following.remove(userId)) {
             followingCount--;
+            touch();
         }
     }
 
@@ -342,12 +649,14 @@ public class User implements Comparable<User> {
         if (!followers.contains(userId)) {
             followers.add(userId);
             followersCount++;
+            touch();
         }
     }
 
     public void removeFollower(String userId) {
         if (followers.remove(userId)) {
             followersCount--;
+            touch();
         }
     }
 
@@ -359,28 +668,152 @@ public class User implements Comparable<User> {
         return new ArrayList<>(followers);
     }
 
-    // Post engagement tracking
-    public void incrementCommentCount(String postId) {
-        commentCountByPost.merge(postId, 1, Integer::sum);
+    public int getFollowersCount() {
+        return followersCount;
+    }
+
+    public int getFollowingCount() {
+        return followingCount;
+    }
+
+    // Counts owned by the FollowerGraph when the user is registered with a PointSystem
+    void syncFollowCounts(int followersCount, int followingCount) {
+        if (this.followersCount != followersCount || this.followingCount != followingCount) {
+            this.followersCount = followersCount;
+            this.followingCount = followingCount;
+            touch();
+        }
+    }
+
+    // Snapshots hold the full in-memory state of an evicted user in a compact binary form
+
+    /**
+     * Overwrites the state that population jobs may have changed while the user was evicted.
+     */
+    synchronized void restoreColdState(int totalPoints, MembershipTier tier, int lastDecayDay) {
+        this.totalPoints = totalPoints;
+        this.tier = tier;
+        if (this.lastDecayDay.getAndSet(lastDecayDay) != lastDecayDay && lastDecayDay != EpochDays.NONE) {
+            this.lastPointsDecayDate = EpochDays.toLocalDate(lastDecayDay).atStartOfDay();
+        }
+        touch();
+    }
+
+    synchronized byte[] toSnapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(userId);
+            out.writeUTF(username);
+            out.writeInt(totalPoints);
+            out.writeByte(tier.ordinal());
+            writeDateTime(out, lastLoginDate);
+            writeDateTime(out, lastPointsDecayDate);
+            writeDateTime(out, lastSurpriseDropCheck);
+            out.writeLong(loginState.get());
+            out.writeInt(lastDecayDay.get());
+            out.writeInt(followersCount);
+            out.writeInt(followingCount);
+            out.writeUTF(zoneId.getId());
+            out.writeBoolean(dbConnection != null);
+            int badges = 0;
+            for (Map.Entry<AchievementBadge, Boolean> entry : earnedBadges.entrySet()) {
+                if (entry.getValue()) {
+                    badges |= 1 << entry.getKey().ordinal();
+                }
+            }
+            out.writeInt(badges);
+            writeCounts(out, activityCounts);
+            writeStrings(out, participatingChallenges);
+            writeStrings(out, following);
+            writeStrings(out, followers);
+            out.writeInt(activityHistory.size());
+            for (Activity activity : activityHistory) {
+                out.writeByte(activity.getType().ordinal());
+                writeDateTime(out, activity.getTimestamp());
+                out.writeInt(activity.getPointsEarned());
+                out.writeUTF(activity.getDetails() != null ? activity.getDetails() : "");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param dbConnection Connection for the restored user if the snapshotted one had one
+     */
+    static User fromSnapshot(byte[] snapshot, Clock clock, Connection dbConnection) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            User user = new User(in.readUTF(), in.readUTF(), clock);
+            user.totalPoints = in.readInt();
+            user.tier = MembershipTier.values()[in.readByte()];
+            user.lastLoginDate = readDateTime(in);
+            user.lastPointsDecayDate = readDateTime(in);
+            user.lastSurpriseDropCheck = readDateTime(in);
+            user.loginState.set(in.readLong());
+            user.lastDecayDay.set(in.readInt());
+            user.followersCount = in.readInt();
+            user.followingCount = in.readInt();
+            user.zoneId = ZoneId.of(in.readUTF());
+            if (in.readBoolean()) {
+                user.dbConnection = dbConnection;
+            }
+            int badges = in.readInt();
+            for (AchievementBadge badge : AchievementBadge.values()) {
+                user.earnedBadges.put(badge, (badges & (1 << badge.ordinal())) != 0);
+            }
+            readCounts(in, user.activityCounts);
+            readStrings(in, user.participatingChallenges);
+            readStrings(in, user.following);
+            readStrings(in, user.followers);
+            int activities = in.readInt();
+            ActivityType[] types = ActivityType.values();
+            for (int i = 0; i < activities; i++) {
+                user.activityHistory.add(new Activity(types[in.readByte()], readDateTime(in), in.readInt(), in.readUTF()));
+            }
+            return user;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime != null ? dateTime.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE);
+        out.writeInt(dateTime != null ? dateTime.getNano() : 0);
     }
 
-    public void incrementTagCount(String postId) {
-        tagCountByPost.merge(postId, 1, Integer::sum);
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return seconds != Long.MIN_VALUE ? LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC) : null;
     }
 
-    public void recordVideoWatchTime(String videoId, int watchTimeInSeconds) {
-        watchTimeByVideo.merge(videoId, watchTimeInSeconds, Integer::sum);
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
     }
 
-    public int getCommentCountForPost(String postId) {
-        return commentCountByPost.getOrDefault(postId, 0);
+    private static void readStrings(DataInputStream in, Collection<String> values) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
     }
 
-    public int getTagCountForPost(String postId) {
-        return tagCountByPost.getOrDefault(postId, 0);
+    private static void writeCounts(DataOutputStream out, Map<String, Integer> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
     }
 
-    public int getWatchTimeForVideo(String videoId) {
-        return watchTimeByVideo.getOrDefault(videoId, 0);
+    private static void readCounts(DataInputStream in, Map<String, Integer> counts) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            counts.put(in.readUTF(), in.readInt());
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.pointsystem.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int ids to userIds so that per-user state can be kept in
+ * primitive arrays instead of String-keyed maps. Ids start at 0 and are never reused.
+ */
+public class UserIdRegistry {
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> idsByUser;
+    private volatile String[] usersById;
+    private int size;
+
+    public UserIdRegistry() {
+        this.idsByUser = new ConcurrentHashMap<>();
+        this.usersById = new String[1024];
+        this.size = 0;
+    }
+
+    public int register(String userId) {
+        Integer existing = idsByUser.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = idsByUser.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == usersById.length) {
+                usersById = Arrays.copyOf(usersById, size + (size >> 1));
+            }
+            int denseId = size++;
+            usersById[denseId] = userId;
+            idsByUser.put(userId, denseId);
+            return denseId;
+        }
+    }
+
+    public int getId(String userId) {
+        Integer denseId = idsByUser.get(userId);
+        return denseId != null ? denseId : UNKNOWN;
+    }
+
+    public String getUserId(int denseId) {
+        String[] ids = usersById;
+        return denseId >= 0 && denseId < ids.length ? ids[denseId] : null;
+    }
+
+    public int size() {
+        return idsByUser.size();
+    }
+}
@@ -0,0 +1,12 @@
+package com.pointsystem.model;
+
+/**
+ * Loads an evicted user's full state back from durable storage. Called on a loader thread
+ * by {@link UserResidencyManager}, never while the point system's own locks are held.
+ */
+public interface UserLoader {
+    /**
+     * @return The user as last persisted, or null if storage has no such user
+     */
+    User load(String userId);
+}
@@ -0,0 +1,473 @@
+package com.pointsystem.model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps recently active users resident in a {@link PointSystem} and evicts idle ones under
+ * memory pressure.
+ *
+ * An evicted (cold) user leaves the users map and takes its history, follow sets and
+ * counters with it. What stays in memory is a summary of nine bytes in primitive arrays
+ * indexed by dense id (points, tier, last decay day), plus the user's serialized snapshot
+ * when there is no {@link UserLoader} to reload it from. Cold users keep their place in every
+ * id-based index (tiers, point ranges, ranks, leaderboards, purchases), so population jobs
+ * credit and decay them through the summaries without loading them. Looking up a cold user
+ * faults it back in on a loader thread; concurrent lookups share one load, and the summary
+ * is applied over the loaded state before the user becomes visible again.
+ *
+ * Eviction sweeps dense ids with a clock hand and takes any user not accessed for the
+ * minimum idle time. A user touched more recently is never evicted, which is what keeps a
+ * request that already resolved the user from mutating it after its snapshot was taken.
+ * Eviction is skipped in PARTITIONED mode, where queued work may still reference users.
+ */
+public class UserResidencyManager {
+    public static final long DEFAULT_MIN_IDLE_MILLIS = 10 * 60 * 1000L;
+    public static final double DEFAULT_HEAP_HIGH_WATERMARK = 0.85;
+
+    private static final byte NOT_COLD = 0;
+
+    /**
+     * Points to credit a cold user given its summary.
+     */
+    interface ColdAward {
+        int pointsFor(int totalPoints, MembershipTier tier);
+    }
+
+    interface ColdVisitor {
+        void visit(int denseId, MembershipTier tier, int totalPoints);
+    }
+
+    private final PointSystem pointSystem;
+    private final UserIdRegistry userIds;
+    private final UserLoader loader;
+    private final int maxResidentUsers;
+    private final long minIdleMillis;
+    private final double heapHighWatermark;
+    private final Map<String, byte[]> snapshots;
+    private final Map<String, CompletableFuture<User>> loading;
+    private final ExecutorService loaderThreads;
+    private final LongAdder faults;
+    private final LongAdder evictions;
+    private final LongAdder snapshotBytes;
+    private volatile long[] lastAccess; // millis by dense id
+    private int[] coldPoints;
+    private byte[] coldTiers; // tier ordinal + 1, or NOT_COLD
+    private int[] coldDecayDays;
+    private int coldCount;
+    private int clockHand;
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * @param loader Storage to reload evicted users from, or null to keep their snapshots in memory
+     * @param maxResidentUsers Resident users above which eviction starts, or 0 to evict on heap pressure only
+     */
+    UserResidencyManager(PointSystem pointSystem, UserLoader loader, int maxResidentUsers,
+                         long minIdleMillis, double heapHighWatermark) {
+        this.pointSystem = pointSystem;
+        this.userIds = pointSystem.getUserIds();
+        this.loader = loader;
+        this.maxResidentUsers = maxResidentUsers;
+        this.minIdleMillis = minIdleMillis;
+        this.heapHighWatermark = heapHighWatermark;
+        this.snapshots = new ConcurrentHashMap<>();
+        this.loading = new ConcurrentHashMap<>();
+        this.loaderThreads = Executors.newVirtualThreadPerTaskExecutor();
+        this.faults = new LongAdder();
+        this.evictions = new LongAdder();
+        this.snapshotBytes = new LongAdder();
+        this.lastAccess = new long[1024];
+        this.coldPoints = new int[1024];
+        this.coldTiers = new byte[1024];
+        this.coldDecayDays = new int[1024];
+    }
+
+    /**
+     * Marks a resident user as just used, postponing its eviction.
+     */
+    void recordAccess(User user) {
+        int denseId = user.getDenseId();
+        long[] access = lastAccess;
+        if (denseId >= access.length) {
+            access = growAccess(denseId);
+        }
+        access[denseId] = pointSystem.getClock().millis();
+    }
+
+    private synchronized long[] growAccess(int denseId) {
+        long[] access = lastAccess;
+        if (denseId >= access.length) {
+            access = Arrays.copyOf(access, Math.max(denseId + 1, access.length + (access.length >> 1)));
+            lastAccess = access;
+        }
+        return access;
+    }
+
+    /**
+     * Returns the user, loading it first if it is cold. Completes with null for unknown users.
+     */
+    public CompletableFuture<User> faultIn(String userId) {
+        User resident = pointSystem.residentUser(userId);
+        if (resident != null) {
+            recordAccess(resident);
+            return CompletableFuture.completedFuture(resident);
+        }
+        int denseId = userIds.getId(userId);
+        if (denseId == UserIdRegistry.UNKNOWN || !isCold(denseId)) {
+            // Unknown, or readmitted since the lookup above
+            return CompletableFuture.completedFuture(pointSystem.residentUser(userId));
+        }
+        CompletableFuture<User> load = new CompletableFuture<>();
+        CompletableFuture<User> inFlight = loading.putIfAbsent(userId, load);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        loaderThreads.execute(() -> {
+            try {
+                load.complete(load(userId, denseId));
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+            } finally {
+                loading.remove(userId, load);
+            }
+        });
+        return load;
+    }
+
+    private User load(String userId, int denseId) {
+        byte[] snapshot = snapshots.get(userId);
+        User user = null;
+        if (snapshot != null) {
+            user = User.fromSnapshot(snapshot, pointSystem.getClock(), pointSystem.getConnection());
+        } else if (loader != null) {
+            try {
+                user = loader.load(userId);
+            } catch (RuntimeException e) {
+                System.err.println("Error loading user: " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            if (!isCold(denseId) || (snapshot != null && snapshots.get(userId) != snapshot)) {
+                // Someone else readmitted the user while this load ran
+                return pointSystem.residentUser(userId);
+            }
+            if (user == null) {
+                return null;
+            }
+            user.restoreColdState(coldPoints[denseId], tierOf(denseId), coldDecayDays[denseId]);
+            coldTiers[denseId] = NOT_COLD;
+            coldCount--;
+            if (snapshot != null) {
+                snapshots.remove(userId);
+                snapshotBytes.add(-snapshot.length);
+            }
+            pointSystem.readmitUser(user);
+            recordAccess(user);
+        }
+        faults.increment();
+        return user;
+    }
+
+    public synchronized boolean isCold(String userId) {
+        return isCold(userIds.getId(userId));
+    }
+
+    private boolean isCold(int denseId) {
+        return denseId >= 0 && denseId < coldTiers.length && coldTiers[denseId] != NOT_COLD;
+    }
+
+    private MembershipTier tierOf(int denseId) {
+        return MembershipTier.values()[coldTiers[denseId] - 1];
+    }
+
+    /**
+     * Evicts idle users if there are more resident users than allowed or if the heap left
+     * occupied by the last collection is above the high watermark. Each call frees a tenth
+     * of the residents under heap pressure, or gets back to 90% of the resident limit.
+     * @return Number of users evicted
+     */
+    public int relievePressure() {
+        int resident = pointSystem.getResidentCount();
+        int target = resident;
+        if (maxResidentUsers > 0 && resident > maxResidentUsers) {
+            target = maxResidentUsers - maxResidentUsers / 10;
+        }
+        if (heapOccupancy() > heapHighWatermark) {
+            target = Math.min(target, resident - resident / 10);
+        }
+        return target < resident ? evictDownTo(target) : 0;
+    }
+
+    /**
+     * Evicts users idle for at least the minimum idle time until at most targetResident remain
+     * or every user has been considered once.
+     * @return Number of users evicted
+     */
+    public synchronized int evictDownTo(int targetResident) {
+        if (pointSystem.getEngineMode() == EngineMode.PARTITIONED) {
+            return 0;
+        }
+        if (loader != null) {
+            // The loader reads what storage holds, so buffered writes must land first
+            pointSystem.flushPendingWrites();
+        }
+        int resident = pointSystem.getResidentCount();
+        int population = userIds.size();
+        long idleBefore = pointSystem.getClock().millis() - minIdleMillis;
+        long[] access = lastAccess;
+        int evicted = 0;
+        for (int scanned = 0; scanned < population && resident > targetResident; scanned++) {
+            int denseId = clockHand;
+            clockHand = (clockHand + 1) % population;
+            if (denseId < access.length && access[denseId] > idleBefore) {
+                continue;
+            }
+            User user = pointSystem.residentUser(userIds.getUserId(denseId));
+            if (user != null && evict(user)) {
+                resident--;
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            // Drop the evicted users from the resident-only leaderboard queue
+            pointSystem.updateLeaderboard();
+            evictions.add(evicted);
+        }
+        return evicted;
+    }
+
+    private boolean evict(User user) {
+        int denseId = user.getDenseId();
+        synchronized (user) {
+            byte[] snapshot = loader == null ? user.toSnapshot() : null;
+            if (!pointSystem.detachUser(user)) {
+                return false;
+            }
+            addCold(denseId, user.getTotalPoints(), user.getTier(), user.getLastDecayDay());
+            if (snapshot != null) {
+                snapshots.put(user.getUserId(), snapshot);
+                snapshotBytes.add(snapshot.length);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records a user that is not resident, e.g. one read from storage at startup without
+     * being loaded.
+     */
+    synchronized void addCold(int denseId, int totalPoints, MembershipTier tier, int lastDecayDay) {
+        if (denseId >= coldTiers.length) {
+            int length = Math.max(denseId + 1, coldTiers.length + (coldTiers.length >> 1));
+            coldPoints = Arrays.copyOf(coldPoints, length);
+            coldTiers = Arrays.copyOf(coldTiers, length);
+            coldDecayDays = Arrays.copyOf(coldDecayDays, length);
+        }
+        if (coldTiers[denseId] == NOT_COLD) {
+            coldCount++;
+        }
+        coldPoints[denseId] = totalPoints;
+        coldTiers[denseId] = (byte) (tier.ordinal() + 1);
+        coldDecayDays[denseId] = lastDecayDay;
+    }
+
+    /**
+     * Returns a cold user's total points from its summary.
+     * @return The points, or -1 if the user is not cold
+     */
+    synchronized int getColdPoints(int denseId) {
+        return isCold(denseId) ? coldPoints[denseId] : -1;
+    }
+
+    synchronized int[] coldIds() {
+        int[] ids = new int[coldCount];
+        int count = 0;
+        for (int denseId = 0; denseId < coldTiers.length && count < ids.length; denseId++) {
+            if (coldTiers[denseId] != NOT_COLD) {
+                ids[count++] = denseId;
+            }
+        }
+        return ids;
+    }
+
+    synchronized void forEachCold(ColdVisitor visitor) {
+        for (int denseId = 0; denseId < coldTiers.length; denseId++) {
+            if (coldTiers[denseId] != NOT_COLD) {
+                visitor.visit(denseId, tierOf(denseId), coldPoints[denseId]);
+            }
+        }
+    }
+
+    /**
+     * Runs residentAction on the user if it is resident or coldAction on its dense id if it
+     * is cold, holding off eviction meanwhile. Does nothing for unknown users.
+     */
+    synchronized void visit(String userId, Consumer<User> residentAction, IntConsumer coldAction) {
+        int denseId = userIds.getId(userId);
+        if (isCold(denseId)) {
+            coldAction.accept(denseId);
+            return;
+        }
+        User user = pointSystem.residentUser(userId);
+        if (user != null) {
+            residentAction.accept(user);
+        }
+    }
+
+    /**
+     * Credits a cold user from its summary, updating the shared indices and, if persist is
+     * set, writing the points as an award to a resident user would.
+     * @return Points credited, or -1 if the user is not cold
+     */
+    int applyColdAward(int denseId, ColdAward award, PointType type, boolean persist) {
+        String userId = userIds.getUserId(denseId);
+        int points;
+        int totalPoints;
+        synchronized (this) {
+            if (!isCold(denseId)) {
+                return -1;
+            }
+            MembershipTier previousTier = tierOf(denseId);
+            points = award.pointsFor(coldPoints[denseId], previousTier);
+            if (points <= 0) {
+                return 0;
+            }
+            totalPoints = coldPoints[denseId] + points;
+            MembershipTier newTier = totalPoints > previousTier.getMaxPoints()
+                ? MembershipTier.getTierByPoints(totalPoints) : previousTier;
+            coldPoints[denseId] = totalPoints;
+            coldTiers[denseId] = (byte) (newTier.ordinal() + 1);
+            pointSystem.applyPointsChange(userId, denseId, points, previousTier, newTier, totalPoints);
+        }
+        if (persist) {
+            pointSystem.persistColdPoints(userId, totalPoints, points, type);
+        }
+        return points;
+    }
+
+    /**
+     * Applies the weekly decay to every cold user whose last decay is at least 7 days old.
+     * @return Number of users decayed
+     */
+    synchronized int decayCold(int today) {
+        int decayed = 0;
+        for (int denseId = 0; denseId < coldTiers.length; denseId++) {
+            if (decayColdIfDue(denseId, today)) {
+                decayed++;
+            }
+        }
+        return decayed;
+    }
+
+    /**
+     * Applies the weekly decay to a cold user if its last decay is at least 7 days old.
+     * @return false if the user is not cold or no decay was due
+     */
+    synchronized boolean decayColdIfDue(int denseId, int today) {
+        if (denseId >= coldTiers.length) {
+            return false;
+        }
+        int lastDecay = coldDecayDays[denseId];
+        if (coldTiers[denseId] == NOT_COLD || lastDecay == EpochDays.NONE || today - lastDecay < 7) {
+            return false;
+        }
+        decayColdUser(denseId, today);
+        return true;
+    }
+
+    /**
+     * Applies the weekly decay to a cold user without checking whether it is due, demoting
+     * it as {@link User} does if it drops below its tier.
+     */
+    synchronized void decayColdUser(int denseId, int today) {
+        if (!isCold(denseId)) {
+            return;
+        }
+        MembershipTier tier = tierOf(denseId);
+        int totalPoints = coldPoints[denseId];
+        int newTotal = (int) (totalPoints * (1 - tier.getWeeklyDecayRate()));
+        MembershipTier newTier = newTotal < tier.getMinPoints() ? MembershipTier.getTierByPoints(newTotal) : tier;
+        coldPoints[denseId] = newTotal;
+        coldTiers[denseId] = (byte) (newTier.ordinal() + 1);
+        coldDecayDays[denseId] = today;
+        if (newTotal != totalPoints || newTier != tier) {
+            pointSystem.applyPointsChange(userIds.getUserId(denseId), denseId, newTotal - totalPoints, tier, newTier, newTotal);
+        }
+    }
+
+    /**
+     * Fraction of the maximum heap still occupied after the most recent collection of each
+     * heap pool, which unlike current usage does not count garbage awaiting collection.
+     */
+    static double heapOccupancy() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                MemoryUsage usage = pool.getCollectionUsage();
+                if (usage != null) {
+                    used += usage.getUsed();
+                }
+            }
+        }
+        return (double) used / Runtime.getRuntime().maxMemory();
+    }
+
+    public synchronized void startBackgroundEviction(long periodMillis) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-residency-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::relievePressure, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops background eviction and the loader threads. Cold users stay cold.
+     */
+    public synchronized void stop() {
+        if (sweeper != null) {
+            sweeper.shutdown();
+            sweeper = null;
+        }
+        loaderThreads.shutdown();
+    }
+
+    public synchronized int getColdCount() {
+        return coldCount;
+    }
+
+    public int getResidentCount() {
+        return pointSystem.getResidentCount();
+    }
+
+    public long getFaultCount() {
+        return faults.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Total size of the snapshots kept for cold users when there is no loader.
+     */
+    public long getSnapshotBytes() {
+        return snapshotBytes.sum();
+    }
+}
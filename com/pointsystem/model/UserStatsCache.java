@@ -0,0 +1,110 @@
+package com.pointsystem.model;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache of {@link UserStatsSnapshot}s.
+ *
+ * Entries are validated against the user's version stamp, which every point, tier, streak,
+ * badge, challenge or follower mutation bumps, so a changed user is re-rendered on its next
+ * read and nothing else has to be invalidated. Eviction uses the CLOCK approximation of LRU:
+ * a hit only sets a reference bit, and the sweep evicts entries not referenced since the last pass.
+ */
+public class UserStatsCache {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private Iterator<Map.Entry<String, Entry>> clockHand;
+
+    private static final class Entry {
+        final UserStatsSnapshot snapshot;
+        volatile boolean referenced;
+
+        Entry(UserStatsSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    public UserStatsCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    public UserStatsSnapshot get(User user) {
+        Entry entry = entries.get(user.getUserId());
+        if (entry != null && entry.snapshot.getVersion() == user.getVersion()) {
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            hits.increment();
+            return entry.snapshot;
+        }
+
+        misses.increment();
+        UserStatsSnapshot snapshot = user.snapshotStats();
+        if (entries.put(user.getUserId(), new Entry(snapshot)) == null && entries.size() > maxEntries) {
+            evict();
+        }
+        return snapshot;
+    }
+
+    public void invalidate(String userId) {
+        entries.remove(userId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private synchronized void evict() {
+        int scanned = 0;
+        int limit = 2 * entries.size(); // Every entry is cleared at most once before one is evicted
+        while (entries.size() > maxEntries && scanned++ < limit) {
+            if (clockHand == null || !clockHand.hasNext()) {
+                clockHand = entries.entrySet().iterator();
+                if (!clockHand.hasNext()) {
+                    return;
+                }
+            }
+            Entry entry = clockHand.next().getValue();
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                clockHand.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
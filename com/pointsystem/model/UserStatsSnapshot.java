@@ -0,0 +1,63 @@
+package com.pointsystem.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable copy of a user's stats taken at one {@link User#getVersion() version}, with the
+ * map and text forms rendered once so cached reads do no work.
+ */
+public final class UserStatsSnapshot {
+    private final long version;
+    private final Map<String, Object> stats;
+    private final String text;
+
+    UserStatsSnapshot(long version, String userId, String username, int totalPoints, MembershipTier tier,
+                      int loginStreak, int followersCount, int followingCount,
+                      Map<String, Integer> activityCounts, Map<AchievementBadge, Boolean> earnedBadges,
+                      Set<String> participatingChallenges) {
+        this.version = version;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("userId", userId);
+        stats.put("username", username);
+        stats.put("totalPoints", totalPoints);
+        stats.put("tier", tier);
+        stats.put("loginStreak", loginStreak);
+        stats.put("followersCount", followersCount);
+        stats.put("followingCount", followingCount);
+        stats.put("activityCounts", Collections.unmodifiableMap(new HashMap<>(activityCounts)));
+        Map<AchievementBadge, Boolean> badges = new EnumMap<>(AchievementBadge.class);
+        badges.putAll(earnedBadges);
+        stats.put("earnedBadges", Collections.unmodifiableMap(badges));
+        stats.put("participatingChallenges", Collections.unmodifiableSet(new LinkedHashSet<>(participatingChallenges)));
+        this.stats = Collections.unmodifiableMap(stats);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("User Stats:\n");
+        sb.append("ID: ").append(userId).append("\n");
+        sb.append("Username: ").append(username).append("\n");
+        sb.append("Points: ").append(totalPoints).append("\n");
+        sb.append("Tier: ").append(tier).append("\n");
+        sb.append("Login Streak: ").append(loginStreak).append("\n");
+        sb.append("Followers: ").append(followersCount).append("\n");
+        sb.append("Following: ").append(followingCount).append("\n");
+        this.text = sb.toString();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, Object> asMap() {
+        return stats;
+    }
+
+    public String asString() {
+        return text;
+    }
+}
@@ -0,0 +1,44 @@
+package com.pointsystem.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Positional binary body: strings as writeUTF, ints and doubles big-endian, and lists
+ * as an int count followed by the elements.
+ */
+class BinaryRequestReader implements RequestReader {
+    private final DataInputStream in;
+
+    BinaryRequestReader(byte[] body) {
+        this.in = new DataInputStream(new ByteArrayInputStream(body));
+    }
+
+    @Override
+    public String readString(String name) throws IOException {
+        String value = in.readUTF();
+        return value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public int readInt(String name) throws IOException {
+        return in.readInt();
+    }
+
+    @Override
+    public double readDouble(String name) throws IOException {
+        return in.readDouble();
+    }
+
+    @Override
+    public List<RequestReader> readList(String name) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Negative list size for " + name);
+        }
+        return Collections.nCopies(size, this);
+    }
+}
@@ -0,0 +1,83 @@
+package com.pointsystem.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+class BinaryResponseWriter implements ResponseWriter {
+    private final ByteArrayOutputStream buffer;
+    private final DataOutputStream out;
+
+    BinaryResponseWriter() {
+        this.buffer = new ByteArrayOutputStream(256);
+        this.out = new DataOutputStream(buffer);
+    }
+
+    @Override
+    public void beginObject() {
+    }
+
+    @Override
+    public void endObject() {
+    }
+
+    @Override
+    public void beginList(String name, int size) {
+        writeInt(name, size);
+    }
+
+    @Override
+    public void endList() {
+    }
+
+    @Override
+    public void writeString(String name, String value) {
+        try {
+            out.writeUTF(value != null ? value : "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeInt(String name, int value) {
+        try {
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeLong(String name, long value) {
+        try {
+            out.writeLong(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeDouble(String name, double value) {
+        try {
+            out.writeDouble(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeBoolean(String name, boolean value) {
+        try {
+            out.writeBoolean(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,56 @@
+package com.pointsystem.server;
+
+import java.io.IOException;
+
+/**
+ * Wire formats supported by {@link HttpPointServer}, selected by Content-Type for
+ * request bodies and by Accept for bodiless requests.
+ */
+public enum Codec {
+    JSON("application/json") {
+        @Override
+        public RequestReader reader(byte[] body) throws IOException {
+            return JsonRequestReader.parse(body);
+        }
+
+        @Override
+        public ResponseWriter writer() {
+            return new JsonResponseWriter();
+        }
+    },
+    BINARY("application/octet-stream") {
+        @Override
+        public RequestReader reader(byte[] body) {
+            return new BinaryRequestReader(body);
+        }
+
+        @Override
+        public ResponseWriter writer() {
+            return new BinaryResponseWriter();
+        }
+    };
+
+    private final String contentType;
+
+    Codec(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public abstract RequestReader reader(byte[] body) throws IOException;
+
+    public abstract ResponseWriter writer();
+
+    /**
+     * @return The codec for a media type header value, defaulting to JSON
+     */
+    public static Codec forMediaType(String mediaType) {
+        if (mediaType != null && mediaType.startsWith(BINARY.contentType)) {
+            return BINARY;
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,124 @@
+package com.pointsystem.server;
+
+import com.pointsystem.model.PointSystemAlgorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embeddable HTTP/1.1 front end for {@link PointSystemAlgorithm}. Each connection is served
+ * by its own virtual thread with plain blocking I/O. Pipelined requests are read in order
+ * from the connection buffer, and responses are flushed only once no further request is
+ * buffered, so a pipelined burst is answered with a single write.
+ * Run with {@code java com.pointsystem.server.HttpPointServer <port>} to serve an in-memory system.
+ */
+public class HttpPointServer implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PointSystemEndpoints endpoints;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final LongAdder requestsServed;
+    private volatile boolean running;
+
+    public HttpPointServer(PointSystemAlgorithm facade, int port) throws IOException {
+        this(facade, InetAddress.getLoopbackAddress(), port);
+    }
+
+    public HttpPointServer(PointSystemAlgorithm facade, InetAddress bindAddress, int port) throws IOException {
+        this.endpoints = new PointSystemEndpoints(facade);
+        this.serverSocket = new ServerSocket(port, 1024, bindAddress);
+        this.connections = Executors.newVirtualThreadPerTaskExecutor();
+        this.requestsServed = new LongAdder();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getRequestsServed() {
+        return requestsServed.sum();
+    }
+
+    public void start() {
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "http-point-server-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.submit(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE)) {
+            while (running) {
+                HttpRequest request;
+                try {
+                    request = HttpRequest.read(in);
+                } catch (EOFException e) {
+                    return;
+                } catch (IOException e) {
+                    HttpResponse.error(HttpResponse.BAD_REQUEST, Codec.JSON, e.getMessage()).writeTo(out, false);
+                    out.flush();
+                    return;
+                }
+                if (request == null) {
+                    return;
+                }
+                HttpResponse response = endpoints.handle(request);
+                response.writeTo(out, request.isKeepAlive());
+                requestsServed.increment();
+                if (!request.isKeepAlive()) {
+                    out.flush();
+                    return;
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Error serving connection: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        HttpPointServer server = new HttpPointServer(new PointSystemAlgorithm(null), port);
+        server.start();
+        System.out.println("Point system listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
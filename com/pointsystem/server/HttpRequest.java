@@ -0,0 +1,162 @@
+package com.pointsystem.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One parsed HTTP/1.1 request. Requests are read straight off the connection stream, so
+ * pipelined requests are simply read one after another.
+ */
+final class HttpRequest {
+    static final int MAX_LINE_LENGTH = 8192;
+    static final int MAX_BODY_LENGTH = 4 * 1024 * 1024;
+
+    private final String method;
+    private final String path;
+    private final Map<String, String> query;
+    private final String contentType;
+    private final String accept;
+    private final boolean keepAlive;
+    private final byte[] body;
+
+    private HttpRequest(String method, String path, Map<String, String> query, String contentType,
+                        String accept, boolean keepAlive, byte[] body) {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.contentType = contentType;
+        this.accept = accept;
+        this.keepAlive = keepAlive;
+        this.body = body;
+    }
+
+    /**
+     * @return The next request, or null if the peer closed the connection between requests
+     */
+    static HttpRequest read(InputStream in) throws IOException {
+        String requestLine = readLine(in);
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3) {
+            throw new IOException("Malformed request line: " + requestLine);
+        }
+        boolean keepAlive = !"HTTP/1.0".equals(parts[2]);
+        int contentLength = 0;
+        String contentType = null;
+        String accept = null;
+
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IOException("Malformed header: " + line);
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                try {
+                    contentLength = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed Content-Length: " + value);
+                }
+            } else if (name.equalsIgnoreCase("Content-Type")) {
+                contentType = value;
+            } else if (name.equalsIgnoreCase("Accept")) {
+                accept = value;
+            } else if (name.equalsIgnoreCase("Connection")) {
+                keepAlive = !value.equalsIgnoreCase("close");
+            }
+        }
+        if (line == null) {
+            throw new EOFException("Connection closed inside request headers");
+        }
+        if (contentLength < 0 || contentLength > MAX_BODY_LENGTH) {
+            throw new IOException("Unsupported Content-Length " + contentLength);
+        }
+        byte[] body = in.readNBytes(contentLength);
+        if (body.length != contentLength) {
+            throw new EOFException("Connection closed inside request body");
+        }
+
+        String target = parts[1];
+        int queryStart = target.indexOf('?');
+        String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+        Map<String, String> query = queryStart >= 0 ? parseQuery(target.substring(queryStart + 1)) : Collections.emptyMap();
+        return new HttpRequest(parts[0], path, query, contentType, accept, keepAlive, body);
+    }
+
+    /**
+     * Reads a CRLF-terminated ASCII line.
+     * @return The line without its terminator, or null at end of stream before any byte
+     */
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = sb.length();
+                if (length > 0 && sb.charAt(length - 1) == '\r') {
+                    sb.setLength(length - 1);
+                }
+                return sb.toString();
+            }
+            if (sb.length() == MAX_LINE_LENGTH) {
+                throw new IOException("Line exceeds " + MAX_LINE_LENGTH + " bytes");
+            }
+            sb.append((char) b);
+        }
+        if (sb.length() > 0) {
+            throw new EOFException("Connection closed inside a line");
+        }
+        return null;
+    }
+
+    private static Map<String, String> parseQuery(String queryString) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : queryString.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getQueryParameter(String name) {
+        return query.get(name);
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Codec for the request body, or for the response when there is no body.
+     */
+    Codec getCodec() {
+        return Codec.forMediaType(body.length > 0 ? contentType : accept);
+    }
+}
@@ -0,0 +1,60 @@
+package com.pointsystem.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+final class HttpResponse {
+    static final int OK = 200;
+    static final int BAD_REQUEST = 400;
+    static final int NOT_FOUND = 404;
+    static final int METHOD_NOT_ALLOWED = 405;
+    static final int INTERNAL_ERROR = 500;
+
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+
+    HttpResponse(int status, String contentType, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    static HttpResponse error(int status, Codec codec, String message) {
+        ResponseWriter writer = codec.writer();
+        writer.beginObject();
+        writer.writeString("error", message);
+        writer.endObject();
+        return new HttpResponse(status, codec.getContentType(), writer.toByteArray());
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    void writeTo(OutputStream out, boolean keepAlive) throws IOException {
+        String head = "HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+            + "Content-Type: " + contentType + "\r\n"
+            + "Content-Length: " + body.length + "\r\n"
+            + (keepAlive ? "" : "Connection: close\r\n")
+            + "\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case OK:
+                return "OK";
+            case BAD_REQUEST:
+                return "Bad Request";
+            case NOT_FOUND:
+                return "Not Found";
+            case METHOD_NOT_ALLOWED:
+                return "Method Not Allowed";
+            default:
+                return "Internal Server Error";
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.pointsystem.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written JSON reader for request bodies. The body is parsed once into maps, lists,
+ * strings, doubles and booleans, and fields are then looked up by name; nothing is bound
+ * by reflection.
+ */
+class JsonRequestReader implements RequestReader {
+    private final Map<String, Object> fields;
+
+    private JsonRequestReader(Map<String, Object> fields) {
+        this.fields = fields;
+    }
+
+    static JsonRequestReader parse(byte[] body) throws IOException {
+        Parser parser = new Parser(body);
+        Object value = parser.parseValue();
+        parser.skipWhitespace();
+        if (parser.pos != body.length) {
+            throw new IOException("Trailing data at offset " + parser.pos);
+        }
+        if (!(value instanceof Map)) {
+            throw new IOException("Request body must be a JSON object");
+        }
+        return new JsonRequestReader(castObject(value));
+    }
+
+    @Override
+    public String readString(String name) throws IOException {
+        Object value = fields.get(name);
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        throw new IOException("Field " + name + " must be a string");
+    }
+
+    @Override
+    public int readInt(String name) throws IOException {
+        return (int) readDouble(name);
+    }
+
+    @Override
+    public double readDouble(String name) throws IOException {
+        Object value = fields.get(name);
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        throw new IOException("Field " + name + " must be a number");
+    }
+
+    @Override
+    public List<RequestReader> readList(String name) throws IOException {
+        Object value = fields.get(name);
+        if (!(value instanceof List)) {
+            throw new IOException("Field " + name + " must be an array");
+        }
+        List<?> elements = (List<?>) value;
+        List<RequestReader> readers = new ArrayList<>(elements.size());
+        for (Object element : elements) {
+            if (!(element instanceof Map)) {
+                throw new IOException("Elements of " + name + " must be objects");
+            }
+            readers.add(new JsonRequestReader(castObject(element)));
+        }
+        return readers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castObject(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static final class Parser {
+        private final byte[] data;
+        private int pos;
+
+        Parser(byte[] data) {
+            this.data = data;
+        }
+
+        Object parseValue() throws IOException {
+            skipWhitespace();
+            if (pos >= data.length) {
+                throw new IOException("Unexpected end of JSON");
+            }
+            switch (data[pos]) {
+                case '{':
+                    return parseObject();
+                case '[':
+                    return parseArray();
+                case '"':
+                    return parseString();
+                case 't':
+                    expectLiteral("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    expectLiteral("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    expectLiteral("null");
+                    return null;
+                default:
+                    return parseNumber();
+            }
+        }
+
+        private Map<String, Object> parseObject() throws IOException {
+            Map<String, Object> object = new HashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw new IOException("Expected field name at offset " + pos);
+                }
+                String name = parseString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> parseArray() throws IOException {
+            List<Object> array = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String parseString() throws IOException {
+            pos++;
+            int start = pos;
+            // Fast path: no escapes, decode the raw UTF-8 slice directly
+            while (pos < data.length && data[pos] != '"' && data[pos] != '\\') {
+                pos++;
+            }
+            if (pos < data.length && data[pos] == '"') {
+                return new String(data, start, pos++ - start, StandardCharsets.UTF_8);
+            }
+            StringBuilder sb = new StringBuilder(new String(data, start, pos - start, StandardCharsets.UTF_8));
+            int runStart = pos;
+            while (true) {
+                if (pos >= data.length) {
+                    throw new IOException("Unterminated string");
+                }
+                byte b = data[pos];
+                if (b == '"') {
+                    sb.append(new String(data, runStart, pos++ - runStart, StandardCharsets.UTF_8));
+                    return sb.toString();
+                }
+                if (b != '\\') {
+                    pos++;
+                    continue;
+                }
+                sb.append(new String(data, runStart, pos - runStart, StandardCharsets.UTF_8));
+                pos++;
+                if (pos >= data.length) {
+                    throw new IOException("Unterminated escape");
+                }
+                char escaped = (char) data[pos++];
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(escaped);
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > data.length) {
+                            throw new IOException("Truncated unicode escape");
+                        }
+                        sb.append((char) Integer.parseInt(new String(data, pos, 4, StandardCharsets.US_ASCII), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        throw new IOException("Invalid escape \\" + escaped);
+                }
+                runStart = pos;
+            }
+        }
+
+        private Double parseNumber() throws IOException {
+            int start = pos;
+            while (pos < data.length) {
+                byte b = data[pos];
+                if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            if (start == pos) {
+                throw new IOException("Unexpected character at offset " + pos);
+            }
+            try {
+                return Double.valueOf(new String(data, start, pos - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid number at offset " + start);
+            }
+        }
+
+        private void expectLiteral(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (pos >= data.length || data[pos++] != literal.charAt(i)) {
+                    throw new IOException("Invalid literal at offset " + pos);
+                }
+            }
+        }
+
+        private void expect(char c) throws IOException {
+            if (peek() != c) {
+                throw new IOException("Expected '" + c + "' at offset " + pos);
+            }
+            pos++;
+        }
+
+        private int peek() {
+            return pos < data.length ? data[pos] : -1;
+        }
+
+        void skipWhitespace() {
+            while (pos < data.length && (data[pos] == ' ' || data[pos] == '\n' || data[pos] == '\r' || data[pos] == '\t')) {
+                pos++;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.pointsystem.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class JsonResponseWriter implements ResponseWriter {
+    private final StringBuilder sb;
+    private boolean[] first;
+    private boolean[] inList;
+    private int depth;
+
+    JsonResponseWriter() {
+        this.sb = new StringBuilder(256);
+        this.first = new boolean[8];
+        this.inList = new boolean[8];
+    }
+
+    @Override
+    public void beginObject() {
+        separator(null);
+        sb.append('{');
+        push(false);
+    }
+
+    @Override
+    public void endObject() {
+        depth--;
+        sb.append('}');
+    }
+
+    @Override
+    public void beginList(String name, int size) {
+        separator(name);
+        sb.append('[');
+        push(true);
+    }
+
+    @Override
+    public void endList() {
+        depth--;
+        sb.append(']');
+    }
+
+    @Override
+    public void writeString(String name, String value) {
+        separator(name);
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public void writeInt(String name, int value) {
+        separator(name);
+        sb.append(value);
+    }
+
+    @Override
+    public void writeLong(String name, long value) {
+        separator(name);
+        sb.append(value);
+    }
+
+    @Override
+    public void writeDouble(String name, double value) {
+        separator(name);
+        if (Double.isFinite(value)) {
+            sb.append(value);
+        } else {
+            sb.append("null");
+        }
+    }
+
+    @Override
+    public void writeBoolean(String name, boolean value) {
+        separator(name);
+        sb.append(value);
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Emits the comma and, inside an object, the field name before a value
+    private void separator(String name) {
+        if (depth == 0) {
+            return;
+        }
+        if (!first[depth - 1]) {
+            sb.append(',');
+        }
+        first[depth - 1] = false;
+        if (!inList[depth - 1]) {
+            writeName(name);
+        }
+    }
+
+    private void writeName(String name) {
+        sb.append('"').append(name).append("\":");
+    }
+
+    private void push(boolean list) {
+        if (depth == first.length) {
+            first = Arrays.copyOf(first, depth * 2);
+            inList = Arrays.copyOf(inList, depth * 2);
+        }
+        first[depth] = true;
+        inList[depth] = list;
+        depth++;
+    }
+}
@@ -0,0 +1,305 @@
+package com.pointsystem.server;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.PointSystemAlgorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-loop load generator for {@link HttpPointServer}. Each connection runs on a virtual
+ * thread and keeps a fixed number of pipelined requests in flight: mostly batched activity
+ * POSTs, plus stats and leaderboard reads. Reports throughput and latency percentiles.
+ *
+ * <pre>
+ * java com.pointsystem.server.LoadGenerator [host:port|embedded] [connections] [seconds]
+ *      [pipelineDepth] [batchSize] [users] [json|binary]
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final ActivityType[] ACTIVITY_MIX = {
+        ActivityType.POST, ActivityType.LIKE, ActivityType.COMMENT, ActivityType.SHARE, ActivityType.VIDEO_WATCH
+    };
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final long durationNanos;
+    private final int pipelineDepth;
+    private final int batchSize;
+    private final int users;
+    private final Codec codec;
+
+    public LoadGenerator(String host, int port, int connections, int seconds, int pipelineDepth,
+                         int batchSize, int users, Codec codec) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.durationNanos = seconds * 1_000_000_000L;
+        this.pipelineDepth = pipelineDepth;
+        this.batchSize = batchSize;
+        this.users = users;
+        this.codec = codec;
+    }
+
+    /**
+     * Result of one load run; latencies are per request, in nanoseconds, sorted ascending.
+     */
+    public static final class Result {
+        private final long[] latencies;
+        private final long activities;
+        private final long errors;
+        private final long elapsedNanos;
+
+        Result(long[] latencies, long activities, long errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.activities = activities;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRequests() {
+            return latencies.length;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getRequestsPerSecond() {
+            return latencies.length * 1e9 / elapsedNanos;
+        }
+
+        public double getActivitiesPerSecond() {
+            return activities * 1e9 / elapsedNanos;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d errors=%d throughput=%.0f req/s (%.0f activities/s) "
+                    + "p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                getRequests(), errors, getRequestsPerSecond(), getActivitiesPerSecond(),
+                percentileNanos(50) / 1e6, percentileNanos(99) / 1e6, percentileNanos(99.9) / 1e6,
+                percentileNanos(100) / 1e6);
+        }
+    }
+
+    private static final class ConnectionStats {
+        long[] latencies = new long[4096];
+        int count;
+        long activities;
+        long errors;
+
+        void record(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+    }
+
+    public Result run() throws Exception {
+        registerUsers();
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<ConnectionStats>> futures = new ArrayList<>(connections);
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        for (int i = 0; i < connections; i++) {
+            long seed = i;
+            futures.add(clients.submit(() -> drive(new Random(seed), deadline)));
+        }
+
+        List<ConnectionStats> results = new ArrayList<>(connections);
+        int total = 0;
+        for (Future<ConnectionStats> future : futures) {
+            ConnectionStats stats = future.get();
+            results.add(stats);
+            total += stats.count;
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+
+        long[] latencies = new long[total];
+        long activities = 0;
+        long errors = 0;
+        int offset = 0;
+        for (ConnectionStats stats : results) {
+            System.arraycopy(stats.latencies, 0, latencies, offset, stats.count);
+            offset += stats.count;
+            activities += stats.activities;
+            errors += stats.errors;
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies, activities, errors, elapsed);
+    }
+
+    private void registerUsers() throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            int sent = 0;
+            int received = 0;
+            while (received < users) {
+                while (sent < users && sent - received < 256) {
+                    ResponseWriter body = codec.writer();
+                    body.beginObject();
+                    body.writeString("userId", userId(sent));
+                    body.writeString("username", "load" + sent);
+                    body.endObject();
+                    writeRequest(out, "POST", "/users", body.toByteArray());
+                    sent++;
+                }
+                out.flush();
+                while (received < sent) {
+                    if (readResponse(in) != HttpResponse.OK) {
+                        throw new IOException("Registration of " + userId(received) + " failed");
+                    }
+                    received++;
+                }
+            }
+        }
+    }
+
+    private ConnectionStats drive(Random random, long deadline) throws IOException {
+        ConnectionStats stats = new ConnectionStats();
+        long[] sentAt = new long[pipelineDepth];
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < pipelineDepth; i++) {
+                    int roll = random.nextInt(100);
+                    if (roll < 70) {
+                        writeRequest(out, "POST", "/activities", activityBatch(random));
+                        stats.activities += batchSize;
+                    } else if (roll < 90) {
+                        writeRequest(out, "GET", "/users/" + userId(random.nextInt(users)) + "/stats", null);
+                    } else {
+                        writeRequest(out, "GET", "/leaderboard?window=DAILY&limit=10", null);
+                    }
+                    sentAt[i] = System.nanoTime();
+                }
+                out.flush();
+                for (int i = 0; i < pipelineDepth; i++) {
+                    int status = readResponse(in);
+                    stats.record(System.nanoTime() - sentAt[i]);
+                    if (status != HttpResponse.OK) {
+                        stats.errors++;
+                    }
+                }
+            }
+        }
+        return stats;
+    }
+
+    private byte[] activityBatch(Random random) {
+        ResponseWriter body = codec.writer();
+        body.beginObject();
+        body.beginList("activities", batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            body.beginObject();
+            body.writeString("userId", userId(random.nextInt(users)));
+            body.writeString("itemId", "item-" + random.nextInt(10_000));
+            body.writeString("type", ACTIVITY_MIX[random.nextInt(ACTIVITY_MIX.length)].name());
+            body.writeDouble("amount", 1 + random.nextInt(10));
+            body.writeString("eventId", null);
+            body.endObject();
+        }
+        body.endList();
+        body.endObject();
+        return body.toByteArray();
+    }
+
+    private void writeRequest(OutputStream out, String method, String target, byte[] body) throws IOException {
+        StringBuilder head = new StringBuilder(128);
+        head.append(method).append(' ').append(target).append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(host).append("\r\n");
+        if (body != null) {
+            head.append("Content-Type: ").append(codec.getContentType()).append("\r\n");
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        } else {
+            head.append("Accept: ").append(codec.getContentType()).append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        if (body != null) {
+            out.write(body);
+        }
+    }
+
+    // Reads one response and discards its body; returns the status code
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = HttpRequest.readLine(in);
+        if (statusLine == null) {
+            throw new IOException("Server closed the connection");
+        }
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        int contentLength = 0;
+        String line;
+        while ((line = HttpRequest.readLine(in)) != null && !line.isEmpty()) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        in.skipNBytes(contentLength);
+        return status;
+    }
+
+    private static String userId(int index) {
+        return "load-user-" + index;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "embedded";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int pipelineDepth = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 32;
+        int users = args.length > 5 ? Integer.parseInt(args[5]) : 10_000;
+        Codec codec = args.length > 6 && args[6].equalsIgnoreCase("binary") ? Codec.BINARY : Codec.JSON;
+
+        HttpPointServer embedded = null;
+        String host;
+        int port;
+        if (target.equals("embedded")) {
+            embedded = new HttpPointServer(new PointSystemAlgorithm(null), 0);
+            embedded.start();
+            host = InetAddress.getLoopbackAddress().getHostAddress();
+            port = embedded.getPort();
+        } else {
+            int colon = target.lastIndexOf(':');
+            host = target.substring(0, colon);
+            port = Integer.parseInt(target.substring(colon + 1));
+        }
+
+        LoadGenerator generator = new LoadGenerator(host, port, connections, seconds, pipelineDepth,
+            batchSize, users, codec);
+        System.out.println(generator.run());
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.pointsystem.server;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.CollaborativeChallenge;
+import com.pointsystem.model.LeaderboardEntry;
+import com.pointsystem.model.LeaderboardWindow;
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.PointSystemAlgorithm;
+import com.pointsystem.model.User;
+import com.pointsystem.model.UserStatsSnapshot;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Routes requests to {@link PointSystemAlgorithm}.
+ *
+ * Per-user operations are serialized on a lock striped by user id, so requests for
+ * different users run in parallel. The stripes are ReentrantLocks, so a virtual thread
+ * waiting for one does not pin its carrier thread. The award itself still runs under the
+ * user's monitor in {@link com.pointsystem.model.EngineMode#LOCKED} mode and pins the
+ * carrier while held, or waiting when a background job holds it; the stripe keeps
+ * requests from contending for it among themselves.
+ *
+ * <pre>
+ * POST /users                          {userId, username}
+ * POST /logins                         {userId}
+ * POST /activities                     {activities: [{userId, itemId, type, amount, eventId}, ...]}
+ * GET  /users/{userId}/stats
+ * GET  /leaderboard?window=&amp;tier=&amp;limit=
+ * POST /challenges                     {userId, name, description, targetPoints, durationHours, reward}
+ * POST /challenges/{id}/contributions  {userId, points}
+ * </pre>
+ * Binary bodies carry the same fields in the order listed.
+ */
+public class PointSystemEndpoints {
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int DEFAULT_LEADERBOARD_LIMIT = 10;
+    private static final int LOCK_STRIPES = 256;
+
+    private final PointSystemAlgorithm facade;
+    private final ReentrantLock[] userLocks;
+    private final ReentrantLock registrationLock;
+    private final ReentrantLock challengeLock;
+
+    public PointSystemEndpoints(PointSystemAlgorithm facade) {
+        this.facade = facade;
+        this.userLocks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+        this.registrationLock = new ReentrantLock();
+        this.challengeLock = new ReentrantLock();
+    }
+
+    HttpResponse handle(HttpRequest request) {
+        Codec codec = request.getCodec();
+        try {
+            String[] segments = request.getPath().split("/");
+            String method = request.getMethod();
+            if (segments.length == 2) {
+                switch (segments[1]) {
+                    case "users":
+                        return post(method) ? register(codec.reader(request.getBody()), codec) : notAllowed(codec);
+                    case "logins":
+                        return post(method) ? login(codec.reader(request.getBody()), codec) : notAllowed(codec);
+                    case "activities":
+                        return post(method) ? activities(codec.reader(request.getBody()), codec) : notAllowed(codec);
+                    case "leaderboard":
+                        return "GET".equals(method) ? leaderboard(request, codec) : notAllowed(codec);
+                    case "challenges":
+                        return post(method) ? createChallenge(codec.reader(request.getBody()), codec) : notAllowed(codec);
+                    default:
+                        break;
+                }
+            } else if (segments.length == 4 && "users".equals(segments[1]) && "stats".equals(segments[3])) {
+                return "GET".equals(method) ? stats(segments[2], codec) : notAllowed(codec);
+            } else if (segments.length == 4 && "challenges".equals(segments[1]) && "contributions".equals(segments[3])) {
+                return post(method) ? contribute(segments[2], codec.reader(request.getBody()), codec) : notAllowed(codec);
+            }
+            return HttpResponse.error(HttpResponse.NOT_FOUND, codec, "No route for " + request.getPath());
+        } catch (IOException | IllegalArgumentException e) {
+            return HttpResponse.error(HttpResponse.BAD_REQUEST, codec, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling request " + request.getPath() + ": " + e.getMessage());
+            return HttpResponse.error(HttpResponse.INTERNAL_ERROR, codec, "Internal error");
+        }
+    }
+
+    private HttpResponse register(RequestReader in, Codec codec) throws IOException {
+        String userId = requireString(in, "userId");
+        String username = requireString(in, "username");
+        User user;
+        registrationLock.lock();
+        try {
+            user = facade.registerNewUser(userId, username);
+        } finally {
+            registrationLock.unlock();
+        }
+        if (user == null) {
+            return HttpResponse.error(HttpResponse.INTERNAL_ERROR, codec, "Registration failed");
+        }
+        ResponseWriter out = codec.writer();
+        out.beginObject();
+        out.writeString("userId", user.getUserId());
+        out.writeString("username", username);
+        out.writeInt("totalPoints", user.getTotalPoints());
+        out.writeString("tier", user.getTier().name());
+        out.endObject();
+        return ok(codec, out);
+    }
+
+    private HttpResponse login(RequestReader in, Codec codec) throws IOException {
+        String userId = requireString(in, "userId");
+        int streak;
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            streak = facade.processUserLogin(userId);
+        } finally {
+            lock.unlock();
+        }
+        ResponseWriter out = codec.writer();
+        out.beginObject();
+        out.writeString("userId", userId);
+        out.writeInt("loginStreak", streak);
+        out.endObject();
+        return ok(codec, out);
+    }
+
+    private HttpResponse activities(RequestReader in, Codec codec) throws IOException {
+        List<RequestReader> batch = in.readList("activities");
+        if (batch.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch exceeds " + MAX_BATCH_SIZE + " activities");
+        }
+        // Decode the whole batch first so a malformed element rejects it before anything is applied
+        int size = batch.size();
+        String[] userIds = new String[size];
+        String[] itemIds = new String[size];
+        ActivityType[] types = new ActivityType[size];
+        double[] amounts = new double[size];
+        String[] eventIds = new String[size];
+        for (int i = 0; i < size; i++) {
+            RequestReader activity = batch.get(i);
+            userIds[i] = requireString(activity, "userId");
+            itemIds[i] = activity.readString("itemId");
+            types[i] = ActivityType.valueOf(requireString(activity, "type"));
+            amounts[i] = activity.readDouble("amount");
+            eventIds[i] = activity.readString("eventId");
+        }
+
+        ResponseWriter out = codec.writer();
+        out.beginObject();
+        out.beginList("points", size);
+        for (int i = 0; i < size; i++) {
+            int points;
+            ReentrantLock lock = lockFor(userIds[i]);
+            lock.lock();
+            try {
+                points = facade.processActivity(userIds[i], itemIds[i], types[i], amounts[i], eventIds[i]);
+            } finally {
+                lock.unlock();
+            }
+            out.writeInt(null, points);
+        }
+        out.endList();
+        out.endObject();
+        return ok(codec, out);
+    }
+
+    private HttpResponse stats(String userId, Codec codec) {
+        UserStatsSnapshot snapshot = facade.getUserStatsSnapshot(userId);
+        if (snapshot == null) {
+            return HttpResponse.error(HttpResponse.NOT_FOUND, codec, "User not found");
+        }
+        Map<String, Object> stats = snapshot.asMap();
+        ResponseWriter out = codec.writer();
+        out.beginObject();
+        out.writeString("userId", (String) stats.get("userId"));
+        out.writeString("username", (String) stats.get("username"));
+        out.writeInt("totalPoints", (Integer) stats.get("totalPoints"));
+        out.writeString("tier", stats.get("tier").toString());
+        out.writeInt("loginStreak", (Integer) stats.get("loginStreak"));
+        out.writeInt("followersCount", (Integer) stats.get("followersCount"));
+        out.writeInt("followingCount", (Integer) stats.get("followingCount"));
+        out.writeDouble("percentile", facade.getPercentile(userId));
+        out.endObject();
+        return ok(codec, out);
+    }
+
+    private HttpResponse leaderboard(HttpRequest request, Codec codec) {
+        String windowName = request.getQueryParameter("window");
+        String tierName = request.getQueryParameter("tier");
+        String limitValue = request.getQueryParameter("limit");
+        LeaderboardWindow window = windowName != null ? LeaderboardWindow.valueOf(windowName) : LeaderboardWindow.ALL_TIME;
+        MembershipTier tier = tierName != null ? MembershipTier.valueOf(tierName) : null;
+        int limit = limitValue != null ? Integer.parseInt(limitValue) : DEFAULT_LEADERBOARD_LIMIT;
+
+        List<LeaderboardEntry> entries = facade.getLeaderboard(tier, window, limit);
+        ResponseWriter out = codec.writer();
+        out.beginObject();
+        out.beginList("entries", entries.size());
+        for (LeaderboardEntry entry : entries) {
+            out.beginObject();
+            out.writeString("userId", entry.getUserId());
+            out.writeInt("points", entry.getPoints());
+            out.endObject();
+        }
+        out.endList();
+        out.endObject();
+        return ok(codec, out);
+    }
+
+    private HttpResponse createChallenge(RequestReader in, Codec codec) throws IOException {
+        String userId = requireString(in, "userId");
+        String name = requireString(in, "name");
+        String description = in.readString("description");
+        int targetPoints = in.readInt("targetPoints");
+        int durationHours = in.readInt("durationHours");
+        String reward = in.readString("reward");
+        CollaborativeChallenge challenge;
+        challengeLock.lock();
+        try {
+            challenge = facade.createAndJoinChallenge(userId, name, description, targetPoints, durationHours, reward);
+        } finally {
+            challengeLock.unlock();
+        }
+        if (challenge == null) {
+            return HttpResponse.error(HttpResponse.NOT_FOUND, codec, "User not found");
+        }
+        ResponseWriter out = codec.writer();
+        out.beginObject();
+        out.writeString("challengeId", challenge.getChallengeId());
+        out.writeString("name", challenge.getName());
+        out.writeInt("targetPoints", challenge.getTargetPoints());
+        out.writeString("endTime", challenge.getEndTime().toString());
+        out.endObject();
+        return ok(codec, out);
+    }
+
+    private HttpResponse contribute(String challengeId, RequestReader in, Codec codec) throws IOException {
+        String userId = requireString(in, "userId");
+        int points = in.readInt("points");
+        boolean accepted;
+        // Completing a challenge rewards every participant, so contributions share one lock
+        challengeLock.lock();
+        try {
+            accepted = facade.contributeToChallenge(userId, challengeId, points);
+        } finally {
+            challengeLock.unlock();
+        }
+        ResponseWriter out = codec.writer();
+        out.beginObject();
+        out.writeBoolean("accepted", accepted);
+        out.endObject();
+        return ok(codec, out);
+    }
+
+    private ReentrantLock lockFor(String userId) {
+        int h = userId.hashCode();
+        return userLocks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private static String requireString(RequestReader in, String name) throws IOException {
+        String value = in.readString(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing field " + name);
+        }
+        return value;
+    }
+
+    private static boolean post(String method) {
+        return "POST".equals(method);
+    }
+
+    private static HttpResponse notAllowed(Codec codec) {
+        return HttpResponse.error(HttpResponse.METHOD_NOT_ALLOWED, codec, "Method not allowed");
+    }
+
+    private static HttpResponse ok(Codec codec, ResponseWriter out) {
+        return new HttpResponse(HttpResponse.OK, codec.getContentType(), out.toByteArray());
+    }
+}
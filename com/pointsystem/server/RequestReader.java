@@ -0,0 +1,22 @@
+package com.pointsystem.server;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the fields of a request body. JSON bodies are looked up by field name; binary
+ * bodies are positional, so handlers must read fields in the documented order.
+ */
+public interface RequestReader {
+    String readString(String name) throws IOException;
+
+    int readInt(String name) throws IOException;
+
+    double readDouble(String name) throws IOException;
+
+    /**
+     * Returns a reader per element of a list field. Binary elements share the underlying
+     * stream and must be consumed in order.
+     */
+    List<RequestReader> readList(String name) throws IOException;
+}
@@ -0,0 +1,27 @@
+package com.pointsystem.server;
+
+/**
+ * Writes a response body field by field. Names are emitted by the JSON codec and
+ * ignored by the binary codec, which writes values in call order.
+ */
+public interface ResponseWriter {
+    void beginObject();
+
+    void endObject();
+
+    void beginList(String name, int size);
+
+    void endList();
+
+    void writeString(String name, String value);
+
+    void writeInt(String name, int value);
+
+    void writeLong(String name, long value);
+
+    void writeDouble(String name, double value);
+
+    void writeBoolean(String name, boolean value);
+
+    byte[] toByteArray();
+}
@@ -0,0 +1,79 @@
+package com.pointsystem.shard;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring with virtual nodes. Built once for a fixed list of nodes; lookups
+ * are a binary search over the sorted ring positions.
+ */
+public class ConsistentHashRing<T> {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final long[] positions;
+    private final int[] owners;
+    private final List<T> nodes;
+
+    public ConsistentHashRing(List<T> nodes, int virtualNodesPerNode) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one node");
+        }
+        this.nodes = List.copyOf(nodes);
+        int size = nodes.size() * virtualNodesPerNode;
+        long[] hashes = new long[size];
+        int i = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int v = 0; v < virtualNodesPerNode; v++) {
+                hashes[i] = hash("node-" + node + "#" + v);
+                i++;
+            }
+        }
+        // Sort positions and owners together by sorting indices on hash
+        Integer[] order = new Integer[size];
+        for (int j = 0; j < size; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.positions = new long[size];
+        this.owners = new int[size];
+        for (int j = 0; j < size; j++) {
+            positions[j] = hashes[order[j]];
+            owners[j] = order[j] / virtualNodesPerNode;
+        }
+    }
+
+    public T nodeFor(String key) {
+        return nodes.get(indexFor(key));
+    }
+
+    public int indexFor(String key) {
+        long h = hash(key);
+        int pos = Arrays.binarySearch(positions, h);
+        if (pos < 0) {
+            pos = -pos - 1;
+            if (pos == positions.length) {
+                pos = 0; // Wrap around the ring
+            }
+        }
+        return owners[pos];
+    }
+
+    public List<T> getNodes() {
+        return nodes;
+    }
+
+    // 64-bit FNV-1a over the chars followed by a murmur3 finalizer for better avalanche
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
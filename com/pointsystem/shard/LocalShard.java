@@ -0,0 +1,88 @@
+package com.pointsystem.shard;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.PointSystem;
+import com.pointsystem.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shard backed by a PointSystem in the same JVM.
+ */
+public class LocalShard implements PointSystemShard {
+    private final PointSystem pointSystem;
+
+    public LocalShard(PointSystem pointSystem) {
+        this.pointSystem = pointSystem;
+    }
+
+    public PointSystem getPointSystem() {
+        return pointSystem;
+    }
+
+    @Override
+    public boolean registerUser(String userId, String username) {
+        if (pointSystem.getUser(userId) != null) {
+            return false;
+        }
+        pointSystem.registerUser(userId, username);
+        return true;
+    }
+
+    @Override
+    public boolean hasUser(String userId) {
+        return pointSystem.getUser(userId) != null;
+    }
+
+    @Override
+    public int processActivity(String userId, String itemId, ActivityType type, double amount) {
+        return pointSystem.processActivity(userId, itemId, type, amount);
+    }
+
+    @Override
+    public int processLogin(String userId) {
+        return pointSystem.processLogin(userId);
+    }
+
+    @Override
+    public int getTotalPoints(String userId) {
+        User user = pointSystem.getUser(userId);
+        return user != null ? user.getTotalPoints() : -1;
+    }
+
+    @Override
+    public List<RankedUser> getTopUsers(int n) {
+        List<RankedUser> top = new ArrayList<>();
+        for (User user : pointSystem.getTopUsers(n)) {
+            top.add(new RankedUser(user.getUserId(), user.getTotalPoints()));
+        }
+        // Points are read again here and may have moved since ranking; the shard merge needs descending input
+        top.sort((a, b) -> Integer.compare(b.getTotalPoints(), a.getTotalPoints()));
+        return top;
+    }
+
+    @Override
+    public int conductLuckyDraw(int minPoints, int maxPoints, MembershipTier selectedTier) {
+        return pointSystem.conductLuckyDraw(minPoints, maxPoints, selectedTier);
+    }
+
+    @Override
+    public void addReward(String userId, String reward) {
+        User user = pointSystem.getUser(userId);
+        if (user != null) {
+            user.addReward(reward);
+        }
+    }
+
+    @Override
+    public void resetDailyCounts() {
+        pointSystem.resetDailyCounts();
+    }
+
+    @Override
+    public void close() {
+        pointSystem.flushPendingWrites();
+    }
+}
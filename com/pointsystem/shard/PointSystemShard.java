@@ -0,0 +1,33 @@
+package com.pointsystem.shard;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.MembershipTier;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * One partition of the user population. Implemented in-process by {@link LocalShard}
+ * and over a socket by {@link RemoteShard}.
+ */
+public interface PointSystemShard extends Closeable {
+    boolean registerUser(String userId, String username);
+
+    boolean hasUser(String userId);
+
+    int processActivity(String userId, String itemId, ActivityType type, double amount);
+
+    int processLogin(String userId);
+
+    // Returns -1 if the user is not on this shard
+    int getTotalPoints(String userId);
+
+    // Sorted by points, highest first
+    List<RankedUser> getTopUsers(int n);
+
+    int conductLuckyDraw(int minPoints, int maxPoints, MembershipTier selectedTier);
+
+    void addReward(String userId, String reward);
+
+    void resetDailyCounts();
+}
@@ -0,0 +1,22 @@
+package com.pointsystem.shard;
+
+/**
+ * A userId with its total points, as returned by shard leaderboard queries.
+ */
+public class RankedUser {
+    private final String userId;
+    private final int totalPoints;
+
+    public RankedUser(String userId, int totalPoints) {
+        this.userId = userId;
+        this.totalPoints = totalPoints;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getTotalPoints() {
+        return totalPoints;
+    }
+}
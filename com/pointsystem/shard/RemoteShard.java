@@ -0,0 +1,161 @@
+package com.pointsystem.shard;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.MembershipTier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client for a shard served by {@link ShardServer}. Requests on one connection are
+ * serialized; create one RemoteShard per caller thread pool if more parallelism is needed.
+ */
+public class RemoteShard implements PointSystemShard {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public RemoteShard(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress().getHostAddress(), port);
+    }
+
+    public RemoteShard(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    @Override
+    public synchronized boolean registerUser(String userId, String username) {
+        try {
+            out.writeByte(ShardProtocol.REGISTER_USER);
+            ShardProtocol.writeString(out, userId);
+            ShardProtocol.writeString(out, username);
+            out.flush();
+            return in.readBoolean();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error registering user on remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized boolean hasUser(String userId) {
+        try {
+            out.writeByte(ShardProtocol.HAS_USER);
+            ShardProtocol.writeString(out, userId);
+            out.flush();
+            return in.readBoolean();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error looking up user on remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized int processActivity(String userId, String itemId, ActivityType type, double amount) {
+        try {
+            out.writeByte(ShardProtocol.PROCESS_ACTIVITY);
+            ShardProtocol.writeString(out, userId);
+            ShardProtocol.writeString(out, itemId);
+            out.writeInt(type.getTypeId());
+            out.writeDouble(amount);
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error processing activity on remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized int processLogin(String userId) {
+        try {
+            out.writeByte(ShardProtocol.PROCESS_LOGIN);
+            ShardProtocol.writeString(out, userId);
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error processing login on remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized int getTotalPoints(String userId) {
+        try {
+            out.writeByte(ShardProtocol.GET_TOTAL_POINTS);
+            ShardProtocol.writeString(out, userId);
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading points from remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized List<RankedUser> getTopUsers(int n) {
+        try {
+            out.writeByte(ShardProtocol.GET_TOP_USERS);
+            out.writeInt(n);
+            out.flush();
+            int size = in.readInt();
+            List<RankedUser> top = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String userId = ShardProtocol.readString(in);
+                top.add(new RankedUser(userId, in.readInt()));
+            }
+            return top;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading leaderboard from remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized int conductLuckyDraw(int minPoints, int maxPoints, MembershipTier selectedTier) {
+        try {
+            out.writeByte(ShardProtocol.LUCKY_DRAW);
+            out.writeInt(minPoints);
+            out.writeInt(maxPoints);
+            out.writeInt(selectedTier != null ? selectedTier.getTierId() : ShardProtocol.NO_TIER);
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error conducting lucky draw on remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized void addReward(String userId, String reward) {
+        try {
+            out.writeByte(ShardProtocol.ADD_REWARD);
+            ShardProtocol.writeString(out, userId);
+            ShardProtocol.writeString(out, reward);
+            out.flush();
+            in.readBoolean();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error adding reward on remote shard", e);
+        }
+    }
+
+    @Override
+    public synchronized void resetDailyCounts() {
+        try {
+            out.writeByte(ShardProtocol.RESET_DAILY_COUNTS);
+            out.flush();
+            in.readBoolean();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error resetting daily counts on remote shard", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
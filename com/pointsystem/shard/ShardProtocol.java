@@ -0,0 +1,36 @@
+package com.pointsystem.shard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary request/response protocol between {@link RemoteShard} and {@link ShardServer}.
+ * Each request is an opcode byte followed by its arguments; strings are written with
+ * writeUTF and a null string is sent as an empty one.
+ */
+final class ShardProtocol {
+    static final byte REGISTER_USER = 1;
+    static final byte HAS_USER = 2;
+    static final byte PROCESS_ACTIVITY = 3;
+    static final byte PROCESS_LOGIN = 4;
+    static final byte GET_TOTAL_POINTS = 5;
+    static final byte GET_TOP_USERS = 6;
+    static final byte LUCKY_DRAW = 7;
+    static final byte ADD_REWARD = 8;
+    static final byte RESET_DAILY_COUNTS = 9;
+
+    static final int NO_TIER = 0;
+
+    private ShardProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeUTF(value != null ? value : "");
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        String value = in.readUTF();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,155 @@
+package com.pointsystem.shard;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.PointSystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a {@link PointSystemShard} over a socket so shards can run in separate processes.
+ * Run with {@code java com.pointsystem.shard.ShardServer <port>} to start a standalone shard
+ * on the loopback interface.
+ */
+public class ShardServer implements AutoCloseable {
+    private final PointSystemShard shard;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private volatile boolean running;
+
+    public ShardServer(PointSystemShard shard, int port) throws IOException {
+        this.shard = shard;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.connections = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start() {
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "shard-server-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.submit(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Error accepting shard connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (running) {
+                byte opcode;
+                try {
+                    opcode = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                handle(opcode, in, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Error serving shard connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(byte opcode, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (opcode) {
+            case ShardProtocol.REGISTER_USER: {
+                String userId = ShardProtocol.readString(in);
+                String username = ShardProtocol.readString(in);
+                out.writeBoolean(shard.registerUser(userId, username));
+                break;
+            }
+            case ShardProtocol.HAS_USER:
+                out.writeBoolean(shard.hasUser(ShardProtocol.readString(in)));
+                break;
+            case ShardProtocol.PROCESS_ACTIVITY: {
+                String userId = ShardProtocol.readString(in);
+                String itemId = ShardProtocol.readString(in);
+                ActivityType type = ActivityType.getTypeById(in.readInt());
+                double amount = in.readDouble();
+                out.writeInt(shard.processActivity(userId, itemId, type, amount));
+                break;
+            }
+            case ShardProtocol.PROCESS_LOGIN:
+                out.writeInt(shard.processLogin(ShardProtocol.readString(in)));
+                break;
+            case ShardProtocol.GET_TOTAL_POINTS:
+                out.writeInt(shard.getTotalPoints(ShardProtocol.readString(in)));
+                break;
+            case ShardProtocol.GET_TOP_USERS: {
+                List<RankedUser> top = shard.getTopUsers(in.readInt());
+                out.writeInt(top.size());
+                for (RankedUser user : top) {
+                    ShardProtocol.writeString(out, user.getUserId());
+                    out.writeInt(user.getTotalPoints());
+                }
+                break;
+            }
+            case ShardProtocol.LUCKY_DRAW: {
+                int minPoints = in.readInt();
+                int maxPoints = in.readInt();
+                int tierId = in.readInt();
+                MembershipTier tier = tierId == ShardProtocol.NO_TIER ? null : MembershipTier.getTierById(tierId);
+                out.writeInt(shard.conductLuckyDraw(minPoints, maxPoints, tier));
+                break;
+            }
+            case ShardProtocol.ADD_REWARD: {
+                String userId = ShardProtocol.readString(in);
+                shard.addReward(userId, ShardProtocol.readString(in));
+                out.writeBoolean(true);
+                break;
+            }
+            case ShardProtocol.RESET_DAILY_COUNTS:
+                shard.resetDailyCounts();
+                out.writeBoolean(true);
+                break;
+            default:
+                throw new IOException("Unknown shard opcode " + opcode);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        connections.shutdownNow();
+        shard.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        ShardServer server = new ShardServer(new LocalShard(new PointSystem()), port);
+        server.start();
+        System.out.println("Shard listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
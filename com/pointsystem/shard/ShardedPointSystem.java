@@ -0,0 +1,228 @@
+package com.pointsystem.shard;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.CollaborativeChallenge;
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.UserIdRegistry;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Partitions users across N {@link PointSystemShard}s by consistent hashing of userId.
+ *
+ * User-scoped operations (including the PointCalculator caps, which are keyed by user)
+ * go to the owning shard. Leaderboard and lucky draw queries are scattered to every shard
+ * in parallel and gathered here; leaderboards are combined with a k-way merge. Collaborative
+ * challenges are held by this coordinator so that progress from all shards aggregates.
+ */
+public class ShardedPointSystem implements AutoCloseable {
+    private final ConsistentHashRing<PointSystemShard> ring;
+    private final ExecutorService scatterExecutor;
+    private final Map<String, CollaborativeChallenge> challenges;
+    // Shard dense ids overlap, so challenge contributions are keyed by coordinator-wide ids
+    private final UserIdRegistry participantIds;
+    private final Clock clock;
+    private final Random random;
+
+    public ShardedPointSystem(List<PointSystemShard> shards) {
+        this(shards, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardedPointSystem(List<PointSystemShard> shards, int virtualNodesPerShard) {
+        this(shards, virtualNodesPerShard, clockOf(shards), new Random());
+    }
+
+    /**
+     * Creates a coordinator whose challenge ids and times come from the given clock and seed,
+     * so a simulation over seeded shards is reproducible.
+     */
+    public ShardedPointSystem(List<PointSystemShard> shards, int virtualNodesPerShard, Clock clock, long seed) {
+        this(shards, virtualNodesPerShard, clock, new Random(seed));
+    }
+
+    private ShardedPointSystem(List<PointSystemShard> shards, int virtualNodesPerShard, Clock clock, Random random) {
+        this.clock = clock;
+        this.random = random;
+        this.ring = new ConsistentHashRing<>(shards, virtualNodesPerShard);
+        this.scatterExecutor = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread thread = new Thread(r, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.challenges = new ConcurrentHashMap<>();
+        this.participantIds = new UserIdRegistry();
+    }
+
+    public PointSystemShard shardFor(String userId) {
+        return ring.nodeFor(userId);
+    }
+
+    public int getShardCount() {
+        return ring.getNodes().size();
+    }
+
+    public boolean registerUser(String userId, String username) {
+        return shardFor(userId).registerUser(userId, username);
+    }
+
+    public int processActivity(String userId, String itemId, ActivityType type, double amount) {
+        return shardFor(userId).processActivity(userId, itemId, type, amount);
+    }
+
+    public int processLogin(String userId) {
+        return shardFor(userId).processLogin(userId);
+    }
+
+    public int getTotalPoints(String userId) {
+        return shardFor(userId).getTotalPoints(userId);
+    }
+
+    /**
+     * Global top-N: each shard returns its own top N and the sorted lists are k-way merged.
+     */
+    public List<RankedUser> getTopUsers(int n) {
+        List<List<RankedUser>> perShard = scatter(shard -> shard.getTopUsers(n));
+
+        PriorityQueue<int[]> cursors = new PriorityQueue<>((a, b) -> Integer.compare(
+            perShard.get(b[0]).get(b[1]).getTotalPoints(), perShard.get(a[0]).get(a[1]).getTotalPoints()));
+        for (int shard = 0; shard < perShard.size(); shard++) {
+            if (!perShard.get(shard).isEmpty()) {
+                cursors.add(new int[] {shard, 0});
+            }
+        }
+
+        List<RankedUser> top = new ArrayList<>(n);
+        while (top.size() < n && !cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            List<RankedUser> shardTop = perShard.get(cursor[0]);
+            top.add(shardTop.get(cursor[1]));
+            if (++cursor[1] < shardTop.size()) {
+                cursors.add(cursor);
+            }
+        }
+        return top;
+    }
+
+    public int conductLuckyDraw(int minPoints, int maxPoints, MembershipTier selectedTier) {
+        int affected = 0;
+        for (int count : scatter(shard -> shard.conductLuckyDraw(minPoints, maxPoints, selectedTier))) {
+            affected += count;
+        }
+        return affected;
+    }
+
+    public void resetDailyCounts() {
+        scatter(shard -> {
+            shard.resetDailyCounts();
+            return Boolean.TRUE;
+        });
+    }
+
+    public CollaborativeChallenge createCollaborativeChallenge(String name, String description,
+                                                              int targetPoints, int durationHours,
+                                                              String reward) {
+        String challengeId = String.format("challenge-%08x", random.nextInt());
+        LocalDateTime startTime = LocalDateTime.now(clock);
+        CollaborativeChallenge challenge = new CollaborativeChallenge(
+            challengeId, name, description, targetPoints, startTime, startTime.plusHours(durationHours), reward, clock
+        );
+        challenges.put(challengeId, challenge);
+        return challenge;
+    }
+
+    // In-process shards share their point system's clock; remote ones keep their own
+    private static Clock clockOf(List<PointSystemShard> shards) {
+        for (PointSystemShard shard : shards) {
+            if (shard instanceof LocalShard local) {
+                return local.getPointSystem().getClock();
+            }
+        }
+        return Clock.systemDefaultZone();
+    }
+
+    public CollaborativeChallenge getChallenge(String challengeId) {
+        return challenges.get(challengeId);
+    }
+
+    public boolean joinCollaborativeChallenge(String userId, String challengeId) {
+        CollaborativeChallenge challenge = challenges.get(challengeId);
+        if (challenge == null || !shardFor(userId).hasUser(userId)) {
+            return false;
+        }
+        synchronized (challenge) {
+            if (!challenge.isActive()) {
+                return false;
+            }
+            challenge.addParticipant(userId, participantIds.register(userId));
+        }
+        return true;
+    }
+
+    /**
+     * Adds a participant's contribution to the shared challenge total. When the target is
+     * reached, the reward is granted to every participant on whichever shard owns them.
+     */
+    public boolean contributeToChallenge(String userId, String challengeId, int points) {
+        CollaborativeChallenge challenge = challenges.get(challengeId);
+        if (challenge == null) {
+            return false;
+        }
+        List<String> winners = null;
+        synchronized (challenge) {
+            if (!challenge.getParticipants().contains(userId) || !challenge.isActive()) {
+                return false;
+            }
+            challenge.addContribution(participantIds.getId(userId), points);
+            if (challenge.isCompleted()) {
+                challenge.setActive(false);
+                winners = new ArrayList<>(challenge.getParticipants());
+            }
+        }
+        if (winners != null) {
+            for (String participantId : winners) {
+                shardFor(participantId).addReward(participantId, challenge.getReward());
+            }
+        }
+        return true;
+    }
+
+    private <R> List<R> scatter(Function<PointSystemShard, R> request) {
+        List<Future<R>> futures = new ArrayList<>();
+        for (PointSystemShard shard : ring.getNodes()) {
+            futures.add(scatterExecutor.submit(() -> request.apply(shard)));
+        }
+        List<R> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during shard scatter", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shard request failed", e.getCause());
+        }
+        return results;
+    }
+
+    @Override
+    public void close() throws IOException {
+        scatterExecutor.shutdown();
+        for (PointSystemShard shard : ring.getNodes()) {
+            shard.close();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.pointsystem.sim;
+
+import com.pointsystem.model.ActivityType;
+import com.pointsystem.model.MembershipTier;
+import com.pointsystem.model.PointCalculator;
+import com.pointsystem.model.PointSystem;
+import com.pointsystem.model.User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Deterministic simulation of the point economy in virtual time. A population of synthetic
+ * users logs in and performs activities hour by hour against a {@link PointSystem} driven by a
+ * {@link VirtualClock} and a seeded generator; daily surprise rewards and weekly decay run at
+ * day boundaries. Reports throughput, point inflation per day and the final tier distribution.
+ *
+ * With one thread the same seed reproduces the same run. Each worker owns a fixed slice of
+ * the users and draws from its own split of the seeded generator, and population-wide jobs
+ * run between hours on a single thread, but workers share the items, so with several threads
+ * the order of their engagement (and the trending and badge awards it triggers) varies.
+ *
+ * Users keep their full activity history, so heap use grows with the number of activities;
+ * runs with millions of users need a correspondingly larger heap.
+ *
+ * <pre>
+ * java com.pointsystem.sim.EconomySimulator [users] [days] [dailyActiveRate]
+ *      [actionsPerSession] [threads] [seed]
+ * </pre>
+ */
+public class EconomySimulator {
+    public static final Instant DEFAULT_START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private static final ActivityType[] ACTIVITY_MIX = {
+        ActivityType.LIKE, ActivityType.LIKE, ActivityType.LIKE, ActivityType.COMMENT, ActivityType.COMMENT,
+        ActivityType.VIDEO_WATCH, ActivityType.VIDEO_WATCH, ActivityType.SHARE, ActivityType.POST,
+        ActivityType.PURCHASE
+    };
+    private static final int ITEMS = 10_000;
+
+    private final int userCount;
+    private final int days;
+    private final double dailyActiveRate;
+    private final int actionsPerSession;
+    private final int threads;
+    private final long seed;
+
+    public EconomySimulator(int userCount, int days, double dailyActiveRate, int actionsPerSession,
+                            int threads, long seed) {
+        this.userCount = userCount;
+        this.days = days;
+        this.dailyActiveRate = dailyActiveRate;
+        this.actionsPerSession = actionsPerSession;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Outcome of a run. Point totals are sampled at the end of each virtual day.
+     */
+    public static final class Report {
+        private final long logins;
+        private final long activities;
+        private final long pointsAwarded;
+        private final long elapsedNanos;
+        private final long setupNanos;
+        private final long[] totalPointsByDay;
+        private final long[] usersByTier;
+        private final int userCount;
+
+        Report(long logins, long activities, long pointsAwarded, long elapsedNanos, long setupNanos,
+               long[] totalPointsByDay, long[] usersByTier, int userCount) {
+            this.logins = logins;
+            this.activities = activities;
+            this.pointsAwarded = pointsAwarded;
+            this.elapsedNanos = elapsedNanos;
+            this.setupNanos = setupNanos;
+            this.totalPointsByDay = totalPointsByDay;
+            this.usersByTier = usersByTier;
+            this.userCount = userCount;
+        }
+
+        public long getLogins() {
+            return logins;
+        }
+
+        public long getActivities() {
+            return activities;
+        }
+
+        public long getPointsAwarded() {
+            return pointsAwarded;
+        }
+
+        /**
+         * Logins plus activities per wall-clock second, excluding population setup.
+         */
+        public double getEventsPerSecond() {
+            return (logins + activities) * 1e9 / elapsedNanos;
+        }
+
+        public double getVirtualDaysPerSecond() {
+            return totalPointsByDay.length * 1e9 / elapsedNanos;
+        }
+
+        public long getSetupMillis() {
+            return setupNanos / 1_000_000;
+        }
+
+        public long getTotalPoints(int day) {
+            return totalPointsByDay[day];
+        }
+
+        public double getMeanPoints(int day) {
+            return userCount == 0 ? 0 : (double) totalPointsByDay[day] / userCount;
+        }
+
+        /**
+         * Percentage growth of the points in circulation over the given day.
+         */
+        public double getInflation(int day) {
+            long previous = day == 0 ? 0 : totalPointsByDay[day - 1];
+            return previous == 0 ? 0 : 100.0 * (totalPointsByDay[day] - previous) / previous;
+        }
+
+        public long getUsersInTier(MembershipTier tier) {
+            return usersByTier[tier.ordinal()];
+        }
+
+        public int getDays() {
+            return totalPointsByDay.length;
+        }
+    }
+
+    public Report run() throws InterruptedException {
+        long setupStart = System.nanoTime();
+        VirtualClock clock = new VirtualClock(DEFAULT_START, ZoneOffset.UTC);
+        PointSystem pointSystem = new PointSystem(clock, seed);
+        User[] users = new User[userCount];
+        for (int i = 0; i < userCount; i++) {
+            users[i] = pointSystem.registerUser("sim-" + i, "sim" + i);
+            users[i].setZoneId(clock.getZone());
+        }
+        String[] itemIds = new String[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            itemIds[i] = "item-" + i;
+        }
+
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Worker(pointSystem, users, itemIds, t, root.split()));
+        }
+        long setupNanos = System.nanoTime() - setupStart;
+
+        long[] totalPointsByDay = new long[days];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            for (int day = 0; day < days; day++) {
+                for (int hour = 0; hour < 24; hour++) {
+                    List<Future<?>> hourWork = new ArrayList<>(threads);
+                    for (Worker worker : workers) {
+                        hourWork.add(executor.submit(worker::runHour));
+                    }
+                    for (Future<?> work : hourWork) {
+                        try {
+                            work.get();
+                        } catch (ExecutionException e) {
+                            throw new IllegalStateException("Simulation worker failed", e.getCause());
+                        }
+                    }
+                    clock.advance(Duration.ofHours(1));
+                }
+                // Day boundary: population-wide jobs run alone so their draws stay in a fixed order
+                pointSystem.generateSurpriseRewards();
+                if ((day + 1) % 7 == 0) {
+                    pointSystem.applyWeeklyPointsDecay();
+                }
+                PointCalculator calculator = pointSystem.getPointCalculator();
+                calculator.compactStaleEntries(calculator.getCapEntryCount());
+                totalPointsByDay[day] = totalPoints(users);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        long logins = 0;
+        long activities = 0;
+        long pointsAwarded = 0;
+        for (Worker worker : workers) {
+            logins += worker.logins;
+            activities += worker.activities;
+            pointsAwarded += worker.pointsAwarded;
+        }
+        long[] usersByTier = new long[MembershipTier.values().length];
+        for (User user : users) {
+            usersByTier[user.getTier().ordinal()]++;
+        }
+        return new Report(logins, activities, pointsAwarded, elapsedNanos, setupNanos,
+            totalPointsByDay, usersByTier, userCount);
+    }
+
+    private static long totalPoints(User[] users) {
+        long total = 0;
+        for (User user : users) {
+            total += user.getTotalPoints();
+        }
+        return total;
+    }
+
+    /**
+     * Drives the users whose index is congruent to its slice number. Each hour every one of
+     * them starts a session with probability dailyActiveRate / 24; sessions are found by
+     * skipping geometrically distributed gaps instead of drawing once per user.
+     */
+    private final class Worker {
+        private final PointSystem pointSystem;
+        private final User[] users;
+        private final String[] itemIds;
+        private final int slice;
+        private final SplittableRandom random;
+        private final double logMiss;
+        private long logins;
+        private long activities;
+        private long pointsAwarded;
+
+        Worker(PointSystem pointSystem, User[] users, String[] itemIds, int slice, SplittableRandom random) {
+            this.pointSystem = pointSystem;
+            this.users = users;
+            this.itemIds = itemIds;
+            this.slice = slice;
+            this.random = random;
+            this.logMiss = Math.log1p(-Math.min(0.999999, dailyActiveRate / 24));
+        }
+
+        void runHour() {
+            long index = slice + (long) threads * nextGap();
+            while (index < users.length) {
+                runSession(users[(int) index]);
+                index += (long) threads * (1 + nextGap());
+            }
+        }
+
+        private long nextGap() {
+            return (long) (Math.log(1 - random.nextDouble()) / logMiss);
+        }
+
+        private void runSession(User user) {
+            String userId = user.getUserId();
+            pointSystem.processLogin(userId);
+            logins++;
+            int actions = 1 + random.nextInt(2 * actionsPerSession - 1);
+            for (int i = 0; i < actions; i++) {
+                ActivityType type = ACTIVITY_MIX[random.nextInt(ACTIVITY_MIX.length)];
+                String itemId = itemIds[random.nextInt(itemIds.length)];
+                double amount = switch (type) {
+                    case VIDEO_WATCH -> 1 + random.nextInt(10);
+                    case PURCHASE -> 1 + random.nextInt(50);
+                    default -> 1;
+                };
+                pointsAwarded += pointSystem.processActivity(userId, itemId, type, amount);
+                activities++;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 250_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 28;
+        double dailyActiveRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+        int actionsPerSession = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+
+        System.out.printf("users=%d days=%d dailyActiveRate=%.2f actionsPerSession=%d threads=%d seed=%d%n",
+            users, days, dailyActiveRate, actionsPerSession, threads, seed);
+        Report report = new EconomySimulator(users, days, dailyActiveRate, actionsPerSession, threads, seed).run();
+
+        System.out.printf("%5s %16s %12s %10s%n", "day", "total points", "mean", "inflation");
+        for (int day = 0; day < report.getDays(); day++) {
+            System.out.printf("%5d %,16d %,12.1f %9.2f%%%n", day + 1, report.getTotalPoints(day),
+                report.getMeanPoints(day), report.getInflation(day));
+        }
+        for (MembershipTier tier : MembershipTier.values()) {
+            long count = report.getUsersInTier(tier);
+            System.out.printf("%-9s %,10d  %5.1f%%%n", tier, count, users == 0 ? 0 : 100.0 * count / users);
+        }
+        System.out.printf("setup %,d ms, %,d logins, %,d activities, %,d points awarded%n",
+            report.getSetupMillis(), report.getLogins(), report.getActivities(), report.getPointsAwarded());
+        System.out.printf("%,.0f events/s, %.2f virtual days/s%n",
+            report.getEventsPerSecond(), report.getVirtualDaysPerSecond());
+    }
+}